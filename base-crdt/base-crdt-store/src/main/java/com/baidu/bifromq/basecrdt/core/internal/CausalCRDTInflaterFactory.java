@@ -15,8 +15,10 @@ package com.baidu.bifromq.basecrdt.core.internal;
 
 import com.baidu.bifromq.basecrdt.core.api.CRDTURI;
 import com.baidu.bifromq.basecrdt.core.api.ICausalCRDTInflater;
+import com.baidu.bifromq.basecrdt.proto.Replacement;
 import com.baidu.bifromq.basecrdt.proto.Replica;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.concurrent.ScheduledExecutorService;
 
 /**
@@ -48,10 +50,22 @@ public class CausalCRDTInflaterFactory {
      * @return The {@link CausalCRDTInflater} instance.
      */
     public ICausalCRDTInflater<?, ?> create(Replica replicaId) {
+        return create(replicaId, Collections.emptyList());
+    }
+
+    /**
+     * Create a {@link CausalCRDTInflater} instance with its state lattice pre-populated, e.g. from a local snapshot.
+     *
+     * @param replicaId The typed ID of the replicaId.
+     * @param initState The replacements to join into the state lattice before the inflater is built.
+     * @return The {@link CausalCRDTInflater} instance.
+     */
+    public ICausalCRDTInflater<?, ?> create(Replica replicaId, Iterable<Replacement> initState) {
         CRDTURI.checkURI(replicaId.getUri());
 
         IReplicaStateLattice lattice =
             new InMemReplicaStateLattice(replicaId, orHistoryExpiryTime, maxCompactionTime);
+        lattice.join(initState);
 
         return switch (CRDTURI.parseType(replicaId.getUri())) {
             case aworset -> new AWORSetInflater(replicaId, lattice, executor, inflationInterval, tags);
@@ -125,6 +125,12 @@ class InMemReplicaStateLattice implements IReplicaStateLattice {
     private void join(Iterable<Replacement> delta, Set<StateLattice> adds, Set<StateLattice> rems) {
         for (Replacement replacement : delta) {
             assert replacement.getDotsCount() > 0;
+            for (Dot d : replacement.getDotsList()) {
+                if (d.getReplicaId().equals(ownerReplica.getId())) {
+                    // own events may come back from a snapshot or peers after restart, never reuse their versions
+                    this.event.accumulateAndGet(d.getVer(), Math::max);
+                }
+            }
             Dot dot = replacement.getDots(0);
             Event event = Event.from(dot);
             EventInfo eventInfo = eventDAG.get(event);
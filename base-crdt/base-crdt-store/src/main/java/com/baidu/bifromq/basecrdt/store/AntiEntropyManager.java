@@ -120,6 +120,10 @@ final class AntiEntropyManager {
         return (C) crdtInflater.getCRDT();
     }
 
+    ICausalCRDTInflater<?, ?> inflater() {
+        return crdtInflater;
+    }
+
     Observable<NeighborMessage> neighborMessages() {
         return neighborMessageSubject;
     }
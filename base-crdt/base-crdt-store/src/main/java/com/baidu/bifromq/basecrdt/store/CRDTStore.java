@@ -19,6 +19,7 @@ import static com.baidu.bifromq.basecrdt.util.Formatter.toStringifiable;
 
 import com.baidu.bifromq.basecrdt.core.api.ICRDTOperation;
 import com.baidu.bifromq.basecrdt.core.api.ICausalCRDT;
+import com.baidu.bifromq.basecrdt.core.api.ICausalCRDTInflater;
 import com.baidu.bifromq.basecrdt.core.exception.CRDTNotFoundException;
 import com.baidu.bifromq.basecrdt.core.internal.CausalCRDTInflaterFactory;
 import com.baidu.bifromq.basecrdt.proto.Replica;
@@ -41,11 +42,14 @@ import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 import io.reactivex.rxjava3.subjects.Subject;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 
@@ -90,6 +94,8 @@ class CRDTStore implements ICRDTStore {
     private final CompositeDisposable disposable = new CompositeDisposable();
     private final ScheduledExecutorService storeExecutor;
     private final MetricManager metricManager;
+    private final ReplicaSnapshotter snapshotter;
+    private volatile ScheduledFuture<?> snapshotTask;
 
     public CRDTStore(CRDTStoreOptions options) {
         this.options = options;
@@ -104,6 +110,9 @@ class CRDTStore implements ICRDTStore {
             tags);
         compressor = Compressor.newInstance(options.compressAlgorithm());
         metricManager = new MetricManager(Tags.of(tags));
+        snapshotter = options.snapshotDir() == null ? null
+            : new ReplicaSnapshotter(options.snapshotDir(), options.orHistoryExpireTime(), this::isHosted,
+            Tags.of(tags));
     }
 
     @Override
@@ -116,7 +125,8 @@ class CRDTStore implements ICRDTStore {
         checkState();
         AntiEntropyManager antiEntropyMgr = antiEntroyMgrs.computeIfAbsent(replicaId.getUri(),
             k -> new AntiEntropyManager(localAddr,
-                inflaterFactory.create(replicaId),
+                inflaterFactory.create(replicaId,
+                    snapshotter == null ? Collections.emptyList() : snapshotter.load(replicaId.getUri())),
                 storeExecutor,
                 options.maxEventsInDelta()));
         antiEntropyMgr.neighborMessages()
@@ -136,6 +146,10 @@ class CRDTStore implements ICRDTStore {
         if (antiEntropyMgr == null) {
             return CompletableFuture.failedFuture(new CRDTNotFoundException());
         }
+        if (snapshotter != null) {
+            // the in-flight saving is finished before deleting, and the later ones are skipped
+            return CompletableFuture.allOf(antiEntropyMgr.stop(), snapshotter.delete(replicaId.getUri()));
+        }
         return antiEntropyMgr.stop();
     }
 
@@ -172,6 +186,9 @@ class CRDTStore implements ICRDTStore {
                     }
                 }));
             state.set(State.STARTED);
+            if (snapshotter != null) {
+                scheduleSnapshot();
+            }
             log.debug("Started CRDTStore[{}]", id());
         } else {
             log.warn("Start more than one time");
@@ -182,6 +199,13 @@ class CRDTStore implements ICRDTStore {
     public void stop() {
         if (state.compareAndSet(State.STARTED, State.STOPPED)) {
             log.debug("Stop CRDTStore[{}]", id());
+            if (snapshotter != null) {
+                if (snapshotTask != null) {
+                    snapshotTask.cancel(false);
+                }
+                // no final snapshot, the changes since last snapshot will be shipped by anti-entropy after restart
+                snapshotter.close();
+            }
             antiEntroyMgrs.forEach((uri, aaMgr) -> aaMgr.stop());
             antiEntroyMgrs.clear();
             metricManager.close();
@@ -190,6 +214,28 @@ class CRDTStore implements ICRDTStore {
         }
     }
 
+    private boolean isHosted(ICausalCRDTInflater<?, ?> inflater) {
+        AntiEntropyManager antiEntropyMgr = antiEntroyMgrs.get(inflater.id().getUri());
+        return antiEntropyMgr != null && antiEntropyMgr.inflater() == inflater;
+    }
+
+    private void scheduleSnapshot() {
+        snapshotTask = storeExecutor.schedule(() -> snapshot().whenComplete((v, e) -> {
+            if (e != null) {
+                log.warn("Failed to snapshot replicas of CRDTStore[{}]", id(), e);
+            }
+            if (started()) {
+                scheduleSnapshot();
+            }
+        }), options.snapshotInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<Void> snapshot() {
+        return CompletableFuture.allOf(antiEntroyMgrs.values().stream()
+            .map(aaMgr -> snapshotter.save(aaMgr.inflater()))
+            .toArray(CompletableFuture[]::new));
+    }
+
     private void handleStoreMessage(CRDTStoreMessage msg) {
         AntiEntropyManager antiEntropyMgr = antiEntroyMgrs.get(msg.getUri());
         if (antiEntropyMgr != null && antiEntropyMgr.localAddr().equals(msg.getReceiver())) {
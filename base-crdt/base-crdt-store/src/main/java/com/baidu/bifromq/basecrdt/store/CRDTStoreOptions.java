@@ -45,6 +45,10 @@ public class CRDTStoreOptions {
     private Duration inflationInterval = Duration.ofMillis(200);
     @Builder.Default
     private Duration maxCompactionTime = Duration.ofMillis(200);
+    // the directory for persisting replica snapshots, null means snapshot disabled
+    private String snapshotDir;
+    @Builder.Default
+    private Duration snapshotInterval = Duration.ofSeconds(5);
 
     @Builder.Default
     private ScheduledExecutorService storeExecutor =
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basecrdt.store;
+
+import static com.baidu.bifromq.basecrdt.util.ProtoUtil.to;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+import com.baidu.bifromq.basecrdt.core.api.ICausalCRDTInflater;
+import com.baidu.bifromq.basecrdt.proto.Replacement;
+import com.baidu.bifromq.basecrdt.store.proto.EventIndex;
+import com.baidu.bifromq.basecrdt.store.proto.ReplicaSnapshot;
+import com.baidu.bifromq.logger.FormatableLogger;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+
+/**
+ * Persists the state lattice of hosted replicas into local files, one file per CRDT uri, so that a restarted store
+ * could start from the snapshot and only the missing delta will be shipped by anti-entropy.
+ *
+ * <p>Only the live lattices along with their replacing history are persisted. A snapshot older than the expiry time
+ * of OR-History is discarded when loading, because the neighbors may have already forgotten the removal of some
+ * lattices in the snapshot, and restoring them would resurrect the removed state.
+ *
+ * <p>The saving and deleting of the same CRDT are serialized, so a deletion always waits for the in-flight saving, and
+ * the saving of a replica no longer hosted is skipped, so a stopped replica never leaves a snapshot behind.
+ *
+ * <p>The saving of a replica whose events are unchanged since last saved is skipped as well, unless the saved snapshot
+ * is going to be too old to load.
+ */
+class ReplicaSnapshotter {
+    private static final Logger log = FormatableLogger.getLogger(ReplicaSnapshotter.class);
+    private static final String SUFFIX = ".snapshot";
+    private static final String TMP_SUFFIX = ".tmp";
+    private final Path dir;
+    private final Duration maxAge;
+    private final Predicate<ICausalCRDTInflater<?, ?>> isHosted;
+    private final Timer saveTimer;
+    // the last pending saving or deleting of each uri
+    private final Map<String, CompletableFuture<Void>> pendingTasks = new ConcurrentHashMap<>();
+    // the events and the timestamp of the last saved snapshot of each uri
+    private final Map<String, Saved> lastSaved = new ConcurrentHashMap<>();
+
+    private record Saved(List<EventIndex> latticeEvents, List<EventIndex> historyEvents, long ts) {
+    }
+
+    ReplicaSnapshotter(String dir, Duration maxAge, Predicate<ICausalCRDTInflater<?, ?>> isHosted, Tags tags) {
+        this.dir = Paths.get(dir);
+        this.maxAge = maxAge;
+        this.isHosted = isHosted;
+        this.saveTimer = Metrics.timer("basecrdt.snapshot.time", tags);
+        try {
+            Files.createDirectories(this.dir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create snapshot dir: " + dir, e);
+        }
+    }
+
+    /**
+     * Load the snapshot of the CRDT.
+     *
+     * @param uri the uri of the CRDT
+     * @return the replacements in the snapshot, or empty if no valid snapshot found
+     */
+    Iterable<Replacement> load(String uri) {
+        Path file = file(uri);
+        if (!Files.exists(file)) {
+            return emptyList();
+        }
+        try {
+            ReplicaSnapshot snapshot = ReplicaSnapshot.parseFrom(Files.readAllBytes(file));
+            long age = System.currentTimeMillis() - snapshot.getTs();
+            if (!snapshot.getUri().equals(uri) || age > maxAge.toMillis()) {
+                log.debug("Discard stale snapshot of crdt[{}]: age={}ms", uri, age);
+                deleteFile(uri);
+                return emptyList();
+            }
+            log.debug("Load snapshot of crdt[{}]: replacements={}, age={}ms",
+                uri, snapshot.getReplacementCount(), age);
+            return snapshot.getReplacementList();
+        } catch (Throwable e) {
+            log.warn("Failed to load snapshot of crdt[{}]", uri, e);
+            deleteFile(uri);
+            return emptyList();
+        }
+    }
+
+    /**
+     * Save the current state lattice of the replica.
+     *
+     * @param inflater the inflater of the replica
+     * @return the future of the save
+     */
+    CompletableFuture<Void> save(ICausalCRDTInflater<?, ?> inflater) {
+        return enqueue(inflater.id().getUri(), () -> doSave(inflater));
+    }
+
+    /**
+     * Delete the snapshot of the CRDT after the in-flight saving finished.
+     *
+     * @param uri the uri of the CRDT
+     * @return the future of the deletion
+     */
+    CompletableFuture<Void> delete(String uri) {
+        return enqueue(uri, () -> {
+            lastSaved.remove(uri);
+            deleteFile(uri);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    void close() {
+        Metrics.globalRegistry.remove(saveTimer.getId());
+    }
+
+    private CompletableFuture<Void> enqueue(String uri, Supplier<CompletableFuture<Void>> task) {
+        CompletableFuture<Void> onDone = new CompletableFuture<>();
+        CompletableFuture<Void> prev = pendingTasks.put(uri, onDone);
+        (prev == null ? CompletableFuture.<Void>completedFuture(null) : prev.exceptionally(e -> null))
+            .thenCompose(v -> task.get())
+            .whenComplete((v, e) -> {
+                pendingTasks.remove(uri, onDone);
+                if (e != null) {
+                    onDone.completeExceptionally(e);
+                } else {
+                    onDone.complete(null);
+                }
+            });
+        return onDone;
+    }
+
+    private CompletableFuture<Void> doSave(ICausalCRDTInflater<?, ?> inflater) {
+        String uri = inflater.id().getUri();
+        if (!isHosted.test(inflater)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // take the timestamp and the events before collecting the state, so the age of the snapshot is never
+        // underestimated and a change during collecting is never missed
+        long ts = System.currentTimeMillis();
+        List<EventIndex> latticeEvents = to(inflater.latticeEvents());
+        List<EventIndex> historyEvents = to(inflater.historyEvents());
+        Saved saved = lastSaved.get(uri);
+        if (saved != null
+            && saved.latticeEvents.equals(latticeEvents)
+            && saved.historyEvents.equals(historyEvents)
+            && ts - saved.ts < maxAge.toMillis() / 2) {
+            // nothing changed since last saved
+            return CompletableFuture.completedFuture(null);
+        }
+        Timer.Sample sample = Timer.start();
+        return inflater.delta(emptyMap(), emptyMap(), Integer.MAX_VALUE)
+            .thenAccept(replacements -> {
+                if (!isHosted.test(inflater)) {
+                    // the replica stopped hosting during collecting
+                    return;
+                }
+                ReplicaSnapshot snapshot = ReplicaSnapshot.newBuilder()
+                    .setUri(uri)
+                    .setTs(ts)
+                    .addAllReplacement(replacements.orElse(emptyList()))
+                    .build();
+                Path file = file(uri);
+                Path tmpFile = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+                try {
+                    try (OutputStream output = Files.newOutputStream(tmpFile)) {
+                        snapshot.writeTo(output);
+                    }
+                    Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to write snapshot of crdt: " + uri, e);
+                }
+                lastSaved.put(uri, new Saved(latticeEvents, historyEvents, ts));
+                sample.stop(saveTimer);
+            });
+    }
+
+    private void deleteFile(String uri) {
+        try {
+            Files.deleteIfExists(file(uri));
+        } catch (IOException e) {
+            log.warn("Failed to delete snapshot of crdt[{}]", uri, e);
+        }
+    }
+
+    private Path file(String uri) {
+        return dir.resolve(Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(uri.getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+    }
+}
@@ -83,6 +83,17 @@ public class InMemReplicaStateLatticeTest {
         assertTrue(testLattice.historyIndex().isEmpty());
     }
 
+    @Test
+    public void testJoinOwnEvents() {
+        ByteString owner = ownerReplica.getId();
+        assertEquals(testLattice.nextEvent(), 1);
+        testLattice.join(newArrayList(
+            replacement(dot(owner, 5, singleDot(owner, 5)), dot(owner, 7)),
+            replacement(dot(replicaA, 10, singleDot(replicaA, 10)))));
+        // versions of own events learnt from outside must not be reused
+        assertEquals(testLattice.nextEvent(), 8);
+    }
+
     @Test
     public void testJoinWithReplacementSemantic() {
         testLattice.join(singleton(replacement(dot(replicaA, 1, singleDot(replicaA, 1)))));
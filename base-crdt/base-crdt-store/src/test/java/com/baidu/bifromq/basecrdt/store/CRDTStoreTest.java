@@ -16,6 +16,7 @@ package com.baidu.bifromq.basecrdt.store;
 import static com.google.protobuf.ByteString.copyFromUtf8;
 import static org.awaitility.Awaitility.await;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import com.baidu.bifromq.basecrdt.core.api.AWORSetOperation;
 import com.baidu.bifromq.basecrdt.core.api.CCounterOperation;
@@ -33,10 +34,16 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.protobuf.ByteString;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -45,6 +52,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -447,4 +455,83 @@ public class CRDTStoreTest extends CRDTStoreTestTemplate {
         await().until(() -> Sets.newHashSet(c2.keys()).size() == 3);
         await().until(() -> Sets.newHashSet(c3.keys()).size() == 3);
     }
+
+    @Test(groups = "integration")
+    public void testRestartWithSnapshot() throws IOException {
+        Path snapshotDir = Files.createTempDirectory("crdt_snapshot");
+        try {
+            storeMgr.newStore(storeMeta("s1", null));
+            storeMgr.newStore(storeMeta("s2", null));
+            storeMgr.newStore(storeMeta("s3", snapshotDir.toString()));
+            String setId = CRDTURI.toURI(CausalCRDTType.aworset, "set");
+            IAWORSet set1 = storeMgr.host("s1", setId);
+            IAWORSet set2 = storeMgr.host("s2", setId);
+            IAWORSet set3 = storeMgr.host("s3", setId);
+            storeMgr.join("s1", set1.id(), set1.id(), set2.id(), set3.id());
+            storeMgr.join("s2", set2.id(), set1.id(), set2.id(), set3.id());
+            storeMgr.join("s3", set3.id(), set1.id(), set2.id(), set3.id());
+
+            List<ByteString> values = new ArrayList<>();
+            List<CompletableFuture<Void>> addFutures = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                ByteString value = copyFromUtf8("Value" + i);
+                values.add(value);
+                addFutures.add(set1.execute(AWORSetOperation.add(value)));
+            }
+            CompletableFuture.allOf(addFutures.toArray(CompletableFuture[]::new)).join();
+            await().atMost(Duration.ofSeconds(30)).until(() -> containsAll(set2, values));
+            await().atMost(Duration.ofSeconds(30)).until(() -> containsAll(set3, values));
+
+            restartAndConverge("s2", setId, values, false, set1, set3);
+            IAWORSet restored = restartAndConverge("s3", setId, values, true, set1, set2);
+
+            // the replica restored from snapshot keeps working
+            ByteString newValue = copyFromUtf8("NewValue");
+            restored.execute(AWORSetOperation.add(newValue)).join();
+            await().atMost(Duration.ofSeconds(5)).until(() -> set1.contains(newValue));
+        } finally {
+            try (Stream<Path> files = Files.walk(snapshotDir)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private IAWORSet restartAndConverge(String storeId, String setId, List<ByteString> values,
+                                        boolean fromSnapshot, IAWORSet... peers) {
+        storeMgr.restartStore(storeId);
+        long start = System.nanoTime();
+        IAWORSet set = storeMgr.host(storeId, setId);
+        if (fromSnapshot) {
+            // restored before joining the cluster
+            assertTrue(containsAll(set, values));
+        }
+        List<Replica> members = new ArrayList<>();
+        members.add(set.id());
+        for (IAWORSet peer : peers) {
+            members.add(peer.id());
+        }
+        storeMgr.join(storeId, set.id(), members.toArray(Replica[]::new));
+        await().atMost(Duration.ofSeconds(30)).until(() -> containsAll(set, values));
+        log.info("Store[{}] converged in {}ms after restart, from snapshot: {}",
+            storeId, Duration.ofNanos(System.nanoTime() - start).toMillis(), fromSnapshot);
+        return set;
+    }
+
+    private boolean containsAll(IAWORSet set, List<ByteString> values) {
+        for (ByteString value : values) {
+            if (!set.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CRDTStoreTestCluster.CRDTStoreMeta storeMeta(String storeId, String snapshotDir) {
+        return new CRDTStoreTestCluster.CRDTStoreMeta(CRDTStoreOptions.builder()
+            .id(storeId)
+            .inflationInterval(Duration.ofMillis(100))
+            .orHistoryExpireTime(Duration.ofSeconds(5))
+            .snapshotDir(snapshotDir)
+            .build(), 0, 0, false);
+    }
 }
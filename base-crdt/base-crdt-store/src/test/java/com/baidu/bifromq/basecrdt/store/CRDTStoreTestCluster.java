@@ -70,6 +70,11 @@ public class CRDTStoreTestCluster {
         storeReceiverMap.remove(storeId);
     }
 
+    public void restartStore(String storeId) {
+        stopStore(storeId);
+        loadStore(storeOptionsMap.get(storeId));
+    }
+
     public <O extends ICRDTOperation, T extends ICausalCRDT<O>> T host(String storeId, String uri) {
         Replica replicaId = generate(uri, ByteString.copyFromUtf8(storeId));
         T replica = getStore(storeId).host(replicaId, replicaId.getId());
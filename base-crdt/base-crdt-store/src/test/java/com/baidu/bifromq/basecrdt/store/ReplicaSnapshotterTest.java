@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basecrdt.store;
+
+import static com.google.protobuf.ByteString.copyFromUtf8;
+import static java.util.Collections.emptyList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basecrdt.core.api.ICausalCRDTInflater;
+import com.baidu.bifromq.basecrdt.proto.Replacement;
+import com.baidu.bifromq.basecrdt.proto.Replica;
+import io.micrometer.core.instrument.Tags;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ReplicaSnapshotterTest {
+    private static final String URI = "testCRDT";
+    private final AtomicBoolean hosted = new AtomicBoolean();
+    private Path snapshotDir;
+    private ICausalCRDTInflater<?, ?> inflater;
+    private ReplicaSnapshotter snapshotter;
+
+    @SneakyThrows
+    @BeforeMethod
+    public void setup() {
+        snapshotDir = Files.createTempDirectory("crdt_snapshot");
+        hosted.set(true);
+        inflater = mock(ICausalCRDTInflater.class);
+        when(inflater.id()).thenReturn(Replica.newBuilder().setUri(URI).setId(copyFromUtf8("replica")).build());
+        snapshotter = new ReplicaSnapshotter(snapshotDir.toString(), Duration.ofMinutes(1),
+            crdt -> hosted.get(), Tags.empty());
+    }
+
+    @SneakyThrows
+    @AfterMethod
+    public void tearDown() {
+        snapshotter.close();
+        try (Stream<Path> files = Files.walk(snapshotDir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void deleteAfterInflightSave() {
+        CompletableFuture<Optional<Iterable<Replacement>>> delta = new CompletableFuture<>();
+        when(inflater.delta(any(), any(), anyInt())).thenReturn(delta);
+        CompletableFuture<Void> saveFuture = snapshotter.save(inflater);
+
+        hosted.set(false);
+        CompletableFuture<Void> deleteFuture = snapshotter.delete(URI);
+        assertFalse(deleteFuture.isDone());
+
+        delta.complete(Optional.of(emptyList()));
+        saveFuture.join();
+        deleteFuture.join();
+        assertTrue(isEmpty(snapshotDir));
+    }
+
+    @Test
+    public void deleteSnapshot() {
+        when(inflater.delta(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(emptyList())));
+        snapshotter.save(inflater).join();
+        assertFalse(isEmpty(snapshotDir));
+
+        snapshotter.delete(URI).join();
+        assertTrue(isEmpty(snapshotDir));
+    }
+
+    @Test
+    public void skipSaveWhenNotHosted() {
+        hosted.set(false);
+        when(inflater.delta(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(emptyList())));
+        snapshotter.save(inflater).join();
+        assertTrue(isEmpty(snapshotDir));
+    }
+
+    @Test
+    public void skipSaveWhenUnchanged() {
+        when(inflater.latticeEvents()).thenReturn(Map.of(copyFromUtf8("replica"), new TreeMap<>(Map.of(0L, 1L))));
+        when(inflater.delta(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(emptyList())));
+        snapshotter.save(inflater).join();
+        snapshotter.save(inflater).join();
+        verify(inflater, times(1)).delta(any(), any(), anyInt());
+
+        when(inflater.latticeEvents()).thenReturn(Map.of(copyFromUtf8("replica"), new TreeMap<>(Map.of(0L, 2L))));
+        snapshotter.save(inflater).join();
+        verify(inflater, times(2)).delta(any(), any(), anyInt());
+    }
+
+    @Test
+    public void saveAgainAfterDelete() {
+        when(inflater.delta(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(emptyList())));
+        snapshotter.save(inflater).join();
+        snapshotter.delete(URI).join();
+        snapshotter.save(inflater).join();
+        assertFalse(isEmpty(snapshotDir));
+    }
+
+    @SneakyThrows
+    private boolean isEmpty(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.findAny().isEmpty();
+        }
+    }
+}
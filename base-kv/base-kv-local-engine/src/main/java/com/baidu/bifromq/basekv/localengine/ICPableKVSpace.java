@@ -14,6 +14,7 @@
 package com.baidu.bifromq.basekv.localengine;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface ICPableKVSpace extends IKVSpace {
     /**
@@ -23,6 +24,18 @@ public interface ICPableKVSpace extends IKVSpace {
      */
     String checkpoint();
 
+    /**
+     * Get the future which completes when the state captured by the checkpoint has been persisted in the space. A
+     * checkpoint may be served from an in-memory consistent view while the persisting is done in background, the caller
+     * should wait for the future before discarding anything that the checkpoint state depends on.
+     *
+     * @param checkpointId the checkpoint id
+     * @return the future of persisting
+     */
+    default CompletableFuture<Void> persisted(String checkpointId) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Open a readonly range object to access the checkpoint state. When the returned range object is garbage-collected
      * the associated checkpoint will be cleaned as well, except for the latest checkpoint. So the caller should keep a
@@ -32,4 +45,25 @@ public interface ICPableKVSpace extends IKVSpace {
      * @return the range object for accessing the checkpoint
      */
     Optional<IKVSpaceCheckpoint> open(String checkpointId);
+
+    /**
+     * Open an exporter for dumping the data of the checkpoint as sst files.
+     *
+     * @param checkpointId the checkpoint id
+     * @param maxFileSize  the approximate max size of each exported file
+     * @return the exporter, or empty if the checkpoint is not found or the space doesn't support sst files
+     */
+    default Optional<IKVSpaceSSTExporter> exportSST(String checkpointId, long maxFileSize) {
+        return Optional.empty();
+    }
+
+    /**
+     * Get an ingester for restoring the space from the sst files exported from the checkpoint of another replica. The
+     * ingestion could only be done atomically when the space holds no data.
+     *
+     * @return the ingester, or empty if the space doesn't support sst files or holds data
+     */
+    default Optional<IKVSpaceSSTIngester> toIngester() {
+        return Optional.empty();
+    }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.localengine;
+
+import java.io.File;
+import java.util.Optional;
+
+/**
+ * The exporter for dumping the data of a checkpoint as sorted and non-overlapping sst files, which could be ingested
+ * into the space of another replica via {@link IKVSpaceSSTIngester}.
+ */
+public interface IKVSpaceSSTExporter extends AutoCloseable {
+    /**
+     * Export next sst file, the file returned previously will be deleted.
+     *
+     * @return the exported file, or empty if all data has been exported
+     */
+    Optional<File> next();
+
+    /**
+     * Close the exporter and delete the exported files.
+     */
+    @Override
+    void close();
+}
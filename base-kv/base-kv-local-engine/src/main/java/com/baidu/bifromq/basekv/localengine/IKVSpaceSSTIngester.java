@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.localengine;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * The writer for restoring an empty space from the sst files exported by {@link IKVSpaceSSTExporter}. The staged files
+ * are ingested along with the metadata updates atomically when done.
+ */
+public interface IKVSpaceSSTIngester extends IKVSpaceMetadataWriter {
+    /**
+     * Append the data to the staged sst file, the files will be ingested in the order they are firstly appended.
+     *
+     * @param fileName the name of the sst file
+     * @param data     the data to append
+     */
+    void append(String fileName, ByteString data);
+}
@@ -19,9 +19,12 @@ public enum KVSpaceMetric {
     BlockCache("basekv.le.rocksdb.mem.blockcache", Meter.Type.GAUGE),
     TableReader("basekv.le.rocksdb.mem.tablereader", Meter.Type.GAUGE),
     MemTable("basekv.le.rocksdb.mem.memtable", Meter.Type.GAUGE),
+    WriteBuffer("basekv.le.rocksdb.mem.writebuffer", Meter.Type.GAUGE),
     PinnedMem("basekv.le.rocksdb.mem.pinned", Meter.Type.GAUGE),
     CheckpointNumGauge("basekv.le.active.checkpoints", Meter.Type.GAUGE),
     CheckpointTimer("basekv.le.rocksdb.checkpoint.time", Meter.Type.TIMER),
+    CheckpointFlushTimer("basekv.le.rocksdb.checkpoint.flush.time", Meter.Type.TIMER),
+    CheckpointStallTimer("basekv.le.rocksdb.checkpoint.stall.time", Meter.Type.TIMER),
     CompactionCounter("basekv.le.rocksdb.compaction.count", Meter.Type.COUNTER),
     CompactionTimer("basekv.le.rocksdb.compaction.time", Meter.Type.TIMER),
     TotalKeysGauge("basekv.le.rocksdb.compaction.keys", Meter.Type.GAUGE),
@@ -14,7 +14,11 @@
 package com.baidu.bifromq.basekv.localengine.rocksdb;
 
 import com.baidu.bifromq.basekv.localengine.IKVSpaceCheckpoint;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
+import java.io.File;
 
 public interface IRocksDBKVSpaceCheckpoint extends IKVSpaceCheckpoint {
     void close();
+
+    IKVSpaceSSTExporter exportSST(File exportDir, long maxFileSize);
 }
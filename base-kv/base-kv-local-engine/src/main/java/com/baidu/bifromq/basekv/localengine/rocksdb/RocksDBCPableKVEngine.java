@@ -13,18 +13,28 @@
 
 package com.baidu.bifromq.basekv.localengine.rocksdb;
 
+import com.baidu.bifromq.baseenv.EnvProvider;
 import com.baidu.bifromq.basekv.localengine.KVEngineException;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import java.io.File;
 import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class RocksDBCPableKVEngine
     extends
     RocksDBKVEngine<RocksDBCPableKVEngine, RocksDBCPableKVSpace, RocksDBCPableKVEngineConfigurator> {
     private final File cpRootDir;
     private final RocksDBCPableKVEngineConfigurator configurator;
+    // limit the concurrent checkpoints across all kv spaces
+    private final Semaphore checkpointPermits;
+    private final ExecutorService checkpointExecutor;
     private MetricManager metricManager;
 
     public RocksDBCPableKVEngine(String overrideIdentity,
@@ -37,6 +47,20 @@ public class RocksDBCPableKVEngine
         } catch (Throwable e) {
             throw new KVEngineException("Failed to create checkpoint root folder", e);
         }
+        checkpointPermits = new Semaphore(configurator.maxConcurrentCheckpoints());
+        checkpointExecutor = new ThreadPoolExecutor(configurator.maxConcurrentCheckpoints(),
+            configurator.maxConcurrentCheckpoints(),
+            0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            EnvProvider.INSTANCE.newThreadFactory("kvengine-checkpointer"));
+    }
+
+    Semaphore checkpointPermits() {
+        return checkpointPermits;
+    }
+
+    Executor checkpointExecutor() {
+        return checkpointExecutor;
     }
 
     @Override
@@ -57,6 +81,7 @@ public class RocksDBCPableKVEngine
     protected void doStop() {
         metricManager.close();
         super.doStop();
+        checkpointExecutor.shutdown();
     }
 
     private class MetricManager {
@@ -13,7 +13,11 @@
 
 package com.baidu.bifromq.basekv.localengine.rocksdb;
 
+import static java.lang.Math.max;
+
+import com.baidu.bifromq.baseenv.EnvProvider;
 import com.baidu.bifromq.basekv.localengine.ICPableKVEngineConfigurator;
+import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -30,16 +34,24 @@ import org.rocksdb.PrepopulateBlobCache;
 public final class RocksDBCPableKVEngineConfigurator
     extends RocksDBKVEngineConfigurator<RocksDBCPableKVEngineConfigurator> implements ICPableKVEngineConfigurator {
     private String dbCheckpointRootDir;
+    // serve checkpoint from consistent snapshot and flush memtable in background instead of blocking the caller,
+    // the snapshot is saved as an on-disk checkpoint after flushed, and released once its readers are gone
+    @Builder.Default
+    private boolean asyncCheckpoint = true;
+    // the max number of checkpoints being flushed concurrently across all kv spaces of the engine
+    @Builder.Default
+    private int maxConcurrentCheckpoints = max(EnvProvider.INSTANCE.availableProcessors() / 8, 1);
 
     @Override
-    protected void configDBOptions(DBOptionsInterface<DBOptions> targetOption) {
-        super.configDBOptions(targetOption);
+    protected void configDBOptions(DBOptionsInterface<DBOptions> targetOption,
+                                   RocksDBSharedResources sharedResources) {
+        super.configDBOptions(targetOption, sharedResources);
         targetOption.setRecycleLogFileNum(0);
     }
 
     @Override
-    public ColumnFamilyOptions cfOptions(String name) {
-        ColumnFamilyOptions cfOptions = super.cfOptions(name);
+    public ColumnFamilyOptions cfOptions(String name, RocksDBSharedResources sharedResources) {
+        ColumnFamilyOptions cfOptions = super.cfOptions(name, sharedResources);
         cfOptions.setEnableBlobFiles(true);
         cfOptions.setMinBlobSize(2048); // 2kb
         cfOptions.enableBlobGarbageCollection();
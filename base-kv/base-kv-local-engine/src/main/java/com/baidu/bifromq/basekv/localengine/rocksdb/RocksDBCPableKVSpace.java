@@ -13,11 +13,15 @@
 
 package com.baidu.bifromq.basekv.localengine.rocksdb;
 
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.DATA_SECTION_END;
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.DATA_SECTION_START;
 import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.LATEST_CP_KEY;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.baidu.bifromq.basekv.localengine.ICPableKVSpace;
 import com.baidu.bifromq.basekv.localengine.IKVSpaceCheckpoint;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTIngester;
 import com.baidu.bifromq.basekv.localengine.KVEngineException;
 import com.baidu.bifromq.basekv.localengine.metrics.KVSpaceMeters;
 import com.baidu.bifromq.basekv.localengine.metrics.KVSpaceMetric;
@@ -32,8 +36,12 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import lombok.SneakyThrows;
@@ -45,13 +53,20 @@ public class RocksDBCPableKVSpace
     extends RocksDBKVSpace<RocksDBCPableKVEngine, RocksDBCPableKVSpace, RocksDBCPableKVEngineConfigurator>
     implements ICPableKVSpace {
     private static final String CP_SUFFIX = ".cp";
+    private static final String EXPORT_SUFFIX = ".export";
+    private static final String INGEST_SUFFIX = ".ingest";
     private final RocksDBCPableKVEngine engine;
+    private final boolean asyncCheckpoint;
     private final File cpRootDir;
     private final WriteOptions writeOptions;
     private final Checkpoint checkpoint;
     private final AtomicReference<String> latestCheckpointId = new AtomicReference<>();
     private final Cache<String, IRocksDBKVSpaceCheckpoint> checkpoints;
     private final MetricManager metricMgr;
+    // the pending memtable flush which has not started yet, it covers all snapshot checkpoints made before it starts
+    private final AtomicReference<CompletableFuture<Void>> queuedFlush = new AtomicReference<>();
+    private final Map<String, CompletableFuture<Void>> persistingCheckpoints = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
     // keep a strong ref to latest checkpoint
     private IKVSpaceCheckpoint latestCheckpoint;
 
@@ -63,6 +78,7 @@ public class RocksDBCPableKVSpace
                                 String... tags) {
         super(id, configurator, engine, onDestroy, tags);
         this.engine = engine;
+        this.asyncCheckpoint = configurator.asyncCheckpoint();
         cpRootDir = new File(configurator.dbCheckpointRootDir(), id);
         this.checkpoint = Checkpoint.create(db);
         checkpoints = Caffeine.newBuilder().weakValues().build();
@@ -80,7 +96,7 @@ public class RocksDBCPableKVSpace
     public String checkpoint() {
         return metricMgr.checkpointTimer.record(() -> {
             synchronized (this) {
-                IRocksDBKVSpaceCheckpoint cp = doCheckpoint();
+                IRocksDBKVSpaceCheckpoint cp = asyncCheckpoint ? doSnapshotCheckpoint() : doLimitedCheckpoint();
                 checkpoints.put(cp.cpId(), cp);
                 latestCheckpoint = cp;
                 return cp.cpId();
@@ -88,18 +104,50 @@ public class RocksDBCPableKVSpace
         });
     }
 
+    @Override
+    public CompletableFuture<Void> persisted(String checkpointId) {
+        return persistingCheckpoints.getOrDefault(checkpointId, CompletableFuture.completedFuture(null));
+    }
+
     @Override
     public Optional<IKVSpaceCheckpoint> open(String checkpointId) {
         return Optional.ofNullable(checkpoints.getIfPresent(checkpointId));
     }
 
+    @Override
+    public Optional<IKVSpaceSSTExporter> exportSST(String checkpointId, long maxFileSize) {
+        IRocksDBKVSpaceCheckpoint cp = checkpoints.getIfPresent(checkpointId);
+        if (cp == null) {
+            return Optional.empty();
+        }
+        // the dir will be cleaned as obsolete checkpoint when reloading if not deleted normally
+        return Optional.of(cp.exportSST(new File(cpRootDir, UUID.randomUUID() + EXPORT_SUFFIX), maxFileSize));
+    }
+
+    @Override
+    public Optional<IKVSpaceSSTIngester> toIngester() {
+        try (RocksDBKVEngineIterator itr =
+                 new RocksDBKVEngineIterator(db, cfHandle, null, DATA_SECTION_START, DATA_SECTION_END)) {
+            itr.seekToFirst();
+            if (itr.isValid()) {
+                // ingesting into non-empty space requires clearing existing data in the same atomic write, which is
+                // not possible with sst files
+                return Optional.empty();
+            }
+        }
+        return Optional.of(newIngester(new File(cpRootDir, UUID.randomUUID() + INGEST_SUFFIX)));
+    }
+
     @Override
     protected void doClose() {
         log.debug("Flush RocksDBCPableKVSpace[{}] before closing", id);
-        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
-            db.flush(flushOptions);
-        } catch (Throwable e) {
-            log.error("Flush RocksDBCPableKVSpace[{}] error", id, e);
+        synchronized (flushLock) {
+            // wait for the running background flush
+            try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+                db.flush(flushOptions);
+            } catch (Throwable e) {
+                log.error("Flush RocksDBCPableKVSpace[{}] error", id, e);
+            }
         }
         metricMgr.close();
         checkpoints.asMap().forEach((cpId, cp) -> cp.close());
@@ -131,14 +179,7 @@ public class RocksDBCPableKVSpace
             log.debug("KVSpace[{}] checkpoint start: checkpointId={}", id, cpId);
             // flush before checkpointing
             db.put(cfHandle, LATEST_CP_KEY, cpId.getBytes());
-            log.debug("KVSpace[{}] flush start", id);
-            try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
-                db.flush(flushOptions, cfHandle);
-                log.debug("KVSpace[{}] flush complete", id);
-            } catch (Throwable e) {
-                log.error("KVSpace[{}] flush error", id, e);
-                throw new KVEngineException("KVSpace flush error", e);
-            }
+            flushMemTable();
             checkpoint.createCheckpoint(cpDir.toString());
             latestCheckpointId.set(cpId);
             return new RocksDBKVSpaceCheckpoint(id, cpId, cpDir, this::isLatest, metricTags);
@@ -147,6 +188,110 @@ public class RocksDBCPableKVSpace
         }
     }
 
+    private IRocksDBKVSpaceCheckpoint doLimitedCheckpoint() {
+        Timer.Sample stallSample = Timer.start();
+        engine.checkpointPermits().acquireUninterruptibly();
+        stallSample.stop(metricMgr.checkpointStallTimer);
+        try {
+            return doCheckpoint();
+        } finally {
+            engine.checkpointPermits().release();
+        }
+    }
+
+    private IRocksDBKVSpaceCheckpoint doSnapshotCheckpoint() {
+        String cpId = genCheckpointId();
+        log.debug("KVSpace[{}] snapshot checkpoint: checkpointId={}", id, cpId);
+        // the consistent view is served by the snapshot, the checkpointed state is persisted by background flush
+        RocksDBKVSpaceSnapshot cp = new RocksDBKVSpaceSnapshot(id, cpId, db.getSnapshot(), cfHandle, db,
+            metricTags);
+        CompletableFuture<Void> persistFuture = scheduleFlush();
+        persistingCheckpoints.put(cpId, persistFuture);
+        persistFuture.thenRun(() -> persistingCheckpoints.remove(cpId));
+        // the snapshot pins obsolete versions from compaction, so replace it with an on-disk checkpoint once persisted
+        persistFuture.thenRunAsync(() -> saveSnapshot(cp), engine.checkpointExecutor());
+        return cp;
+    }
+
+    private void saveSnapshot(RocksDBKVSpaceSnapshot snapshot) {
+        String cpId = snapshot.cpId();
+        synchronized (flushLock) {
+            synchronized (this) {
+                // the earlier snapshots are released once no one reads them
+                if (state() != State.Opening || latestCheckpoint != snapshot) {
+                    return;
+                }
+            }
+            File cpDir = checkpointDir(cpId);
+            try {
+                log.debug("KVSpace[{}] save snapshot checkpoint: checkpointId={}", id, cpId);
+                snapshot.saveTo(cpDir);
+                synchronized (this) {
+                    if (latestCheckpoint != snapshot) {
+                        cleanCheckpoint(cpId);
+                        return;
+                    }
+                    IRocksDBKVSpaceCheckpoint cp = new RocksDBKVSpaceCheckpoint(id, cpId, cpDir, this::isLatest,
+                        metricTags);
+                    db.put(cfHandle, LATEST_CP_KEY, cpId.getBytes());
+                    latestCheckpointId.set(cpId);
+                    // the snapshot is released when the readers opened before are gone
+                    checkpoints.put(cpId, cp);
+                    latestCheckpoint = cp;
+                }
+            } catch (Throwable e) {
+                log.error("KVSpace[{}] save snapshot checkpoint[{}] error", id, cpId, e);
+                cleanCheckpoint(cpId);
+            }
+        }
+    }
+
+    private CompletableFuture<Void> scheduleFlush() {
+        CompletableFuture<Void> onDone = queuedFlush.get();
+        if (onDone != null) {
+            // the queued flush has not started yet, so it covers the checkpoint just made
+            return onDone;
+        }
+        CompletableFuture<Void> newFlush = new CompletableFuture<>();
+        queuedFlush.set(newFlush);
+        Timer.Sample stallSample = Timer.start();
+        try {
+            engine.checkpointExecutor().execute(() -> {
+                queuedFlush.compareAndSet(newFlush, null);
+                stallSample.stop(metricMgr.checkpointStallTimer);
+                synchronized (flushLock) {
+                    if (state() != State.Opening) {
+                        newFlush.completeExceptionally(new KVEngineException("KVSpace not open"));
+                        return;
+                    }
+                    try {
+                        flushMemTable();
+                        newFlush.complete(null);
+                    } catch (Throwable e) {
+                        newFlush.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queuedFlush.compareAndSet(newFlush, null);
+            newFlush.completeExceptionally(new KVEngineException("Checkpoint executor has been shutdown", e));
+        }
+        return newFlush;
+    }
+
+    private void flushMemTable() {
+        log.debug("KVSpace[{}] flush start", id);
+        Timer.Sample flushSample = Timer.start();
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+            db.flush(flushOptions, cfHandle);
+            flushSample.stop(metricMgr.checkpointFlushTimer);
+            log.debug("KVSpace[{}] flush complete", id);
+        } catch (Throwable e) {
+            log.error("KVSpace[{}] flush error", id, e);
+            throw new KVEngineException("KVSpace flush error", e);
+        }
+    }
+
     @SneakyThrows
     protected IRocksDBKVSpaceCheckpoint doLoadLatestCheckpoint() {
         byte[] cpIdBytes = db.get(cfHandle, LATEST_CP_KEY);
@@ -218,17 +363,23 @@ public class RocksDBCPableKVSpace
     private class MetricManager {
         private final Gauge checkpointGauge; // hold a strong reference
         private final Timer checkpointTimer;
+        private final Timer checkpointFlushTimer;
+        private final Timer checkpointStallTimer;
 
         MetricManager() {
             Tags tags = Tags.of(metricTags);
             checkpointGauge =
                 KVSpaceMeters.getGauge(id, KVSpaceMetric.CheckpointNumGauge, checkpoints::estimatedSize, tags);
             checkpointTimer = KVSpaceMeters.getTimer(id, KVSpaceMetric.CheckpointTimer, tags);
+            checkpointFlushTimer = KVSpaceMeters.getTimer(id, KVSpaceMetric.CheckpointFlushTimer, tags);
+            checkpointStallTimer = KVSpaceMeters.getTimer(id, KVSpaceMetric.CheckpointStallTimer, tags);
         }
 
         void close() {
             checkpointGauge.close();
             checkpointTimer.close();
+            checkpointFlushTimer.close();
+            checkpointStallTimer.close();
         }
     }
 }
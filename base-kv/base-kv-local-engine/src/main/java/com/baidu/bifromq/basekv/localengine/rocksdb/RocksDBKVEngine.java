@@ -42,6 +42,7 @@ public abstract class RocksDBKVEngine<
     private final ConcurrentMap<String, T> kvSpaceMap = new ConcurrentHashMap<>();
     private final String identity;
     private final boolean isCreate;
+    private RocksDBSharedResources sharedResources;
     private MetricManager metricManager;
 
     public RocksDBKVEngine(String overrideIdentity, C configurator) {
@@ -70,6 +71,7 @@ public abstract class RocksDBKVEngine<
     protected void doStart(String... tags) {
         log.info("RocksDBKVEngine[{}] {} at path[{}]",
             identity, isCreate ? "initialized" : "loaded", dbRootDir.getName());
+        sharedResources = new RocksDBSharedResources(configurator);
         loadExisting(tags);
         metricManager = new MetricManager(tags);
     }
@@ -90,6 +92,11 @@ public abstract class RocksDBKVEngine<
         log.info("Stopping RocksDBKVEngine[{}]", identity);
         metricManager.close();
         kvSpaceMap.values().forEach(RocksDBKVSpace::close);
+        sharedResources.close();
+    }
+
+    RocksDBSharedResources sharedResources() {
+        return sharedResources;
     }
 
     @Override
@@ -135,6 +142,8 @@ public abstract class RocksDBKVEngine<
     private class MetricManager {
         private final Gauge dataTotalSpaceGauge;
         private final Gauge dataUsableSpaceGauge;
+        private final Gauge blockCacheSizeGauge;
+        private final Gauge pinnedMemorySizeGauge;
 
         MetricManager(String... metricTags) {
             Tags tags = Tags.of(metricTags);
@@ -144,11 +153,22 @@ public abstract class RocksDBKVEngine<
             dataUsableSpaceGauge = Gauge.builder("basekv.le.rocksdb.usable.data", dbRootDir::getUsableSpace)
                 .tags(tags)
                 .register(Metrics.globalRegistry);
+            // block cache is shared by all kv spaces, including the memory charged by memtables
+            blockCacheSizeGauge = Gauge.builder("basekv.le.rocksdb.shared.blockcache",
+                    sharedResources.blockCache()::getUsage)
+                .tags(tags)
+                .register(Metrics.globalRegistry);
+            pinnedMemorySizeGauge = Gauge.builder("basekv.le.rocksdb.shared.pinned",
+                    sharedResources.blockCache()::getPinnedUsage)
+                .tags(tags)
+                .register(Metrics.globalRegistry);
         }
 
         void close() {
             Metrics.globalRegistry.remove(dataTotalSpaceGauge);
             Metrics.globalRegistry.remove(dataUsableSpaceGauge);
+            Metrics.globalRegistry.remove(blockCacheSizeGauge);
+            Metrics.globalRegistry.remove(pinnedMemorySizeGauge);
         }
     }
 }
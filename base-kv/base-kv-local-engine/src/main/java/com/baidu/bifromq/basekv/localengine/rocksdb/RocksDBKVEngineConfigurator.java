@@ -18,6 +18,7 @@ import static java.lang.Math.max;
 
 import com.baidu.bifromq.baseenv.EnvProvider;
 import com.baidu.bifromq.basekv.localengine.IKVEngineConfigurator;
+import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 import org.rocksdb.BlockBasedTableConfig;
@@ -29,12 +30,9 @@ import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.DBOptionsInterface;
 import org.rocksdb.DataBlockIndexType;
-import org.rocksdb.Env;
 import org.rocksdb.IndexType;
-import org.rocksdb.LRUCache;
 import org.rocksdb.MutableColumnFamilyOptionsInterface;
 import org.rocksdb.MutableDBOptionsInterface;
-import org.rocksdb.RateLimiter;
 import org.rocksdb.util.SizeUnit;
 
 @NoArgsConstructor
@@ -46,25 +44,40 @@ public abstract class RocksDBKVEngineConfigurator<T extends RocksDBKVEngineConfi
     private int compactMinTombstoneKeys = 50000;
     private int compactMinTombstoneRanges = 10000;
     private double compactTombstoneKeysRatio = 0.3;
+    // the following resources are shared by all kv spaces of the engine
+    @Builder.Default
+    private long blockCacheSize = 256 * SizeUnit.MB;
+    @Builder.Default
+    private boolean hyperClockCache = false;
+    @Builder.Default
+    private long writeBufferManagerSize = 128 * SizeUnit.MB; // 0 for no limit
+    @Builder.Default
+    private long compactionRateLimit = 512 * SizeUnit.MB; // bytes per second
+    @Builder.Default
+    private int compactionThreads = max(EnvProvider.INSTANCE.availableProcessors() / 4, 2);
+    @Builder.Default
+    private int flushThreads = max(EnvProvider.INSTANCE.availableProcessors() / 8, 1);
 
-    public DBOptions dbOptions() {
+    public DBOptions dbOptions(RocksDBSharedResources sharedResources) {
         DBOptions targetOption = new DBOptions();
-        configDBOptions((DBOptionsInterface<DBOptions>) targetOption);
+        configDBOptions((DBOptionsInterface<DBOptions>) targetOption, sharedResources);
         configDBOptions((MutableDBOptionsInterface<DBOptions>) targetOption);
         // we don't need atomic flush in both use cases
         targetOption.setAtomicFlush(false);
         return targetOption;
     }
 
-    public ColumnFamilyOptions cfOptions(String name) {
+    public ColumnFamilyOptions cfOptions(String name, RocksDBSharedResources sharedResources) {
         ColumnFamilyOptions targetOption = new ColumnFamilyOptions();
-        configCFOptions(name, (ColumnFamilyOptionsInterface<ColumnFamilyOptions>) targetOption);
+        configCFOptions(name, (ColumnFamilyOptionsInterface<ColumnFamilyOptions>) targetOption, sharedResources);
         configCFOptions(name, (MutableColumnFamilyOptionsInterface<ColumnFamilyOptions>) targetOption);
         return targetOption;
     }
 
-    protected void configDBOptions(DBOptionsInterface<DBOptions> targetOption) {
-        targetOption.setEnv(Env.getDefault())
+    protected void configDBOptions(DBOptionsInterface<DBOptions> targetOption,
+                                   RocksDBSharedResources sharedResources) {
+        sharedResources.writeBufferManager().ifPresent(targetOption::setWriteBufferManager);
+        targetOption.setEnv(sharedResources.env())
             .setCreateIfMissing(true)
             .setCreateMissingColumnFamilies(true)
             .setAvoidUnnecessaryBlockingIO(true)
@@ -76,20 +89,18 @@ public abstract class RocksDBKVEngineConfigurator<T extends RocksDBKVEngineConfi
             // wal file settings
             .setWalSizeLimitMB(0)
             .setWalTtlSeconds(0)
-            .setRateLimiter(autoRelease(new RateLimiter(512 * SizeUnit.MB,
-                RateLimiter.DEFAULT_REFILL_PERIOD_MICROS,
-                RateLimiter.DEFAULT_FAIRNESS,
-                RateLimiter.DEFAULT_MODE, true), targetOption));
+            .setRateLimiter(sharedResources.rateLimiter());
     }
 
     protected void configDBOptions(MutableDBOptionsInterface<DBOptions> targetOption) {
         targetOption
             .setMaxOpenFiles(256)
-            .setIncreaseParallelism(max(EnvProvider.INSTANCE.availableProcessors() / 4, 2))
             .setMaxBackgroundJobs(max(EnvProvider.INSTANCE.availableProcessors() / 4, 2));
     }
 
-    protected void configCFOptions(String name, ColumnFamilyOptionsInterface<ColumnFamilyOptions> targetOption) {
+    protected void configCFOptions(String name,
+                                   ColumnFamilyOptionsInterface<ColumnFamilyOptions> targetOption,
+                                   RocksDBSharedResources sharedResources) {
         targetOption
             .setMergeOperatorName("uint64add")
             .setTableFormatConfig(
@@ -110,7 +121,7 @@ public abstract class RocksDBKVEngineConfigurator<T extends RocksDBKVEngineConfi
                     .setDataBlockHashTableUtilRatio(0.75)
                     // End of partitioned index filters settings.
                     .setBlockSize(4 * SizeUnit.KB)//
-                    .setBlockCache(autoRelease(new LRUCache(32 * SizeUnit.MB, 8), targetOption)))
+                    .setBlockCache(sharedResources.blockCache()))
             // https://github.com/facebook/rocksdb/pull/5744
             .setForceConsistencyChecks(true)
             .setCompactionStyle(CompactionStyle.LEVEL);
@@ -197,6 +208,30 @@ public abstract class RocksDBKVEngineConfigurator<T extends RocksDBKVEngineConfi
         return this.compactTombstoneKeysRatio;
     }
 
+    public long blockCacheSize() {
+        return this.blockCacheSize;
+    }
+
+    public boolean hyperClockCache() {
+        return this.hyperClockCache;
+    }
+
+    public long writeBufferManagerSize() {
+        return this.writeBufferManagerSize;
+    }
+
+    public long compactionRateLimit() {
+        return this.compactionRateLimit;
+    }
+
+    public int compactionThreads() {
+        return this.compactionThreads;
+    }
+
+    public int flushThreads() {
+        return this.flushThreads;
+    }
+
     public T dbRootDir(String dbRootDir) {
         this.dbRootDir = dbRootDir;
         return (T) this;
@@ -221,4 +256,34 @@ public abstract class RocksDBKVEngineConfigurator<T extends RocksDBKVEngineConfi
         this.compactTombstoneKeysRatio = compactTombstoneKeysRatio;
         return (T) this;
     }
+
+    public T blockCacheSize(long blockCacheSize) {
+        this.blockCacheSize = blockCacheSize;
+        return (T) this;
+    }
+
+    public T hyperClockCache(boolean hyperClockCache) {
+        this.hyperClockCache = hyperClockCache;
+        return (T) this;
+    }
+
+    public T writeBufferManagerSize(long writeBufferManagerSize) {
+        this.writeBufferManagerSize = writeBufferManagerSize;
+        return (T) this;
+    }
+
+    public T compactionRateLimit(long compactionRateLimit) {
+        this.compactionRateLimit = compactionRateLimit;
+        return (T) this;
+    }
+
+    public T compactionThreads(int compactionThreads) {
+        this.compactionThreads = compactionThreads;
+        return (T) this;
+    }
+
+    public T flushThreads(int flushThreads) {
+        this.flushThreads = flushThreads;
+        return (T) this;
+    }
 }
@@ -22,6 +22,7 @@ import static java.util.Collections.singletonList;
 
 import com.baidu.bifromq.baseenv.EnvProvider;
 import com.baidu.bifromq.basekv.localengine.IKVSpace;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTIngester;
 import com.baidu.bifromq.basekv.localengine.IKVSpaceWriter;
 import com.baidu.bifromq.basekv.localengine.ISyncContext;
 import com.baidu.bifromq.basekv.localengine.KVEngineException;
@@ -117,11 +118,12 @@ abstract class RocksDBKVSpace<
                 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
                 EnvProvider.INSTANCE.newThreadFactory("kvspace-compactor-" + id)),
             "compactor", "kvspace", Tags.of(metricTags));
-        dbOptions = configurator.dbOptions();
+        dbOptions = configurator.dbOptions(engine.sharedResources());
         keySpaceDBDir = new File(configurator.dbRootDir(), id);
         try {
             Files.createDirectories(keySpaceDBDir.getAbsoluteFile().toPath());
-            cfDesc = new ColumnFamilyDescriptor(DEFAULT_NS.getBytes(), configurator.cfOptions(DEFAULT_NS));
+            cfDesc = new ColumnFamilyDescriptor(DEFAULT_NS.getBytes(), configurator.cfOptions(DEFAULT_NS,
+                engine.sharedResources()));
             List<ColumnFamilyDescriptor> cfDescs = singletonList(cfDesc);
             List<ColumnFamilyHandle> cfHandles = new ArrayList<>();
             db = RocksDB.open(dbOptions, keySpaceDBDir.getAbsolutePath(), cfDescs, cfHandles);
@@ -212,6 +214,11 @@ abstract class RocksDBKVSpace<
             writeStats.newRecorder(), this::updateMetadata, metricTags);
     }
 
+    protected IKVSpaceSSTIngester newIngester(File stagingDir) {
+        return new RocksDBKVSpaceSSTIngester(id, db, cfHandle, stagingDir, syncContext, this::updateMetadata,
+            metricTags);
+    }
+
     void close() {
         if (state.compareAndSet(State.Opening, State.Closing)) {
             try {
@@ -320,6 +327,7 @@ abstract class RocksDBKVSpace<
         private final Gauge blockCacheSizeGauge;
         private final Gauge tableReaderSizeGauge;
         private final Gauge memtableSizeGauges;
+        private final Gauge writeBufferSizeGauges;
         private final Gauge pinedMemorySizeGauges;
         private final Counter compactionSchedCounter;
         private final Timer compactionTimer;
@@ -359,6 +367,16 @@ abstract class RocksDBKVSpace<
                 }
             }, metricTags);
 
+            // the memory charged to the shared write buffer manager, including the pinned immutable memtables
+            writeBufferSizeGauges = KVSpaceMeters.getGauge(id, KVSpaceMetric.WriteBuffer, () -> {
+                try {
+                    return db.getLongProperty(cfHandle, "rocksdb.size-all-mem-tables");
+                } catch (RocksDBException e) {
+                    log.warn("Unable to get long property {}", "rocksdb.size-all-mem-tables", e);
+                    return 0;
+                }
+            }, metricTags);
+
             pinedMemorySizeGauges = KVSpaceMeters.getGauge(id, KVSpaceMetric.PinnedMem, () -> {
                 try {
                     if (!((BlockBasedTableConfig) cfDesc.getOptions().tableFormatConfig()).noBlockCache()) {
@@ -375,6 +393,7 @@ abstract class RocksDBKVSpace<
         void close() {
             blockCacheSizeGauge.close();
             memtableSizeGauges.close();
+            writeBufferSizeGauges.close();
             tableReaderSizeGauge.close();
             pinedMemorySizeGauges.close();
             compactionSchedCounter.close();
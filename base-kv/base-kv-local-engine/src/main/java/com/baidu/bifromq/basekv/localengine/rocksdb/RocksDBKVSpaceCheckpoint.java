@@ -18,6 +18,7 @@ import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.toMetaKey;
 import static com.baidu.bifromq.basekv.localengine.rocksdb.RocksDBKVSpace.deleteDir;
 import static com.google.protobuf.UnsafeByteOperations.unsafeWrap;
 
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
 import com.baidu.bifromq.basekv.localengine.ISyncContext;
 import com.baidu.bifromq.basekv.localengine.KVEngineException;
 import com.google.protobuf.ByteString;
@@ -132,6 +133,11 @@ class RocksDBKVSpaceCheckpoint extends RocksDBKVSpaceReader implements IRocksDBK
         cleanable.clean();
     }
 
+    @Override
+    public IKVSpaceSSTExporter exportSST(File exportDir, long maxFileSize) {
+        return new RocksDBKVSpaceSSTExporter(this, roDB, cfHandle, null, exportDir, maxFileSize, log);
+    }
+
     @Override
     protected RocksDB db() {
         return roDB;
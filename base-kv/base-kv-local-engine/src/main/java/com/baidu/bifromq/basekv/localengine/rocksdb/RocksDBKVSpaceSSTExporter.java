@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.localengine.rocksdb;
+
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.DATA_SECTION_END;
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.DATA_SECTION_START;
+import static com.baidu.bifromq.basekv.localengine.rocksdb.RocksDBKVSpace.deleteDir;
+
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
+import com.baidu.bifromq.basekv.localengine.KVEngineException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.Snapshot;
+import org.rocksdb.SstFileWriter;
+import org.slf4j.Logger;
+
+class RocksDBKVSpaceSSTExporter implements IKVSpaceSSTExporter {
+    private final IRocksDBKVSpaceCheckpoint checkpoint; // keep a strong ref to the checkpoint during exporting
+    private final File exportDir;
+    private final long maxFileSize;
+    private final RocksDBKVEngineIterator itr;
+    private final EnvOptions envOptions;
+    private final Options options;
+    private final Logger log;
+    private int fileSeq;
+    private File lastFile;
+
+    RocksDBKVSpaceSSTExporter(IRocksDBKVSpaceCheckpoint checkpoint,
+                              RocksDB db,
+                              ColumnFamilyHandle cfHandle,
+                              Snapshot snapshot,
+                              File exportDir,
+                              long maxFileSize,
+                              Logger log) {
+        this.checkpoint = checkpoint;
+        this.exportDir = exportDir;
+        this.maxFileSize = maxFileSize;
+        this.log = log;
+        envOptions = new EnvOptions();
+        options = new Options();
+        itr = new RocksDBKVEngineIterator(db, cfHandle, snapshot, DATA_SECTION_START, DATA_SECTION_END);
+        itr.seekToFirst();
+    }
+
+    @Override
+    public Optional<File> next() {
+        deleteLastFile();
+        if (!itr.isValid()) {
+            return Optional.empty();
+        }
+        File sstFile = new File(exportDir, String.format("%06d.sst", fileSeq++));
+        try (SstFileWriter writer = new SstFileWriter(envOptions, options)) {
+            Files.createDirectories(exportDir.toPath());
+            writer.open(sstFile.getAbsolutePath());
+            long bytes = 0;
+            // data keys are iterated in order, so the exported files are naturally sorted and non-overlapping
+            while (itr.isValid() && bytes < maxFileSize) {
+                byte[] key = itr.key();
+                byte[] value = itr.value();
+                writer.put(key, value);
+                bytes += key.length + value.length;
+                itr.next();
+            }
+            writer.finish();
+            lastFile = sstFile;
+            log.debug("Exported sst file from checkpoint[{}]: file={}, bytes={}", checkpoint.cpId(), sstFile, bytes);
+            return Optional.of(sstFile);
+        } catch (Throwable e) {
+            throw new KVEngineException("Failed to export sst file", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        itr.close();
+        options.close();
+        envOptions.close();
+        if (exportDir.exists()) {
+            try {
+                deleteDir(exportDir.toPath());
+            } catch (IOException e) {
+                log.error("Failed to delete export dir: {}", exportDir, e);
+            }
+        }
+    }
+
+    private void deleteLastFile() {
+        if (lastFile != null) {
+            try {
+                Files.deleteIfExists(lastFile.toPath());
+            } catch (IOException e) {
+                log.error("Failed to delete exported sst file: {}", lastFile, e);
+            }
+            lastFile = null;
+        }
+    }
+}
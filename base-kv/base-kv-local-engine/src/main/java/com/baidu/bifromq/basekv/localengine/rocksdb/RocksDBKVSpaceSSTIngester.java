@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.localengine.rocksdb;
+
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.toMetaKey;
+import static com.baidu.bifromq.basekv.localengine.rocksdb.RocksDBKVSpace.deleteDir;
+import static com.google.protobuf.UnsafeByteOperations.unsafeWrap;
+
+import com.baidu.bifromq.basekv.localengine.IKVSpaceMetadataWriter;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTIngester;
+import com.baidu.bifromq.basekv.localengine.ISyncContext;
+import com.baidu.bifromq.basekv.localengine.KVEngineException;
+import com.google.protobuf.ByteString;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
+
+class RocksDBKVSpaceSSTIngester extends RocksDBKVSpaceReader implements IKVSpaceSSTIngester {
+    private static final String METADATA_FILE = "metadata.sst";
+    private final RocksDB db;
+    private final ColumnFamilyHandle cfHandle;
+    private final File stagingDir;
+    private final ISyncContext syncContext;
+    private final Consumer<Map<ByteString, ByteString>> afterWrite;
+    private final Map<ByteString, ByteString> metadataChanges = new HashMap<>();
+    private final Map<String, OutputStream> stagedFiles = new LinkedHashMap<>();
+
+    RocksDBKVSpaceSSTIngester(String id,
+                              RocksDB db,
+                              ColumnFamilyHandle cfHandle,
+                              File stagingDir,
+                              ISyncContext syncContext,
+                              Consumer<Map<ByteString, ByteString>> afterWrite,
+                              String... metricTags) {
+        super(id, metricTags);
+        this.db = db;
+        this.cfHandle = cfHandle;
+        this.stagingDir = stagingDir;
+        this.syncContext = syncContext;
+        this.afterWrite = afterWrite;
+    }
+
+    @Override
+    public IKVSpaceMetadataWriter metadata(ByteString metaKey, ByteString metaValue) {
+        metadataChanges.put(metaKey, metaValue);
+        return this;
+    }
+
+    @Override
+    public void append(String fileName, ByteString data) {
+        if (!new File(fileName).getName().equals(fileName) || fileName.equals(METADATA_FILE)) {
+            throw new KVEngineException("Invalid sst file name: " + fileName);
+        }
+        try {
+            OutputStream output = stagedFiles.get(fileName);
+            if (output == null) {
+                Files.createDirectories(stagingDir.toPath());
+                output = new FileOutputStream(new File(stagingDir, fileName));
+                stagedFiles.put(fileName, output);
+            }
+            data.writeTo(output);
+        } catch (IOException e) {
+            throw new KVEngineException("Failed to stage sst file", e);
+        }
+    }
+
+    @Override
+    public void done() {
+        try {
+            closeStagedFiles();
+            List<String> ingestFiles = new ArrayList<>();
+            if (!metadataChanges.isEmpty()) {
+                ingestFiles.add(writeMetadataFile());
+            }
+            for (String fileName : stagedFiles.keySet()) {
+                ingestFiles.add(new File(stagingDir, fileName).getAbsolutePath());
+            }
+            if (ingestFiles.isEmpty()) {
+                return;
+            }
+            syncContext.mutator().run(() -> {
+                // the files are ingested in one job atomically, and the later file takes precedence if overlapping
+                try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions().setMoveFiles(true)) {
+                    db.ingestExternalFile(cfHandle, ingestFiles, ingestOptions);
+                } catch (RocksDBException e) {
+                    throw new KVEngineException("Failed to ingest sst files", e);
+                }
+            });
+            log.debug("Ingested {} sst files into kvspace[{}]", stagedFiles.size(), id);
+            afterWrite.accept(metadataChanges);
+        } finally {
+            cleanStagingDir();
+        }
+    }
+
+    @Override
+    public void abort() {
+        try {
+            closeStagedFiles();
+        } finally {
+            cleanStagingDir();
+        }
+    }
+
+    @Override
+    public int count() {
+        return metadataChanges.size() + stagedFiles.size();
+    }
+
+    private String writeMetadataFile() {
+        // keys in sst file must be added in order
+        TreeMap<ByteString, ByteString> sortedMetadata = new TreeMap<>(ByteString.unsignedLexicographicalComparator());
+        metadataChanges.forEach((metaKey, metaValue) -> sortedMetadata.put(unsafeWrap(toMetaKey(metaKey)), metaValue));
+        File metadataFile = new File(stagingDir, METADATA_FILE);
+        try (EnvOptions envOptions = new EnvOptions();
+             Options options = new Options();
+             SstFileWriter writer = new SstFileWriter(envOptions, options)) {
+            Files.createDirectories(stagingDir.toPath());
+            writer.open(metadataFile.getAbsolutePath());
+            for (Map.Entry<ByteString, ByteString> entry : sortedMetadata.entrySet()) {
+                writer.put(entry.getKey().toByteArray(), entry.getValue().toByteArray());
+            }
+            writer.finish();
+            return metadataFile.getAbsolutePath();
+        } catch (Throwable e) {
+            throw new KVEngineException("Failed to write metadata sst file", e);
+        }
+    }
+
+    private void closeStagedFiles() {
+        for (OutputStream output : stagedFiles.values()) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.error("Failed to close staged sst file", e);
+            }
+        }
+    }
+
+    private void cleanStagingDir() {
+        if (stagingDir.exists()) {
+            try {
+                deleteDir(stagingDir.toPath());
+            } catch (IOException e) {
+                log.error("Failed to delete staging dir: {}", stagingDir, e);
+            }
+        }
+    }
+
+    @Override
+    protected Optional<ByteString> doMetadata(ByteString metaKey) {
+        try {
+            byte[] metaValBytes = db.get(cfHandle, toMetaKey(metaKey));
+            return Optional.ofNullable(metaValBytes == null ? null : unsafeWrap(metaValBytes));
+        } catch (RocksDBException e) {
+            throw new KVEngineException("Failed to read metadata", e);
+        }
+    }
+
+    @Override
+    protected RocksDB db() {
+        return db;
+    }
+
+    @Override
+    protected ColumnFamilyHandle cfHandle() {
+        return cfHandle;
+    }
+
+    @Override
+    protected ISyncContext.IRefresher newRefresher() {
+        return syncContext.refresher();
+    }
+
+    @Override
+    void close() {
+        // nothing to close
+    }
+}
@@ -13,34 +13,54 @@
 
 package com.baidu.bifromq.basekv.localengine.rocksdb;
 
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.DATA_SECTION_END;
+import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.DATA_SECTION_START;
 import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.toDataKey;
 import static com.baidu.bifromq.basekv.localengine.rocksdb.Keys.toMetaKey;
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.compare;
 import static com.baidu.bifromq.basekv.utils.BoundaryUtil.isValid;
 import static com.google.protobuf.UnsafeByteOperations.unsafeWrap;
+import static java.util.Collections.singletonList;
+import static org.rocksdb.SizeApproximationFlag.INCLUDE_FILES;
+import static org.rocksdb.SizeApproximationFlag.INCLUDE_MEMTABLES;
 
 import com.baidu.bifromq.basekv.localengine.AbstractKVSpaceReader;
 import com.baidu.bifromq.basekv.localengine.IKVSpaceIterator;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
 import com.baidu.bifromq.basekv.localengine.ISyncContext;
 import com.baidu.bifromq.basekv.localengine.KVEngineException;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.google.protobuf.ByteString;
+import java.io.File;
+import java.io.IOException;
 import java.lang.ref.Cleaner;
+import java.nio.file.Files;
 import java.util.Optional;
 import java.util.function.Supplier;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
+import org.rocksdb.Range;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.Slice;
 import org.rocksdb.Snapshot;
+import org.rocksdb.SstFileWriter;
 
 class RocksDBKVSpaceSnapshot extends AbstractKVSpaceReader implements IRocksDBKVSpaceCheckpoint {
     private static final Cleaner CLEANER = Cleaner.create();
+    private static final String SAVE_SUFFIX = ".save.sst";
 
     private record ClosableResources(ReadOptions readOptions, Snapshot snapshot, RocksDB db) implements Runnable {
         @Override
         public void run() {
             readOptions.close();
-            db.releaseSnapshot(snapshot);
+            // the snapshot has been released along with the db if it's closed
+            if (db.isOwningHandle()) {
+                db.releaseSnapshot(snapshot);
+            }
         }
     }
 
@@ -55,6 +75,7 @@ class RocksDBKVSpaceSnapshot extends AbstractKVSpaceReader implements IRocksDBKV
             return supplier.get();
         }
     };
+    private final String cpId;
     private final Snapshot snapshot;
     private final ColumnFamilyHandle cfHandle;
     private final RocksDB db;
@@ -66,7 +87,17 @@ class RocksDBKVSpaceSnapshot extends AbstractKVSpaceReader implements IRocksDBKV
                            ColumnFamilyHandle cfHandle,
                            RocksDB db,
                            String... metricTags) {
+        this(id, Long.toUnsignedString(snapshot.getSequenceNumber()), snapshot, cfHandle, db, metricTags);
+    }
+
+    RocksDBKVSpaceSnapshot(String id,
+                           String cpId,
+                           Snapshot snapshot,
+                           ColumnFamilyHandle cfHandle,
+                           RocksDB db,
+                           String... metricTags) {
         super(id, metricTags);
+        this.cpId = cpId;
         this.snapshot = snapshot;
         this.cfHandle = cfHandle;
         this.db = db;
@@ -76,7 +107,7 @@ class RocksDBKVSpaceSnapshot extends AbstractKVSpaceReader implements IRocksDBKV
 
     @Override
     public String cpId() {
-        return Long.toUnsignedString(snapshot.getSequenceNumber());
+        return cpId;
     }
 
     @Override
@@ -84,6 +115,50 @@ class RocksDBKVSpaceSnapshot extends AbstractKVSpaceReader implements IRocksDBKV
         cleanable.clean();
     }
 
+    @Override
+    public IKVSpaceSSTExporter exportSST(File exportDir, long maxFileSize) {
+        return new RocksDBKVSpaceSSTExporter(this, db, cfHandle, snapshot, exportDir, maxFileSize, log);
+    }
+
+    /**
+     * Write the data and metadata of the snapshot into a new rocksdb at the given dir, which could be opened as a
+     * checkpoint.
+     *
+     * @param cpDir the dir of the checkpoint
+     */
+    void saveTo(File cpDir) {
+        File sstFile = new File(cpDir.getAbsolutePath() + SAVE_SUFFIX);
+        boolean empty = true;
+        try (EnvOptions envOptions = new EnvOptions();
+             Options options = new Options().setCreateIfMissing(true);
+             SstFileWriter writer = new SstFileWriter(envOptions, options);
+             RocksDBKVEngineIterator itr = new RocksDBKVEngineIterator(db, cfHandle, snapshot, null, null)) {
+            writer.open(sstFile.getAbsolutePath());
+            for (itr.seekToFirst(); itr.isValid(); itr.next()) {
+                writer.put(itr.key(), itr.value());
+                empty = false;
+            }
+            if (!empty) {
+                writer.finish();
+            }
+            try (RocksDB cpDB = RocksDB.open(options, cpDir.getAbsolutePath())) {
+                if (!empty) {
+                    try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions().setMoveFiles(true)) {
+                        cpDB.ingestExternalFile(singletonList(sstFile.getAbsolutePath()), ingestOptions);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            throw new KVEngineException("Failed to save snapshot", e);
+        } finally {
+            try {
+                Files.deleteIfExists(sstFile.toPath());
+            } catch (IOException e) {
+                log.error("Failed to delete sst file: {}", sstFile, e);
+            }
+        }
+    }
+
     @Override
     protected Optional<ByteString> doMetadata(ByteString metaKey) {
         try {
@@ -99,7 +174,18 @@ class RocksDBKVSpaceSnapshot extends AbstractKVSpaceReader implements IRocksDBKV
 
     @Override
     protected long doSize(Boundary boundary) {
-        throw new UnsupportedOperationException("Getting size of snapshot is unsupported");
+        // snapshot shares the sst files with the live space, so the size is approximated by the live data
+        byte[] start =
+            !boundary.hasStartKey() ? DATA_SECTION_START : toDataKey(boundary.getStartKey().toByteArray());
+        byte[] end =
+            !boundary.hasEndKey() ? DATA_SECTION_END : toDataKey(boundary.getEndKey().toByteArray());
+        if (compare(start, end) < 0) {
+            try (Slice startSlice = new Slice(start); Slice endSlice = new Slice(end)) {
+                Range range = new Range(startSlice, endSlice);
+                return db.getApproximateSizes(cfHandle, singletonList(range), INCLUDE_MEMTABLES, INCLUDE_FILES)[0];
+            }
+        }
+        return 0;
     }
 
     @Override
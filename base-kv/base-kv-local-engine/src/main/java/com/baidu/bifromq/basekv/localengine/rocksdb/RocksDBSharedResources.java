@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.localengine.rocksdb;
+
+import java.util.Optional;
+import org.rocksdb.Cache;
+import org.rocksdb.Env;
+import org.rocksdb.HyperClockCache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Priority;
+import org.rocksdb.RateLimiter;
+import org.rocksdb.RocksDB;
+import org.rocksdb.WriteBufferManager;
+
+/**
+ * The RocksDB resources shared by all the kv spaces of an engine. The block cache, the memtable budget and the
+ * compaction rate limit are bounded at engine level instead of growing with the number of kv spaces.
+ */
+public final class RocksDBSharedResources implements AutoCloseable {
+    static {
+        // the cache may be the first native object created in the process
+        RocksDB.loadLibrary();
+    }
+
+    private final Cache blockCache;
+    private final WriteBufferManager writeBufferManager;
+    private final RateLimiter rateLimiter;
+    private final Env env;
+
+    RocksDBSharedResources(RocksDBKVEngineConfigurator<?> configurator) {
+        blockCache = configurator.hyperClockCache()
+            // let the cache estimate the entry charge
+            ? new HyperClockCache(configurator.blockCacheSize(), 0, -1, false)
+            : new LRUCache(configurator.blockCacheSize(), 8);
+        // memtable memory is charged to the block cache, so the total memory usage is bounded by the cache capacity
+        writeBufferManager = configurator.writeBufferManagerSize() > 0
+            ? new WriteBufferManager(configurator.writeBufferManagerSize(), blockCache, false) : null;
+        rateLimiter = new RateLimiter(configurator.compactionRateLimit(),
+            RateLimiter.DEFAULT_REFILL_PERIOD_MICROS,
+            RateLimiter.DEFAULT_FAIRNESS,
+            RateLimiter.DEFAULT_MODE, true);
+        // the background thread pools of default env are process-wide, only grow them if needed
+        env = Env.getDefault()
+            .incBackgroundThreadsIfNeeded(configurator.compactionThreads(), Priority.LOW)
+            .incBackgroundThreadsIfNeeded(configurator.flushThreads(), Priority.HIGH);
+    }
+
+    public Cache blockCache() {
+        return blockCache;
+    }
+
+    public Optional<WriteBufferManager> writeBufferManager() {
+        return Optional.ofNullable(writeBufferManager);
+    }
+
+    public RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    public Env env() {
+        return env;
+    }
+
+    @Override
+    public void close() {
+        if (writeBufferManager != null) {
+            writeBufferManager.close();
+        }
+        rateLimiter.close();
+        blockCache.close();
+    }
+}
@@ -33,15 +33,15 @@ public final class RocksDBWALableKVEngineConfigurator
     private boolean fsyncWAL = false;
 
     @Override
-    public DBOptions dbOptions() {
-        DBOptions options = super.dbOptions();
+    public DBOptions dbOptions(RocksDBSharedResources sharedResources) {
+        DBOptions options = super.dbOptions(sharedResources);
         options.setManualWalFlush(asyncWALFlush);
         return options;
     }
 
     @Override
-    public ColumnFamilyOptions cfOptions(String name) {
-        ColumnFamilyOptions cfOptions = super.cfOptions(name);
+    public ColumnFamilyOptions cfOptions(String name, RocksDBSharedResources sharedResources) {
+        ColumnFamilyOptions cfOptions = super.cfOptions(name, sharedResources);
         cfOptions.setEnableBlobFiles(true);
         cfOptions.setMinBlobSize(2048); // 2kb
         cfOptions.enableBlobGarbageCollection();
@@ -22,7 +22,9 @@ import static org.testng.Assert.assertTrue;
 import com.baidu.bifromq.basekv.localengine.AbstractKVEngineTest;
 import com.baidu.bifromq.basekv.localengine.IKVSpace;
 import com.baidu.bifromq.basekv.localengine.TestUtil;
+import com.baidu.bifromq.basekv.localengine.metrics.KVSpaceMetric;
 import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Metrics;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -53,6 +55,34 @@ public abstract class AbstractRocksDBKVEngineTest extends AbstractKVEngineTest {
         assertEquals(identity, engine.id());
     }
 
+    @Test
+    public void shareResourcesAmongSpaces() {
+        ByteString key = ByteString.copyFromUtf8("key");
+        ByteString value = ByteString.copyFromUtf8("value");
+        IKVSpace space1 = engine.createIfMissing("test_range1");
+        IKVSpace space2 = engine.createIfMissing("test_range2");
+        space1.toWriter().put(key, value).done();
+        space2.toWriter().put(key, value).done();
+        assertEquals(space1.get(key).get(), value);
+        assertEquals(space2.get(key).get(), value);
+
+        RocksDBSharedResources sharedResources = ((RocksDBKVEngine<?, ?, ?>) engine).sharedResources();
+        // memtables are charged to the shared block cache
+        assertTrue(sharedResources.blockCache().getUsage() > 0);
+        assertEquals(Metrics.globalRegistry.find("basekv.le.rocksdb.shared.blockcache").gauges().size(), 1);
+        assertEquals(Metrics.globalRegistry.find("basekv.le.rocksdb.shared.pinned").gauges().size(), 1);
+        assertEquals(Metrics.globalRegistry.find(KVSpaceMetric.BlockCache.metricName)
+            .tag("kvspace", "test_range1").gauges().size(), 1);
+        assertEquals(Metrics.globalRegistry.find(KVSpaceMetric.PinnedMem.metricName)
+            .tag("kvspace", "test_range2").gauges().size(), 1);
+        assertEquals(Metrics.globalRegistry.find(KVSpaceMetric.MemTable.metricName)
+            .tag("kvspace", "test_range1").gauges().size(), 1);
+        assertEquals(Metrics.globalRegistry.find(KVSpaceMetric.TableReader.metricName)
+            .tag("kvspace", "test_range1").gauges().size(), 1);
+        assertTrue(Metrics.globalRegistry.find(KVSpaceMetric.WriteBuffer.metricName)
+            .tag("kvspace", "test_range2").gauge().value() > 0);
+    }
+
     @Test
     public void loadExistingKeyRange() {
         String rangeId = "test_range1";
@@ -13,15 +13,24 @@
 
 package com.baidu.bifromq.basekv.localengine.rocksdb;
 
+import static org.awaitility.Awaitility.await;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import com.baidu.bifromq.basekv.localengine.ICPableKVSpace;
 import com.baidu.bifromq.basekv.localengine.IKVEngine;
 import com.baidu.bifromq.basekv.localengine.IKVSpace;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceIterator;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTIngester;
+import com.google.protobuf.ByteString;
 import io.reactivex.rxjava3.disposables.Disposable;
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import lombok.SneakyThrows;
 import org.testng.annotations.Test;
 
@@ -61,4 +70,82 @@ public class RocksDBCPableKVEngineTest extends AbstractRocksDBKVEngineTest {
         assertTrue(engine.spaces().isEmpty());
         assertFalse(engine.spaces().containsKey(rangeId));
     }
+
+    @SneakyThrows
+    @Test
+    public void exportAndIngestSST() {
+        ICPableKVSpace source = (ICPableKVSpace) engine.createIfMissing("source_range");
+        ByteString metaKey = ByteString.copyFromUtf8("metaKey");
+        source.toWriter().metadata(metaKey, ByteString.copyFromUtf8("metaValue")).done();
+        for (int i = 0; i < 100; i++) {
+            source.toWriter().put(ByteString.copyFromUtf8("key" + i), ByteString.copyFromUtf8("value" + i)).done();
+        }
+        String cpId = source.checkpoint();
+
+        ICPableKVSpace target = (ICPableKVSpace) engine.createIfMissing("target_range");
+        IKVSpaceSSTIngester ingester = target.toIngester().get();
+        int fileCount = 0;
+        try (IKVSpaceSSTExporter exporter = source.exportSST(cpId, 128).get()) {
+            Optional<File> sstFile;
+            while ((sstFile = exporter.next()).isPresent()) {
+                fileCount++;
+                byte[] data = Files.readAllBytes(sstFile.get().toPath());
+                // append in chunks
+                int half = data.length / 2;
+                ingester.append(sstFile.get().getName(), ByteString.copyFrom(data, 0, half));
+                ingester.append(sstFile.get().getName(), ByteString.copyFrom(data, half, data.length - half));
+            }
+        }
+        assertTrue(fileCount > 1);
+        ingester.metadata(metaKey, ByteString.copyFromUtf8("restored")).done();
+
+        assertEquals(target.metadata(metaKey).get(), ByteString.copyFromUtf8("restored"));
+        assertEquals(target.metadata().blockingFirst().get(metaKey), ByteString.copyFromUtf8("restored"));
+        int count = 0;
+        try (IKVSpaceIterator itr = target.newIterator()) {
+            for (itr.seekToFirst(); itr.isValid(); itr.next()) {
+                assertEquals(itr.value(), source.get(itr.key()).get());
+                count++;
+            }
+        }
+        assertEquals(count, 100);
+        // non-empty space could not ingest sst files
+        assertFalse(target.toIngester().isPresent());
+    }
+
+    @SneakyThrows
+    @Test
+    public void snapshotCheckpoint() {
+        // snapshot checkpoint by default
+        ICPableKVSpace space = (ICPableKVSpace) engine.createIfMissing("test_range");
+        ByteString key = ByteString.copyFromUtf8("key");
+        space.toWriter().put(key, ByteString.copyFromUtf8("value1")).done();
+        String cpId = space.checkpoint();
+        space.toWriter().put(key, ByteString.copyFromUtf8("value2")).done();
+
+        space.persisted(cpId).get(5, TimeUnit.SECONDS);
+        assertEquals(space.open(cpId).get().get(key).get(), ByteString.copyFromUtf8("value1"));
+        assertEquals(space.get(key).get(), ByteString.copyFromUtf8("value2"));
+
+        // the snapshot is saved as on-disk checkpoint after persisted
+        await().until(() -> space.open(cpId).get() instanceof RocksDBKVSpaceCheckpoint);
+        assertTrue(Paths.get(dbRootDir.toString(), DB_CHECKPOINT_DIR, "test_range", cpId).toFile().exists());
+        assertEquals(space.open(cpId).get().get(key).get(), ByteString.copyFromUtf8("value1"));
+    }
+
+    @SneakyThrows
+    @Test
+    public void blockingCheckpoint() {
+        engine.stop();
+        configurator = configurator.toBuilder().asyncCheckpoint(false).build();
+        engine = newEngine();
+        engine.start();
+        ICPableKVSpace space = (ICPableKVSpace) engine.createIfMissing("test_range");
+        ByteString key = ByteString.copyFromUtf8("key");
+        space.toWriter().put(key, ByteString.copyFromUtf8("value1")).done();
+        String cpId = space.checkpoint();
+        assertTrue(space.persisted(cpId).isDone());
+        assertTrue(Paths.get(dbRootDir.toString(), DB_CHECKPOINT_DIR, "test_range", cpId).toFile().exists());
+        assertEquals(space.open(cpId).get().get(key).get(), ByteString.copyFromUtf8("value1"));
+    }
 }
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.balance.impl;
+
+import com.baidu.bifromq.basehlc.HLC;
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.proto.KVRangeId;
+import com.baidu.bifromq.basekv.proto.KVRangeStoreDescriptor;
+import com.baidu.bifromq.basekv.proto.SplitHint;
+import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
+import com.baidu.bifromq.basekv.utils.BoundaryUtil;
+import com.baidu.bifromq.basekv.utils.KeySpaceDAG;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The balancer merges adjacent cold ranges to reduce the number of raft groups left behind by load-based splits.
+ *
+ * <p>A range is considered cold when the load estimated by the split hint of given type is low and no hint is
+ * suggesting to split it. Two adjacent ranges are merged only when:
+ * <ul>
+ *     <li>both of them have been staying cold for at least {@value #LOAD_RULE_MIN_COLD_SECONDS} seconds</li>
+ *     <li>their total io density is not greater than {@value #LOAD_RULE_MAX_IO_DENSITY_TO_MERGE}</li>
+ *     <li>their total data size is not greater than {@value #LOAD_RULE_MAX_RANGE_SIZE_TO_MERGE}</li>
+ *     <li>they have identical cluster config, so no replica needs to be moved beforehand</li>
+ * </ul>
+ * The io density threshold is expected to be well below the one used for splitting, together with the cold duration
+ * they keep a freshly split or merged range from flapping between the two balancers. At most one pair of ranges is
+ * merged per round, and the cold duration of the merged range starts over since its boundary has changed.
+ */
+public class RangeMergeBalancer extends RuleBasedPlacementBalancer {
+    public static final String LOAD_RULE_MAX_IO_DENSITY_TO_MERGE = "maxIODensityToMerge";
+    public static final String LOAD_RULE_MAX_RANGE_SIZE_TO_MERGE = "maxRangeSizeToMerge";
+    public static final String LOAD_RULE_MIN_COLD_SECONDS = "minColdSeconds";
+
+    private static final String LOAD_TYPE_IO_DENSITY = "ioDensity";
+    private static final String STAT_DATA_SIZE = "dataSize";
+
+    private final String hintType;
+    private final Struct defaultLoadRules;
+    private final Supplier<Long> millisSource;
+    // key: id of the range in effective route
+    // value: the boundary of the range and the time when it was observed cold for the first time
+    private final Map<KVRangeId, ColdSince> coldSinceMap = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the balancer.
+     *
+     * @param clusterId           the id of the BaseKV cluster which the store belongs to
+     * @param localStoreId        the id of the store which the balancer is responsible for
+     * @param hintType            the type of split hint which provides the load estimation
+     * @param maxIODensityToMerge the maximum total io density of two ranges to be merged
+     * @param maxRangeSizeToMerge the maximum total data size in bytes of two ranges to be merged
+     * @param minColdDuration     the minimum duration of both ranges staying cold before merging
+     */
+    public RangeMergeBalancer(String clusterId,
+                              String localStoreId,
+                              String hintType,
+                              int maxIODensityToMerge,
+                              long maxRangeSizeToMerge,
+                              Duration minColdDuration) {
+        this(clusterId, localStoreId, hintType, maxIODensityToMerge, maxRangeSizeToMerge, minColdDuration,
+            HLC.INST::getPhysical);
+    }
+
+    RangeMergeBalancer(String clusterId,
+                       String localStoreId,
+                       String hintType,
+                       int maxIODensityToMerge,
+                       long maxRangeSizeToMerge,
+                       Duration minColdDuration,
+                       Supplier<Long> millisSource) {
+        super(clusterId, localStoreId);
+        this.hintType = hintType;
+        this.millisSource = millisSource;
+        this.defaultLoadRules = Struct.newBuilder()
+            .putFields(LOAD_RULE_MAX_IO_DENSITY_TO_MERGE,
+                Value.newBuilder().setNumberValue(maxIODensityToMerge).build())
+            .putFields(LOAD_RULE_MAX_RANGE_SIZE_TO_MERGE,
+                Value.newBuilder().setNumberValue(maxRangeSizeToMerge).build())
+            .putFields(LOAD_RULE_MIN_COLD_SECONDS,
+                Value.newBuilder().setNumberValue(minColdDuration.toSeconds()).build())
+            .build();
+    }
+
+    @Override
+    protected Struct defaultLoadRules() {
+        return defaultLoadRules;
+    }
+
+    @Override
+    public boolean validate(Struct loadRules) {
+        Value maxIODensityToMerge = loadRules.getFieldsMap().get(LOAD_RULE_MAX_IO_DENSITY_TO_MERGE);
+        if (maxIODensityToMerge == null
+            || !maxIODensityToMerge.hasNumberValue()
+            || maxIODensityToMerge.getNumberValue() < 0) {
+            return false;
+        }
+        Value maxRangeSizeToMerge = loadRules.getFieldsMap().get(LOAD_RULE_MAX_RANGE_SIZE_TO_MERGE);
+        if (maxRangeSizeToMerge == null
+            || !maxRangeSizeToMerge.hasNumberValue()
+            || maxRangeSizeToMerge.getNumberValue() <= 0) {
+            return false;
+        }
+        Value minColdSeconds = loadRules.getFieldsMap().get(LOAD_RULE_MIN_COLD_SECONDS);
+        return minColdSeconds != null
+            && minColdSeconds.hasNumberValue()
+            && minColdSeconds.getNumberValue() >= 0;
+    }
+
+    @Override
+    protected Map<Boundary, ClusterConfig> doGenerate(Struct loadRules,
+                                                      Map<String, KVRangeStoreDescriptor> landscape,
+                                                      NavigableMap<Boundary, KeySpaceDAG.LeaderRange> effectiveRoute) {
+        double maxIODensityToMerge = loadRules.getFieldsMap().get(LOAD_RULE_MAX_IO_DENSITY_TO_MERGE).getNumberValue();
+        double maxRangeSizeToMerge = loadRules.getFieldsMap().get(LOAD_RULE_MAX_RANGE_SIZE_TO_MERGE).getNumberValue();
+        long minColdMillis = Duration.ofSeconds(
+            (long) loadRules.getFieldsMap().get(LOAD_RULE_MIN_COLD_SECONDS).getNumberValue()).toMillis();
+        long now = millisSource.get();
+        trackColdRanges(maxIODensityToMerge, effectiveRoute, now);
+
+        Map<Boundary, ClusterConfig> expectedRangeLayout = new HashMap<>();
+        boolean merged = false;
+        Map.Entry<Boundary, KeySpaceDAG.LeaderRange> prevEntry = null;
+        for (Map.Entry<Boundary, KeySpaceDAG.LeaderRange> entry : effectiveRoute.entrySet()) {
+            expectedRangeLayout.put(entry.getKey(), entry.getValue().descriptor().getConfig());
+            if (!merged && prevEntry != null) {
+                KVRangeDescriptor merger = prevEntry.getValue().descriptor();
+                KVRangeDescriptor mergee = entry.getValue().descriptor();
+                if (isColdLongEnough(merger, now, minColdMillis)
+                    && isColdLongEnough(mergee, now, minColdMillis)
+                    && ioDensity(merger) + ioDensity(mergee) <= maxIODensityToMerge
+                    && dataSize(merger) + dataSize(mergee) <= maxRangeSizeToMerge
+                    && isMergeable(merger.getConfig(), mergee.getConfig())) {
+                    log.debug("Merge range[{}] and range[{}]: ioDensity={}, dataSize={}",
+                        prevEntry.getKey(), entry.getKey(),
+                        ioDensity(merger) + ioDensity(mergee), dataSize(merger) + dataSize(mergee));
+                    expectedRangeLayout.remove(prevEntry.getKey());
+                    expectedRangeLayout.remove(entry.getKey());
+                    expectedRangeLayout.put(BoundaryUtil.combine(prevEntry.getKey(), entry.getKey()),
+                        merger.getConfig());
+                    merged = true;
+                }
+            }
+            prevEntry = entry;
+        }
+        return expectedRangeLayout;
+    }
+
+    private void trackColdRanges(double maxIODensityToMerge,
+                                 NavigableMap<Boundary, KeySpaceDAG.LeaderRange> effectiveRoute,
+                                 long now) {
+        Set<KVRangeId> rangeIds = new HashSet<>();
+        for (Map.Entry<Boundary, KeySpaceDAG.LeaderRange> entry : effectiveRoute.entrySet()) {
+            Boundary boundary = entry.getKey();
+            KVRangeDescriptor rangeDescriptor = entry.getValue().descriptor();
+            rangeIds.add(rangeDescriptor.getId());
+            if (isCold(rangeDescriptor, maxIODensityToMerge)) {
+                coldSinceMap.compute(rangeDescriptor.getId(), (k, v) -> {
+                    if (v == null || !v.boundary.equals(boundary)) {
+                        // newly cold or boundary changed by split/merge
+                        return new ColdSince(boundary, now);
+                    }
+                    return v;
+                });
+            } else {
+                coldSinceMap.remove(rangeDescriptor.getId());
+            }
+        }
+        coldSinceMap.keySet().retainAll(rangeIds);
+    }
+
+    private boolean isCold(KVRangeDescriptor rangeDescriptor, double maxIODensityToMerge) {
+        Optional<SplitHint> loadHint = Optional.empty();
+        for (SplitHint splitHint : rangeDescriptor.getHintsList()) {
+            if (splitHint.getType().equals(hintType)) {
+                loadHint = Optional.of(splitHint);
+            } else if (splitHint.hasSplitKey()) {
+                // some other hinter is suggesting split
+                return false;
+            }
+        }
+        return loadHint.isPresent() && loadHint.get().getLoadOrDefault(LOAD_TYPE_IO_DENSITY, 0) <= maxIODensityToMerge;
+    }
+
+    private boolean isColdLongEnough(KVRangeDescriptor rangeDescriptor, long now, long minColdMillis) {
+        ColdSince coldSince = coldSinceMap.get(rangeDescriptor.getId());
+        return coldSince != null && now - coldSince.sinceMillis >= minColdMillis;
+    }
+
+    private boolean isMergeable(ClusterConfig mergerConfig, ClusterConfig mergeeConfig) {
+        // no running config change and no replica movement needed before merging
+        return mergerConfig.getNextVotersList().isEmpty()
+            && mergerConfig.getNextLearnersList().isEmpty()
+            && mergerConfig.equals(mergeeConfig);
+    }
+
+    private double ioDensity(KVRangeDescriptor rangeDescriptor) {
+        return rangeDescriptor.getHintsList().stream()
+            .filter(h -> h.getType().equals(hintType))
+            .findFirst()
+            .map(h -> h.getLoadOrDefault(LOAD_TYPE_IO_DENSITY, 0))
+            .orElse(0.0);
+    }
+
+    private double dataSize(KVRangeDescriptor rangeDescriptor) {
+        return rangeDescriptor.getStatisticsOrDefault(STAT_DATA_SIZE, 0);
+    }
+
+    private record ColdSince(Boundary boundary, long sinceMillis) {
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.balance.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.balance.BalanceNow;
+import com.baidu.bifromq.basekv.balance.BalanceResultType;
+import com.baidu.bifromq.basekv.balance.command.MergeCommand;
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.proto.KVRangeStoreDescriptor;
+import com.baidu.bifromq.basekv.proto.SplitHint;
+import com.baidu.bifromq.basekv.proto.State;
+import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeStatus;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class RangeMergeBalancerTest {
+    private static final String HintType = "kv_io_mutation";
+    private final String clusterId = "clusterId";
+    private final AtomicLong mockTime = new AtomicLong();
+    private KVRangeDescriptor.Builder leftRangeBuilder;
+    private KVRangeDescriptor.Builder rightRangeBuilder;
+    private RangeMergeBalancer balancer;
+
+    @BeforeMethod
+    public void setup() {
+        mockTime.set(0);
+        ClusterConfig config = ClusterConfig.newBuilder().addVoters("store1").build();
+        leftRangeBuilder = KVRangeDescriptor.newBuilder()
+            .setId(KVRangeIdUtil.generate())
+            .setVer(1L)
+            .setBoundary(Boundary.newBuilder().setEndKey(ByteString.copyFromUtf8("b")).build())
+            .setState(State.StateType.Normal)
+            .setRole(RaftNodeStatus.Leader)
+            .setConfig(config)
+            .putStatistics("dataSize", 1024)
+            .addHints(loadHint(1));
+        rightRangeBuilder = KVRangeDescriptor.newBuilder()
+            .setId(KVRangeIdUtil.next(leftRangeBuilder.getId()))
+            .setVer(1L)
+            .setBoundary(Boundary.newBuilder().setStartKey(ByteString.copyFromUtf8("b")).build())
+            .setState(State.StateType.Normal)
+            .setRole(RaftNodeStatus.Leader)
+            .setConfig(config)
+            .putStatistics("dataSize", 1024)
+            .addHints(loadHint(1));
+        balancer = new RangeMergeBalancer(clusterId, "store1", HintType, 10, 4096, Duration.ofSeconds(60),
+            mockTime::get);
+    }
+
+    @Test
+    public void defaultLoadRules() {
+        assertTrue(balancer.validate(balancer.defaultLoadRules()));
+    }
+
+    @Test
+    public void invalidLoadRules() {
+        assertFalse(balancer.validate(balancer.defaultLoadRules().toBuilder()
+            .putFields(RangeMergeBalancer.LOAD_RULE_MAX_RANGE_SIZE_TO_MERGE,
+                Value.newBuilder().setNumberValue(0).build())
+            .build()));
+        assertFalse(balancer.validate(balancer.defaultLoadRules().toBuilder()
+            .removeFields(RangeMergeBalancer.LOAD_RULE_MIN_COLD_SECONDS)
+            .build()));
+        assertFalse(balancer.validate(Struct.getDefaultInstance()));
+    }
+
+    @Test
+    public void genMergeCommand() {
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        update();
+        MergeCommand mergeCommand = ((BalanceNow<MergeCommand>) balancer.balance()).command;
+        assertEquals(mergeCommand.getToStore(), "store1");
+        assertEquals(mergeCommand.getKvRangeId(), leftRangeBuilder.getId());
+        assertEquals(mergeCommand.getExpectedVer(), leftRangeBuilder.getVer());
+        assertEquals(mergeCommand.getMergeeId(), rightRangeBuilder.getId());
+    }
+
+    @Test
+    public void coldDurationRestartWhenTurnHot() {
+        update();
+        mockTime.addAndGet(Duration.ofSeconds(40).toMillis());
+        rightRangeBuilder.setHints(0, loadHint(20));
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+
+        mockTime.addAndGet(Duration.ofSeconds(40).toMillis());
+        rightRangeBuilder.setHints(0, loadHint(1));
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.BalanceNow);
+    }
+
+    @Test
+    public void coldDurationRestartWhenBoundaryChanged() {
+        update();
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        // left range is the result of a recent split
+        leftRangeBuilder.setBoundary(Boundary.newBuilder()
+            .setStartKey(ByteString.copyFromUtf8("a"))
+            .setEndKey(ByteString.copyFromUtf8("b"))
+            .build());
+        KVRangeDescriptor splitRange = leftRangeBuilder.clone()
+            .setId(KVRangeIdUtil.next(rightRangeBuilder.getId()))
+            .setBoundary(Boundary.newBuilder().setEndKey(ByteString.copyFromUtf8("a")).build())
+            .build();
+        balancer.update(Set.of(KVRangeStoreDescriptor.newBuilder()
+            .setId("store1")
+            .addRanges(splitRange)
+            .addRanges(leftRangeBuilder.build())
+            .addRanges(rightRangeBuilder.build())
+            .build()));
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+    }
+
+    @Test
+    public void stopMergeWhenTotalIODensityExceedLimit() {
+        leftRangeBuilder.setHints(0, loadHint(6));
+        rightRangeBuilder.setHints(0, loadHint(6));
+        update();
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+    }
+
+    @Test
+    public void stopMergeWhenTotalSizeExceedLimit() {
+        leftRangeBuilder.putStatistics("dataSize", 3072);
+        update();
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+    }
+
+    @Test
+    public void stopMergeWhenOtherHintSuggestSplit() {
+        rightRangeBuilder.addHints(SplitHint.newBuilder()
+            .setType("fanout_split_hinter")
+            .setSplitKey(ByteString.copyFromUtf8("c"))
+            .build());
+        update();
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        update();
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+    }
+
+    @Test
+    public void stopMergeWhenClusterConfigDiffers() {
+        rightRangeBuilder.setConfig(ClusterConfig.newBuilder().addVoters("store1").addLearners("store2").build());
+        KVRangeStoreDescriptor store2 = KVRangeStoreDescriptor.newBuilder().setId("store2").build();
+        balancer.update(Set.of(storeDescriptor(), store2));
+        mockTime.addAndGet(Duration.ofSeconds(61).toMillis());
+        balancer.update(Set.of(storeDescriptor(), store2));
+        assertEquals(balancer.balance().type(), BalanceResultType.NoNeedBalance);
+    }
+
+    private void update() {
+        balancer.update(Set.of(storeDescriptor()));
+    }
+
+    private KVRangeStoreDescriptor storeDescriptor() {
+        return KVRangeStoreDescriptor.newBuilder()
+            .setId("store1")
+            .addRanges(leftRangeBuilder.build())
+            .addRanges(rightRangeBuilder.build())
+            .build();
+    }
+
+    private SplitHint loadHint(double ioDensity) {
+        return SplitHint.newBuilder()
+            .setType(HintType)
+            .putLoad("ioDensity", ioDensity)
+            .putLoad("ioLatencyNanos", 100)
+            .build();
+    }
+}
@@ -60,6 +60,7 @@ import com.baidu.bifromq.basekv.utils.KeySpaceDAG;
 import com.baidu.bifromq.baserpc.BluePrint;
 import com.baidu.bifromq.baserpc.client.IRPCClient;
 import com.baidu.bifromq.baserpc.client.exception.ServerNotFoundException;
+import com.baidu.bifromq.baserpc.trafficgovernor.ServerEndpoint;
 import com.baidu.bifromq.logger.SiftLogger;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -71,6 +72,7 @@ import io.reactivex.rxjava3.subjects.Subject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -93,6 +95,7 @@ final class BaseKVStoreClient implements IBaseKVStoreClient {
     private final AtomicBoolean closed = new AtomicBoolean();
     private final CompositeDisposable disposables = new CompositeDisposable();
     private final int queryPipelinesPerStore;
+    private final StoreLoadTracker loadTracker = new StoreLoadTracker();
     private final IBaseKVClusterMetadataManager metadataManager;
     private final MethodDescriptor<BootstrapRequest, BootstrapReply> bootstrapMethod;
     private final MethodDescriptor<RecoverRequest, RecoverReply> recoverMethod;
@@ -168,6 +171,24 @@ final class BaseKVStoreClient implements IBaseKVStoreClient {
                 return complete;
             });
         disposables.add(clusterInfoObservable.subscribe(this::refresh));
+        if (builder.localityGroupTags != null && !builder.localityGroupTags.isEmpty()) {
+            Set<String> localityGroupTags = Sets.newHashSet(builder.localityGroupTags);
+            disposables.add(builder.trafficService
+                .getServiceLandscape(bluePrint.serviceDescriptor().getName())
+                .serverEndpoints()
+                .subscribe(serverEndpoints -> {
+                    Set<String> localStores = new HashSet<>();
+                    for (ServerEndpoint serverEndpoint : serverEndpoints) {
+                        String storeId = serverEndpoint.attrs().get(RPC_METADATA_STORE_ID);
+                        if (storeId != null
+                            && !Collections.disjoint(serverEndpoint.groupTags(), localityGroupTags)) {
+                            localStores.add(storeId);
+                        }
+                    }
+                    log.debug("Local stores updated: {}", localStores);
+                    loadTracker.setLocalStores(localStores);
+                }));
+        }
         disposables.add(effectiveRouterSubject.subscribe(router -> {
             if (!router.isEmpty()) {
                 synchronized (this) {
@@ -317,8 +338,10 @@ final class BaseKVStoreClient implements IBaseKVStoreClient {
         if (pipelines == null) {
             return CompletableFuture.failedFuture(BaseKVException.serverNotFound());
         }
+        long startNanos = loadTracker.onStart(storeId);
         return pipelines.get((orderKey.hashCode() % pipelines.size() + pipelines.size()) % pipelines.size())
-            .query(request);
+            .query(request)
+            .whenComplete((v, e) -> loadTracker.onFinish(storeId, startNanos));
     }
 
     @Override
@@ -466,8 +489,10 @@ final class BaseKVStoreClient implements IBaseKVStoreClient {
         Map<String, Map<KVRangeId, KVRangeDescriptor>> leaderRanges =
             toLeaderRanges(effectiveEpoch.get().storeDescriptors());
         KeySpaceDAG dag = new KeySpaceDAG(leaderRanges);
-        NavigableMap<Boundary, KVRangeSetting> router = Maps.transformValues(dag.getEffectiveFullCoveredRoute(),
-            leaderRange -> new KVRangeSetting(clusterId, leaderRange.storeId(), leaderRange.descriptor()));
+        NavigableMap<Boundary, KVRangeSetting> router = new KVRangeRouter(
+            Maps.transformValues(dag.getEffectiveFullCoveredRoute(),
+                leaderRange -> new KVRangeSetting(clusterId, leaderRange.storeId(), leaderRange.descriptor(),
+                    loadTracker)));
         if (router.isEmpty()) {
             return false;
         }
@@ -532,6 +557,7 @@ final class BaseKVStoreClient implements IBaseKVStoreClient {
             }
         }
         queryPplns = nextQueryPplns;
+        loadTracker.retain(allStoreIds);
         // clear query pipelines targeting non-exist storeId;
         for (String storeId : Sets.difference(currentQueryPplns.keySet(), allStoreIds)) {
             currentQueryPplns.get(storeId).forEach(IQueryPipeline::close);
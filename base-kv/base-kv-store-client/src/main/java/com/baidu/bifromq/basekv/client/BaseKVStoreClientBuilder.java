@@ -17,6 +17,7 @@ import com.baidu.bifromq.basekv.metaservice.IBaseKVMetaService;
 import com.baidu.bifromq.baserpc.trafficgovernor.IRPCServiceTrafficService;
 import io.netty.channel.EventLoopGroup;
 import io.netty.handler.ssl.SslContext;
+import java.util.Set;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
@@ -34,6 +35,10 @@ public final class BaseKVStoreClientBuilder {
 
     int workerThreads = 0;
     int queryPipelinesPerStore;
+    /**
+     * The stores hosted by the servers having any of the group tags are preferred for non-linearized query.
+     */
+    Set<String> localityGroupTags;
 
     public IBaseKVStoreClient build() {
         return new BaseKVStoreClient(this);
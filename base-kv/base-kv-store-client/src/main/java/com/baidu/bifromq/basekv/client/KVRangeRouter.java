@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.client;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.google.common.collect.ForwardingNavigableMap;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * An immutable router compiled from a snapshot of the effective route, which is a sorted map of non-overlapping
+ * boundaries.
+ *
+ * <p>Besides serving as a read-only NavigableMap, the router keeps the boundaries as sorted arrays of start and end
+ * keys, so that looking up a key is a binary search without allocation. All the start keys of a route usually share a
+ * common prefix(e.g. schema version), and the keys in most services are prefixed with tenant id right after it. The
+ * 8 bytes after the common prefix of each start key are packed into a long, which resolves most of the comparisons
+ * during binary search with a single primitive comparison, the full keys are compared only when the packed bytes are
+ * equal.
+ */
+public final class KVRangeRouter extends ForwardingNavigableMap<Boundary, KVRangeSetting> {
+    private final NavigableMap<Boundary, KVRangeSetting> delegate;
+    private final KVRangeSetting[] settings;
+    // the start key of the first range may be null, which means open start
+    private final byte[][] startKeys;
+    // the end key of the last range may be null, which means open end
+    private final byte[][] endKeys;
+    private final long[] startKeyIndexes;
+    private final Optional<KVRangeSetting>[] lookupResults;
+    // the index of the first range with non-null start key
+    private final int firstClosed;
+    private final byte[] commonPrefix;
+
+    /**
+     * Compile the router from the effective route.
+     *
+     * @param effectiveRoute the effective route sorted by boundary
+     */
+    @SuppressWarnings("unchecked")
+    public KVRangeRouter(NavigableMap<Boundary, KVRangeSetting> effectiveRoute) {
+        NavigableMap<Boundary, KVRangeSetting> route = new TreeMap<>(effectiveRoute.comparator());
+        // materialize the values in case the given route is a view
+        route.putAll(effectiveRoute);
+        this.delegate = Collections.unmodifiableNavigableMap(route);
+        int size = route.size();
+        settings = new KVRangeSetting[size];
+        startKeys = new byte[size][];
+        endKeys = new byte[size][];
+        startKeyIndexes = new long[size];
+        lookupResults = new Optional[size];
+        int i = 0;
+        for (Map.Entry<Boundary, KVRangeSetting> entry : route.entrySet()) {
+            Boundary boundary = entry.getKey();
+            settings[i] = entry.getValue();
+            startKeys[i] = boundary.hasStartKey() ? boundary.getStartKey().toByteArray() : null;
+            endKeys[i] = boundary.hasEndKey() ? boundary.getEndKey().toByteArray() : null;
+            lookupResults[i] = Optional.of(entry.getValue());
+            i++;
+        }
+        firstClosed = size > 0 && startKeys[0] == null ? 1 : 0;
+        commonPrefix = commonPrefix(startKeys, firstClosed);
+        for (int j = firstClosed; j < size; j++) {
+            startKeyIndexes[j] = index(startKeys[j], commonPrefix.length);
+        }
+    }
+
+    @Override
+    protected NavigableMap<Boundary, KVRangeSetting> delegate() {
+        return delegate;
+    }
+
+    Optional<KVRangeSetting> findByKey(ByteString key) {
+        int i = floor(key);
+        if (i < 0 || endKeys[i] != null && compare(key, endKeys[i], 0) >= 0) {
+            return Optional.empty();
+        }
+        return lookupResults[i];
+    }
+
+    List<KVRangeSetting> findByBoundary(Boundary boundary) {
+        int from = 0;
+        int to = settings.length;
+        if (boundary.hasStartKey()) {
+            ByteString startKey = boundary.getStartKey();
+            int i = floor(startKey);
+            if (i >= 0) {
+                // skip the floor range if it ends before the start key
+                from = endKeys[i] == null || compare(startKey, endKeys[i], 0) < 0 ? i : i + 1;
+            }
+        }
+        if (boundary.hasEndKey()) {
+            ByteString endKey = boundary.getEndKey();
+            int i = floor(endKey);
+            // exclude the floor range if it starts exactly at the end key
+            to = i >= firstClosed && compare(endKey, startKeys[i], 0) == 0 ? i : i + 1;
+        }
+        List<KVRangeSetting> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(settings[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Find the index of the last range whose start key is not greater than the key.
+     *
+     * @param key the key
+     * @return the index of the range or -1 if not found
+     */
+    private int floor(ByteString key) {
+        int lo = firstClosed;
+        int hi = settings.length - 1;
+        if (lo > hi) {
+            return hi;
+        }
+        int prefixLen = commonPrefix.length;
+        int keyLen = key.size();
+        for (int i = 0; i < prefixLen; i++) {
+            if (i == keyLen) {
+                // key is a proper prefix of the common prefix
+                return lo - 1;
+            }
+            int c = (key.byteAt(i) & 0xFF) - (commonPrefix[i] & 0xFF);
+            if (c != 0) {
+                return c < 0 ? lo - 1 : hi;
+            }
+        }
+        long keyIndex = index(key, prefixLen);
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = Long.compareUnsigned(keyIndex, startKeyIndexes[mid]);
+            if (c == 0) {
+                c = compare(key, startKeys[mid], prefixLen);
+            }
+            if (c < 0) {
+                hi = mid - 1;
+            } else if (c > 0) {
+                lo = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return hi;
+    }
+
+    private static int compare(ByteString key, byte[] other, int offset) {
+        int keyLen = key.size();
+        int len = Math.min(keyLen, other.length);
+        for (int i = offset; i < len; i++) {
+            int c = (key.byteAt(i) & 0xFF) - (other[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return keyLen - other.length;
+    }
+
+    private static long index(ByteString key, int offset) {
+        long index = 0;
+        int keyLen = key.size();
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            index = (index << 8) | (i < keyLen ? key.byteAt(i) & 0xFF : 0);
+        }
+        return index;
+    }
+
+    private static long index(byte[] key, int offset) {
+        long index = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            index = (index << 8) | (i < key.length ? key[i] & 0xFF : 0);
+        }
+        return index;
+    }
+
+    private static byte[] commonPrefix(byte[][] keys, int from) {
+        if (from >= keys.length) {
+            return new byte[0];
+        }
+        byte[] first = keys[from];
+        int len = first.length;
+        for (int i = from + 1; i < keys.length && len > 0; i++) {
+            byte[] key = keys[i];
+            len = Math.min(len, key.length);
+            for (int j = 0; j < len; j++) {
+                if (first[j] != key[j]) {
+                    len = j;
+                    break;
+                }
+            }
+        }
+        byte[] prefix = new byte[len];
+        System.arraycopy(first, 0, prefix, 0, len);
+        return prefix;
+    }
+}
@@ -30,6 +30,9 @@ public class KVRangeRouterUtil {
 
     public static Optional<KVRangeSetting> findByKey(ByteString key,
                                                      NavigableMap<Boundary, KVRangeSetting> effectiveRouter) {
+        if (effectiveRouter instanceof KVRangeRouter router) {
+            return router.findByKey(key);
+        }
         Map.Entry<Boundary, KVRangeSetting> entry =
             effectiveRouter.floorEntry(Boundary.newBuilder().setStartKey(key).build());
         if (entry != null) {
@@ -43,6 +46,9 @@ public class KVRangeRouterUtil {
 
     public static List<KVRangeSetting> findByBoundary(Boundary boundary,
                                                       NavigableMap<Boundary, KVRangeSetting> effectiveRouter) {
+        if (effectiveRouter instanceof KVRangeRouter router) {
+            return router.findByBoundary(boundary);
+        }
         if (effectiveRouter.isEmpty()) {
             return Collections.emptyList();
         }
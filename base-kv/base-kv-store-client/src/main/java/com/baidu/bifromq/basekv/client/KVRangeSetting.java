@@ -22,6 +22,7 @@ import com.baidu.bifromq.basekv.raft.proto.RaftNodeSyncState;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -33,6 +34,7 @@ import lombok.ToString;
 @EqualsAndHashCode
 @ToString
 public class KVRangeSetting {
+    private static final int AFFINITY_ESCAPE_RATIO = 2;
     private final String clusterId;
     public final KVRangeId id;
     public final long ver;
@@ -44,9 +46,18 @@ public class KVRangeSetting {
     private final List<String> inProcFollowers;
     public final List<String> allReplicas;
     private final List<String> inProcReplicas;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final StoreLoadTracker loadTracker;
 
     public KVRangeSetting(String clusterId, String leaderStoreId, KVRangeDescriptor desc) {
+        this(clusterId, leaderStoreId, desc, new StoreLoadTracker());
+    }
+
+    public KVRangeSetting(String clusterId, String leaderStoreId, KVRangeDescriptor desc,
+                          StoreLoadTracker loadTracker) {
         this.clusterId = clusterId;
+        this.loadTracker = loadTracker;
         id = desc.getId();
         ver = desc.getVer();
         boundary = desc.getBoundary();
@@ -118,6 +129,50 @@ public class KVRangeSetting {
         return allReplicas.get(ThreadLocalRandom.current().nextInt(allReplicas.size()));
     }
 
+    /**
+     * Select a replica for non-linearized query, or linearized query served by follower, using given policy. In-proc
+     * replicas are always preferred, then the replicas hosted by local servers if any.
+     *
+     * @param policy the replica select policy
+     * @return the store id of the selected replica
+     */
+    public String selectReplica(ReplicaSelectPolicy policy) {
+        List<String> candidates = candidates();
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        return switch (policy) {
+            case Random -> candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+            case PowerOfTwoChoices -> {
+                int i = ThreadLocalRandom.current().nextInt(candidates.size());
+                int j = ThreadLocalRandom.current().nextInt(candidates.size() - 1);
+                String first = candidates.get(i);
+                String second = candidates.get(j < i ? j : j + 1);
+                yield loadTracker.score(second) < loadTracker.score(first) ? second : first;
+            }
+            case LeastLoaded -> leastLoaded(candidates);
+        };
+    }
+
+    /**
+     * Select a replica for non-linearized query using given policy, while keeping the queries with same affinity key
+     * sticky to the same replica unless another choice is significantly less loaded.
+     *
+     * @param policy      the replica select policy
+     * @param affinityKey the affinity key
+     * @return the store id of the selected replica
+     */
+    public String selectReplica(ReplicaSelectPolicy policy, int affinityKey) {
+        List<String> candidates = candidates();
+        String bound = candidates.get(Math.floorMod(affinityKey, candidates.size()));
+        if (candidates.size() == 1 || policy == ReplicaSelectPolicy.Random) {
+            return bound;
+        }
+        String alternative = policy == ReplicaSelectPolicy.LeastLoaded
+            ? leastLoaded(candidates) : candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        return loadTracker.score(alternative) * AFFINITY_ESCAPE_RATIO < loadTracker.score(bound) ? alternative : bound;
+    }
+
     public String randomVoters() {
         if (getInProcStores(clusterId).contains(leader)) {
             return leader;
@@ -132,4 +187,38 @@ public class KVRangeSetting {
         }
         return voters.get(ThreadLocalRandom.current().nextInt(voters.size()));
     }
+
+    private List<String> candidates() {
+        if (!inProcReplicas.isEmpty()) {
+            return inProcReplicas;
+        }
+        if (loadTracker.hasLocal()) {
+            List<String> localReplicas = new ArrayList<>(allReplicas.size());
+            for (String replica : allReplicas) {
+                if (loadTracker.isLocal(replica)) {
+                    localReplicas.add(replica);
+                }
+            }
+            if (!localReplicas.isEmpty()) {
+                return localReplicas;
+            }
+        }
+        return allReplicas;
+    }
+
+    private String leastLoaded(List<String> candidates) {
+        // start from a random position to avoid herding when scores are equal
+        int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        String selected = candidates.get(start);
+        double minScore = loadTracker.score(selected);
+        for (int i = 1; i < candidates.size(); i++) {
+            String candidate = candidates.get((start + i) % candidates.size());
+            double score = loadTracker.score(candidate);
+            if (score < minScore) {
+                selected = candidate;
+                minScore = score;
+            }
+        }
+        return selected;
+    }
 }
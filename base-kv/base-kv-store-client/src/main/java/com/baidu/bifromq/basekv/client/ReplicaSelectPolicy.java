@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.client;
+
+/**
+ * The policy of picking a replica for non-linearized query.
+ */
+public enum ReplicaSelectPolicy {
+    /**
+     * Pick a replica uniformly at random.
+     */
+    Random,
+    /**
+     * Pick two replicas at random and use the one with lower load score.
+     */
+    PowerOfTwoChoices,
+    /**
+     * Pick the replica with the lowest load score.
+     */
+    LeastLoaded
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.client;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the latency and outstanding requests of the queries sent to each store, and the stores considered local.
+ *
+ * <p>The latency is a peak-sensitive EWMA: a slower sample takes effect immediately, while faster samples pull it
+ * down gradually with a time-based decay, so a store just recovered from a pause is probed again after a while
+ * instead of being avoided forever.
+ */
+public final class StoreLoadTracker {
+    private static final long DEFAULT_DECAY_NANOS = Duration.ofSeconds(1).toNanos();
+    private final Supplier<Long> nanoSource;
+    private final double decayNanos;
+    private final Map<String, StoreLoad> storeLoads = new ConcurrentHashMap<>();
+    private volatile Set<String> localStores = Collections.emptySet();
+
+    public StoreLoadTracker() {
+        this(System::nanoTime, DEFAULT_DECAY_NANOS);
+    }
+
+    StoreLoadTracker(Supplier<Long> nanoSource, long decayNanos) {
+        this.nanoSource = nanoSource;
+        this.decayNanos = decayNanos;
+    }
+
+    /**
+     * Mark the start of a query to the store.
+     *
+     * @param storeId the id of the store
+     * @return the start time in nanos, which should be passed to {@link #onFinish(String, long)}
+     */
+    public long onStart(String storeId) {
+        storeLoads.computeIfAbsent(storeId, k -> new StoreLoad()).outstanding.incrementAndGet();
+        return nanoSource.get();
+    }
+
+    /**
+     * Mark the completion of a query to the store.
+     *
+     * @param storeId    the id of the store
+     * @param startNanos the start time returned by {@link #onStart(String)}
+     */
+    public void onFinish(String storeId, long startNanos) {
+        StoreLoad storeLoad = storeLoads.get(storeId);
+        if (storeLoad == null) {
+            return;
+        }
+        storeLoad.outstanding.decrementAndGet();
+        long now = nanoSource.get();
+        storeLoad.observe(now, now - startNanos);
+    }
+
+    /**
+     * The load score of the store, a lower score means a better choice. The score is the estimated latency multiplied
+     * by the number of outstanding queries plus one, stores never queried before have score 0.
+     *
+     * @param storeId the id of the store
+     * @return the load score
+     */
+    public double score(String storeId) {
+        StoreLoad storeLoad = storeLoads.get(storeId);
+        if (storeLoad == null) {
+            return 0;
+        }
+        int outstanding = storeLoad.outstanding.get();
+        return storeLoad.latency(nanoSource.get(), outstanding > 0) * (outstanding + 1);
+    }
+
+    /**
+     * If the store is hosted by the server sharing group tags with the client.
+     *
+     * @param storeId the id of the store
+     * @return true if the store is local
+     */
+    public boolean isLocal(String storeId) {
+        return localStores.contains(storeId);
+    }
+
+    public boolean hasLocal() {
+        return !localStores.isEmpty();
+    }
+
+    void setLocalStores(Set<String> localStores) {
+        this.localStores = localStores;
+    }
+
+    void retain(Set<String> storeIds) {
+        storeLoads.keySet().retainAll(storeIds);
+    }
+
+    private class StoreLoad {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos;
+        private long lastObserveNanos;
+
+        synchronized void observe(long now, long latencyNanos) {
+            if (latencyNanos > ewmaNanos) {
+                ewmaNanos = latencyNanos;
+            } else {
+                double w = Math.exp(-Math.max(now - lastObserveNanos, 0) / decayNanos);
+                ewmaNanos = ewmaNanos * w + latencyNanos * (1 - w);
+            }
+            lastObserveNanos = now;
+        }
+
+        synchronized double latency(long now, boolean busy) {
+            if (busy) {
+                return ewmaNanos;
+            }
+            // decay towards zero when the store has been idle for a while
+            return ewmaNanos * Math.exp(-Math.max(now - lastObserveNanos, 0) / decayNanos);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.client;
+
+import static com.baidu.bifromq.basekv.client.KVRangeRouterUtil.findByBoundary;
+import static com.baidu.bifromq.basekv.client.KVRangeRouterUtil.findByKey;
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.EMPTY_BOUNDARY;
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.proto.KVRangeId;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeStatus;
+import com.baidu.bifromq.basekv.utils.BoundaryUtil;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.testng.annotations.Test;
+
+public class KVRangeRouterTest {
+    private final Random random = new Random(1234);
+
+    @Test
+    public void emptyRouter() {
+        KVRangeRouter router = new KVRangeRouter(Collections.emptyNavigableMap());
+        assertFalse(findByKey(ByteString.copyFromUtf8("a"), router).isPresent());
+        assertTrue(findByBoundary(FULL_BOUNDARY, router).isEmpty());
+    }
+
+    @Test
+    public void singleRange() {
+        NavigableMap<Boundary, KVRangeSetting> treeRouter = router(Collections.emptyList(), true, true);
+        KVRangeRouter router = new KVRangeRouter(treeRouter);
+        assertEquals(router, treeRouter);
+        assertEquals(findByKey(ByteString.EMPTY, router).get().boundary, FULL_BOUNDARY);
+        assertEquals(findByKey(ByteString.copyFromUtf8("a"), router).get().boundary, FULL_BOUNDARY);
+        assertEquals(findByBoundary(EMPTY_BOUNDARY, router).size(), 1);
+    }
+
+    @Test
+    public void partialCovered() {
+        NavigableMap<Boundary, KVRangeSetting> treeRouter =
+            router(List.of(ByteString.copyFromUtf8("b"), ByteString.copyFromUtf8("d")), false, false);
+        KVRangeRouter router = new KVRangeRouter(treeRouter);
+        assertFalse(findByKey(ByteString.copyFromUtf8("a"), router).isPresent());
+        assertTrue(findByKey(ByteString.copyFromUtf8("b"), router).isPresent());
+        assertTrue(findByKey(ByteString.copyFromUtf8("c"), router).isPresent());
+        assertFalse(findByKey(ByteString.copyFromUtf8("d"), router).isPresent());
+        assertEquals(findByBoundary(Boundary.newBuilder().setStartKey(ByteString.copyFromUtf8("d")).build(), router)
+            .size(), 0);
+    }
+
+    @Test
+    public void sameAsTreeRouter() {
+        // keys sharing common prefix
+        verify(ByteString.copyFromUtf8("tenant"), 2, 100);
+        verify(ByteString.copyFromUtf8("tenant"), 12, 1000);
+        // keys without common prefix
+        verify(ByteString.EMPTY, 1, 50);
+        verify(ByteString.EMPTY, 10, 1000);
+    }
+
+    private void verify(ByteString prefix, int maxSuffixLen, int rangeCount) {
+        TreeSet<ByteString> splitKeys = new TreeSet<>(BoundaryUtil::compareStartKey);
+        for (int i = 0; i < rangeCount - 1; i++) {
+            splitKeys.add(randomKey(prefix, maxSuffixLen));
+        }
+        NavigableMap<Boundary, KVRangeSetting> treeRouter = router(new ArrayList<>(splitKeys), true, true);
+        KVRangeRouter router = new KVRangeRouter(treeRouter);
+        assertEquals(router, treeRouter);
+        List<ByteString> probes = new ArrayList<>(splitKeys);
+        for (int i = 0; i < 1000; i++) {
+            probes.add(randomKey(prefix, maxSuffixLen));
+            probes.add(randomKey(ByteString.EMPTY, maxSuffixLen));
+        }
+        probes.add(ByteString.EMPTY);
+        probes.add(prefix);
+        for (ByteString probe : probes) {
+            assertEquals(findByKey(probe, router), findByKey(probe, treeRouter));
+        }
+        for (int i = 0; i < 1000; i++) {
+            ByteString key1 = probes.get(random.nextInt(probes.size()));
+            ByteString key2 = probes.get(random.nextInt(probes.size()));
+            ByteString startKey = BoundaryUtil.compareStartKey(key1, key2) <= 0 ? key1 : key2;
+            ByteString endKey = startKey == key1 ? key2 : key1;
+            List<Boundary> boundaries = List.of(
+                Boundary.newBuilder().setStartKey(startKey).setEndKey(endKey).build(),
+                Boundary.newBuilder().setStartKey(startKey).build(),
+                Boundary.newBuilder().setEndKey(endKey).build());
+            for (Boundary boundary : boundaries) {
+                assertEquals(findByBoundary(boundary, router), findByBoundary(boundary, treeRouter));
+            }
+        }
+        assertEquals(findByBoundary(FULL_BOUNDARY, router), findByBoundary(FULL_BOUNDARY, treeRouter));
+        assertEquals(findByBoundary(EMPTY_BOUNDARY, router), findByBoundary(EMPTY_BOUNDARY, treeRouter));
+    }
+
+    private ByteString randomKey(ByteString prefix, int maxSuffixLen) {
+        byte[] suffix = new byte[random.nextInt(maxSuffixLen) + 1];
+        for (int i = 0; i < suffix.length; i++) {
+            // small alphabet including 0x00 and 0xFF to exercise padding and unsigned comparison
+            suffix[i] = (byte) new int[] {0x00, 0x01, 0x7F, 0x80, 0xFF}[random.nextInt(5)];
+        }
+        return prefix.concat(ByteString.copyFrom(suffix));
+    }
+
+    private NavigableMap<Boundary, KVRangeSetting> router(List<ByteString> splitKeys,
+                                                          boolean openStart,
+                                                          boolean openEnd) {
+        NavigableMap<Boundary, KVRangeSetting> router = new TreeMap<>(BoundaryUtil::compare);
+        List<ByteString> keys = new ArrayList<>();
+        keys.add(null);
+        keys.addAll(splitKeys);
+        keys.add(null);
+        for (int i = 0; i < keys.size() - 1; i++) {
+            ByteString startKey = keys.get(i);
+            ByteString endKey = keys.get(i + 1);
+            if (startKey == null && !openStart || endKey == null && !openEnd) {
+                continue;
+            }
+            Boundary.Builder boundaryBuilder = Boundary.newBuilder();
+            if (startKey != null) {
+                boundaryBuilder.setStartKey(startKey);
+            }
+            if (endKey != null) {
+                boundaryBuilder.setEndKey(endKey);
+            }
+            Boundary boundary = boundaryBuilder.build();
+            router.put(boundary, new KVRangeSetting("testCluster", "V1", KVRangeDescriptor.newBuilder()
+                .setId(KVRangeId.newBuilder().setId(i).build())
+                .setRole(RaftNodeStatus.Leader)
+                .setBoundary(boundary)
+                .build()));
+        }
+        return router;
+    }
+}
@@ -17,12 +17,16 @@ import static com.baidu.bifromq.basekv.InProcStores.regInProcStore;
 import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
 
 import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
 import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
 import com.baidu.bifromq.basekv.raft.proto.RaftNodeStatus;
 import com.baidu.bifromq.basekv.raft.proto.RaftNodeSyncState;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import java.time.Duration;
+import java.util.Set;
 import org.testng.annotations.Test;
 
 public class KVRangeSettingTest {
@@ -82,4 +86,64 @@ public class KVRangeSettingTest {
         assertFalse(setting.followers.contains(remoteVoter2));
         assertFalse(setting.allReplicas.contains(remoteLearner2));
     }
+
+    @Test
+    public void selectLessLoadedReplica() {
+        StoreLoadTracker loadTracker = new StoreLoadTracker();
+        KVRangeSetting setting = new KVRangeSetting(clusterId, remoteVoter1, remoteRange(), loadTracker);
+        // remoteVoter2 is slow and busy
+        long start = loadTracker.onStart(remoteVoter2);
+        loadTracker.onFinish(remoteVoter2, start - Duration.ofSeconds(1).toNanos());
+        loadTracker.onStart(remoteVoter2);
+        for (int i = 0; i < 100; i++) {
+            assertNotEquals(setting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices), remoteVoter2);
+            assertNotEquals(setting.selectReplica(ReplicaSelectPolicy.LeastLoaded), remoteVoter2);
+        }
+    }
+
+    @Test
+    public void preferLocalReplica() {
+        StoreLoadTracker loadTracker = new StoreLoadTracker();
+        loadTracker.setLocalStores(Set.of(remoteVoter2));
+        KVRangeSetting setting = new KVRangeSetting(clusterId, remoteVoter1, remoteRange(), loadTracker);
+        for (ReplicaSelectPolicy policy : ReplicaSelectPolicy.values()) {
+            assertEquals(setting.selectReplica(policy), remoteVoter2);
+        }
+        // fallback to all replicas if local stores host no replica
+        loadTracker.setLocalStores(Set.of("otherStore"));
+        assertTrue(setting.allReplicas.contains(setting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices)));
+    }
+
+    @Test
+    public void affinityReplica() {
+        StoreLoadTracker loadTracker = new StoreLoadTracker();
+        KVRangeSetting setting = new KVRangeSetting(clusterId, remoteVoter1, remoteRange(), loadTracker);
+        String bound = setting.selectReplica(ReplicaSelectPolicy.Random, 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(setting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices, 1), bound);
+        }
+        // escape from overloaded bound replica
+        long start = loadTracker.onStart(bound);
+        loadTracker.onFinish(bound, start - Duration.ofSeconds(1).toNanos());
+        loadTracker.onStart(bound);
+        assertNotEquals(setting.selectReplica(ReplicaSelectPolicy.LeastLoaded, 1), bound);
+        assertEquals(setting.selectReplica(ReplicaSelectPolicy.Random, 1), bound);
+    }
+
+    private KVRangeDescriptor remoteRange() {
+        return KVRangeDescriptor.newBuilder()
+            .setId(KVRangeIdUtil.generate())
+            .setRole(RaftNodeStatus.Leader)
+            .setVer(1)
+            .setBoundary(FULL_BOUNDARY)
+            .putSyncState(remoteVoter1, RaftNodeSyncState.Replicating)
+            .putSyncState(remoteVoter2, RaftNodeSyncState.Replicating)
+            .putSyncState(remoteLearner1, RaftNodeSyncState.Replicating)
+            .setConfig(ClusterConfig.newBuilder()
+                .addVoters(remoteVoter1)
+                .addVoters(remoteVoter2)
+                .addLearners(remoteLearner1)
+                .build())
+            .build();
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.client.benchmark;
+
+import static com.baidu.bifromq.basekv.client.KVRangeRouterUtil.findByBoundary;
+import static com.baidu.bifromq.basekv.client.KVRangeRouterUtil.findByKey;
+
+import com.baidu.bifromq.basekv.client.KVRangeRouter;
+import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeStatus;
+import com.baidu.bifromq.basekv.utils.BoundaryUtil;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.google.protobuf.ByteString;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Looks up tenant-prefixed keys(schema version, tenant id length, tenant id, bucket) in a route of 10k ranges, using
+ * the protobuf boundary keyed TreeMap and the compiled flat router. Run with "-prof gc" to compare the allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RangeRouterBenchmark {
+    private static final int RANGES = 10_000;
+    private static final int TENANTS = 50_000;
+    private static final int PROBES = 4096;
+
+    @Param({"tree", "flat"})
+    public String routerType;
+    private NavigableMap<Boundary, KVRangeSetting> router;
+    private ByteString[] probeKeys;
+    private Boundary[] probeBoundaries;
+    private int probeIdx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        NavigableMap<Boundary, KVRangeSetting> treeRouter = new TreeMap<>(BoundaryUtil::compare);
+        ByteString startKey = null;
+        for (int i = 1; i <= RANGES; i++) {
+            ByteString endKey = i < RANGES ? tenantPrefix(i * (TENANTS / RANGES)) : null;
+            Boundary.Builder boundaryBuilder = Boundary.newBuilder();
+            if (startKey != null) {
+                boundaryBuilder.setStartKey(startKey);
+            }
+            if (endKey != null) {
+                boundaryBuilder.setEndKey(endKey);
+            }
+            Boundary boundary = boundaryBuilder.build();
+            treeRouter.put(boundary, new KVRangeSetting("benchmark", "store1", KVRangeDescriptor.newBuilder()
+                .setId(KVRangeIdUtil.generate())
+                .setRole(RaftNodeStatus.Leader)
+                .setBoundary(boundary)
+                .build()));
+            startKey = endKey;
+        }
+        router = routerType.equals("flat") ? new KVRangeRouter(treeRouter) : treeRouter;
+        probeKeys = new ByteString[PROBES];
+        probeBoundaries = new Boundary[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            ByteString tenantPrefix = tenantPrefix(ThreadLocalRandom.current().nextInt(TENANTS));
+            probeKeys[i] = tenantPrefix.concat(ByteString.copyFrom(
+                new byte[] {(byte) ThreadLocalRandom.current().nextInt(256)}));
+            probeBoundaries[i] = Boundary.newBuilder()
+                .setStartKey(tenantPrefix)
+                .setEndKey(BoundaryUtil.upperBound(tenantPrefix))
+                .build();
+        }
+    }
+
+    @Benchmark
+    public void lookupByKey(Blackhole blackhole) {
+        blackhole.consume(findByKey(probeKeys[nextProbe()], router));
+    }
+
+    @Benchmark
+    public void lookupByTenantBoundary(Blackhole blackhole) {
+        blackhole.consume(findByBoundary(probeBoundaries[nextProbe()], router));
+    }
+
+    private int nextProbe() {
+        probeIdx = (probeIdx + 1) & (PROBES - 1);
+        return probeIdx;
+    }
+
+    private static ByteString tenantPrefix(int tenantIdx) {
+        byte[] tenantId = String.format("tenant-%08d", tenantIdx).getBytes(StandardCharsets.UTF_8);
+        return ByteString.copyFrom(ByteBuffer.allocate(1 + Integer.BYTES + tenantId.length)
+            .put((byte) 0x01)
+            .putInt(tenantId.length)
+            .put(tenantId)
+            .flip());
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(RangeRouterBenchmark.class.getSimpleName())
+            .warmupIterations(2)
+            .measurementIterations(3)
+            .forks(1)
+            .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.client.benchmark;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+
+import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.client.ReplicaSelectPolicy;
+import com.baidu.bifromq.basekv.client.StoreLoadTracker;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeStatus;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeSyncState;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Simulates queries against a range of three replicas with heterogeneous latency: two fast replicas and one slow
+ * replica which pauses periodically like a GC-pausing store. Each replica serves queries with limited concurrency, so
+ * the queueing delay builds up on the replica chosen too often. Compare the sampled latency percentiles of the
+ * policies.
+ */
+@State(Scope.Benchmark)
+public class ReplicaSelectBenchmark {
+    private static final int REPLICA_CONCURRENCY = 4;
+    private static final long FAST_SERVICE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long SLOW_SERVICE_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long PAUSE_PERIOD_NANOS = Duration.ofMillis(200).toNanos();
+    private static final long PAUSE_NANOS = Duration.ofMillis(20).toNanos();
+    private static final String[] REPLICAS = {"fast1", "fast2", "slow"};
+
+    @Param({"Random", "PowerOfTwoChoices", "LeastLoaded"})
+    public ReplicaSelectPolicy policy;
+
+    private final Map<String, ExecutorService> replicaExecutors = new HashMap<>();
+    private StoreLoadTracker loadTracker;
+    private KVRangeSetting rangeSetting;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        loadTracker = new StoreLoadTracker();
+        KVRangeDescriptor.Builder descBuilder = KVRangeDescriptor.newBuilder()
+            .setId(KVRangeIdUtil.generate())
+            .setRole(RaftNodeStatus.Leader)
+            .setVer(1)
+            .setBoundary(FULL_BOUNDARY);
+        ClusterConfig.Builder configBuilder = ClusterConfig.newBuilder();
+        for (String replica : REPLICAS) {
+            descBuilder.putSyncState(replica, RaftNodeSyncState.Replicating);
+            configBuilder.addVoters(replica);
+            replicaExecutors.put(replica, Executors.newFixedThreadPool(REPLICA_CONCURRENCY));
+        }
+        rangeSetting = new KVRangeSetting("benchmark", REPLICAS[0], descBuilder.setConfig(configBuilder).build(),
+            loadTracker);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        replicaExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void query() {
+        String replica = rangeSetting.selectReplica(policy);
+        long startNanos = loadTracker.onStart(replica);
+        CompletableFuture.runAsync(() -> serve(replica), replicaExecutors.get(replica))
+            .whenComplete((v, e) -> loadTracker.onFinish(replica, startNanos))
+            .join();
+    }
+
+    private void serve(String replica) {
+        if (replica.equals("slow")) {
+            long phase = System.nanoTime() % PAUSE_PERIOD_NANOS;
+            if (phase < PAUSE_NANOS) {
+                // paused
+                LockSupport.parkNanos(PAUSE_NANOS - phase);
+            }
+            LockSupport.parkNanos(SLOW_SERVICE_NANOS);
+        } else {
+            LockSupport.parkNanos(FAST_SERVICE_NANOS);
+        }
+    }
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(ReplicaSelectBenchmark.class.getSimpleName())
+            .threads(16)
+            .warmupIterations(2)
+            .measurementIterations(3)
+            .forks(1)
+            .build();
+        new Runner(opt).run();
+    }
+}
@@ -21,7 +21,6 @@ import com.baidu.bifromq.baserpc.BluePrint;
 import com.baidu.bifromq.baserpc.server.RPCServerBuilder;
 import com.google.common.base.Preconditions;
 import io.grpc.ServerServiceDefinition;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -39,7 +38,7 @@ class BaseKVStoreServer implements IBaseKVStoreServer {
     BaseKVStoreServer(BaseKVStoreServerBuilder builder) {
         for (BaseKVStoreServiceBuilder serviceBuilder : builder.serviceBuilders.values()) {
             BaseKVStoreService storeService = new BaseKVStoreService(serviceBuilder);
-            bindableStoreServices.add(new BindableStoreService(storeService, serviceBuilder.rpcExecutor));
+            bindableStoreServices.add(new BindableStoreService(storeService, serviceBuilder));
             storeServiceMap.put(storeService.clusterId(), storeService);
         }
 
@@ -48,7 +47,7 @@ class BaseKVStoreServer implements IBaseKVStoreServer {
             rpcServerBuilder.bindService(bindable.serviceDefinition,
                 bindable.bluePrint,
                 bindable.metadata,
-                Collections.emptySet(),
+                bindable.groupTags,
                 bindable.executor);
         }
 
@@ -94,13 +93,15 @@ class BaseKVStoreServer implements IBaseKVStoreServer {
         final ServerServiceDefinition serviceDefinition;
         final BluePrint bluePrint;
         final Map<String, String> metadata;
+        final Set<String> groupTags;
         final Executor executor;
 
-        BindableStoreService(BaseKVStoreService storeService, Executor executor) {
+        BindableStoreService(BaseKVStoreService storeService, BaseKVStoreServiceBuilder serviceBuilder) {
             serviceDefinition = RPCBluePrint.scope(storeService.bindService(), storeService.clusterId());
             bluePrint = RPCBluePrint.build(storeService.clusterId());
             metadata = singletonMap(RPC_METADATA_STORE_ID, storeService.storeId());
-            this.executor = executor;
+            groupTags = serviceBuilder.defaultGroupTags;
+            executor = serviceBuilder.rpcExecutor;
         }
     }
 
@@ -17,7 +17,9 @@ import com.baidu.bifromq.basecluster.IAgentHost;
 import com.baidu.bifromq.basekv.store.api.IKVRangeCoProcFactory;
 import com.baidu.bifromq.basekv.store.option.KVRangeStoreOptions;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import lombok.Setter;
@@ -36,6 +38,7 @@ public class BaseKVStoreServiceBuilder {
     int tickerThreads;
     ScheduledExecutorService bgTaskExecutor;
     Map<String, String> attributes = new HashMap<>();
+    Set<String> defaultGroupTags = new HashSet<>();
 
     BaseKVStoreServiceBuilder(String clusterId, BaseKVStoreServerBuilder serverBuilder) {
         this.clusterId = clusterId;
@@ -34,6 +34,10 @@ public interface IKVRangeCoProc {
      * Execute a mutation co-proc, returns a supplier of mutation output. The supplier will be called after mutation is
      * persisted successfully.
      *
+     * <p>Mutations may be applied in one write batch, in which case the suppliers are called after the whole batch is
+     * persisted. The reader sees the writes of the preceding mutations in the batch, while the in-memory state updated
+     * by their suppliers is not visible yet, see {@link com.baidu.bifromq.basekv.store.util.PendingKeys}.
+     *
      * @param input  the mutation input
      * @param reader the range data reader
      * @param writer the range data writer
@@ -30,7 +30,9 @@ import lombok.experimental.Accessors;
 @Builder(toBuilder = true)
 public class KVRangeOptions {
     private boolean enableLoadEstimation = false;
+    private boolean enableBatchApply = true; // apply contiguous normal commands in one write batch
     private int snapshotSyncBytesPerSec = 128 * 1024 * 1024; // 128MB
+    private int snapshotSyncWindowSize = 8; // the max number of in-flight snapshot data requests
     private int compactWALThreshold = 10000; // the max number of logs before compaction
     private long tickUnitInMS = 100;
     private int maxWALFatchBatchSize = 5 * 1024 * 1024; // 5MB
@@ -13,6 +13,7 @@
 
 package com.baidu.bifromq.basekv.store.range;
 
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
 import com.baidu.bifromq.basekv.proto.State;
@@ -20,6 +21,8 @@ import com.baidu.bifromq.basekv.store.api.IKVCloseableReader;
 import com.baidu.bifromq.basekv.store.api.IKVRangeReader;
 import com.baidu.bifromq.basekv.store.api.IKVReader;
 import io.reactivex.rxjava3.core.Observable;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public interface IKVRange extends IKVRangeReader {
     record KVRangeMeta(long ver, State state, Boundary boundary) {
@@ -40,6 +43,14 @@ public interface IKVRange extends IKVRangeReader {
      */
     KVRangeSnapshot checkpoint();
 
+    /**
+     * Wait until the state captured by the checkpoint has been persisted
+     *
+     * @param checkpoint the descriptor
+     * @return the future of persisting
+     */
+    CompletableFuture<Void> persisted(KVRangeSnapshot checkpoint);
+
     /**
      * Check if the given checkpoint exists
      *
@@ -56,6 +67,15 @@ public interface IKVRange extends IKVRangeReader {
      */
     IKVRangeCheckpointReader open(KVRangeSnapshot checkpoint);
 
+    /**
+     * Open an exporter for dumping the checkpoint data as sst files
+     *
+     * @param checkpoint  the descriptor
+     * @param maxFileSize the approximate max size of each exported file
+     * @return the exporter, or empty if the underlying space doesn't support sst files
+     */
+    Optional<IKVSpaceSSTExporter> exportSST(KVRangeSnapshot checkpoint, long maxFileSize);
+
     IKVReader borrowDataReader();
 
     void returnDataReader(IKVReader borrowed);
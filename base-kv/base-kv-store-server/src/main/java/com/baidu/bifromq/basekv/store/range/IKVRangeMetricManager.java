@@ -27,6 +27,10 @@ public interface IKVRangeMetricManager {
 
     void reportDump(int bytes);
 
+    void reportDumpThroughput(long bytesPerSec);
+
+    void reportDumpWindow(int inflightRequests);
+
     void reportRestore(int bytes);
 
     void reportLastAppliedIndex(long index);
@@ -18,6 +18,21 @@ import com.google.protobuf.ByteString;
 public interface IKVReseter {
     void put(ByteString key, ByteString value);
 
+    /**
+     * Check if the range could be restored by ingesting the sst files exported from the checkpoint of another replica.
+     *
+     * @return true if sst files could be ingested
+     */
+    boolean canIngest();
+
+    /**
+     * Append the chunk of the sst file, all the appended sst files will be ingested when done.
+     *
+     * @param fileName the name of the sst file
+     * @param data     the data of the chunk
+     */
+    void ingest(String fileName, ByteString data);
+
     IKVRange abort();
 
     IKVRange done();
@@ -18,6 +18,8 @@ import static com.baidu.bifromq.basekv.store.range.KVRangeKeys.METADATA_STATE_BY
 import static com.baidu.bifromq.basekv.store.range.KVRangeKeys.METADATA_VER_BYTES;
 
 import com.baidu.bifromq.basekv.localengine.ICPableKVSpace;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTIngester;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
 import com.baidu.bifromq.basekv.proto.State;
@@ -25,8 +27,11 @@ import com.baidu.bifromq.basekv.store.api.IKVCloseableReader;
 import com.baidu.bifromq.basekv.store.api.IKVRangeReader;
 import com.baidu.bifromq.basekv.store.api.IKVReader;
 import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.baidu.bifromq.basekv.store.exception.KVRangeStoreException;
 import com.google.protobuf.ByteString;
 import io.reactivex.rxjava3.core.Observable;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import lombok.Getter;
 import lombok.SneakyThrows;
@@ -71,6 +76,11 @@ public class KVRange extends AbstractKVRangeMetadata implements IKVRange {
         return builder.build();
     }
 
+    @Override
+    public CompletableFuture<Void> persisted(KVRangeSnapshot checkpoint) {
+        return kvSpace.persisted(checkpoint.getCheckpointId());
+    }
+
     @Override
     public boolean hasCheckpoint(KVRangeSnapshot checkpoint) {
         assert checkpoint.getId().equals(id);
@@ -82,6 +92,11 @@ public class KVRange extends AbstractKVRangeMetadata implements IKVRange {
         return new KVRangeCheckpoint(kvSpace.open(checkpoint.getCheckpointId()).get());
     }
 
+    @Override
+    public Optional<IKVSpaceSSTExporter> exportSST(KVRangeSnapshot checkpoint, long maxFileSize) {
+        return kvSpace.exportSST(checkpoint.getCheckpointId(), maxFileSize);
+    }
+
     @SneakyThrows
     @Override
     public final IKVReader borrowDataReader() {
@@ -123,22 +138,61 @@ public class KVRange extends AbstractKVRangeMetadata implements IKVRange {
             .kvWriter();
         kvWriter.clear(boundary());
         return new IKVReseter() {
+            private Optional<IKVSpaceSSTIngester> ingester;
+            private boolean ingesting;
+
             @Override
             public void put(ByteString key, ByteString value) {
                 kvWriter.put(key, value);
             }
 
+            @Override
+            public boolean canIngest() {
+                return ingester().isPresent();
+            }
+
+            @Override
+            public void ingest(String fileName, ByteString data) {
+                ingester().orElseThrow(() -> new KVRangeStoreException("Ingesting sst files is not supported"))
+                    .append(fileName, data);
+                ingesting = true;
+            }
+
             @Override
             public IKVRange abort() {
                 rangeWriter.abort();
+                if (ingester != null) {
+                    ingester.ifPresent(IKVSpaceSSTIngester::abort);
+                }
                 return KVRange.this;
             }
 
             @Override
             public IKVRange done() {
-                rangeWriter.done();
+                if (ingesting) {
+                    // the space is empty, so the data and metadata could be replaced by one atomic ingestion
+                    rangeWriter.abort();
+                    new KVRangeMetadataWriter(ingester.get())
+                        .resetVer(snapshot.getVer())
+                        .lastAppliedIndex(snapshot.getLastAppliedIndex())
+                        .state(snapshot.getState())
+                        .boundary(snapshot.getBoundary())
+                        .done();
+                } else {
+                    if (ingester != null) {
+                        ingester.ifPresent(IKVSpaceSSTIngester::abort);
+                    }
+                    rangeWriter.done();
+                }
                 return KVRange.this;
             }
+
+            private Optional<IKVSpaceSSTIngester> ingester() {
+                if (ingester == null) {
+                    ingester = kvSpace.toIngester();
+                }
+                return ingester;
+            }
         };
     }
 
@@ -13,46 +13,74 @@
 
 package com.baidu.bifromq.basekv.store.range;
 
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
 import com.baidu.bifromq.basekv.proto.KVPair;
 import com.baidu.bifromq.basekv.proto.KVRangeMessage;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataReply;
+import com.baidu.bifromq.basekv.proto.SSTFileChunk;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataRequest;
 import com.baidu.bifromq.basekv.proto.SnapshotSyncRequest;
 import com.baidu.bifromq.basekv.store.util.AsyncRunner;
 import com.baidu.bifromq.logger.SiftLogger;
 import com.google.common.util.concurrent.RateLimiter;
+import com.google.protobuf.ByteString;
 import io.reactivex.rxjava3.disposables.Disposable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
 import org.slf4j.Logger;
 
 class KVRangeDumpSession {
+    private static final long SST_FILE_SIZE = 64 * 1024 * 1024;
+    private static final int SST_READ_SIZE = 64 * 1024;
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final long TARGET_REPLY_LATENCY_NANOS = Duration.ofMillis(200).toNanos();
+
     enum Result {
         OK, NoCheckpoint, Canceled, Abort, Error
     }
 
     private final Logger log;
-
-    interface DumpBytesRecorder {
-        void record(int bytes);
-    }
-
     private final String follower;
     private final SnapshotSyncRequest request;
     private final IKVRangeMessenger messenger;
     private final AsyncRunner runner;
-    private final AtomicInteger reqId = new AtomicInteger();
+    private final Executor ioExecutor;
     private final AtomicBoolean canceled = new AtomicBoolean();
     private final Duration maxIdleDuration;
     private final CompletableFuture<Result> doneSignal = new CompletableFuture<>();
-    private final DumpBytesRecorder recorder;
+    private final IKVRangeMetricManager metricManager;
     private final RateLimiter rateLimiter;
+    private final int windowSize;
+    // reqId -> in-flight request, accessed in runner only
+    private final Map<Integer, InflightRequest> inflightRequests = new LinkedHashMap<>();
     private IKVCheckpointIterator snapshotDataItr;
-    private volatile KVRangeMessage currentRequest;
+    private IKVSpaceSSTExporter sstExporter;
+    private FileChannel sstChannel;
+    private String sstFileName;
+    private long sstFileSize;
+    private long sstOffset;
+    private volatile CompletableFuture<Optional<File>> sstExporting = CompletableFuture.completedFuture(null);
+    private boolean exportingSST;
+    private boolean allSSTExported;
+    private boolean sstExportFailed;
+    private int nextReqId;
+    private int chunkSize = 1024 * 1024;
+    private boolean throttled;
+    private boolean allSent;
+    private long dumpBytes;
+    private long startTS;
     private volatile long lastReplyTS;
 
     KVRangeDumpSession(String follower,
@@ -60,16 +88,21 @@ class KVRangeDumpSession {
                        IKVRange accessor,
                        IKVRangeMessenger messenger,
                        Executor executor,
+                       Executor ioExecutor,
                        Duration maxIdleDuration,
                        long bandwidth,
-                       DumpBytesRecorder recorder,
+                       int windowSize,
+                       IKVRangeMetricManager metricManager,
                        String... tags) {
         this.follower = follower;
         this.request = request;
         this.messenger = messenger;
         this.runner = new AsyncRunner("basekv.runner.sessiondump", executor);
+        this.ioExecutor = ioExecutor;
         this.maxIdleDuration = maxIdleDuration;
-        this.recorder = recorder;
+        this.metricManager = metricManager;
+        // old follower only accepts one in-flight request
+        this.windowSize = Math.max(1, Math.min(windowSize, request.getWindowSize()));
         rateLimiter = RateLimiter.create(bandwidth);
         this.log = SiftLogger.getLogger(KVRangeDumpSession.class, tags);
         if (!request.getSnapshot().hasCheckpointId()) {
@@ -94,8 +127,15 @@ class KVRangeDumpSession {
                 .build());
             executor.execute(() -> doneSignal.complete(Result.NoCheckpoint));
         } else {
-            snapshotDataItr = accessor.open(request.getSnapshot()).newDataReader().iterator();
-            snapshotDataItr.seekToFirst();
+            Optional<IKVSpaceSSTExporter> exporter = request.getSstIngestible()
+                ? accessor.exportSST(request.getSnapshot(), SST_FILE_SIZE) : Optional.empty();
+            if (exporter.isPresent()) {
+                log.debug("Dump snapshot as sst files: session={}, follower={}", request.getSessionId(), follower);
+                sstExporter = exporter.get();
+            } else {
+                snapshotDataItr = accessor.open(request.getSnapshot()).newDataReader().iterator();
+                snapshotDataItr.seekToFirst();
+            }
             Disposable disposable = messenger.receive()
                 .mapOptional(m -> {
                     if (m.hasSaveSnapshotDataReply()) {
@@ -106,12 +146,22 @@ class KVRangeDumpSession {
                     }
                     return Optional.empty();
                 })
-                .subscribe(this::handleReply);
+                .subscribe(reply -> runner.add(() -> handleReply(reply)));
             doneSignal.whenComplete((v, e) -> {
-                snapshotDataItr.close();
+                if (snapshotDataItr != null) {
+                    snapshotDataItr.close();
+                }
+                if (sstExporter != null) {
+                    closeSSTFile();
+                    // wait for the exporting sst file to be built before closing the exporter
+                    sstExporting.whenComplete((f, t) -> sstExporter.close());
+                }
                 disposable.dispose();
             });
-            nextSaveRequest();
+            runner.add(() -> {
+                startTS = System.nanoTime();
+                fillWindow();
+            });
         }
     }
 
@@ -131,10 +181,11 @@ class KVRangeDumpSession {
         if (maxIdleDuration.toNanos() < elapseNanos) {
             log.debug("DumpSession idle: session={}, follower={}", request.getSessionId(), follower);
             cancel();
-        } else if (maxIdleDuration.toNanos() / 2 < elapseNanos && currentRequest != null) {
+        } else if (maxIdleDuration.toNanos() / 2 < elapseNanos) {
             runner.add(() -> {
                 if (maxIdleDuration.toNanos() / 2 < Duration.ofNanos(System.nanoTime() - lastReplyTS).toNanos()) {
-                    messenger.send(currentRequest);
+                    // resend all unacknowledged requests, the follower will skip the ones already saved
+                    inflightRequests.values().forEach(inflight -> messenger.send(inflight.message()));
                 }
             });
         }
@@ -151,83 +202,222 @@ class KVRangeDumpSession {
     }
 
     private void handleReply(SaveSnapshotDataReply reply) {
-        KVRangeMessage currReq = currentRequest;
-        if (currReq == null) {
+        if (doneSignal.isDone()) {
             return;
         }
-        SaveSnapshotDataRequest req = currentRequest.getSaveSnapshotDataRequest();
-        lastReplyTS = System.nanoTime();
-        if (req.getReqId() == reply.getReqId()) {
-            currentRequest = null;
-            switch (reply.getResult()) {
-                case OK -> {
-                    switch (req.getFlag()) {
-                        case More -> nextSaveRequest();
-                        case End -> runner.add(() -> doneSignal.complete(Result.OK));
-                    }
+        InflightRequest inflight = inflightRequests.remove(reply.getReqId());
+        if (inflight == null) {
+            // reply of resent request
+            return;
+        }
+        long now = System.nanoTime();
+        lastReplyTS = now;
+        switch (reply.getResult()) {
+            case OK -> {
+                adjustChunkSize(now - inflight.sendTS());
+                if (inflight.message().getSaveSnapshotDataRequest().getFlag() == SaveSnapshotDataRequest.Flag.End) {
+                    // follower saves the requests in order, so all data has been saved
+                    double elapsedSec = Math.max(1, now - startTS) / 1_000_000_000.0;
+                    metricManager.reportDumpThroughput((long) (dumpBytes / elapsedSec));
+                    doneSignal.complete(Result.OK);
+                } else {
+                    fillWindow();
                 }
-                case NoSessionFound, Error -> runner.add(() -> doneSignal.complete(Result.Abort));
+            }
+            case NoSessionFound, Error -> doneSignal.complete(Result.Abort);
+            default -> {
+                // unexpected result, let it idle timeout
             }
         }
     }
 
+    private void adjustChunkSize(long replyLatencyNanos) {
+        if (replyLatencyNanos < TARGET_REPLY_LATENCY_NANOS / 2) {
+            chunkSize = Math.min(chunkSize * 2, MAX_CHUNK_SIZE);
+        } else if (replyLatencyNanos > TARGET_REPLY_LATENCY_NANOS) {
+            chunkSize = Math.max(chunkSize / 2, MIN_CHUNK_SIZE);
+        }
+    }
+
+    private void fillWindow() {
+        // stop filling the window once throttled, and resume when more replies arrive
+        throttled = false;
+        while (!allSent && !throttled && !exportingSST && inflightRequests.size() < windowSize) {
+            if (sstExporter != null && sstChannel == null && !allSSTExported && !canceled.get()) {
+                // resume filling when the next sst file is ready
+                exportNextSST();
+                break;
+            }
+            nextSaveRequest();
+        }
+        metricManager.reportDumpWindow(inflightRequests.size());
+    }
+
     private void nextSaveRequest() {
-        runner.add(() -> {
-            SaveSnapshotDataRequest.Builder reqBuilder = SaveSnapshotDataRequest.newBuilder()
-                .setSessionId(request.getSessionId())
-                .setReqId(reqId.getAndIncrement());
-            int dumpBytes = 0;
-            while (true) {
-                if (!canceled.get()) {
-                    try {
-                        if (snapshotDataItr.isValid()) {
-                            KVPair kvPair = KVPair.newBuilder()
-                                .setKey(snapshotDataItr.key())
-                                .setValue(snapshotDataItr.value())
-                                .build();
-                            reqBuilder.addKv(kvPair);
-                            int bytes = snapshotDataItr.key().size() + snapshotDataItr.value().size();
-                            snapshotDataItr.next();
-                            if (!rateLimiter.tryAcquire(bytes)) {
-                                if (snapshotDataItr.isValid()) {
-                                    reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.More);
-                                } else {
-                                    reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.End);
-                                }
-                                break;
-                            }
-                            dumpBytes += bytes;
-                        } else {
-                            // current iterator finished
-                            reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.End);
-                            break;
-                        }
-                    } catch (Throwable e) {
-                        log.error("DumpSession error: session={}, follower={}",
-                            request.getSessionId(), follower, e);
-                        reqBuilder.clearKv();
-                        reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.Error);
-                        break;
-                    }
-                } else {
-                    log.debug("DumpSession has been canceled: session={}, follower={}",
-                        request.getSessionId(), follower);
-                    reqBuilder.clearKv();
-                    reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.Error);
+        SaveSnapshotDataRequest.Builder reqBuilder = SaveSnapshotDataRequest.newBuilder()
+            .setSessionId(request.getSessionId())
+            .setReqId(nextReqId++);
+        int bytes = sstExporter != null ? dumpSSTChunk(reqBuilder) : dumpKVs(reqBuilder);
+        KVRangeMessage message = KVRangeMessage.newBuilder()
+            .setRangeId(request.getSnapshot().getId())
+            .setHostStoreId(follower)
+            .setSaveSnapshotDataRequest(reqBuilder.build())
+            .build();
+        long now = System.nanoTime();
+        lastReplyTS = now;
+        dumpBytes += bytes;
+        metricManager.reportDump(bytes);
+        messenger.send(message);
+        switch (reqBuilder.getFlag()) {
+            case More -> inflightRequests.put(reqBuilder.getReqId(), new InflightRequest(message, now));
+            case End -> {
+                inflightRequests.put(reqBuilder.getReqId(), new InflightRequest(message, now));
+                allSent = true;
+            }
+            default -> {
+                allSent = true;
+                doneSignal.complete(Result.Error);
+            }
+        }
+    }
+
+    private int dumpKVs(SaveSnapshotDataRequest.Builder reqBuilder) {
+        if (canceled.get()) {
+            log.debug("DumpSession has been canceled: session={}, follower={}", request.getSessionId(), follower);
+            reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.Error);
+            return 0;
+        }
+        int dumpBytes = 0;
+        try {
+            while (snapshotDataItr.isValid() && dumpBytes < chunkSize) {
+                KVPair kvPair = KVPair.newBuilder()
+                    .setKey(snapshotDataItr.key())
+                    .setValue(snapshotDataItr.value())
+                    .build();
+                reqBuilder.addKv(kvPair);
+                int bytes = snapshotDataItr.key().size() + snapshotDataItr.value().size();
+                dumpBytes += bytes;
+                snapshotDataItr.next();
+                if (!rateLimiter.tryAcquire(bytes)) {
+                    throttled = true;
                     break;
                 }
             }
-            currentRequest = KVRangeMessage.newBuilder()
-                .setRangeId(request.getSnapshot().getId())
-                .setHostStoreId(follower)
-                .setSaveSnapshotDataRequest(reqBuilder.build())
-                .build();
-            lastReplyTS = System.nanoTime();
-            recorder.record(dumpBytes);
-            messenger.send(currentRequest);
-            if (currentRequest.getSaveSnapshotDataRequest().getFlag() == SaveSnapshotDataRequest.Flag.Error) {
-                doneSignal.complete(Result.Error);
+            if (snapshotDataItr.isValid()) {
+                reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.More);
+            } else {
+                // current iterator finished
+                reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.End);
+            }
+            return dumpBytes;
+        } catch (Throwable e) {
+            log.error("DumpSession error: session={}, follower={}", request.getSessionId(), follower, e);
+            reqBuilder.clearKv();
+            reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.Error);
+            return 0;
+        }
+    }
+
+    private void exportNextSST() {
+        exportingSST = true;
+        // building sst file is heavy, do it in io executor to keep the session runner responsive
+        CompletableFuture<Optional<File>> exporting = CompletableFuture.supplyAsync(sstExporter::next, ioExecutor);
+        sstExporting = exporting;
+        exporting.whenComplete((sstFile, e) -> runner.add(() -> {
+            exportingSST = false;
+            if (doneSignal.isDone()) {
+                return;
+            }
+            if (e != null) {
+                log.error("Failed to export sst file: session={}, follower={}", request.getSessionId(), follower, e);
+                allSSTExported = true;
+                sstExportFailed = true;
+            } else if (sstFile.isEmpty()) {
+                allSSTExported = true;
+            } else {
+                try {
+                    sstFileName = sstFile.get().getName();
+                    sstChannel = FileChannel.open(sstFile.get().toPath(), StandardOpenOption.READ);
+                    sstFileSize = sstChannel.size();
+                    sstOffset = 0;
+                } catch (Throwable t) {
+                    log.error("Failed to open sst file: session={}, file={}", request.getSessionId(), sstFileName, t);
+                    closeSSTFile();
+                    allSSTExported = true;
+                    sstExportFailed = true;
+                }
+            }
+            fillWindow();
+        }));
+    }
+
+    private int dumpSSTChunk(SaveSnapshotDataRequest.Builder reqBuilder) {
+        if (canceled.get()) {
+            log.debug("DumpSession has been canceled: session={}, follower={}", request.getSessionId(), follower);
+            reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.Error);
+            return 0;
+        }
+        if (sstChannel == null) {
+            // all sst files have been sent
+            reqBuilder.setFlag(sstExportFailed ? SaveSnapshotDataRequest.Flag.Error : SaveSnapshotDataRequest.Flag.End);
+            return 0;
+        }
+        try {
+            ByteString data = readSSTChunk();
+            if (data.isEmpty()) {
+                throw new IOException("Unexpected end of sst file: " + sstFileName);
+            }
+            CRC32C checksum = new CRC32C();
+            checksum.update(data.asReadOnlyByteBuffer());
+            reqBuilder.setSstChunk(SSTFileChunk.newBuilder()
+                .setFileName(sstFileName)
+                .setOffset(sstOffset)
+                .setData(data)
+                .setChecksum((int) checksum.getValue())
+                .build());
+            reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.More);
+            sstOffset += data.size();
+            if (sstOffset >= sstFileSize) {
+                // current file finished
+                closeSSTFile();
+            }
+            return data.size();
+        } catch (Throwable e) {
+            log.error("DumpSession error: session={}, follower={}", request.getSessionId(), follower, e);
+            reqBuilder.clearSstChunk();
+            reqBuilder.setFlag(SaveSnapshotDataRequest.Flag.Error);
+            return 0;
+        }
+    }
+
+    private ByteString readSSTChunk() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        while (buffer.position() < chunkSize) {
+            int limit = Math.min(buffer.position() + SST_READ_SIZE, chunkSize);
+            int bytes = sstChannel.read(buffer.limit(limit));
+            if (bytes <= 0) {
+                break;
+            }
+            if (!rateLimiter.tryAcquire(bytes)) {
+                throttled = true;
+                break;
             }
-        });
+        }
+        buffer.flip();
+        return ByteString.copyFrom(buffer);
+    }
+
+    private void closeSSTFile() {
+        if (sstChannel != null) {
+            try {
+                sstChannel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close sst file: session={}, file={}", request.getSessionId(), sstFileName, e);
+            }
+            sstChannel = null;
+        }
+    }
+
+    private record InflightRequest(KVRangeMessage message, long sendTS) {
     }
 }
@@ -79,6 +79,7 @@ import com.baidu.bifromq.basekv.store.api.IKVRangeCoProc;
 import com.baidu.bifromq.basekv.store.api.IKVRangeCoProcFactory;
 import com.baidu.bifromq.basekv.store.api.IKVRangeSplitHinter;
 import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
 import com.baidu.bifromq.basekv.store.exception.KVRangeException;
 import com.baidu.bifromq.basekv.store.option.KVRangeOptions;
 import com.baidu.bifromq.basekv.store.proto.ROCoProcInput;
@@ -108,6 +109,7 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
 import io.reactivex.rxjava3.subjects.Subject;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -159,6 +161,7 @@ public class KVRangeFSM implements IKVRangeFSM {
     private final IStatsCollector statsCollector;
     private final ExecutorService fsmExecutor;
     private final ExecutorService mgmtExecutor;
+    private final Executor bgExecutor;
     private final AsyncRunner mgmtTaskRunner;
     private final IKVRangeCoProc coProc;
     private final KVRangeQueryLinearizer linearizer;
@@ -196,6 +199,7 @@ public class KVRangeFSM implements IKVRangeFSM {
         this.opts = opts.toBuilder().build();
         this.id = id;
         this.hostStoreId = hostStoreId; // keep a local copy to decouple it from store's state
+        this.bgExecutor = bgExecutor;
         this.kvRange = kvRange;
         tags = new String[] {"clusterId", clusterId, "storeId", hostStoreId, "rangeId", KVRangeIdUtil.toString(id)};
         this.log = SiftLogger.getLogger(KVRangeFSM.class, tags);
@@ -229,6 +233,11 @@ public class KVRangeFSM implements IKVRangeFSM {
                     return metricManager.recordLogApply(() -> KVRangeFSM.this.apply(log));
                 }
 
+                @Override
+                public CompletableFuture<Void> apply(List<LogEntry> logs) {
+                    return KVRangeFSM.this.apply(logs);
+                }
+
                 @Override
                 public CompletableFuture<Void> restore(KVRangeSnapshot snapshot, String leader,
                                                        IAfterRestoredCallback callback) {
@@ -264,7 +273,8 @@ public class KVRangeFSM implements IKVRangeFSM {
                 // start the wal
                 wal.start();
                 this.restorer = new KVRangeRestorer(wal.latestSnapshot(), kvRange, messenger,
-                    metricManager, fsmExecutor, opts.getSnapshotSyncIdleTimeoutSec(), tags);
+                    metricManager, fsmExecutor, opts.getSnapshotSyncIdleTimeoutSec(), opts.getSnapshotSyncWindowSize(),
+                    tags);
                 disposables.add(wal.peerMessages().observeOn(Schedulers.io())
                     .subscribe((messages) -> {
                         for (String peerId : messages.keySet()) {
@@ -369,6 +379,7 @@ public class KVRangeFSM implements IKVRangeFSM {
                         .thenCompose(v -> {
                             kvRange.close();
                             metricManager.close();
+                            linearizer.close();
                             return awaitShutdown(fsmExecutor);
                         })
                         .whenComplete((v, e) -> {
@@ -626,7 +637,7 @@ public class KVRangeFSM implements IKVRangeFSM {
                     State state = kvRange.state();
                     Boundary boundary = kvRange.boundary();
                     applyCommand(version, state, boundary, entry.getTerm(), entry.getIndex(), command, recordableReader,
-                        rangeWriter)
+                        rangeWriter.kvWriter(), rangeWriter)
                         .whenComplete((callback, e) -> {
                             if (onDone.isCancelled()) {
                                 rangeWriter.abort();
@@ -664,6 +675,151 @@ public class KVRangeFSM implements IKVRangeFSM {
         return onDone;
     }
 
+    private CompletableFuture<Void> apply(List<LogEntry> entries) {
+        CompletableFuture<Void> onDone = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<Void>> applying = new AtomicReference<>();
+        onDone.whenComplete((v, e) -> {
+            if (onDone.isCancelled()) {
+                CompletableFuture<Void> applyingFuture = applying.get();
+                if (applyingFuture != null) {
+                    applyingFuture.cancel(true);
+                }
+            }
+        });
+        apply(entries, 0, applying, onDone);
+        return onDone;
+    }
+
+    private void apply(List<LogEntry> entries,
+                       int from,
+                       AtomicReference<CompletableFuture<Void>> applying,
+                       CompletableFuture<Void> onDone) {
+        while (!onDone.isDone()) {
+            if (from == entries.size()) {
+                onDone.complete(null);
+                return;
+            }
+            // the normal commands in a row are applied in one write batch
+            List<LogEntry> batch = new ArrayList<>();
+            List<KVRangeCommand> commands = new ArrayList<>();
+            int next = from;
+            try {
+                while (next < entries.size()) {
+                    LogEntry entry = entries.get(next);
+                    if (kvRange.lastAppliedIndex() > entry.getIndex()) {
+                        // skip already applied log
+                        log.debug("Skip already applied log: index={}, term={}", entry.getIndex(), entry.getTerm());
+                        next++;
+                        continue;
+                    }
+                    KVRangeCommand command = opts.isEnableBatchApply()
+                        ? KVRangeCommand.parseFrom(entry.getData()) : null;
+                    if (command == null || !isNormalCommand(command)) {
+                        if (batch.isEmpty()) {
+                            batch.add(entry);
+                            commands.add(command);
+                            next++;
+                        }
+                        break;
+                    }
+                    batch.add(entry);
+                    commands.add(command);
+                    next++;
+                }
+            } catch (Throwable t) {
+                log.error("Failed to apply command", t);
+                onDone.completeExceptionally(t);
+                return;
+            }
+            CompletableFuture<Void> applyFuture;
+            if (batch.isEmpty()) {
+                applyFuture = CompletableFuture.completedFuture(null);
+            } else if (batch.size() == 1) {
+                applyFuture = metricManager.recordLogApply(() -> apply(batch.get(0)));
+            } else {
+                applyFuture = metricManager.recordLogApply(() -> applyBatch(batch, commands));
+            }
+            applying.set(applyFuture);
+            if (applyFuture.isDone() && !applyFuture.isCompletedExceptionally()) {
+                from = next;
+                continue;
+            }
+            int nextFrom = next;
+            applyFuture.whenCompleteAsync((v, e) -> {
+                if (e != null) {
+                    onDone.completeExceptionally(e);
+                } else {
+                    apply(entries, nextFrom, applying, onDone);
+                }
+            }, fsmExecutor);
+            return;
+        }
+    }
+
+    private CompletableFuture<Void> applyBatch(List<LogEntry> entries, List<KVRangeCommand> commands) {
+        CompletableFuture<Void> onDone = new CompletableFuture<>();
+        IKVRangeWriter<?> rangeWriter = kvRange.toWriter();
+        KVWriteBuffer writeBuffer = new KVWriteBuffer(rangeWriter.kvWriter());
+        IKVReader borrowedReader = kvRange.borrowDataReader();
+        IKVReader bufferedReader = new WriteBufferedKVReader(borrowedReader, writeBuffer);
+        long version = kvRange.version();
+        State state = kvRange.state();
+        Boundary boundary = kvRange.boundary();
+        List<Runnable> callbacks = new ArrayList<>(entries.size());
+        List<IKVLoadRecorder> loadRecorders = new ArrayList<>(entries.size());
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                LogEntry entry = entries.get(i);
+                IKVLoadRecorder loadRecorder = new KVLoadRecorder();
+                // normal commands are executed synchronously
+                Runnable callback = applyCommand(version, state, boundary, entry.getTerm(), entry.getIndex(),
+                    commands.get(i),
+                    new LoadRecordableKVReader(bufferedReader, loadRecorder),
+                    new LoadRecordableKVWriter(writeBuffer, loadRecorder),
+                    rangeWriter)
+                    .join();
+                callbacks.add(callback);
+                loadRecorders.add(loadRecorder);
+            }
+            long lastIndex = entries.get(entries.size() - 1).getIndex();
+            rangeWriter.lastAppliedIndex(lastIndex);
+            rangeWriter.done();
+            for (int i = 0; i < entries.size(); i++) {
+                KVRangeCommand command = commands.get(i);
+                if (command.hasRwCoProc()) {
+                    IKVLoadRecord loadRecord = loadRecorders.get(i).stop();
+                    splitHinters.forEach(hint -> hint.recordMutate(command.getRwCoProc(), loadRecord));
+                }
+                try {
+                    callbacks.get(i).run();
+                } catch (Throwable t) {
+                    // the batch has been persisted, the failure only affects the command itself
+                    log.error("Failed to finish command: taskId={}", command.getTaskId(), t);
+                    finishCommandWithError(command.getTaskId(),
+                        new KVRangeException.InternalException("Failed to finish "
+                            + command.getCommandTypeCase().name(), t));
+                }
+            }
+            linearizer.afterLogApplied(lastIndex);
+            metricManager.reportLastAppliedIndex(lastIndex);
+            onDone.complete(null);
+        } catch (Throwable t) {
+            log.error("Failed to apply logs in batch", t);
+            rangeWriter.abort();
+            onDone.completeExceptionally(t);
+        } finally {
+            kvRange.returnDataReader(borrowedReader);
+        }
+        return onDone;
+    }
+
+    private boolean isNormalCommand(KVRangeCommand command) {
+        return switch (command.getCommandTypeCase()) {
+            case PUT, DELETE, RWCOPROC -> true;
+            default -> false;
+        };
+    }
+
     private CompletableFuture<Runnable> applyConfigChange(long term, long index,
                                                           ClusterConfig config,
                                                           IKVRangeWritable<?> rangeWriter) {
@@ -793,6 +949,7 @@ public class KVRangeFSM implements IKVRangeFSM {
                                                      long logIndex,
                                                      KVRangeCommand command,
                                                      IKVReader dataReader,
+                                                     IKVWriter dataWriter,
                                                      IKVRangeWritable<?> rangeWriter) {
         CompletableFuture<Runnable> onDone = new CompletableFuture<>();
         long reqVer = command.getVer();
@@ -1380,19 +1537,19 @@ public class KVRangeFSM implements IKVRangeFSM {
                             Delete delete = command.getDelete();
                             Optional<ByteString> value = dataReader.get(delete.getKey());
                             if (value.isPresent()) {
-                                rangeWriter.kvWriter().delete(delete.getKey());
+                                dataWriter.delete(delete.getKey());
                             }
                             onDone.complete(() -> finishCommand(taskId, value.orElse(ByteString.EMPTY)));
                         }
                         case PUT -> {
                             Put put = command.getPut();
                             Optional<ByteString> value = dataReader.get(put.getKey());
-                            rangeWriter.kvWriter().put(put.getKey(), put.getValue());
+                            dataWriter.put(put.getKey(), put.getValue());
                             onDone.complete(() -> finishCommand(taskId, value.orElse(ByteString.EMPTY)));
                         }
                         case RWCOPROC -> {
                             Supplier<RWCoProcOutput> outputSupplier = coProc.mutate(command.getRwCoProc(),
-                                dataReader, rangeWriter.kvWriter());
+                                dataReader, dataWriter);
                             onDone.complete(() -> finishCommand(taskId, outputSupplier.get()));
                         }
                     }
@@ -1441,7 +1598,10 @@ public class KVRangeFSM implements IKVRangeFSM {
                     cmdFutures.keySet().forEach(taskId -> finishCommandWithError(taskId,
                         new KVRangeException.TryLater("Restored from snapshot, try again")));
                 })
-                .thenCompose(v -> onInstalled.call(kvRange.checkpoint(), null));
+                .thenCompose(v -> {
+                    KVRangeSnapshot checkpoint = kvRange.checkpoint();
+                    return kvRange.persisted(checkpoint).thenCompose(v1 -> onInstalled.call(checkpoint, null));
+                });
         });
     }
 
@@ -1468,7 +1628,9 @@ public class KVRangeFSM implements IKVRangeFSM {
             return metricManager.recordCompact(() -> {
                 KVRangeSnapshot snapshot = kvRange.checkpoint();
                 log.debug("Compact wal using snapshot:\n{}", snapshot);
-                return wal.compact(snapshot)
+                // the logs could only be truncated after the checkpointed state has been persisted
+                return kvRange.persisted(snapshot)
+                    .thenCompose(v -> wal.compact(snapshot))
                     .whenComplete((v, e) -> {
                         if (e != null) {
                             log.error("Failed to compact WAL due to {}: \n{}", e.getMessage(), snapshot);
@@ -1532,9 +1694,9 @@ public class KVRangeFSM implements IKVRangeFSM {
     private void handleSnapshotSyncRequest(String follower, SnapshotSyncRequest request) {
         log.info("Dumping snapshot: session={}: follower={}\n{}",
             request.getSessionId(), follower, request.getSnapshot());
-        KVRangeDumpSession session = new KVRangeDumpSession(follower, request, kvRange, messenger, fsmExecutor,
-            Duration.ofSeconds(opts.getSnapshotSyncIdleTimeoutSec()),
-            opts.getSnapshotSyncBytesPerSec(), metricManager::reportDump, tags);
+        KVRangeDumpSession session = new KVRangeDumpSession(follower, request, kvRange, messenger,
+            fsmExecutor, bgExecutor, Duration.ofSeconds(opts.getSnapshotSyncIdleTimeoutSec()),
+            opts.getSnapshotSyncBytesPerSec(), opts.getSnapshotSyncWindowSize(), metricManager, tags);
         dumpSessions.put(session.id(), session);
         session.awaitDone().whenComplete((result, e) -> {
             log.info("Snapshot dumped: session={}, follower={}", session.id(), follower);
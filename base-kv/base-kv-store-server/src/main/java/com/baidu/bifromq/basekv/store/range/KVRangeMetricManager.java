@@ -33,6 +33,8 @@ import java.util.function.Supplier;
 
 class KVRangeMetricManager implements IKVRangeMetricManager {
     private final DistributionSummary dumpBytesSummary;
+    private final DistributionSummary dumpThroughputSummary;
+    private final DistributionSummary dumpWindowSummary;
     private final DistributionSummary restoreBytesSummary;
     private final Gauge stateGauge;
     private final Gauge verGauge;
@@ -60,6 +62,8 @@ class KVRangeMetricManager implements IKVRangeMetricManager {
             .and("storeId", storeId)
             .and("rangeId", KVRangeIdUtil.toString(rangeId));
         dumpBytesSummary = Metrics.summary("basekv.snap.dump", tags);
+        dumpThroughputSummary = Metrics.summary("basekv.snap.dump.throughput", tags);
+        dumpWindowSummary = Metrics.summary("basekv.snap.dump.window", tags);
         restoreBytesSummary = Metrics.summary("basekv.snap.restore", tags);
         stateGauge = Gauge.builder("basekv.meta.state", () -> {
                 KVRangeDescriptor desc = currentDesc.get();
@@ -151,6 +155,16 @@ class KVRangeMetricManager implements IKVRangeMetricManager {
         dumpBytesSummary.record(bytes);
     }
 
+    @Override
+    public void reportDumpThroughput(long bytesPerSec) {
+        dumpThroughputSummary.record(bytesPerSec);
+    }
+
+    @Override
+    public void reportDumpWindow(int inflightRequests) {
+        dumpWindowSummary.record(inflightRequests);
+    }
+
     @Override
     public void reportRestore(int bytes) {
         restoreBytesSummary.record(bytes);
@@ -237,6 +251,8 @@ class KVRangeMetricManager implements IKVRangeMetricManager {
 
     void close() {
         Metrics.globalRegistry.removeByPreFilterId(dumpBytesSummary.getId());
+        Metrics.globalRegistry.removeByPreFilterId(dumpThroughputSummary.getId());
+        Metrics.globalRegistry.removeByPreFilterId(dumpWindowSummary.getId());
         Metrics.globalRegistry.removeByPreFilterId(restoreBytesSummary.getId());
         Metrics.globalRegistry.removeByPreFilterId(stateGauge.getId());
         Metrics.globalRegistry.removeByPreFilterId(lastAppliedIndexGauge.getId());
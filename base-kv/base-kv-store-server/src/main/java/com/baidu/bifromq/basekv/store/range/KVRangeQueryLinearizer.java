@@ -15,6 +15,8 @@ package com.baidu.bifromq.basekv.store.range;
 
 import com.baidu.bifromq.logger.SiftLogger;
 import com.google.common.collect.Maps;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentLinkedDeque;
@@ -32,6 +34,8 @@ class KVRangeQueryLinearizer implements IKVRangeQueryLinearizer {
     private final Supplier<CompletableFuture<Long>> readIndexProvider;
     private final Executor executor;
     private final AtomicBoolean linearizing = new AtomicBoolean();
+    // the extra latency of linearized query spent on waiting for read index and its application
+    private final Timer linearizeTimer;
     private volatile long lastAppliedIndex = 0;
 
     KVRangeQueryLinearizer(Supplier<CompletableFuture<Long>> readIndexProvider, Executor executor,
@@ -40,11 +44,16 @@ class KVRangeQueryLinearizer implements IKVRangeQueryLinearizer {
         this.executor = executor;
         this.lastAppliedIndex = lastAppliedIndex;
         this.log = SiftLogger.getLogger(KVRangeQueryLinearizer.class, tags);
+        this.linearizeTimer = Timer.builder("basekv.cmd.linearize")
+            .tags(tags)
+            .register(Metrics.globalRegistry);
     }
 
     @Override
     public CompletionStage<Void> linearize() {
         CompletableFuture<Void> onDone = new CompletableFuture<>();
+        Timer.Sample sample = Timer.start();
+        onDone.whenComplete((v, e) -> sample.stop(linearizeTimer));
         CompletableFuture<Long> readIndex = readIndexProvider.get();
         readIndexes.put(readIndex, onDone);
         readIndex.whenCompleteAsync((ri, e) -> {
@@ -74,6 +83,10 @@ class KVRangeQueryLinearizer implements IKVRangeQueryLinearizer {
         }
     }
 
+    void close() {
+        Metrics.globalRegistry.remove(linearizeTimer);
+    }
+
     private void schedule() {
         if (linearizing.compareAndSet(false, true)) {
             executor.execute(this::doLinearize);
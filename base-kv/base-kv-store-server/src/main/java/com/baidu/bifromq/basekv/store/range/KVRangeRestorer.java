@@ -16,6 +16,7 @@ package com.baidu.bifromq.basekv.store.range;
 import com.baidu.bifromq.basekv.proto.KVPair;
 import com.baidu.bifromq.basekv.proto.KVRangeMessage;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
+import com.baidu.bifromq.basekv.proto.SSTFileChunk;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataReply;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataRequest;
 import com.baidu.bifromq.basekv.proto.SnapshotSyncRequest;
@@ -24,11 +25,16 @@ import com.baidu.bifromq.logger.SiftLogger;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.observers.DisposableObserver;
 import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32C;
 import org.slf4j.Logger;
 
 class KVRangeRestorer {
@@ -38,6 +44,7 @@ class KVRangeRestorer {
     private final IKVRangeMetricManager metricManager;
     private final Executor executor;
     private final int idleTimeSec;
+    private final int windowSize;
     private final AtomicReference<RestoreSession> currentSession = new AtomicReference<>();
 
     KVRangeRestorer(KVRangeSnapshot startSnapshot,
@@ -46,12 +53,14 @@ class KVRangeRestorer {
                     IKVRangeMetricManager metricManager,
                     Executor executor,
                     int idleTimeSec,
+                    int windowSize,
                     String... tags) {
         this.range = range;
         this.messenger = messenger;
         this.metricManager = metricManager;
         this.executor = executor;
         this.idleTimeSec = idleTimeSec;
+        this.windowSize = Math.max(1, windowSize);
         this.log = SiftLogger.getLogger(KVRangeRestorer.class, tags);
         RestoreSession initialSession = new RestoreSession(startSnapshot);
         initialSession.doneFuture.complete(null);
@@ -80,13 +89,43 @@ class KVRangeRestorer {
                 .timeout(idleTimeSec, TimeUnit.SECONDS)
                 .observeOn(Schedulers.from(executor))
                 .subscribeWith(new DisposableObserver<KVRangeMessage>() {
+                    // fileName -> received bytes
+                    private final Map<String, Long> sstOffsets = new HashMap<>();
+                    // the requests arrived ahead of their predecessors
+                    private final NavigableMap<Integer, KVRangeMessage> pendingRequests = new TreeMap<>();
+                    private int nextReqId;
+
                     @Override
                     public void onNext(@NonNull KVRangeMessage m) {
+                        SaveSnapshotDataRequest request = m.getSaveSnapshotDataRequest();
+                        if (request.getReqId() < nextReqId) {
+                            // the request has been saved, reply again since it's resent by the leader
+                            reply(m, SaveSnapshotDataReply.Result.OK);
+                            return;
+                        }
+                        if (request.getReqId() >= nextReqId + windowSize) {
+                            log.debug("Drop snapshot data out of window: session={}, reqId={}",
+                                session.id, request.getReqId());
+                            return;
+                        }
+                        // the leader may send multiple requests without waiting for reply, save them in order
+                        pendingRequests.put(request.getReqId(), m);
+                        while (!isDisposed() && !pendingRequests.isEmpty()
+                            && pendingRequests.firstKey() == nextReqId) {
+                            nextReqId++;
+                            save(pendingRequests.pollFirstEntry().getValue());
+                        }
+                    }
+
+                    private void save(KVRangeMessage m) {
                         SaveSnapshotDataRequest request = m.getSaveSnapshotDataRequest();
                         try {
                             switch (request.getFlag()) {
                                 case More, End -> {
                                     int bytes = 0;
+                                    if (request.hasSstChunk()) {
+                                        bytes += ingest(request.getSstChunk());
+                                    }
                                     for (KVPair kv : request.getKvList()) {
                                         bytes += kv.getKey().size();
                                         bytes += kv.getValue().size();
@@ -107,31 +146,43 @@ class KVRangeRestorer {
                                             log.info("Snapshot restore canceled: session={}", session.id);
                                         }
                                     }
-                                    messenger.send(KVRangeMessage.newBuilder()
-                                        .setRangeId(range.id())
-                                        .setHostStoreId(m.getHostStoreId())
-                                        .setSaveSnapshotDataReply(SaveSnapshotDataReply.newBuilder()
-                                            .setReqId(request.getReqId())
-                                            .setSessionId(request.getSessionId())
-                                            .setResult(SaveSnapshotDataReply.Result.OK)
-                                            .build())
-                                        .build());
+                                    reply(m, SaveSnapshotDataReply.Result.OK);
                                 }
                                 default -> throw new KVRangeStoreException("Snapshot dump failed");
                             }
                         } catch (Throwable t) {
                             log.error("Snapshot restored failed: session={}", session.id, t);
                             onError(t);
-                            messenger.send(KVRangeMessage.newBuilder()
-                                .setRangeId(range.id())
-                                .setHostStoreId(m.getHostStoreId())
-                                .setSaveSnapshotDataReply(SaveSnapshotDataReply.newBuilder()
-                                    .setReqId(request.getReqId())
-                                    .setSessionId(request.getSessionId())
-                                    .setResult(SaveSnapshotDataReply.Result.Error)
-                                    .build())
-                                .build());
+                            reply(m, SaveSnapshotDataReply.Result.Error);
+                        }
+                    }
+
+                    private void reply(KVRangeMessage m, SaveSnapshotDataReply.Result result) {
+                        messenger.send(KVRangeMessage.newBuilder()
+                            .setRangeId(range.id())
+                            .setHostStoreId(m.getHostStoreId())
+                            .setSaveSnapshotDataReply(SaveSnapshotDataReply.newBuilder()
+                                .setReqId(m.getSaveSnapshotDataRequest().getReqId())
+                                .setSessionId(m.getSaveSnapshotDataRequest().getSessionId())
+                                .setResult(result)
+                                .build())
+                            .build());
+                    }
+
+                    private int ingest(SSTFileChunk chunk) {
+                        CRC32C checksum = new CRC32C();
+                        checksum.update(chunk.getData().asReadOnlyByteBuffer());
+                        if ((int) checksum.getValue() != chunk.getChecksum()) {
+                            throw new KVRangeStoreException("Checksum mismatch of sst file: " + chunk.getFileName());
+                        }
+                        long offset = sstOffsets.getOrDefault(chunk.getFileName(), 0L);
+                        if (chunk.getOffset() != offset) {
+                            throw new KVRangeStoreException("Unexpected chunk offset of sst file: "
+                                + chunk.getFileName());
                         }
+                        restorer.ingest(chunk.getFileName(), chunk.getData());
+                        sstOffsets.put(chunk.getFileName(), offset + chunk.getData().size());
+                        return chunk.getData().size();
                     }
 
                     @Override
@@ -160,6 +211,8 @@ class KVRangeRestorer {
                     .setSnapshotSyncRequest(SnapshotSyncRequest.newBuilder()
                         .setSessionId(session.id)
                         .setSnapshot(rangeSnapshot)
+                        .setSstIngestible(restorer.canIngest())
+                        .setWindowSize(windowSize)
                         .build())
                     .build());
             }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.range;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.inRange;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * The writer which keeps track of the uncommitted changes made through it, so that the commands applied in one write
+ * batch could read the changes made by the preceding ones via {@link WriteBufferedKVReader}.
+ */
+class KVWriteBuffer implements IKVWriter {
+    private final IKVWriter delegate;
+    // key -> value, null value for deleted key
+    private final NavigableMap<ByteString, ByteString> buffered =
+        new TreeMap<>(ByteString.unsignedLexicographicalComparator());
+    private final List<Boundary> cleared = new ArrayList<>();
+
+    KVWriteBuffer(IKVWriter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void delete(ByteString key) {
+        delegate.delete(key);
+        buffered.put(key, null);
+    }
+
+    @Override
+    public void clear(Boundary boundary) {
+        delegate.clear(boundary);
+        buffered.keySet().removeIf(key -> inRange(key, boundary));
+        cleared.add(boundary);
+    }
+
+    @Override
+    public void insert(ByteString key, ByteString value) {
+        delegate.insert(key, value);
+        buffered.put(key, value);
+    }
+
+    @Override
+    public void put(ByteString key, ByteString value) {
+        delegate.put(key, value);
+        buffered.put(key, value);
+    }
+
+    /**
+     * Lookup the buffered change of the key.
+     *
+     * @param key the key
+     * @return null if the key is not changed, otherwise the optional of the current value
+     */
+    Optional<ByteString> lookup(ByteString key) {
+        if (buffered.containsKey(key)) {
+            return Optional.ofNullable(buffered.get(key));
+        }
+        if (isCleared(key)) {
+            return Optional.empty();
+        }
+        return null;
+    }
+
+    /**
+     * Check if the value of the key in underlying storage is shadowed by the buffered changes.
+     */
+    boolean isShadowed(ByteString key) {
+        return buffered.containsKey(key) || isCleared(key);
+    }
+
+    Map.Entry<ByteString, ByteString> ceiling(ByteString key, boolean inclusive) {
+        Map.Entry<ByteString, ByteString> entry = key == null ? buffered.firstEntry()
+            : (inclusive ? buffered.ceilingEntry(key) : buffered.higherEntry(key));
+        while (entry != null && entry.getValue() == null) {
+            entry = buffered.higherEntry(entry.getKey());
+        }
+        return entry;
+    }
+
+    Map.Entry<ByteString, ByteString> floor(ByteString key, boolean inclusive) {
+        Map.Entry<ByteString, ByteString> entry = key == null ? buffered.lastEntry()
+            : (inclusive ? buffered.floorEntry(key) : buffered.lowerEntry(key));
+        while (entry != null && entry.getValue() == null) {
+            entry = buffered.lowerEntry(entry.getKey());
+        }
+        return entry;
+    }
+
+    private boolean isCleared(ByteString key) {
+        for (Boundary boundary : cleared) {
+            if (inRange(key, boundary)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
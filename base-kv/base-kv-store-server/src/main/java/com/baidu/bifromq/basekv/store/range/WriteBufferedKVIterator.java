@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.range;
+
+import com.baidu.bifromq.basekv.store.api.IKVIterator;
+import com.baidu.bifromq.basekv.utils.BoundaryUtil;
+import com.google.protobuf.ByteString;
+import java.util.Map;
+
+/**
+ * The iterator merging the buffered changes with the underlying data. The changes are looked up by the current key
+ * for each move, so the changes made during iteration are visible as well.
+ */
+class WriteBufferedKVIterator implements IKVIterator {
+    private final IKVIterator delegate;
+    private final KVWriteBuffer writeBuffer;
+    private ByteString key;
+    private ByteString value;
+    private boolean forward = true;
+
+    WriteBufferedKVIterator(IKVIterator delegate, KVWriteBuffer writeBuffer) {
+        this.delegate = delegate;
+        this.writeBuffer = writeBuffer;
+    }
+
+    @Override
+    public ByteString key() {
+        return key;
+    }
+
+    @Override
+    public ByteString value() {
+        return value;
+    }
+
+    @Override
+    public boolean isValid() {
+        return key != null;
+    }
+
+    @Override
+    public void next() {
+        ByteString current = key;
+        if (!forward) {
+            delegate.seek(current);
+            forward = true;
+        }
+        while (delegate.isValid() && BoundaryUtil.compare(delegate.key(), current) <= 0) {
+            delegate.next();
+        }
+        settleForward(current, false);
+    }
+
+    @Override
+    public void prev() {
+        ByteString current = key;
+        if (forward) {
+            delegate.seekForPrev(current);
+            forward = false;
+        }
+        while (delegate.isValid() && BoundaryUtil.compare(delegate.key(), current) >= 0) {
+            delegate.prev();
+        }
+        settleBackward(current, false);
+    }
+
+    @Override
+    public void seekToFirst() {
+        delegate.seekToFirst();
+        forward = true;
+        settleForward(null, true);
+    }
+
+    @Override
+    public void seekToLast() {
+        delegate.seekToLast();
+        forward = false;
+        settleBackward(null, true);
+    }
+
+    @Override
+    public void seek(ByteString target) {
+        delegate.seek(target);
+        forward = true;
+        settleForward(target, true);
+    }
+
+    @Override
+    public void seekForPrev(ByteString target) {
+        delegate.seekForPrev(target);
+        forward = false;
+        settleBackward(target, true);
+    }
+
+    private void settleForward(ByteString from, boolean inclusive) {
+        while (delegate.isValid() && writeBuffer.isShadowed(delegate.key())) {
+            delegate.next();
+        }
+        Map.Entry<ByteString, ByteString> buffered = writeBuffer.ceiling(from, inclusive);
+        if (buffered != null
+            && (!delegate.isValid() || BoundaryUtil.compare(buffered.getKey(), delegate.key()) < 0)) {
+            key = buffered.getKey();
+            value = buffered.getValue();
+        } else if (delegate.isValid()) {
+            key = delegate.key();
+            value = delegate.value();
+        } else {
+            key = null;
+            value = null;
+        }
+    }
+
+    private void settleBackward(ByteString from, boolean inclusive) {
+        while (delegate.isValid() && writeBuffer.isShadowed(delegate.key())) {
+            delegate.prev();
+        }
+        Map.Entry<ByteString, ByteString> buffered = writeBuffer.floor(from, inclusive);
+        if (buffered != null
+            && (!delegate.isValid() || BoundaryUtil.compare(buffered.getKey(), delegate.key()) > 0)) {
+            key = buffered.getKey();
+            value = buffered.getValue();
+        } else if (delegate.isValid()) {
+            key = delegate.key();
+            value = delegate.value();
+        } else {
+            key = null;
+            value = null;
+        }
+    }
+}
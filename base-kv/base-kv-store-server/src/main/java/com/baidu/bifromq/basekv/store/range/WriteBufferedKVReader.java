@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.range;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.store.api.IKVIterator;
+import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.google.protobuf.ByteString;
+import java.util.Optional;
+
+/**
+ * The reader which sees the uncommitted changes buffered in {@link KVWriteBuffer} on top of the underlying data.
+ */
+class WriteBufferedKVReader implements IKVReader {
+    private final IKVReader delegate;
+    private final KVWriteBuffer writeBuffer;
+
+    WriteBufferedKVReader(IKVReader delegate, KVWriteBuffer writeBuffer) {
+        this.delegate = delegate;
+        this.writeBuffer = writeBuffer;
+    }
+
+    @Override
+    public Boundary boundary() {
+        return delegate.boundary();
+    }
+
+    @Override
+    public long size(Boundary boundary) {
+        // approximate size of the committed data
+        return delegate.size(boundary);
+    }
+
+    @Override
+    public boolean exist(ByteString key) {
+        Optional<ByteString> buffered = writeBuffer.lookup(key);
+        if (buffered != null) {
+            return buffered.isPresent();
+        }
+        return delegate.exist(key);
+    }
+
+    @Override
+    public Optional<ByteString> get(ByteString key) {
+        Optional<ByteString> buffered = writeBuffer.lookup(key);
+        if (buffered != null) {
+            return buffered;
+        }
+        return delegate.get(key);
+    }
+
+    @Override
+    public IKVIterator iterator() {
+        return new WriteBufferedKVIterator(delegate.iterator(), writeBuffer);
+    }
+
+    @Override
+    public void refresh() {
+        delegate.refresh();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.util;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.google.protobuf.ByteString;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Track the keys written by the coproc mutations whose output has not been taken yet.
+ *
+ * <p>When log entries are applied in batch, the output of a mutation is taken only after the whole batch is
+ * persisted, so the in-memory state maintained by the coproc is stale for the keys touched by the preceding
+ * mutations in the same batch. The coproc should read the pending keys via the reader passed to mutate, which sees
+ * the writes of the whole batch.
+ *
+ * <p>Mutations of a range are applied sequentially, so the class is not thread-safe.
+ */
+public final class PendingKeys {
+    private final Predicate<ByteString> keyFilter;
+    private final Map<ByteString, Integer> pending = new HashMap<>();
+
+    /**
+     * Construct a tracker.
+     *
+     * @param keyFilter only the keys accepted by the filter are tracked
+     */
+    public PendingKeys(Predicate<ByteString> keyFilter) {
+        this.keyFilter = keyFilter;
+    }
+
+    /**
+     * Wrap the writer of a mutation to track the keys it writes.
+     *
+     * @param writer the writer passed to mutate
+     * @return the tracking writer, whose settle method must be called after the in-memory state is updated
+     */
+    public TrackingWriter track(IKVWriter writer) {
+        return new TrackingWriter(writer);
+    }
+
+    public boolean isPending(ByteString key) {
+        return pending.containsKey(key);
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Forget all pending keys, it's called when the coproc reloads its in-memory state.
+     */
+    public void clear() {
+        pending.clear();
+    }
+
+    /**
+     * The writer tracking the written keys of one mutation.
+     */
+    public final class TrackingWriter implements IKVWriter {
+        private final IKVWriter delegate;
+        private final Set<ByteString> keys = new HashSet<>();
+
+        private TrackingWriter(IKVWriter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void delete(ByteString key) {
+            delegate.delete(key);
+            track(key);
+        }
+
+        @Override
+        public void clear(Boundary boundary) {
+            delegate.clear(boundary);
+        }
+
+        @Override
+        public void insert(ByteString key, ByteString value) {
+            delegate.insert(key, value);
+            track(key);
+        }
+
+        @Override
+        public void put(ByteString key, ByteString value) {
+            delegate.put(key, value);
+            track(key);
+        }
+
+        /**
+         * Release the tracked keys after the mutation's output has been taken.
+         */
+        public void settle() {
+            for (ByteString key : keys) {
+                pending.computeIfPresent(key, (k, c) -> c == 1 ? null : c - 1);
+            }
+            keys.clear();
+        }
+
+        private void track(ByteString key) {
+            if (keyFilter.test(key) && keys.add(key)) {
+                pending.merge(key, 1, Integer::sum);
+            }
+        }
+    }
+}
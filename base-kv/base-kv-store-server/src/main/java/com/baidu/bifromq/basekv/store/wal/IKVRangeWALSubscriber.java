@@ -15,6 +15,7 @@ package com.baidu.bifromq.basekv.store.wal;
 
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
 import com.baidu.bifromq.basekv.raft.proto.LogEntry;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public interface IKVRangeWALSubscriber {
@@ -24,6 +25,14 @@ public interface IKVRangeWALSubscriber {
 
     CompletableFuture<Void> apply(LogEntry log);
 
+    /**
+     * Apply a batch of contiguous committed data logs.
+     *
+     * @param logs the logs in index order
+     * @return the future completed when all logs applied
+     */
+    CompletableFuture<Void> apply(List<LogEntry> logs);
+
     /**
      * Callback after snapshot restored.
      */
@@ -162,6 +162,17 @@ public class KVRangeWAL implements IKVRangeWAL, IRaftNode.ISnapshotInstaller {
                         return CompletableFuture.completedFuture(null);
                     }
 
+                    @Override
+                    public CompletableFuture<Void> apply(List<LogEntry> logs) {
+                        for (LogEntry log : logs) {
+                            if (onDone.isDone()) {
+                                break;
+                            }
+                            apply(log);
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    }
+
                     @Override
                     public CompletableFuture<Void> restore(KVRangeSnapshot requested, String leader,
                                                            IAfterRestoredCallback callback) {
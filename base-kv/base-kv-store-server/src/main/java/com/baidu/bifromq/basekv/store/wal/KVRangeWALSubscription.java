@@ -20,6 +20,8 @@ import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
 import com.baidu.bifromq.logger.SiftLogger;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -111,11 +113,21 @@ class KVRangeWALSubscription implements IKVRangeWALSubscription {
                     } else {
                         fetchRunner.add(() -> {
                             LogEntry entry = null;
+                            List<LogEntry> dataEntries = new ArrayList<>();
                             while (logEntries.hasNext()) {
                                 // no restore task interrupted
                                 entry = logEntries.next();
-                                applyRunner.add(applyLog(entry));
+                                if (entry.hasData()) {
+                                    // contiguous data logs are applied in batch
+                                    dataEntries.add(entry);
+                                } else {
+                                    applyDataLogs(dataEntries);
+                                    dataEntries = new ArrayList<>();
+                                    LogEntry configEntry = entry;
+                                    applyRunner.add(applyLog(() -> subscriber.apply(configEntry)));
+                                }
                             }
+                            applyDataLogs(dataEntries);
                             if (entry != null) {
                                 lastFetchedIdx.set(Math.max(entry.getIndex(), lastFetchedIdx.get()));
                             }
@@ -136,10 +148,22 @@ class KVRangeWALSubscription implements IKVRangeWALSubscription {
         }
     }
 
-    private Supplier<CompletableFuture<Void>> applyLog(LogEntry logEntry) {
+    private void applyDataLogs(List<LogEntry> dataEntries) {
+        if (dataEntries.isEmpty()) {
+            return;
+        }
+        if (dataEntries.size() == 1) {
+            LogEntry entry = dataEntries.get(0);
+            applyRunner.add(applyLog(() -> subscriber.apply(entry)));
+        } else {
+            applyRunner.add(applyLog(() -> subscriber.apply(dataEntries)));
+        }
+    }
+
+    private Supplier<CompletableFuture<Void>> applyLog(Supplier<CompletableFuture<Void>> applyTask) {
         return () -> {
             CompletableFuture<Void> onDone = new CompletableFuture<>();
-            CompletableFuture<Void> applyFuture = subscriber.apply(logEntry);
+            CompletableFuture<Void> applyFuture = applyTask.get();
             onDone.whenComplete((v, e) -> {
                 if (onDone.isCancelled()) {
                     applyFuture.cancel(true);
@@ -150,7 +174,7 @@ class KVRangeWALSubscription implements IKVRangeWALSubscription {
                 if (!onDone.isCancelled()) {
                     if (e != null) {
                         // reapply
-                        applyRunner.addFirst(applyLog(logEntry));
+                        applyRunner.addFirst(applyLog(applyTask));
                     }
                 }
                 onDone.complete(null);
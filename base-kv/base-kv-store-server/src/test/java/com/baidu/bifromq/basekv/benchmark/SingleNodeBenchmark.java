@@ -34,6 +34,7 @@ import org.openjdk.jmh.annotations.GroupThreads;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -55,10 +56,13 @@ public class SingleNodeBenchmark {
     private int count = 3;
     private KVRangeStoreOptions options = new KVRangeStoreOptions();
     private List<KVRangeId> ranges;
+    @Param({"true", "false"})
+    private boolean enableBatchApply;
 
     @Setup
     public void setup() {
-        log.info("Starting test cluster");
+        log.info("Starting test cluster: enableBatchApply={}", enableBatchApply);
+        options.getKvRangeOptions().setEnableBatchApply(enableBatchApply);
         options.getKvRangeOptions().getWalRaftConfig()
             .setAsyncAppend(false)
             .setMaxUncommittedProposals(Integer.MAX_VALUE);
@@ -111,6 +115,27 @@ public class SingleNodeBenchmark {
         count++;
     }
 
+    @Benchmark
+    @Group("CoProcMutate")
+    @GroupThreads(20)
+    public void mutateCoProcRange0() {
+        // read-modify-write on a small key set, so the mutations in one batch touch the same keys
+        cluster.mutateCoProc(cluster.bootstrapStore(),
+            ranges.get(0),
+            copyFromUtf8("key0" + (count % 100) + "_value" + count));
+        count++;
+    }
+
+    @Benchmark
+    @Group("CoProcMutate")
+    @GroupThreads(20)
+    public void mutateCoProcRange1() {
+        cluster.mutateCoProc(cluster.bootstrapStore(),
+            ranges.get(1),
+            copyFromUtf8("key1" + (count % 100) + "_value" + count));
+        count++;
+    }
+
     public static void main(String[] args) {
         Options opt = new OptionsBuilder()
             .include(SingleNodeBenchmark.class.getSimpleName())
@@ -15,6 +15,9 @@ package com.baidu.bifromq.basekv.store.range;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,17 +26,25 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import com.baidu.bifromq.basekv.MockableTest;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
 import com.baidu.bifromq.basekv.proto.KVRangeId;
 import com.baidu.bifromq.basekv.proto.KVRangeMessage;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataReply;
+import com.baidu.bifromq.basekv.proto.SSTFileChunk;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataRequest;
 import com.baidu.bifromq.basekv.proto.SnapshotSyncRequest;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
 import io.reactivex.rxjava3.subjects.PublishSubject;
+import java.io.File;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.LinkedList;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.zip.CRC32C;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.mockito.ArgumentCaptor;
@@ -54,7 +65,9 @@ public class KVRangeDumpSessionTest extends MockableTest {
     private IKVCheckpointIterator rangeCPDataItr;
 
     @Mock
-    private KVRangeDumpSession.DumpBytesRecorder dumpBytesRecorder;
+    private IKVSpaceSSTExporter sstExporter;
+    @Mock
+    private IKVRangeMetricManager metricManager;
 
     @Test
     public void dumpEmptySnapshot() {
@@ -69,7 +82,8 @@ public class KVRangeDumpSessionTest extends MockableTest {
             .build();
         when(rangeAccessor.id()).thenReturn(rangeId);
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, 1,
+            metricManager);
         assertTrue(dumpSession.awaitDone().toCompletableFuture().isDone());
         ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
         verify(messenger).send(messageCap.capture());
@@ -96,7 +110,8 @@ public class KVRangeDumpSessionTest extends MockableTest {
         when(rangeAccessor.id()).thenReturn(rangeId);
         when(rangeAccessor.hasCheckpoint(snapshot)).thenReturn(false);
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, 1,
+            metricManager);
         assertTrue(dumpSession.awaitDone().toCompletableFuture().isDone());
         ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
         verify(messenger).send(messageCap.capture());
@@ -149,7 +164,8 @@ public class KVRangeDumpSessionTest extends MockableTest {
         when(rangeCPDataItr.key()).thenReturn(ByteString.copyFromUtf8("key"));
         when(rangeCPDataItr.value()).thenReturn(ByteString.copyFromUtf8("value"));
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, 1,
+            metricManager);
         assertEquals(dumpSession.checkpointId(), checkpointId);
         verify(rangeCPDataItr).seekToFirst();
         verify(rangeCPDataItr).next();
@@ -166,7 +182,7 @@ public class KVRangeDumpSessionTest extends MockableTest {
                 .setResult(flag)
                 .build())
             .build());
-        verify(dumpBytesRecorder).record(anyInt());
+        verify(metricManager).reportDump(anyInt());
         assertTrue(dumpSession.awaitDone().toCompletableFuture().isDone());
         verify(rangeCPDataItr).close();
     }
@@ -199,7 +215,8 @@ public class KVRangeDumpSessionTest extends MockableTest {
         when(rangeCPDataItr.key()).thenReturn(ByteString.copyFromUtf8("key"));
         when(rangeCPDataItr.value()).thenReturn(ByteString.copyFromUtf8("value"));
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofMillis(100), 5, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofMillis(100), 5, 1,
+            metricManager);
         ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
         verify(messenger, times(1)).send(messageCap.capture());
         assertEquals(messageCap.getValue().getSaveSnapshotDataRequest().getFlag(), SaveSnapshotDataRequest.Flag.More);
@@ -234,7 +251,8 @@ public class KVRangeDumpSessionTest extends MockableTest {
         when(rangeCPDataItr.key()).thenReturn(ByteString.copyFromUtf8("key"));
         when(rangeCPDataItr.value()).thenReturn(ByteString.copyFromUtf8("value"));
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofMillis(100), 1024, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofMillis(100), 1024, 1,
+            metricManager);
         Thread.sleep(60);
         dumpSession.tick();
         ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
@@ -271,7 +289,8 @@ public class KVRangeDumpSessionTest extends MockableTest {
         when(rangeCPDataItr.key()).thenReturn(ByteString.copyFromUtf8("key"));
         when(rangeCPDataItr.value()).thenReturn(ByteString.copyFromUtf8("value"));
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofMillis(10), 1024, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofMillis(10), 1024, 1,
+            metricManager);
         Thread.sleep(20);
         dumpSession.tick();
         verify(messenger, times(1)).send(any());
@@ -307,11 +326,185 @@ public class KVRangeDumpSessionTest extends MockableTest {
         when(rangeCPDataItr.key()).thenReturn(ByteString.copyFromUtf8("key"));
         when(rangeCPDataItr.value()).thenReturn(ByteString.copyFromUtf8("value"));
         KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
-            MoreExecutors.directExecutor(), Duration.ofMillis(10), 1024, dumpBytesRecorder);
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofMillis(10), 1024, 1,
+            metricManager);
         assertFalse(dumpSession.awaitDone().toCompletableFuture().isDone());
         dumpSession.cancel();
         verify(messenger, times(1)).send(any());
         assertTrue(dumpSession.awaitDone().toCompletableFuture().isDone());
         verify(rangeCPDataItr).close();
     }
+
+    @Test
+    public void pipelining() {
+        String localStoreId = "leader";
+        String peerStoreId = "follower";
+        String sessionId = "session";
+        KVRangeId rangeId = KVRangeIdUtil.generate();
+        KVRangeSnapshot snapshot = KVRangeSnapshot.newBuilder()
+            .setId(rangeId)
+            .setCheckpointId("checkpoint")
+            .build();
+        SnapshotSyncRequest request = SnapshotSyncRequest.newBuilder()
+            .setSessionId(sessionId)
+            .setSnapshot(snapshot)
+            .setWindowSize(4)
+            .build();
+        PublishSubject<KVRangeMessage> incomingMsgs = PublishSubject.create();
+
+        when(rangeAccessor.id()).thenReturn(rangeId);
+        when(rangeAccessor.hasCheckpoint(snapshot)).thenReturn(true);
+        when(rangeAccessor.open(snapshot)).thenReturn(rangeCPReader);
+        when(rangeCPReader.newDataReader()).thenReturn(rangeCPDataReader);
+        when(rangeCPDataReader.iterator()).thenReturn(rangeCPDataItr);
+        when(messenger.receive()).thenReturn(incomingMsgs);
+
+        when(rangeCPDataItr.isValid()).thenReturn(true);
+        when(rangeCPDataItr.key()).thenReturn(ByteString.copyFromUtf8("key"));
+        when(rangeCPDataItr.value()).thenReturn(ByteString.copyFrom(new byte[512 * 1024]));
+        KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofSeconds(5), Long.MAX_VALUE, 8,
+            metricManager);
+        // the window is limited by follower
+        ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger, times(4)).send(messageCap.capture());
+        for (int i = 0; i < 4; i++) {
+            SaveSnapshotDataRequest dataRequest = messageCap.getAllValues().get(i).getSaveSnapshotDataRequest();
+            assertEquals(dataRequest.getReqId(), i);
+            assertEquals(dataRequest.getFlag(), SaveSnapshotDataRequest.Flag.More);
+        }
+        verify(metricManager).reportDumpWindow(4);
+
+        incomingMsgs.onNext(KVRangeMessage.newBuilder()
+            .setHostStoreId(localStoreId)
+            .setRangeId(rangeId)
+            .setSaveSnapshotDataReply(SaveSnapshotDataReply.newBuilder()
+                .setReqId(0)
+                .setSessionId(sessionId)
+                .setResult(SaveSnapshotDataReply.Result.OK)
+                .build())
+            .build());
+        verify(messenger, times(5)).send(messageCap.capture());
+        assertEquals(messageCap.getValue().getSaveSnapshotDataRequest().getReqId(), 4);
+        assertFalse(dumpSession.awaitDone().toCompletableFuture().isDone());
+        dumpSession.cancel();
+        assertEquals(dumpSession.awaitDone().join(), KVRangeDumpSession.Result.Canceled);
+        verify(rangeCPDataItr).close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void dumpSSTFiles() {
+        String localStoreId = "leader";
+        String peerStoreId = "follower";
+        String sessionId = "session";
+        KVRangeId rangeId = KVRangeIdUtil.generate();
+        KVRangeSnapshot snapshot = KVRangeSnapshot.newBuilder()
+            .setId(rangeId)
+            .setCheckpointId("checkpoint")
+            .build();
+        SnapshotSyncRequest request = SnapshotSyncRequest.newBuilder()
+            .setSessionId(sessionId)
+            .setSnapshot(snapshot)
+            .setSstIngestible(true)
+            .build();
+        PublishSubject<KVRangeMessage> incomingMsgs = PublishSubject.create();
+        File sstFile = File.createTempFile("dump", ".sst");
+        sstFile.deleteOnExit();
+        byte[] sstData = "sst file content".getBytes();
+        Files.write(sstFile.toPath(), sstData);
+
+        when(rangeAccessor.id()).thenReturn(rangeId);
+        when(rangeAccessor.hasCheckpoint(snapshot)).thenReturn(true);
+        when(rangeAccessor.exportSST(eq(snapshot), anyLong())).thenReturn(Optional.of(sstExporter));
+        when(sstExporter.next()).thenReturn(Optional.of(sstFile), Optional.empty());
+        when(messenger.receive()).thenReturn(incomingMsgs);
+
+        KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
+            MoreExecutors.directExecutor(), MoreExecutors.directExecutor(), Duration.ofSeconds(5), 1024, 1,
+            metricManager);
+        verify(rangeAccessor, never()).open(snapshot);
+        ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger).send(messageCap.capture());
+        SaveSnapshotDataRequest dataRequest = messageCap.getValue().getSaveSnapshotDataRequest();
+        assertEquals(dataRequest.getFlag(), SaveSnapshotDataRequest.Flag.More);
+        assertTrue(dataRequest.getKvList().isEmpty());
+        SSTFileChunk chunk = dataRequest.getSstChunk();
+        assertEquals(chunk.getFileName(), sstFile.getName());
+        assertEquals(chunk.getOffset(), 0);
+        assertEquals(chunk.getData().toByteArray(), sstData);
+        CRC32C checksum = new CRC32C();
+        checksum.update(sstData);
+        assertEquals(chunk.getChecksum(), (int) checksum.getValue());
+
+        incomingMsgs.onNext(KVRangeMessage.newBuilder()
+            .setHostStoreId(localStoreId)
+            .setRangeId(rangeId)
+            .setSaveSnapshotDataReply(SaveSnapshotDataReply.newBuilder()
+                .setReqId(dataRequest.getReqId())
+                .setSessionId(sessionId)
+                .setResult(SaveSnapshotDataReply.Result.OK)
+                .build())
+            .build());
+        verify(messenger, times(2)).send(messageCap.capture());
+        dataRequest = messageCap.getValue().getSaveSnapshotDataRequest();
+        assertEquals(dataRequest.getFlag(), SaveSnapshotDataRequest.Flag.End);
+        assertFalse(dataRequest.hasSstChunk());
+
+        incomingMsgs.onNext(KVRangeMessage.newBuilder()
+            .setHostStoreId(localStoreId)
+            .setRangeId(rangeId)
+            .setSaveSnapshotDataReply(SaveSnapshotDataReply.newBuilder()
+                .setReqId(dataRequest.getReqId())
+                .setSessionId(sessionId)
+                .setResult(SaveSnapshotDataReply.Result.OK)
+                .build())
+            .build());
+        assertEquals(dumpSession.awaitDone().join(), KVRangeDumpSession.Result.OK);
+        verify(sstExporter).close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void exportSSTInIOExecutor() {
+        String peerStoreId = "follower";
+        KVRangeId rangeId = KVRangeIdUtil.generate();
+        KVRangeSnapshot snapshot = KVRangeSnapshot.newBuilder()
+            .setId(rangeId)
+            .setCheckpointId("checkpoint")
+            .build();
+        SnapshotSyncRequest request = SnapshotSyncRequest.newBuilder()
+            .setSessionId("session")
+            .setSnapshot(snapshot)
+            .setSstIngestible(true)
+            .build();
+        File sstFile = File.createTempFile("dump", ".sst");
+        sstFile.deleteOnExit();
+        Files.write(sstFile.toPath(), "sst file content".getBytes());
+        Queue<Runnable> ioTasks = new LinkedList<>();
+
+        when(rangeAccessor.id()).thenReturn(rangeId);
+        when(rangeAccessor.hasCheckpoint(snapshot)).thenReturn(true);
+        when(rangeAccessor.exportSST(eq(snapshot), anyLong())).thenReturn(Optional.of(sstExporter));
+        when(sstExporter.next()).thenReturn(Optional.of(sstFile), Optional.empty());
+        when(messenger.receive()).thenReturn(PublishSubject.create());
+
+        KVRangeDumpSession dumpSession = new KVRangeDumpSession(peerStoreId, request, rangeAccessor, messenger,
+            MoreExecutors.directExecutor(), ioTasks::add, Duration.ofSeconds(5), 1024, 1, metricManager);
+        // the sst file is built in io executor
+        verify(sstExporter, never()).next();
+        verify(messenger, never()).send(any());
+        assertEquals(ioTasks.size(), 1);
+
+        ioTasks.poll().run();
+        verify(sstExporter).next();
+        ArgumentCaptor<KVRangeMessage> messageCap = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger).send(messageCap.capture());
+        assertEquals(messageCap.getValue().getSaveSnapshotDataRequest().getSstChunk().getFileName(),
+            sstFile.getName());
+
+        dumpSession.cancel();
+        assertEquals(dumpSession.awaitDone().join(), KVRangeDumpSession.Result.Canceled);
+        verify(sstExporter).close();
+    }
 }
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.range;
+
+import static com.baidu.bifromq.basekv.proto.State.StateType.Normal;
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static com.google.protobuf.ByteString.copyFromUtf8;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.localengine.rocksdb.RocksDBWALableKVEngineConfigurator;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.proto.KVRangeId;
+import com.baidu.bifromq.basekv.proto.KVRangeMessage;
+import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
+import com.baidu.bifromq.basekv.proto.SaveSnapshotDataRequest;
+import com.baidu.bifromq.basekv.proto.State;
+import com.baidu.bifromq.basekv.proto.WALRaftMessages;
+import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
+import com.baidu.bifromq.basekv.raft.proto.InstallSnapshot;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeStatus;
+import com.baidu.bifromq.basekv.raft.proto.RaftMessage;
+import com.baidu.bifromq.basekv.raft.proto.Snapshot;
+import com.baidu.bifromq.basekv.store.api.IKVRangeCoProc;
+import com.baidu.bifromq.basekv.store.api.IKVRangeCoProcFactory;
+import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.baidu.bifromq.basekv.store.option.KVRangeOptions;
+import com.baidu.bifromq.basekv.store.proto.ROCoProcInput;
+import com.baidu.bifromq.basekv.store.proto.ROCoProcOutput;
+import com.baidu.bifromq.basekv.store.proto.RWCoProcInput;
+import com.baidu.bifromq.basekv.store.proto.RWCoProcOutput;
+import com.baidu.bifromq.basekv.store.util.PendingKeys;
+import com.baidu.bifromq.basekv.store.wal.IKVRangeWALStore;
+import com.baidu.bifromq.basekv.store.wal.KVRangeWALStorageEngine;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.google.protobuf.ByteString;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.SneakyThrows;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+public class KVRangeFSMTest extends AbstractKVRangeTest {
+    private static final String LEADER = "leader";
+    private KVRangeWALStorageEngine walStorageEngine;
+    private IKVRangeCoProcFactory coProcFactory;
+    private IKVRangeMessenger messenger;
+    private PublishSubject<KVRangeMessage> messageSubject;
+    private ExecutorService executor;
+    private KVRangeId rangeId;
+    private KVRangeSnapshot rangeSnapshot;
+
+    @Override
+    protected void doSetup(Method method) {
+        super.doSetup(method);
+        walStorageEngine = new KVRangeWALStorageEngine("test_cluster", null,
+            RocksDBWALableKVEngineConfigurator.builder()
+                .dbRootDir(Paths.get(dbRootDir.toString(), "testWAL").toString())
+                .build());
+        walStorageEngine.start();
+        coProcFactory = mock(IKVRangeCoProcFactory.class);
+        when(coProcFactory.createCoProc(anyString(), anyString(), any(), any()))
+            .thenReturn(mock(IKVRangeCoProc.class));
+        messageSubject = PublishSubject.create();
+        messenger = mock(IKVRangeMessenger.class);
+        when(messenger.receive()).thenReturn(messageSubject);
+        executor = Executors.newSingleThreadExecutor();
+        rangeId = KVRangeIdUtil.generate();
+        rangeSnapshot = KVRangeSnapshot.newBuilder()
+            .setId(rangeId)
+            .setVer(0)
+            .setLastAppliedIndex(5)
+            .setState(State.newBuilder().setType(Normal).build())
+            .setBoundary(FULL_BOUNDARY)
+            .build();
+    }
+
+    @Override
+    protected void doTearDown(Method method) {
+        walStorageEngine.stop();
+        executor.shutdownNow();
+        super.doTearDown(method);
+    }
+
+    @Test
+    public void compactWALAfterPersisted() {
+        IKVRangeWALStore walStore = walStorageEngine.create(rangeId, walSnapshot(walStorageEngine.id()));
+        KVRange kvRange = spy(new KVRange(kvEngine.createIfMissing(KVRangeIdUtil.toString(rangeId)), rangeSnapshot));
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        doReturn(persisted).when(kvRange).persisted(any());
+        KVRangeFSM fsm = newFSM(kvRange, walStore);
+        // the latest snapshot has no checkpoint, the wal is compacted when opening
+        fsm.open(messenger);
+
+        ArgumentCaptor<KVRangeSnapshot> checkpointCaptor = ArgumentCaptor.forClass(KVRangeSnapshot.class);
+        verify(kvRange, timeout(5000)).persisted(checkpointCaptor.capture());
+        assertFalse(walCheckpoint(walStore).hasCheckpointId());
+
+        persisted.complete(null);
+        await().until(() -> walCheckpoint(walStore).equals(checkpointCaptor.getValue()));
+        fsm.close().join();
+    }
+
+    @Test
+    public void restoreReportedAfterPersisted() {
+        IKVRangeWALStore walStore = walStorageEngine.create(rangeId, walSnapshot(walStorageEngine.id(), LEADER));
+        KVRange kvRange = spy(new KVRange(kvEngine.createIfMissing(KVRangeIdUtil.toString(rangeId)), rangeSnapshot));
+        doReturn(true).when(kvRange).hasCheckpoint(any());
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        doReturn(persisted).when(kvRange).persisted(any());
+        KVRangeFSM fsm = newFSM(kvRange, walStore);
+        fsm.open(messenger);
+
+        KVRangeSnapshot leaderSnapshot = rangeSnapshot.toBuilder()
+            .setVer(1)
+            .setLastAppliedIndex(10)
+            .setCheckpointId("leader_checkpoint")
+            .build();
+        messageSubject.onNext(KVRangeMessage.newBuilder()
+            .setRangeId(rangeId)
+            .setHostStoreId(LEADER)
+            .setWalRaftMessages(WALRaftMessages.newBuilder()
+                .addWalMessages(RaftMessage.newBuilder()
+                    .setTerm(1)
+                    .setInstallSnapshot(InstallSnapshot.newBuilder()
+                        .setLeaderId(LEADER)
+                        .setSnapshot(Snapshot.newBuilder()
+                            .setClusterConfig(walStore.latestClusterConfig())
+                            .setTerm(1)
+                            .setIndex(10)
+                            .setData(leaderSnapshot.toByteString())
+                            .build())
+                        .build())
+                    .build())
+                .build())
+            .build());
+
+        // the leader finishes the snapshot dumping immediately
+        ArgumentCaptor<KVRangeMessage> msgCaptor = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger, timeout(5000)).send(argThat(KVRangeMessage::hasSnapshotSyncRequest));
+        verify(messenger, timeout(5000).atLeastOnce()).send(msgCaptor.capture());
+        String sessionId = msgCaptor.getAllValues().stream()
+            .filter(KVRangeMessage::hasSnapshotSyncRequest)
+            .findFirst()
+            .get()
+            .getSnapshotSyncRequest()
+            .getSessionId();
+        messageSubject.onNext(KVRangeMessage.newBuilder()
+            .setRangeId(rangeId)
+            .setHostStoreId(LEADER)
+            .setSaveSnapshotDataRequest(SaveSnapshotDataRequest.newBuilder()
+                .setSessionId(sessionId)
+                .setReqId(0)
+                .setFlag(SaveSnapshotDataRequest.Flag.End)
+                .build())
+            .build());
+
+        verify(kvRange, timeout(5000)).persisted(argThat(cp -> cp.getLastAppliedIndex() == 10));
+        verify(messenger, never()).send(argThat(this::isInstallSnapshotReply));
+
+        persisted.complete(null);
+        verify(messenger, timeout(5000)).send(argThat(this::isInstallSnapshotReply));
+        fsm.close().join();
+    }
+
+    @Test
+    public void batchedMutationSeesPrecedingWrites() {
+        // the coproc assigns seq in mutate and advances its in-memory seq in output supplier, like inbox store does
+        // for inserts, the pending seq written by the preceding mutations in the batch is read via the reader
+        ByteString seqKey = copyFromUtf8("seq");
+        PendingKeys pendingKeys = new PendingKeys(seqKey::equals);
+        AtomicLong nextSeq = new AtomicLong();
+        when(coProcFactory.createCoProc(anyString(), anyString(), any(), any())).thenReturn(new IKVRangeCoProc() {
+            @Override
+            public CompletableFuture<ROCoProcOutput> query(ROCoProcInput input, IKVReader client) {
+                return CompletableFuture.failedFuture(new UnsupportedOperationException());
+            }
+
+            @Override
+            public Supplier<RWCoProcOutput> mutate(RWCoProcInput input, IKVReader reader, IKVWriter writer) {
+                PendingKeys.TrackingWriter trackingWriter = pendingKeys.track(writer);
+                long seq = pendingKeys.isPending(seqKey)
+                    ? Long.parseLong(reader.get(seqKey).get().toStringUtf8()) : nextSeq.get();
+                trackingWriter.put(input.getRaw(), copyFromUtf8(Long.toString(seq)));
+                trackingWriter.put(seqKey, copyFromUtf8(Long.toString(seq + 1)));
+                return () -> {
+                    nextSeq.set(seq + 1);
+                    trackingWriter.settle();
+                    return RWCoProcOutput.newBuilder().setRaw(copyFromUtf8(Long.toString(seq))).build();
+                };
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        IKVRangeWALStore walStore = walStorageEngine.create(rangeId, walSnapshot(walStorageEngine.id()));
+        KVRangeFSM fsm = newFSM(new KVRange(kvEngine.createIfMissing(KVRangeIdUtil.toString(rangeId)), rangeSnapshot),
+            walStore);
+        fsm.open(messenger);
+        AtomicReference<KVRangeDescriptor> descriptor = new AtomicReference<>();
+        fsm.describe().subscribe(descriptor::set);
+        await().until(() -> {
+            fsm.tick();
+            return descriptor.get() != null && descriptor.get().getRole() == RaftNodeStatus.Leader;
+        });
+
+        // each mutation sees the seq assigned by the preceding one
+        List<CompletableFuture<RWCoProcOutput>> mutations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            mutations.add(fsm.mutateCoProc(0, RWCoProcInput.newBuilder()
+                .setRaw(copyFromUtf8("key" + i))
+                .build()));
+        }
+        Set<ByteString> seqs = mutations.stream()
+            .map(f -> f.join().getRaw())
+            .collect(Collectors.toSet());
+        assertEquals(seqs.size(), mutations.size());
+        assertTrue(pendingKeys.isEmpty());
+        fsm.close().join();
+    }
+
+    private KVRangeFSM newFSM(IKVRange kvRange, IKVRangeWALStore walStore) {
+        return new KVRangeFSM("test_cluster",
+            walStorageEngine.id(),
+            rangeId,
+            coProcFactory,
+            kvRange,
+            walStore,
+            executor,
+            executor,
+            new KVRangeOptions(),
+            range -> {
+            });
+    }
+
+    private Snapshot walSnapshot(String... voters) {
+        return Snapshot.newBuilder()
+            .setClusterConfig(ClusterConfig.newBuilder()
+                .addAllVoters(List.of(voters))
+                .build())
+            .setTerm(0)
+            .setIndex(rangeSnapshot.getLastAppliedIndex())
+            .setData(rangeSnapshot.toByteString())
+            .build();
+    }
+
+    @SneakyThrows
+    private KVRangeSnapshot walCheckpoint(IKVRangeWALStore walStore) {
+        return KVRangeSnapshot.parseFrom(walStore.latestSnapshot().getData());
+    }
+
+    private boolean isInstallSnapshotReply(KVRangeMessage message) {
+        return message.hasWalRaftMessages() && message.getWalRaftMessages().getWalMessagesList().stream()
+            .anyMatch(m -> m.hasInstallSnapshotReply() && !m.getInstallSnapshotReply().getRejected());
+    }
+}
@@ -13,25 +13,38 @@
 
 package com.baidu.bifromq.basekv.store.range;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
 
+import com.baidu.bifromq.basekv.proto.KVPair;
 import com.baidu.bifromq.basekv.proto.KVRangeId;
 import com.baidu.bifromq.basekv.proto.KVRangeMessage;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
+import com.baidu.bifromq.basekv.proto.SSTFileChunk;
+import com.baidu.bifromq.basekv.proto.SaveSnapshotDataReply;
 import com.baidu.bifromq.basekv.proto.SaveSnapshotDataRequest;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.google.protobuf.ByteString;
 import io.reactivex.rxjava3.subjects.PublishSubject;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.zip.CRC32C;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -62,7 +75,7 @@ public class KVRangeRestorerTest {
     public void awaitDone() {
         IKVReseter reseter = mock(IKVReseter.class);
         when(range.toReseter(eq(snapshot))).thenReturn(reseter);
-        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10);
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 1);
 
         assertTrue(restorer.awaitDone().isDone());
 
@@ -76,7 +89,7 @@ public class KVRangeRestorerTest {
         IKVReseter reseter = mock(IKVReseter.class);
         when(range.toReseter(snapshot)).thenReturn(reseter);
 
-        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10);
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 1);
         CompletableFuture<Void> restoreFuture = restorer.restoreFrom("leader", snapshot);
 
         ArgumentCaptor<KVRangeMessage> messageCaptor = ArgumentCaptor.forClass(KVRangeMessage.class);
@@ -103,7 +116,7 @@ public class KVRangeRestorerTest {
         IKVReseter reseter = mock(IKVReseter.class);
         when(range.toReseter(snapshot)).thenReturn(reseter);
 
-        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10);
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 1);
         CompletableFuture<Void> restoreFuture = restorer.restoreFrom("leader", snapshot);
 
         ArgumentCaptor<KVRangeMessage> messageCaptor = ArgumentCaptor.forClass(KVRangeMessage.class);
@@ -132,7 +145,7 @@ public class KVRangeRestorerTest {
         IKVReseter reseter = mock(IKVReseter.class);
         when(range.toReseter(eq(snapshot))).thenReturn(reseter);
 
-        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 1);
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 1, 1);
         CompletableFuture<Void> restoreFuture = restorer.restoreFrom("leader", snapshot);
 
         // Wait for the future to complete
@@ -147,7 +160,7 @@ public class KVRangeRestorerTest {
         IKVReseter reseter = mock(IKVReseter.class);
         when(range.toReseter(eq(snapshot))).thenReturn(reseter);
 
-        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10);
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 1);
 
         // Start the first restore session
         CompletableFuture<Void> firstRestore = restorer.restoreFrom("leader", snapshot);
@@ -161,4 +174,126 @@ public class KVRangeRestorerTest {
         assertTrue(firstRestore.isCancelled());
         assertFalse(secondRestore.isDone());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void restoreFromSSTFiles() {
+        IKVReseter reseter = mock(IKVReseter.class);
+        when(reseter.canIngest()).thenReturn(true);
+        when(range.toReseter(snapshot)).thenReturn(reseter);
+
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 1);
+        CompletableFuture<Void> restoreFuture = restorer.restoreFrom("leader", snapshot);
+
+        ArgumentCaptor<KVRangeMessage> messageCaptor = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger).send(messageCaptor.capture());
+        KVRangeMessage message = messageCaptor.getValue();
+        assertTrue(message.getSnapshotSyncRequest().getSstIngestible());
+        String sessionId = message.getSnapshotSyncRequest().getSessionId();
+
+        ByteString data = ByteString.copyFromUtf8("sst file content");
+        SaveSnapshotDataRequest dataRequest = SaveSnapshotDataRequest.newBuilder()
+            .setSessionId(sessionId)
+            .setSstChunk(sstChunk("000000.sst", 0, data))
+            .setFlag(SaveSnapshotDataRequest.Flag.More)
+            .build();
+        messageSubject.onNext(KVRangeMessage.newBuilder().setSaveSnapshotDataRequest(dataRequest).build());
+        // resent request is acknowledged without ingesting again
+        messageSubject.onNext(KVRangeMessage.newBuilder().setSaveSnapshotDataRequest(dataRequest).build());
+        messageSubject.onNext(KVRangeMessage.newBuilder()
+            .setSaveSnapshotDataRequest(SaveSnapshotDataRequest.newBuilder()
+                .setSessionId(sessionId)
+                .setReqId(1)
+                .setFlag(SaveSnapshotDataRequest.Flag.End)
+                .build())
+            .build());
+
+        restoreFuture.join();
+        verify(reseter, times(1)).ingest("000000.sst", data);
+        verify(reseter, times(1)).done();
+    }
+
+    @Test
+    public void restoreFromCorruptedSSTChunk() {
+        IKVReseter reseter = mock(IKVReseter.class);
+        when(reseter.canIngest()).thenReturn(true);
+        when(range.toReseter(snapshot)).thenReturn(reseter);
+
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 1);
+        CompletableFuture<Void> restoreFuture = restorer.restoreFrom("leader", snapshot);
+
+        ArgumentCaptor<KVRangeMessage> messageCaptor = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger).send(messageCaptor.capture());
+        String sessionId = messageCaptor.getValue().getSnapshotSyncRequest().getSessionId();
+
+        SSTFileChunk chunk = sstChunk("000000.sst", 0, ByteString.copyFromUtf8("sst file content")).toBuilder()
+            .setData(ByteString.copyFromUtf8("corrupted content"))
+            .build();
+        messageSubject.onNext(KVRangeMessage.newBuilder()
+            .setSaveSnapshotDataRequest(SaveSnapshotDataRequest.newBuilder()
+                .setSessionId(sessionId)
+                .setSstChunk(chunk)
+                .setFlag(SaveSnapshotDataRequest.Flag.More)
+                .build())
+            .build());
+
+        assertThrows(restoreFuture::join);
+        verify(reseter, never()).ingest(anyString(), any());
+        verify(reseter, times(1)).abort();
+        verify(messenger, timeout(1000).times(2)).send(messageCaptor.capture());
+        assertEquals(messageCaptor.getValue().getSaveSnapshotDataReply().getResult(),
+            SaveSnapshotDataReply.Result.Error);
+    }
+
+    @Test
+    public void restoreFromOutOfOrderRequests() {
+        IKVReseter reseter = mock(IKVReseter.class);
+        when(range.toReseter(snapshot)).thenReturn(reseter);
+
+        KVRangeRestorer restorer = new KVRangeRestorer(snapshot, range, messenger, metricManager, executor, 10, 4);
+        CompletableFuture<Void> restoreFuture = restorer.restoreFrom("leader", snapshot);
+
+        ArgumentCaptor<KVRangeMessage> messageCaptor = ArgumentCaptor.forClass(KVRangeMessage.class);
+        verify(messenger).send(messageCaptor.capture());
+        assertEquals(messageCaptor.getValue().getSnapshotSyncRequest().getWindowSize(), 4);
+        String sessionId = messageCaptor.getValue().getSnapshotSyncRequest().getSessionId();
+
+        ByteString key = ByteString.copyFromUtf8("key");
+        ByteString value = ByteString.copyFromUtf8("value");
+        messageSubject.onNext(KVRangeMessage.newBuilder()
+            .setSaveSnapshotDataRequest(SaveSnapshotDataRequest.newBuilder()
+                .setSessionId(sessionId)
+                .setReqId(1)
+                .setFlag(SaveSnapshotDataRequest.Flag.End)
+                .build())
+            .build());
+        messageSubject.onNext(KVRangeMessage.newBuilder()
+            .setSaveSnapshotDataRequest(SaveSnapshotDataRequest.newBuilder()
+                .setSessionId(sessionId)
+                .setReqId(0)
+                .addKv(KVPair.newBuilder().setKey(key).setValue(value).build())
+                .setFlag(SaveSnapshotDataRequest.Flag.More)
+                .build())
+            .build());
+
+        restoreFuture.join();
+        InOrder inOrder = inOrder(reseter);
+        inOrder.verify(reseter).put(key, value);
+        inOrder.verify(reseter).done();
+        verify(messenger, timeout(1000).times(3)).send(messageCaptor.capture());
+        List<KVRangeMessage> messages = messageCaptor.getAllValues();
+        List<KVRangeMessage> replies = messages.subList(messages.size() - 2, messages.size());
+        assertEquals(replies.get(0).getSaveSnapshotDataReply().getReqId(), 0);
+        assertEquals(replies.get(1).getSaveSnapshotDataReply().getReqId(), 1);
+    }
+
+    private SSTFileChunk sstChunk(String fileName, long offset, ByteString data) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(data.asReadOnlyByteBuffer());
+        return SSTFileChunk.newBuilder()
+            .setFileName(fileName)
+            .setOffset(offset)
+            .setData(data)
+            .setChecksum((int) checksum.getValue())
+            .build();
+    }
+}
@@ -22,6 +22,7 @@ import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 import com.baidu.bifromq.basekv.localengine.ICPableKVSpace;
+import com.baidu.bifromq.basekv.localengine.IKVSpaceSSTExporter;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.basekv.proto.KVRangeId;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
@@ -32,9 +33,13 @@ import com.baidu.bifromq.basekv.store.api.IKVReader;
 import com.baidu.bifromq.basekv.store.api.IKVWriter;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
 import com.google.protobuf.ByteString;
+import java.io.File;
+import java.nio.file.Files;
 import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import lombok.SneakyThrows;
 import org.testng.annotations.Test;
 
 public class KVRangeTest extends AbstractKVRangeTest {
@@ -313,6 +318,46 @@ public class KVRangeTest extends AbstractKVRangeTest {
         assertFalse(rangeReader.exist(key));
     }
 
+    @SneakyThrows
+    @Test
+    public void resetByIngestingSST() {
+        KVRangeSnapshot snapshot = KVRangeSnapshot.newBuilder()
+            .setId(KVRangeIdUtil.generate())
+            .setVer(2)
+            .setLastAppliedIndex(10)
+            .setState(State.newBuilder().setType(State.StateType.Normal).build())
+            .setBoundary(FULL_BOUNDARY)
+            .build();
+        IKVRange leader = new KVRange(kvEngine.createIfMissing(KVRangeIdUtil.toString(snapshot.getId())), snapshot);
+        IKVRangeWriter<?> rangeWriter = leader.toWriter();
+        ByteString key = ByteString.copyFromUtf8("aKey");
+        ByteString val = ByteString.copyFromUtf8("Value");
+        rangeWriter.kvWriter().put(key, val);
+        rangeWriter.done();
+        snapshot = leader.checkpoint();
+
+        KVRangeId followerId = KVRangeIdUtil.generate();
+        IKVRange follower = new KVRange(kvEngine.createIfMissing(KVRangeIdUtil.toString(followerId)));
+        IKVReseter reseter = follower.toReseter(snapshot);
+        assertTrue(reseter.canIngest());
+        try (IKVSpaceSSTExporter exporter = leader.exportSST(snapshot, 1024).get()) {
+            Optional<File> sstFile;
+            while ((sstFile = exporter.next()).isPresent()) {
+                reseter.ingest(sstFile.get().getName(),
+                    ByteString.copyFrom(Files.readAllBytes(sstFile.get().toPath())));
+            }
+        }
+        reseter.done();
+        assertEquals(follower.version(), 2);
+        assertEquals(follower.lastAppliedIndex(), 10);
+        assertEquals(follower.boundary(), FULL_BOUNDARY);
+        assertEquals(follower.newDataReader().get(key).get(), val);
+        // non-empty range could not be restored by ingesting
+        reseter = follower.toReseter(snapshot);
+        assertFalse(reseter.canIngest());
+        reseter.abort();
+    }
+
     @Test
     public void destroy() {
         KVRangeSnapshot snapshot = KVRangeSnapshot.newBuilder()
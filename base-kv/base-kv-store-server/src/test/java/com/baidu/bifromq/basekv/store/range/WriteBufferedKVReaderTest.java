@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.range;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.localengine.ICPableKVSpace;
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
+import com.baidu.bifromq.basekv.proto.State;
+import com.baidu.bifromq.basekv.store.api.IKVIterator;
+import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.google.protobuf.ByteString;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.Test;
+
+public class WriteBufferedKVReaderTest extends AbstractKVRangeTest {
+    private IKVRange kvRange;
+
+    @Override
+    protected void doSetup(Method method) {
+        super.doSetup(method);
+        KVRangeSnapshot snapshot = KVRangeSnapshot.newBuilder()
+            .setId(KVRangeIdUtil.generate())
+            .setVer(0)
+            .setLastAppliedIndex(0)
+            .setState(State.newBuilder().setType(State.StateType.Normal).build())
+            .setBoundary(FULL_BOUNDARY)
+            .build();
+        ICPableKVSpace keySpace = kvEngine.createIfMissing(KVRangeIdUtil.toString(snapshot.getId()));
+        kvRange = new KVRange(keySpace, snapshot);
+        IKVRangeWriter<?> rangeWriter = kvRange.toWriter();
+        for (String key : new String[] {"a", "c", "e", "g"}) {
+            rangeWriter.kvWriter().put(key(key), value(key));
+        }
+        rangeWriter.done();
+    }
+
+    @Test
+    public void getBufferedChanges() {
+        IKVRangeWriter<?> rangeWriter = kvRange.toWriter();
+        KVWriteBuffer writeBuffer = new KVWriteBuffer(rangeWriter.kvWriter());
+        IKVReader reader = new WriteBufferedKVReader(kvRange.newDataReader(), writeBuffer);
+
+        writeBuffer.put(key("b"), value("b1"));
+        writeBuffer.put(key("c"), value("c1"));
+        writeBuffer.delete(key("e"));
+        assertEquals(reader.get(key("a")).get(), value("a"));
+        assertEquals(reader.get(key("b")).get(), value("b1"));
+        assertEquals(reader.get(key("c")).get(), value("c1"));
+        assertFalse(reader.exist(key("e")));
+        assertTrue(reader.exist(key("g")));
+
+        writeBuffer.clear(Boundary.newBuilder().setStartKey(key("b")).setEndKey(key("g")).build());
+        writeBuffer.insert(key("d"), value("d1"));
+        assertFalse(reader.exist(key("b")));
+        assertFalse(reader.exist(key("c")));
+        assertEquals(reader.get(key("d")).get(), value("d1"));
+        assertEquals(reader.get(key("g")).get(), value("g"));
+
+        // not visible until done
+        assertFalse(kvRange.newDataReader().exist(key("d")));
+        rangeWriter.done();
+        assertEquals(kvRange.newDataReader().get(key("d")).get(), value("d1"));
+    }
+
+    @Test
+    public void iterateBufferedChanges() {
+        IKVRangeWriter<?> rangeWriter = kvRange.toWriter();
+        KVWriteBuffer writeBuffer = new KVWriteBuffer(rangeWriter.kvWriter());
+        IKVReader reader = new WriteBufferedKVReader(kvRange.newDataReader(), writeBuffer);
+        writeBuffer.put(key("b"), value("b1"));
+        writeBuffer.put(key("c"), value("c1"));
+        writeBuffer.delete(key("e"));
+        writeBuffer.put(key("h"), value("h1"));
+
+        IKVIterator itr = reader.iterator();
+        assertEquals(forward(itr), List.of("a:a", "b:b1", "c:c1", "g:g", "h:h1"));
+        assertEquals(backward(itr), List.of("h:h1", "g:g", "c:c1", "b:b1", "a:a"));
+
+        itr.seek(key("d"));
+        assertEquals(itr.key(), key("g"));
+        itr.prev();
+        assertEquals(itr.key(), key("c"));
+        itr.next();
+        assertEquals(itr.key(), key("g"));
+
+        itr.seekForPrev(key("f"));
+        assertEquals(itr.key(), key("c"));
+        itr.seekForPrev(key("b"));
+        assertEquals(itr.key(), key("b"));
+
+        // changes made during iteration are visible
+        itr.seek(key("c"));
+        writeBuffer.delete(key("g"));
+        itr.next();
+        assertEquals(itr.key(), key("h"));
+        itr.next();
+        assertFalse(itr.isValid());
+
+        writeBuffer.clear(FULL_BOUNDARY);
+        itr.seekToFirst();
+        assertFalse(itr.isValid());
+        writeBuffer.put(key("f"), value("f1"));
+        itr.seekToLast();
+        assertEquals(itr.key(), key("f"));
+        assertEquals(itr.value(), value("f1"));
+        rangeWriter.abort();
+    }
+
+    private List<String> forward(IKVIterator itr) {
+        List<String> kvs = new ArrayList<>();
+        for (itr.seekToFirst(); itr.isValid(); itr.next()) {
+            kvs.add(itr.key().toStringUtf8() + ":" + itr.value().toStringUtf8());
+        }
+        return kvs;
+    }
+
+    private List<String> backward(IKVIterator itr) {
+        List<String> kvs = new ArrayList<>();
+        for (itr.seekToLast(); itr.isValid(); itr.prev()) {
+            kvs.add(itr.key().toStringUtf8() + ":" + itr.value().toStringUtf8());
+        }
+        return kvs;
+    }
+
+    private ByteString key(String key) {
+        return ByteString.copyFromUtf8(key);
+    }
+
+    private ByteString value(String value) {
+        return ByteString.copyFromUtf8(value);
+    }
+}
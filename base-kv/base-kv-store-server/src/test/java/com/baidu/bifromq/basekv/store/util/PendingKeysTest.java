@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.basekv.store.util;
+
+import static com.google.protobuf.ByteString.copyFromUtf8;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.google.protobuf.ByteString;
+import org.testng.annotations.Test;
+
+public class PendingKeysTest {
+    private final ByteString key = copyFromUtf8("key");
+    private final ByteString value = copyFromUtf8("value");
+
+    @Test
+    public void trackUntilSettled() {
+        IKVWriter writer = mock(IKVWriter.class);
+        PendingKeys pendingKeys = new PendingKeys(k -> true);
+        PendingKeys.TrackingWriter writer1 = pendingKeys.track(writer);
+        PendingKeys.TrackingWriter writer2 = pendingKeys.track(writer);
+        writer1.put(key, value);
+        writer1.delete(key);
+        writer2.insert(key, value);
+        verify(writer).put(key, value);
+        verify(writer).delete(key);
+        verify(writer).insert(key, value);
+        assertTrue(pendingKeys.isPending(key));
+
+        writer1.settle();
+        assertTrue(pendingKeys.isPending(key));
+        writer2.settle();
+        assertFalse(pendingKeys.isPending(key));
+        assertTrue(pendingKeys.isEmpty());
+    }
+
+    @Test
+    public void filterKeys() {
+        PendingKeys pendingKeys = new PendingKeys(key::equals);
+        PendingKeys.TrackingWriter writer = pendingKeys.track(mock(IKVWriter.class));
+        writer.put(copyFromUtf8("other"), value);
+        assertTrue(pendingKeys.isEmpty());
+        writer.put(key, value);
+        assertTrue(pendingKeys.isPending(key));
+    }
+
+    @Test
+    public void clear() {
+        PendingKeys pendingKeys = new PendingKeys(k -> true);
+        PendingKeys.TrackingWriter writer = pendingKeys.track(mock(IKVWriter.class));
+        writer.put(key, value);
+        pendingKeys.clear();
+        assertFalse(pendingKeys.isPending(key));
+        // settling after clear is harmless
+        writer.settle();
+        assertTrue(pendingKeys.isEmpty());
+    }
+}
@@ -15,9 +15,11 @@ package com.baidu.bifromq.basekv.store.wal;
 
 import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -28,16 +30,19 @@ import static org.testng.Assert.assertTrue;
 import com.baidu.bifromq.basekv.MockableTest;
 import com.baidu.bifromq.basekv.proto.KVRangeSnapshot;
 import com.baidu.bifromq.basekv.raft.IRaftNode;
+import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
 import com.baidu.bifromq.basekv.raft.proto.LogEntry;
 import com.baidu.bifromq.basekv.store.exception.KVRangeException;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
 import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
 import io.reactivex.rxjava3.subjects.BehaviorSubject;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -46,6 +51,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
@@ -294,4 +300,35 @@ public class KVRangeWALSubscriptionTest extends MockableTest {
         verify(subscriber, times(1)).apply(any(LogEntry.class));
         verify(subscriber, times(1)).restore(eq(KVRangeSnapshot.getDefaultInstance()), eq("leader"), any());
     }
+
+    @SneakyThrows
+    @Test
+    public void applyDataLogsInBatch() {
+        LogEntry entry1 = LogEntry.newBuilder().setTerm(0).setIndex(0).setData(ByteString.EMPTY).build();
+        LogEntry entry2 = LogEntry.newBuilder().setTerm(0).setIndex(1).setData(ByteString.EMPTY).build();
+        LogEntry entry3 = LogEntry.newBuilder().setTerm(0).setIndex(2)
+            .setConfig(ClusterConfig.getDefaultInstance()).build();
+        LogEntry entry4 = LogEntry.newBuilder().setTerm(0).setIndex(3).setData(ByteString.EMPTY).build();
+        when(wal.retrieveCommitted(0, maxSize))
+            .thenReturn(CompletableFuture.completedFuture(Iterators.forArray(entry1, entry2, entry3, entry4)));
+        CountDownLatch latch = new CountDownLatch(3);
+        when(subscriber.apply(anyList()))
+            .thenAnswer((Answer<CompletableFuture<Void>>) invocationOnMock -> {
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            });
+        when(subscriber.apply(any(LogEntry.class)))
+            .thenAnswer((Answer<CompletableFuture<Void>>) invocationOnMock -> {
+                latch.countDown();
+                return CompletableFuture.completedFuture(null);
+            });
+        KVRangeWALSubscription walSub =
+            new KVRangeWALSubscription(maxSize, wal, commitIndexSource, -1, subscriber, executor);
+        commitIndexSource.onNext(3L);
+        latch.await();
+        InOrder inOrder = inOrder(subscriber);
+        inOrder.verify(subscriber).apply(List.of(entry1, entry2));
+        inOrder.verify(subscriber).apply(entry3);
+        inOrder.verify(subscriber).apply(entry4);
+    }
 }
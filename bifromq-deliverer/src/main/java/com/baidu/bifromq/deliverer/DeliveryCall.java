@@ -19,7 +19,7 @@ import com.baidu.bifromq.type.TopicMessagePack;
 public class DeliveryCall {
     public final String tenantId;
     public final MatchInfo matchInfo;
-    public final MessagePackWrapper msgPackWrapper;
+    public final TopicMessagePack messagePack;
     public final DelivererKey delivererKey;
 
     public DeliveryCall(String tenantId,
@@ -29,7 +29,7 @@ public class DeliveryCall {
                         TopicMessagePack msgPack) {
         this.tenantId = tenantId;
         this.matchInfo = matchInfo;
-        this.msgPackWrapper = MessagePackWrapper.wrap(msgPack);
+        this.messagePack = msgPack;
         this.delivererKey = new DelivererKey(brokerId, delivererKey);
     }
 }
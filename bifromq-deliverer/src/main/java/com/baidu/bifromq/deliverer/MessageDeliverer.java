@@ -13,8 +13,6 @@
 
 package com.baidu.bifromq.deliverer;
 
-import static com.baidu.bifromq.plugin.subbroker.TypeUtil.toMap;
-
 import com.baidu.bifromq.basescheduler.BatchCallScheduler;
 import com.baidu.bifromq.basescheduler.Batcher;
 import com.baidu.bifromq.basescheduler.IBatchCall;
@@ -23,21 +21,22 @@ import com.baidu.bifromq.plugin.subbroker.DeliveryPack;
 import com.baidu.bifromq.plugin.subbroker.DeliveryPackage;
 import com.baidu.bifromq.plugin.subbroker.DeliveryRequest;
 import com.baidu.bifromq.plugin.subbroker.DeliveryResult;
+import com.baidu.bifromq.plugin.subbroker.DeliveryResults;
 import com.baidu.bifromq.plugin.subbroker.IDeliverer;
 import com.baidu.bifromq.plugin.subbroker.ISubBrokerManager;
 import com.baidu.bifromq.sysprops.props.DataPlaneBurstLatencyMillis;
 import com.baidu.bifromq.sysprops.props.DataPlaneTolerableLatencyMillis;
 import com.baidu.bifromq.type.MatchInfo;
+import com.baidu.bifromq.type.TopicMessagePack;
 import java.time.Duration;
 import java.util.ArrayDeque;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
@@ -66,64 +65,127 @@ public class MessageDeliverer extends BatchCallScheduler<DeliveryCall, DeliveryR
         return Optional.of(request.delivererKey);
     }
 
+    /**
+     * The calls of a tenant in a batch. The match infos are grouped by the identity of the message pack in the order of
+     * first appearance, so that the messages to the same receiver keep in order.
+     */
+    private static class TenantBatch {
+        private final List<ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey>> tasks = new ArrayList<>(128);
+        private final Map<TopicMessagePack, Integer> packIndexes = new IdentityHashMap<>(128);
+        private final List<TopicMessagePack> packs = new ArrayList<>(128);
+        // the match info lists are kept across batches, and only the first packs.size() ones are in use
+        private final List<List<MatchInfo>> matchInfos = new ArrayList<>(128);
+
+        void add(ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey> callTask) {
+            TopicMessagePack msgPack = callTask.call().messagePack;
+            int lastIdx = packs.size() - 1;
+            if (lastIdx >= 0 && packs.get(lastIdx) == msgPack) {
+                // the calls fanned out from the same message pack usually arrive consecutively
+                matchInfos.get(lastIdx).add(callTask.call().matchInfo);
+                tasks.add(callTask);
+                return;
+            }
+            Integer idx = packIndexes.get(msgPack);
+            if (idx == null) {
+                idx = packs.size();
+                packIndexes.put(msgPack, idx);
+                packs.add(msgPack);
+                if (matchInfos.size() <= idx) {
+                    matchInfos.add(new ArrayList<>());
+                }
+            }
+            matchInfos.get(idx).add(callTask.call().matchInfo);
+            tasks.add(callTask);
+        }
+
+        DeliveryPackage toPackage() {
+            DeliveryPackage.Builder packageBuilder = DeliveryPackage.newBuilder();
+            for (int i = 0; i < packs.size(); i++) {
+                packageBuilder.addPack(DeliveryPack.newBuilder()
+                    .setMessagePack(packs.get(i))
+                    .addAllMatchInfo(matchInfos.get(i))
+                    .build());
+            }
+            return packageBuilder.build();
+        }
+
+        void clear() {
+            for (int i = 0; i < packs.size(); i++) {
+                matchInfos.get(i).clear();
+            }
+            packs.clear();
+            packIndexes.clear();
+            tasks.clear();
+        }
+    }
+
     private class DeliveryCallBatcher extends Batcher<DeliveryCall, DeliveryResult.Code, DelivererKey> {
         private final IDeliverer deliverer;
 
         private class DeliveryBatchCall implements IBatchCall<DeliveryCall, DeliveryResult.Code, DelivererKey> {
-            private final Queue<ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey>> tasks =
-                new ArrayDeque<>(128);
-            private Map<String, Map<MessagePackWrapper, Set<MatchInfo>>> batch = new HashMap<>(128);
+            // the structures are reused across batches, since the batch call is pooled by batcher
+            private final Map<String, TenantBatch> batch = new HashMap<>(128);
+            private final Queue<TenantBatch> tenantBatchPool = new ArrayDeque<>();
+            private final Map<MatchInfo, DeliveryResult.Code> resultMap = new HashMap<>(128);
 
             @Override
             public void reset() {
-                batch = new HashMap<>(128);
+                for (TenantBatch tenantBatch : batch.values()) {
+                    tenantBatch.clear();
+                    tenantBatchPool.offer(tenantBatch);
+                }
+                batch.clear();
             }
 
             @Override
             public void add(ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey> callTask) {
-                batch.computeIfAbsent(callTask.call().tenantId, k -> new LinkedHashMap<>(128))
-                    .computeIfAbsent(callTask.call().msgPackWrapper, k -> new HashSet<>())
-                    .add(callTask.call().matchInfo);
-                tasks.add(callTask);
+                TenantBatch tenantBatch = batch.get(callTask.call().tenantId);
+                if (tenantBatch == null) {
+                    tenantBatch = tenantBatchPool.poll();
+                    if (tenantBatch == null) {
+                        tenantBatch = new TenantBatch();
+                    }
+                    batch.put(callTask.call().tenantId, tenantBatch);
+                }
+                tenantBatch.add(callTask);
             }
 
             @Override
             public CompletableFuture<Void> execute() {
                 DeliveryRequest.Builder requestBuilder = DeliveryRequest.newBuilder();
-                batch.forEach((tenantId, pack) -> {
-                    DeliveryPackage.Builder packageBuilder = DeliveryPackage.newBuilder();
-                    pack.forEach((msgPackWrapper, matchInfos) ->
-                        packageBuilder.addPack(DeliveryPack.newBuilder()
-                            .setMessagePack(msgPackWrapper.messagePack)
-                            .addAllMatchInfo(matchInfos)
-                            .build()));
-                    requestBuilder.putPackage(tenantId, packageBuilder.build());
-                });
-
+                batch.forEach((tenantId, tenantBatch) -> requestBuilder.putPackage(tenantId, tenantBatch.toPackage()));
                 return deliverer.deliver(requestBuilder.build())
                     .handle((reply, e) -> {
                         if (e != null) {
-                            ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey> task;
-                            while ((task = tasks.poll()) != null) {
-                                task.resultPromise().completeExceptionally(e);
+                            for (TenantBatch tenantBatch : batch.values()) {
+                                for (ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey> task
+                                    : tenantBatch.tasks) {
+                                    task.resultPromise().completeExceptionally(e);
+                                }
                             }
                         } else {
-                            ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey> task;
-                            Map<String, Map<MatchInfo, DeliveryResult.Code>> resultMap =
-                                toMap(reply.getResultMap());
-                            while ((task = tasks.poll()) != null) {
-                                DeliveryResult.Code result = resultMap
-                                    .getOrDefault(task.call().tenantId, Collections.emptyMap())
-                                    .get(task.call().matchInfo);
-                                if (result != null) {
-                                    task.resultPromise().complete(result);
-                                } else {
-                                    log.warn("[{}]No deliver result: tenantId={}, route={}, batcherKey={}",
-                                        this.hashCode(), task.call().tenantId, task.call().matchInfo,
-                                        task.call().delivererKey);
-                                    task.resultPromise().complete(DeliveryResult.Code.OK);
+                            batch.forEach((tenantId, tenantBatch) -> {
+                                resultMap.clear();
+                                DeliveryResults results = reply.getResultMap().get(tenantId);
+                                if (results != null) {
+                                    for (int i = 0; i < results.getResultCount(); i++) {
+                                        DeliveryResult result = results.getResult(i);
+                                        resultMap.put(result.getMatchInfo(), result.getCode());
+                                    }
                                 }
-                            }
+                                for (ICallTask<DeliveryCall, DeliveryResult.Code, DelivererKey> task
+                                    : tenantBatch.tasks) {
+                                    DeliveryResult.Code result = resultMap.get(task.call().matchInfo);
+                                    if (result != null) {
+                                        task.resultPromise().complete(result);
+                                    } else {
+                                        log.warn("[{}]No deliver result: tenantId={}, route={}, batcherKey={}",
+                                            this.hashCode(), task.call().tenantId, task.call().matchInfo,
+                                            task.call().delivererKey);
+                                        task.resultPromise().complete(DeliveryResult.Code.OK);
+                                    }
+                                }
+                            });
                         }
                         return null;
                     });
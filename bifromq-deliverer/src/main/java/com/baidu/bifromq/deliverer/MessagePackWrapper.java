@@ -1,31 +0,0 @@
-/*
- * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *    http://www.apache.org/licenses/LICENSE-2.0
- * Unless required by applicable law or agreed to in writing,
- * software distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and limitations under the License.
- */
-
-package com.baidu.bifromq.deliverer;
-
-import com.baidu.bifromq.type.TopicMessagePack;
-
-/**
- * Using the wrapper as the map key instead of using TopicMessagePack directly to prevent heavy hashcode calculation
- */
-public class MessagePackWrapper {
-    public final TopicMessagePack messagePack;
-
-    private MessagePackWrapper(TopicMessagePack messagePack) {
-        this.messagePack = messagePack;
-    }
-
-    public static MessagePackWrapper wrap(TopicMessagePack msgPack) {
-        return new MessagePackWrapper(msgPack);
-    }
-}
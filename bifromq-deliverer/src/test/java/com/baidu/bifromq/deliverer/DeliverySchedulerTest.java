@@ -20,6 +20,7 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 
 import com.baidu.bifromq.plugin.subbroker.DeliveryReply;
+import com.baidu.bifromq.plugin.subbroker.DeliveryRequest;
 import com.baidu.bifromq.plugin.subbroker.DeliveryResult;
 import com.baidu.bifromq.plugin.subbroker.DeliveryResults;
 import com.baidu.bifromq.plugin.subbroker.IDeliverer;
@@ -27,7 +28,10 @@ import com.baidu.bifromq.plugin.subbroker.ISubBroker;
 import com.baidu.bifromq.plugin.subbroker.ISubBrokerManager;
 import com.baidu.bifromq.type.MatchInfo;
 import com.baidu.bifromq.type.TopicMessagePack;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import lombok.SneakyThrows;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -128,6 +132,38 @@ public class DeliverySchedulerTest {
     }
 
 
+    @Test
+    public void groupByMessagePack() {
+        TopicMessagePack msgPack = TopicMessagePack.newBuilder().setTopic("topic").build();
+        List<DeliveryRequest> requests = new CopyOnWriteArrayList<>();
+        when(groupWriter.deliver(any())).thenAnswer(invocation -> {
+            DeliveryRequest request = invocation.getArgument(0);
+            requests.add(request);
+            DeliveryResults.Builder resultsBuilder = DeliveryResults.newBuilder();
+            request.getPackageMap().get(tenantId).getPackList().forEach(pack ->
+                pack.getMatchInfoList().forEach(matchInfo -> resultsBuilder.addResult(DeliveryResult.newBuilder()
+                    .setMatchInfo(matchInfo)
+                    .setCode(DeliveryResult.Code.OK)
+                    .build())));
+            return CompletableFuture.completedFuture(DeliveryReply.newBuilder()
+                .putResult(tenantId, resultsBuilder.build())
+                .build());
+        });
+        List<CompletableFuture<DeliveryResult.Code>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            MatchInfo matchInfo = MatchInfo.newBuilder().setReceiverId("receiver" + i).build();
+            results.add(testDeliverer.schedule(new DeliveryCall(tenantId, matchInfo, 0, "group1", msgPack)));
+        }
+        results.forEach(result -> assertEquals(result.join(), DeliveryResult.Code.OK));
+        int matchInfoCount = 0;
+        for (DeliveryRequest request : requests) {
+            // calls with same message pack are grouped into one pack in every batch
+            assertEquals(request.getPackageMap().get(tenantId).getPackCount(), 1);
+            matchInfoCount += request.getPackageMap().get(tenantId).getPack(0).getMatchInfoCount();
+        }
+        assertEquals(matchInfoCount, 100);
+    }
+
     @Test(expectedExceptions = RuntimeException.class)
     public void writeFail() {
         MatchInfo matchInfo = MatchInfo.newBuilder().build();
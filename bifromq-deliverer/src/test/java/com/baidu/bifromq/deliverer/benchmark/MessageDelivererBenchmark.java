@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.deliverer.benchmark;
+
+import com.baidu.bifromq.deliverer.DeliveryCall;
+import com.baidu.bifromq.deliverer.MessageDeliverer;
+import com.baidu.bifromq.plugin.subbroker.DeliveryReply;
+import com.baidu.bifromq.plugin.subbroker.DeliveryRequest;
+import com.baidu.bifromq.plugin.subbroker.DeliveryResult;
+import com.baidu.bifromq.plugin.subbroker.DeliveryResults;
+import com.baidu.bifromq.plugin.subbroker.IDeliverer;
+import com.baidu.bifromq.plugin.subbroker.ISubBroker;
+import com.baidu.bifromq.plugin.subbroker.ISubBrokerManager;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.MatchInfo;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.TopicMessagePack;
+import com.google.protobuf.ByteString;
+import java.util.concurrent.CompletableFuture;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measure the throughput and allocation per operation of scheduling the delivery calls fanned out from one message
+ * pack. Run with GC profiler to see the gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+public class MessageDelivererBenchmark {
+    private static final String TENANT_ID = "tenant";
+
+    @Param({"1", "100", "1000"})
+    private int fanOut;
+
+    private MatchInfo[] matchInfos;
+    private TopicMessagePack msgPack;
+    private MessageDeliverer deliverer;
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<DeliveryResult.Code>[] results;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(MessageDelivererBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        matchInfos = new MatchInfo[fanOut];
+        for (int i = 0; i < fanOut; i++) {
+            matchInfos[i] = MatchInfo.newBuilder()
+                .setReceiverId("receiver" + i)
+                .setTopicFilter("topic")
+                .build();
+        }
+        results = new CompletableFuture[fanOut];
+        msgPack = TopicMessagePack.newBuilder()
+            .setTopic("topic")
+            .addMessage(TopicMessagePack.PublisherPack.newBuilder()
+                .setPublisher(ClientInfo.newBuilder().setTenantId(TENANT_ID).build())
+                .addMessage(Message.newBuilder().setPayload(ByteString.copyFromUtf8("hello")).build())
+                .build())
+            .build();
+        IDeliverer subBrokerDeliverer = new IDeliverer() {
+            @Override
+            public CompletableFuture<DeliveryReply> deliver(DeliveryRequest request) {
+                DeliveryReply.Builder replyBuilder = DeliveryReply.newBuilder();
+                request.getPackageMap().forEach((tenantId, deliveryPackage) -> {
+                    DeliveryResults.Builder resultsBuilder = DeliveryResults.newBuilder();
+                    deliveryPackage.getPackList().forEach(pack -> pack.getMatchInfoList()
+                        .forEach(matchInfo -> resultsBuilder.addResult(DeliveryResult.newBuilder()
+                            .setMatchInfo(matchInfo)
+                            .setCode(DeliveryResult.Code.OK)
+                            .build())));
+                    replyBuilder.putResult(tenantId, resultsBuilder.build());
+                });
+                return CompletableFuture.completedFuture(replyBuilder.build());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ISubBroker subBroker = new ISubBroker() {
+            @Override
+            public int id() {
+                return 0;
+            }
+
+            @Override
+            public IDeliverer open(String delivererKey) {
+                return subBrokerDeliverer;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ISubBrokerManager subBrokerManager = new ISubBrokerManager() {
+            @Override
+            public ISubBroker get(int subBrokerId) {
+                return subBroker;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        deliverer = new MessageDeliverer(subBrokerManager);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        deliverer.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Fork(1)
+    public void schedule() {
+        for (int i = 0; i < fanOut; i++) {
+            results[i] = deliverer.schedule(new DeliveryCall(TENANT_ID, matchInfos[i], 0, "deliverer", msgPack));
+        }
+        for (int i = 0; i < fanOut; i++) {
+            results[i].join();
+        }
+    }
+}
@@ -22,6 +22,7 @@ import static com.baidu.bifromq.util.TopicConst.NUL;
 import com.baidu.bifromq.basekv.client.IBaseKVStoreClient;
 import com.baidu.bifromq.basekv.client.KVRangeRouterUtil;
 import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.client.ReplicaSelectPolicy;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.basekv.proto.KVRangeId;
 import com.baidu.bifromq.basekv.store.proto.KVRangeRORequest;
@@ -283,18 +284,17 @@ class BatchDistServerCall
             Map<String, Map<ClientInfo, Iterable<Message>>> rangeBatch = batchByRange.get(rangeSetting);
             if (rangeSetting.hasInProcReplica() || rangeSetting.allReplicas.size() == 1) {
                 // build-in or single replica
-                batchByReplica.put(new KVRangeReplica(rangeSetting.id, rangeSetting.ver, rangeSetting.randomReplica()),
-                    rangeBatch);
+                batchByReplica.put(new KVRangeReplica(rangeSetting.id, rangeSetting.ver,
+                    rangeSetting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices)), rangeBatch);
             } else {
                 for (String topic : rangeBatch.keySet()) {
                     Map<ClientInfo, Iterable<Message>> rangePublisherMsgs = rangeBatch.get(topic);
                     for (ClientInfo publisher : rangePublisherMsgs.keySet()) {
-                        // bind replica based on tenantId, topic
+                        // bind replica based on tenantId, topic, unless the bound replica is overloaded
                         int hash = Objects.hash(batcherKey.tenantId(), topic);
-                        int replicaIdx = Math.abs(hash) % rangeSetting.allReplicas.size();
-                        // replica bind
-                        batchByReplica.computeIfAbsent(new KVRangeReplica(rangeSetting.id, rangeSetting.ver,
-                                rangeSetting.allReplicas.get(replicaIdx)), k -> new HashMap<>())
+                        String replica = rangeSetting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices, hash);
+                        batchByReplica.computeIfAbsent(new KVRangeReplica(rangeSetting.id, rangeSetting.ver, replica),
+                                k -> new HashMap<>())
                             .computeIfAbsent(topic, k -> new HashMap<>())
                             .put(publisher, rangePublisherMsgs.get(publisher));
                     }
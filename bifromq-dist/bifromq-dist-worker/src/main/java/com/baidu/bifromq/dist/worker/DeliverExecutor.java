@@ -34,6 +34,8 @@ import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -42,7 +44,7 @@ public class DeliverExecutor {
     private final IDistClient distClient;
     private final IMessageDeliverer deliverer;
     private final ExecutorService executor;
-    private final ConcurrentLinkedQueue<SendTask> tasks = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
     private final AtomicBoolean sending = new AtomicBoolean();
 
     public DeliverExecutor(int id,
@@ -59,14 +61,33 @@ public class DeliverExecutor {
     }
 
     public void submit(NormalMatching route, TopicMessagePack msgPack, boolean inline) {
-        if (inline) {
+        // send inline only when nothing is pending in the executor, so the messages to the route keep in order
+        if (inline && !sending.get() && tasks.isEmpty()) {
             send(route, msgPack);
         } else {
-            tasks.add(new SendTask(route, msgPack));
+            tasks.add(() -> send(route, msgPack));
             scheduleSend();
         }
     }
 
+    /**
+     * Run a fan-out task by the executor thread, the sends made via the sender passed to the task are ordered with
+     * other sends submitted to this executor.
+     *
+     * @param fanOutTask the task to run
+     * @param onDone     the callback after the task is done
+     */
+    public void submit(Consumer<BiConsumer<NormalMatching, TopicMessagePack>> fanOutTask, Runnable onDone) {
+        tasks.add(() -> {
+            try {
+                fanOutTask.accept(this::send);
+            } finally {
+                onDone.run();
+            }
+        });
+        scheduleSend();
+    }
+
     public void shutdown() {
         executor.shutdown();
     }
@@ -78,9 +99,13 @@ public class DeliverExecutor {
     }
 
     private void sendAll() {
-        SendTask task;
+        Runnable task;
         while ((task = tasks.poll()) != null) {
-            send(task.route, task.msgPack);
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Failed to run deliver task", e);
+            }
         }
         sending.set(false);
         if (!tasks.isEmpty()) {
@@ -133,7 +158,4 @@ public class DeliverExecutor {
         });
 
     }
-
-    private record SendTask(NormalMatching route, TopicMessagePack msgPack) {
-    }
 }
@@ -17,7 +17,6 @@ import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentFanOutBytes;
 import static com.baidu.bifromq.plugin.eventcollector.ThreadLocalEventPool.getLocal;
 import static com.baidu.bifromq.util.TopicUtil.escape;
 import static com.bifromq.plugin.resourcethrottler.TenantResourceType.TotalPersistentFanOutBytesPerSeconds;
-import static com.google.common.hash.Hashing.murmur3_128;
 
 import com.baidu.bifromq.deliverer.IMessageDeliverer;
 import com.baidu.bifromq.dist.client.IDistClient;
@@ -28,6 +27,7 @@ import com.baidu.bifromq.metrics.ITenantMeter;
 import com.baidu.bifromq.plugin.eventcollector.IEventCollector;
 import com.baidu.bifromq.plugin.eventcollector.OutOfTenantResource;
 import com.baidu.bifromq.sysprops.props.DistInlineFanOutThreshold;
+import com.baidu.bifromq.sysprops.props.DistParallelFanOutThreshold;
 import com.baidu.bifromq.sysprops.props.DistTopicMatchExpirySeconds;
 import com.baidu.bifromq.type.ClientInfo;
 import com.baidu.bifromq.type.TopicMessagePack;
@@ -37,14 +37,22 @@ import com.bifromq.plugin.resourcethrottler.TenantResourceType;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
-import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.github.benmanes.caffeine.cache.Scheduler;
-import java.util.Comparator;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -52,38 +60,61 @@ class DeliverExecutorGroup implements IDeliverExecutorGroup {
     private record OrderedSharedMatchingKey(String tenantId, String escapedTopicFilter) {
     }
 
-    // OuterCacheKey: OrderedSharedMatchingKey(<tenantId>, <escapedTopicFilter>)
-    // InnerCacheKey: ClientInfo(<tenantId>, <type>, <metadata>)
-    private final LoadingCache<OrderedSharedMatchingKey, Cache<ClientInfo, NormalMatching>> orderedSharedMatching;
+    // the assignment is rebuilt only when the members of the group change
+    private record OrderedSharedAssignment(List<NormalMatching> receiverList,
+                                           Set<String> receiverIds,
+                                           MaglevHash<NormalMatching> hash) {
+    }
+
+    // the chunk of routes fanned out by one executor in parallel fan-out
+    private record FanOutChunk(int executorIdx, List<Matching> routes) {
+    }
+
+    // CacheKey: OrderedSharedMatchingKey(<tenantId>, <escapedTopicFilter>)
+    // MapKey: group
+    private final LoadingCache<OrderedSharedMatchingKey, Map<String, OrderedSharedAssignment>> orderedSharedMatching;
+    // the max number of routes fanned out by one task when fanning out in parallel
+    private static final int PARALLEL_FAN_OUT_CHUNK_SIZE = 1000;
     private final int inlineFanOutThreshold = DistInlineFanOutThreshold.INSTANCE.get();
+    private final int parallelFanOutThreshold = DistParallelFanOutThreshold.INSTANCE.get();
     private final IEventCollector eventCollector;
     private final IResourceThrottler resourceThrottler;
+    // the chunks of huge route sets, keyed by the identity of the cached route set which is copied on write
+    private final Cache<Set<Matching>, List<FanOutChunk>> fanOutChunks;
     private final DeliverExecutor[] fanoutExecutors;
+    private final Timer serialFanOutTimer;
+    private final Timer parallelFanOutTimer;
 
     DeliverExecutorGroup(IMessageDeliverer deliverer,
                          IEventCollector eventCollector,
                          IResourceThrottler resourceThrottler,
                          IDistClient distClient,
-                         int groupSize) {
+                         int groupSize,
+                         String... tags) {
         int expirySec = DistTopicMatchExpirySeconds.INSTANCE.get();
         this.eventCollector = eventCollector;
         this.resourceThrottler = resourceThrottler;
         orderedSharedMatching = Caffeine.newBuilder()
             .expireAfterAccess(expirySec * 2L, TimeUnit.SECONDS)
             .scheduler(Scheduler.systemScheduler())
-            .removalListener((RemovalListener<OrderedSharedMatchingKey, Cache<ClientInfo, NormalMatching>>)
-                (key, value, cause) -> {
-                    if (value != null) {
-                        value.invalidateAll();
-                    }
-                })
-            .build(k -> Caffeine.newBuilder()
-                .expireAfterAccess(expirySec, TimeUnit.SECONDS)
-                .build());
+            .build(k -> new ConcurrentHashMap<>());
+        fanOutChunks = Caffeine.newBuilder()
+            .weakKeys()
+            .expireAfterAccess(expirySec * 2L, TimeUnit.SECONDS)
+            .scheduler(Scheduler.systemScheduler())
+            .build();
         fanoutExecutors = new DeliverExecutor[groupSize];
         for (int i = 0; i < groupSize; i++) {
             fanoutExecutors[i] = new DeliverExecutor(i, deliverer, eventCollector, distClient);
         }
+        serialFanOutTimer = Timer.builder("dist.fanout.time")
+            .tags(tags)
+            .tag("mode", "serial")
+            .register(Metrics.globalRegistry);
+        parallelFanOutTimer = Timer.builder("dist.fanout.time")
+            .tags(tags)
+            .tag("mode", "parallel")
+            .register(Metrics.globalRegistry);
     }
 
     @Override
@@ -92,6 +123,9 @@ class DeliverExecutorGroup implements IDeliverExecutorGroup {
             fanoutExecutor.shutdown();
         }
         orderedSharedMatching.invalidateAll();
+        fanOutChunks.invalidateAll();
+        Metrics.globalRegistry.remove(serialFanOutTimer);
+        Metrics.globalRegistry.remove(parallelFanOutTimer);
     }
 
     @Override
@@ -103,49 +137,85 @@ class DeliverExecutorGroup implements IDeliverExecutorGroup {
             if (isSendToInbox(matching)) {
                 ITenantMeter.get(matching.tenantId).recordSummary(MqttPersistentFanOutBytes, msgPackSize);
             }
+        } else if (routes.size() > parallelFanOutThreshold) {
+            long start = System.nanoTime();
+            // throttling and resolving are done by the executors chunk by chunk
+            List<FanOutChunk> chunks = fanOutChunks.get(routes, this::chunk);
+            FanOutThrottle throttle = new FanOutThrottle(tenantId, msgPack, msgPackSize);
+            AtomicInteger remainingChunks = new AtomicInteger(chunks.size());
+            Runnable onChunkDone = () -> {
+                if (remainingChunks.decrementAndGet() == 0) {
+                    parallelFanOutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+            for (FanOutChunk chunk : chunks) {
+                fanoutExecutors[chunk.executorIdx].submit(localSender -> fanOut(throttle, chunk.routes,
+                        matching -> sendInExecutor(chunk.executorIdx, matching, msgPack, localSender)),
+                    onChunkDone);
+            }
         } else if (routes.size() > 1) {
+            long start = System.nanoTime();
             boolean inline = routes.size() > inlineFanOutThreshold;
-            boolean hasTFanOutBandwidth =
-                resourceThrottler.hasResource(tenantId, TenantResourceType.TotalTransientFanOutBytesPerSeconds);
-            boolean hasTFannedOutUnderThrottled = false;
-            boolean hasPFanOutBandwidth =
-                resourceThrottler.hasResource(tenantId, TenantResourceType.TotalPersistentFanOutBytesPerSeconds);
-            boolean hasPFannedOutUnderThrottled = false;
-            // we meter persistent fanout bytes here, since for transient fanout is actually happened in the broker
-            long pFanoutBytes = 0;
-            for (Matching matching : routes) {
-                if (isSendToInbox(matching)) {
-                    if (hasPFanOutBandwidth || !hasPFannedOutUnderThrottled) {
-                        pFanoutBytes += msgPackSize;
-                        prepareSend(matching, msgPack, inline);
-                        if (!hasPFanOutBandwidth) {
-                            hasPFannedOutUnderThrottled = true;
-                            for (TopicMessagePack.PublisherPack publisherPack : msgPack.getMessageList()) {
-                                eventCollector.report(getLocal(OutOfTenantResource.class)
-                                    .reason(TotalPersistentFanOutBytesPerSeconds.name())
-                                    .clientInfo(publisherPack.getPublisher())
-                                );
-                            }
-                        }
-                    }
-                } else if (hasTFanOutBandwidth || !hasTFannedOutUnderThrottled) {
-                    prepareSend(matching, msgPack, inline);
-                    if (!hasTFanOutBandwidth) {
-                        hasTFannedOutUnderThrottled = true;
-                        for (TopicMessagePack.PublisherPack publisherPack : msgPack.getMessageList()) {
-                            eventCollector.report(getLocal(OutOfTenantResource.class)
-                                .reason(TenantResourceType.TotalTransientFanOutBytesPerSeconds.name())
-                                .clientInfo(publisherPack.getPublisher())
-                            );
-                        }
-                    }
-                }
-                if (hasPFannedOutUnderThrottled && hasTFannedOutUnderThrottled) {
-                    break;
+            fanOut(new FanOutThrottle(tenantId, msgPack, msgPackSize), routes,
+                matching -> prepareSend(matching, msgPack, inline));
+            serialFanOutTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void fanOut(FanOutThrottle throttle, Collection<Matching> routes, Consumer<Matching> sender) {
+        boolean hasTFanOutBandwidth =
+            resourceThrottler.hasResource(throttle.tenantId, TenantResourceType.TotalTransientFanOutBytesPerSeconds);
+        boolean hasPFanOutBandwidth =
+            resourceThrottler.hasResource(throttle.tenantId, TenantResourceType.TotalPersistentFanOutBytesPerSeconds);
+        // we meter persistent fanout bytes here, since for transient fanout is actually happened in the broker
+        long pFanoutBytes = 0;
+        for (Matching matching : routes) {
+            if (isSendToInbox(matching)) {
+                if (hasPFanOutBandwidth) {
+                    pFanoutBytes += throttle.msgPackSize;
+                    sender.accept(matching);
+                } else if (throttle.pFannedOutUnderThrottled.compareAndSet(false, true)) {
+                    pFanoutBytes += throttle.msgPackSize;
+                    sender.accept(matching);
+                    throttle.report(TotalPersistentFanOutBytesPerSeconds);
                 }
+            } else if (hasTFanOutBandwidth) {
+                sender.accept(matching);
+            } else if (throttle.tFannedOutUnderThrottled.compareAndSet(false, true)) {
+                sender.accept(matching);
+                throttle.report(TenantResourceType.TotalTransientFanOutBytesPerSeconds);
+            }
+            if (!hasPFanOutBandwidth && !hasTFanOutBandwidth
+                && throttle.pFannedOutUnderThrottled.get() && throttle.tFannedOutUnderThrottled.get()) {
+                break;
+            }
+        }
+        ITenantMeter.get(throttle.tenantId).recordSummary(MqttPersistentFanOutBytes, pFanoutBytes);
+    }
+
+    // partition the routes by the executor they belong to, and split each partition into chunks
+    private List<FanOutChunk> chunk(Set<Matching> routes) {
+        @SuppressWarnings("unchecked")
+        List<Matching>[] partitions = new List[fanoutExecutors.length];
+        for (Matching matching : routes) {
+            int idx = executorIndex(matching);
+            if (partitions[idx] == null) {
+                partitions[idx] = new ArrayList<>();
+            }
+            partitions[idx].add(matching);
+        }
+        List<FanOutChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < partitions.length; i++) {
+            List<Matching> partition = partitions[i];
+            if (partition == null) {
+                continue;
+            }
+            for (int from = 0; from < partition.size(); from += PARALLEL_FAN_OUT_CHUNK_SIZE) {
+                int to = Math.min(from + PARALLEL_FAN_OUT_CHUNK_SIZE, partition.size());
+                chunks.add(new FanOutChunk(i, partition.subList(from, to)));
             }
-            ITenantMeter.get(tenantId).recordSummary(MqttPersistentFanOutBytes, pFanoutBytes);
         }
+        return chunks;
     }
 
     private boolean isSendToInbox(Matching matching) {
@@ -158,46 +228,125 @@ class DeliverExecutorGroup implements IDeliverExecutorGroup {
     }
 
     private void prepareSend(Matching matching, TopicMessagePack msgPack, boolean inline) {
+        if (matching.type() == Matching.Type.Normal) {
+            send((NormalMatching) matching, msgPack, inline);
+        } else {
+            // the group matching is resolved by the executor it belongs to, so the sends to its receivers keep in order
+            int idx = executorIndex(matching);
+            fanoutExecutors[idx].submit(localSender -> sendInExecutor(idx, matching, msgPack, localSender), () -> {
+            });
+        }
+    }
+
+    // called by the executor the matching belongs to, the sends to the receivers of other executors are handed over
+    private void sendInExecutor(int executorIdx,
+                                Matching matching,
+                                TopicMessagePack msgPack,
+                                BiConsumer<NormalMatching, TopicMessagePack> localSender) {
+        resolve(matching, msgPack, (route, routeMsgPack) -> {
+            int routeExecutorIdx = executorIndex(route);
+            if (routeExecutorIdx == executorIdx) {
+                localSender.accept(route, routeMsgPack);
+            } else {
+                fanoutExecutors[routeExecutorIdx].submit(route, routeMsgPack, false);
+            }
+        });
+    }
+
+    // resolve the receivers of the matching and the messages sent to each of them
+    private void resolve(Matching matching,
+                         TopicMessagePack msgPack,
+                         BiConsumer<NormalMatching, TopicMessagePack> sender) {
         switch (matching.type()) {
-            case Normal -> send((NormalMatching) matching, msgPack, inline);
+            case Normal -> sender.accept((NormalMatching) matching, msgPack);
             case Group -> {
                 GroupMatching groupMatching = (GroupMatching) matching;
                 if (!groupMatching.ordered) {
                     // pick one route randomly
-                    send(groupMatching.receiverList.get(
-                        ThreadLocalRandom.current().nextInt(groupMatching.receiverList.size())), msgPack, inline);
+                    sender.accept(groupMatching.receiverList.get(
+                        ThreadLocalRandom.current().nextInt(groupMatching.receiverList.size())), msgPack);
                 } else {
                     // ordered shared subscription
                     Map<NormalMatching, TopicMessagePack.Builder> orderedRoutes = new HashMap<>();
+                    MaglevHash<NormalMatching> hash = orderedSharedAssignment(groupMatching);
                     for (TopicMessagePack.PublisherPack publisherPack : msgPack.getMessageList()) {
-                        ClientInfo sender = publisherPack.getPublisher();
-                        NormalMatching matchedInbox = orderedSharedMatching
-                            .get(new OrderedSharedMatchingKey(groupMatching.tenantId, groupMatching.escapedTopicFilter))
-                            .get(sender, k -> {
-                                RendezvousHash<ClientInfo, NormalMatching> hash =
-                                    new RendezvousHash<>(murmur3_128(),
-                                        (from, into) -> into.putInt(from.hashCode()),
-                                        (from, into) -> into.putBytes(from.scopedInboxId.getBytes()),
-                                        Comparator.comparing(a -> a.scopedInboxId));
-                                groupMatching.receiverList.forEach(hash::add);
-                                return hash.get(k);
-                            });
+                        ClientInfo publisher = publisherPack.getPublisher();
+                        NormalMatching matchedInbox = hash.get(publisher.hashCode());
                         // ordered share sub
                         orderedRoutes.computeIfAbsent(matchedInbox, k -> TopicMessagePack.newBuilder())
                             .setTopic(msgPack.getTopic())
                             .addMessage(publisherPack);
                     }
-                    orderedRoutes.forEach((route, msgPackBuilder) -> send(route, msgPackBuilder.build(), inline));
+                    orderedRoutes.forEach((route, msgPackBuilder) -> sender.accept(route, msgPackBuilder.build()));
                 }
             }
         }
     }
 
+    private MaglevHash<NormalMatching> orderedSharedAssignment(GroupMatching groupMatching) {
+        Map<String, OrderedSharedAssignment> assignments = orderedSharedMatching
+            .get(new OrderedSharedMatchingKey(groupMatching.tenantId, groupMatching.escapedTopicFilter));
+        OrderedSharedAssignment assignment = assignments.get(groupMatching.group);
+        if (assignment != null && assignment.receiverList == groupMatching.receiverList) {
+            return assignment.hash;
+        }
+        return assignments.compute(groupMatching.group, (k, v) -> {
+            if (v != null && v.receiverIds.equals(groupMatching.receiverIds)) {
+                // same members loaded into another GroupMatching instance
+                return new OrderedSharedAssignment(groupMatching.receiverList, groupMatching.receiverIds, v.hash);
+            }
+            return new OrderedSharedAssignment(groupMatching.receiverList, groupMatching.receiverIds,
+                new MaglevHash<>(groupMatching.receiverList, receiver -> receiver.scopedInboxId));
+        }).hash;
+    }
+
     private void send(NormalMatching route, TopicMessagePack msgPack, boolean inline) {
-        int idx = route.hashCode() % fanoutExecutors.length;
+        fanoutExecutors[executorIndex(route)].submit(route, msgPack, inline);
+    }
+
+    // all the routes to the same receiver are sent by the same executor
+    private int executorIndex(NormalMatching route) {
+        return executorIndex(route.scopedInboxId.hashCode());
+    }
+
+    // the group matching is resolved by the executor of its match record
+    private int executorIndex(Matching matching) {
+        return switch (matching.type()) {
+            case Normal -> executorIndex((NormalMatching) matching);
+            case Group -> executorIndex(matching.key.hashCode());
+        };
+    }
+
+    private int executorIndex(int hash) {
+        int idx = hash % fanoutExecutors.length;
         if (idx < 0) {
             idx += fanoutExecutors.length;
         }
-        fanoutExecutors[idx].submit(route, msgPack, inline);
+        return idx;
+    }
+
+    // the throttling state shared by the chunks of one fan-out, at most one route of each kind is fanned out under
+    // throttled
+    private class FanOutThrottle {
+        final String tenantId;
+        final TopicMessagePack msgPack;
+        final int msgPackSize;
+        final AtomicBoolean tFannedOutUnderThrottled = new AtomicBoolean();
+        final AtomicBoolean pFannedOutUnderThrottled = new AtomicBoolean();
+
+        FanOutThrottle(String tenantId, TopicMessagePack msgPack, int msgPackSize) {
+            this.tenantId = tenantId;
+            this.msgPack = msgPack;
+            this.msgPackSize = msgPackSize;
+        }
+
+        void report(TenantResourceType resourceType) {
+            for (TopicMessagePack.PublisherPack publisherPack : msgPack.getMessageList()) {
+                eventCollector.report(getLocal(OutOfTenantResource.class)
+                    .reason(resourceType.name())
+                    .clientInfo(publisherPack.getPublisher())
+                );
+            }
+        }
     }
 }
@@ -96,6 +96,7 @@ class DistWorker implements IDistWorker {
             .tickerThreads(builder.tickerThreads)
             .bgTaskExecutor(builder.bgTaskExecutor)
             .attributes(builder.attributes)
+            .defaultGroupTags(builder.defaultGroupTags)
             .finish()
             .build();
         start();
@@ -25,7 +25,9 @@ import com.bifromq.plugin.resourcethrottler.IResourceThrottler;
 import com.google.protobuf.Struct;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -56,6 +58,7 @@ public class DistWorkerBuilder {
     Map<String, Struct> balancerFactoryConfig = new HashMap<>();
     Duration loadEstimateWindow = Duration.ofSeconds(5);
     Map<String, String> attributes = new HashMap<>();
+    Set<String> defaultGroupTags = new HashSet<>();
 
     public IDistWorker build() {
         return new DistWorker(this);
@@ -58,6 +58,7 @@ import com.baidu.bifromq.dist.rpc.proto.DistServiceRWCoProcOutput;
 import com.baidu.bifromq.dist.rpc.proto.GroupMatchRecord;
 import com.baidu.bifromq.dist.rpc.proto.TopicFanout;
 import com.baidu.bifromq.dist.worker.cache.ISubscriptionCache;
+import com.baidu.bifromq.dist.worker.cache.SubscriptionIndex;
 import com.baidu.bifromq.type.TopicMessagePack;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -83,6 +84,7 @@ import lombok.extern.slf4j.Slf4j;
 class DistWorkerCoProc implements IKVRangeCoProc {
     private final Supplier<IKVCloseableReader> readerProvider;
     private final ISubscriptionCache routeCache;
+    private final SubscriptionIndex routeIndex;
     private final ITenantsState tenantsState;
     private final IDeliverExecutorGroup deliverExecutorGroup;
     private transient Boundary boundary;
@@ -90,10 +92,12 @@ class DistWorkerCoProc implements IKVRangeCoProc {
     public DistWorkerCoProc(KVRangeId id,
                             Supplier<IKVCloseableReader> readerProvider,
                             ISubscriptionCache routeCache,
+                            SubscriptionIndex routeIndex,
                             ITenantsState tenantsState,
                             IDeliverExecutorGroup deliverExecutorGroup) {
         this.readerProvider = readerProvider;
         this.routeCache = routeCache;
+        this.routeIndex = routeIndex;
         this.tenantsState = tenantsState;
         this.deliverExecutorGroup = deliverExecutorGroup;
         load();
@@ -133,30 +137,31 @@ class DistWorkerCoProc implements IKVRangeCoProc {
         log.trace("Receive rw co-proc request\n{}", coProcInput);
         // tenantId -> topicFilters
         Map<String, Set<String>> updatedMatches = Maps.newHashMap();
+        List<Matching> addedMatchings = new ArrayList<>();
+        List<Matching> removedMatchings = new ArrayList<>();
         DistServiceRWCoProcOutput.Builder outputBuilder = DistServiceRWCoProcOutput.newBuilder();
         AtomicReference<Runnable> afterMutate = new AtomicReference<>();
         switch (coProcInput.getTypeCase()) {
             case BATCHMATCH -> {
                 BatchMatchReply.Builder replyBuilder = BatchMatchReply.newBuilder();
-                afterMutate.set(batchMatch(coProcInput.getBatchMatch(), reader, writer, updatedMatches, replyBuilder));
+                afterMutate.set(batchMatch(coProcInput.getBatchMatch(), reader, writer, updatedMatches,
+                    addedMatchings, removedMatchings, replyBuilder));
                 outputBuilder.setBatchMatch(replyBuilder.build());
             }
             case BATCHUNMATCH -> {
                 BatchUnmatchReply.Builder replyBuilder = BatchUnmatchReply.newBuilder();
-                afterMutate.set(
-                    batchUnmatch(coProcInput.getBatchUnmatch(), reader, writer, updatedMatches, replyBuilder));
+                afterMutate.set(batchUnmatch(coProcInput.getBatchUnmatch(), reader, writer, updatedMatches,
+                    addedMatchings, removedMatchings, replyBuilder));
                 outputBuilder.setBatchUnmatch(replyBuilder.build());
             }
         }
         RWCoProcOutput output = RWCoProcOutput.newBuilder().setDistService(outputBuilder.build()).build();
         return () -> {
-            switch (coProcInput.getTypeCase()) {
-                case BATCHMATCH -> routeCache.refresh(updatedMatches);
-                case BATCHUNMATCH -> routeCache.refresh(updatedMatches);
-            }
+            // update route index before patching the cached routes
+            afterMutate.get().run();
+            routeCache.patch(removedMatchings, addedMatchings);
             updatedMatches.forEach((tenantId, topicFilters) ->
                 topicFilters.forEach(topicFilter -> deliverExecutorGroup.invalidate(tenantId, topicFilter)));
-            afterMutate.get().run();
             return output;
         };
     }
@@ -170,6 +175,7 @@ class DistWorkerCoProc implements IKVRangeCoProc {
     public void close() {
         tenantsState.close();
         routeCache.close();
+        routeIndex.close();
         deliverExecutorGroup.shutdown();
     }
 
@@ -177,6 +183,8 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                                 IKVReader reader,
                                 IKVWriter writer,
                                 Map<String, Set<String>> newMatches,
+                                List<Matching> addedMatchings,
+                                List<Matching> removedMatchings,
                                 BatchMatchReply.Builder replyBuilder) {
         replyBuilder.setReqId(request.getReqId());
         Map<String, AtomicInteger> normalRoutesAdded = new HashMap<>();
@@ -190,6 +198,7 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                 ByteString normalMatchRecordKey = toNormalMatchRecordKey(tenantId, topicFilter, qInboxId);
                 if (!reader.exist(normalMatchRecordKey)) {
                     writer.put(normalMatchRecordKey, ByteString.EMPTY);
+                    addedMatchings.add(parseMatchRecord(normalMatchRecordKey, ByteString.EMPTY));
                     normalRoutesAdded.computeIfAbsent(tenantId, k -> new AtomicInteger()).incrementAndGet();
                     newMatches.computeIfAbsent(tenantId, k -> new HashSet<>()).add(topicFilter);
                 }
@@ -216,6 +225,8 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                     sharedRoutesAdded.computeIfAbsent(tenantId, k -> new AtomicInteger()).incrementAndGet();
                     return GroupMatchRecord.newBuilder();
                 });
+            // existing group match record always has members
+            GroupMatchRecord oldRecord = matchGroup.getQReceiverIdCount() > 0 ? matchGroup.build() : null;
             boolean updated = false;
             int maxMembers = request.getOptionsMap().get(tenantId).getMaxReceiversPerSharedSubGroup();
             for (String newQInboxId : newGroupMembers) {
@@ -239,12 +250,18 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                 }
             }
             if (updated) {
-                writer.put(groupMatchRecordKey, matchGroup.build().toByteString());
+                ByteString newValue = matchGroup.build().toByteString();
+                writer.put(groupMatchRecordKey, newValue);
+                if (oldRecord != null) {
+                    removedMatchings.add(parseMatchRecord(groupMatchRecordKey, oldRecord.toByteString()));
+                }
+                addedMatchings.add(parseMatchRecord(groupMatchRecordKey, newValue));
                 String groupTopicFilter = parseTopicFilter(groupMatchRecordKey.toStringUtf8());
                 newMatches.computeIfAbsent(tenantId, k -> new HashSet<>()).add(groupTopicFilter);
             }
         });
         return () -> {
+            routeIndex.patch(removedMatchings, addedMatchings);
             normalRoutesAdded.forEach((tenantId, added) -> tenantsState.incNormalRoutes(tenantId, added.get()));
             sharedRoutesAdded.forEach((tenantId, added) -> tenantsState.incSharedRoutes(tenantId, added.get()));
         };
@@ -254,6 +271,8 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                                   IKVReader reader,
                                   IKVWriter writer,
                                   Map<String, Set<String>> removedMatches,
+                                  List<Matching> addedMatchings,
+                                  List<Matching> removedMatchings,
                                   BatchUnmatchReply.Builder replyBuilder) {
         replyBuilder.setReqId(request.getReqId());
         Map<String, AtomicInteger> normalRoutesRemoved = new HashMap<>();
@@ -268,6 +287,7 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                 Optional<ByteString> value = reader.get(normalMatchRecordKey);
                 if (value.isPresent()) {
                     writer.delete(normalMatchRecordKey);
+                    removedMatchings.add(parseMatchRecord(normalMatchRecordKey, value.get()));
                     normalRoutesRemoved.computeIfAbsent(tenantId, k -> new AtomicInteger()).incrementAndGet();
                     removedMatches.computeIfAbsent(tenantId, k -> new HashSet<>()).add(topicFilter);
                     replyBuilder.putResults(scopedTopicFilter, BatchUnmatchReply.Result.OK);
@@ -303,14 +323,17 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                     }
                 }
                 if (existing.size() != groupMatching.receiverIds.size()) {
+                    removedMatchings.add(groupMatching);
                     if (existing.isEmpty()) {
                         writer.delete(groupMatchRecordKey);
                         sharedRoutesRemoved.computeIfAbsent(tenantId, k -> new AtomicInteger()).incrementAndGet();
                     } else {
-                        writer.put(groupMatchRecordKey, GroupMatchRecord.newBuilder()
+                        ByteString newValue = GroupMatchRecord.newBuilder()
                             .addAllQReceiverId(existing)
                             .build()
-                            .toByteString());
+                            .toByteString();
+                        writer.put(groupMatchRecordKey, newValue);
+                        addedMatchings.add(parseMatchRecord(groupMatchRecordKey, newValue));
                     }
                     String groupTopicFilter = parseTopicFilter(groupMatchRecordKey.toStringUtf8());
                     removedMatches.computeIfAbsent(tenantId, k -> new HashSet<>()).add(groupTopicFilter);
@@ -323,6 +346,7 @@ class DistWorkerCoProc implements IKVRangeCoProc {
             }
         });
         return () -> {
+            routeIndex.patch(removedMatchings, addedMatchings);
             normalRoutesRemoved.forEach((tenantId, removed) -> tenantsState.decNormalRoutes(tenantId, removed.get()));
             sharedRoutesRemoved.forEach((tenantId, removed) -> tenantsState.decSharedRoutes(tenantId, removed.get()));
         };
@@ -373,6 +397,7 @@ class DistWorkerCoProc implements IKVRangeCoProc {
         try (IKVCloseableReader reader = readerProvider.get()) {
             boundary = reader.boundary();
             routeCache.reset(boundary);
+            List<Matching> matchings = new ArrayList<>();
             IKVIterator itr = reader.iterator();
             for (itr.seekToFirst(); itr.isValid(); ) {
                 String tenantId = parseTenantId(itr.key());
@@ -380,8 +405,10 @@ class DistWorkerCoProc implements IKVRangeCoProc {
                     case Normal -> tenantsState.incNormalRoutes(tenantId);
                     case Group -> tenantsState.decNormalRoutes(tenantId);
                 }
+                matchings.add(parseMatchRecord(itr.key(), itr.value()));
                 itr.next();
             }
+            routeIndex.reset(matchings);
         }
     }
 }
@@ -25,6 +25,7 @@ import com.baidu.bifromq.deliverer.MessageDeliverer;
 import com.baidu.bifromq.dist.client.IDistClient;
 import com.baidu.bifromq.dist.worker.cache.ISubscriptionCache;
 import com.baidu.bifromq.dist.worker.cache.SubscriptionCache;
+import com.baidu.bifromq.dist.worker.cache.SubscriptionIndex;
 import com.baidu.bifromq.dist.worker.hinter.FanoutSplitHinter;
 import com.baidu.bifromq.plugin.eventcollector.IEventCollector;
 import com.baidu.bifromq.plugin.subbroker.ISubBrokerManager;
@@ -92,13 +93,16 @@ public class DistWorkerCoProcFactory implements IKVRangeCoProcFactory {
     @Override
     public IKVRangeCoProc createCoProc(String clusterId, String storeId, KVRangeId id,
                                        Supplier<IKVCloseableReader> rangeReaderProvider) {
-        ISubscriptionCache routeCache = new SubscriptionCache(id, rangeReaderProvider, matchExecutor);
+        SubscriptionIndex routeIndex = new SubscriptionIndex(
+            "clusterId", clusterId, "storeId", storeId, "rangeId", KVRangeIdUtil.toString(id));
+        ISubscriptionCache routeCache = new SubscriptionCache(id, routeIndex, matchExecutor);
         ITenantsState tenantsState = new TenantsState(rangeReaderProvider.get(),
             "clusterId", clusterId, "storeId", storeId, "rangeId", KVRangeIdUtil.toString(id));
         IDeliverExecutorGroup executorGroup =
             new DeliverExecutorGroup(deliverer, eventCollector, resourceThrottler, distClient,
-                DistFanOutParallelism.INSTANCE.get());
-        return new DistWorkerCoProc(id, rangeReaderProvider, routeCache, tenantsState, executorGroup);
+                DistFanOutParallelism.INSTANCE.get(),
+                "clusterId", clusterId, "storeId", storeId, "rangeId", KVRangeIdUtil.toString(id));
+        return new DistWorkerCoProc(id, rangeReaderProvider, routeCache, routeIndex, tenantsState, executorGroup);
     }
 
     public void close() {
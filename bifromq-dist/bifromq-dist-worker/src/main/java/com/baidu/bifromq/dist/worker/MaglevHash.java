@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static com.google.common.hash.Hashing.murmur3_128;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Immutable consistent hash table built with the Maglev populating algorithm. The lookup table is computed once when
+ * constructed, so that looking up the node of a key is O(1) and lock-free. When the nodes change, a new table should be
+ * built, and most of the keys stay on the same node.
+ *
+ * @param <N> the type of the node
+ */
+@ThreadSafe
+final class MaglevHash<N> {
+    private static final int[] TABLE_SIZES = {
+        251, 509, 1021, 2039, 4093, 8191, 16381, 32749, 65521, 131071, 262139, 524287
+    };
+    // the number of slots per node, the larger the more even the distribution
+    private static final int SLOTS_PER_NODE = 64;
+
+    private final List<N> nodes;
+    private final Object[] table;
+
+    /**
+     * Build the lookup table for the given nodes.
+     *
+     * @param nodes   the nodes, must not contain duplicates
+     * @param nodeKey the function to get the key of a node used for hashing
+     */
+    MaglevHash(Collection<N> nodes, Function<N, String> nodeKey) {
+        // sort the nodes so that the table is independent of the iteration order of the given collection
+        List<N> sorted = new ArrayList<>(nodes);
+        sorted.sort(Comparator.comparing(nodeKey));
+        this.nodes = List.copyOf(sorted);
+        this.table = sorted.isEmpty() ? new Object[0] : populate(sorted, nodeKey, tableSize(sorted.size()));
+    }
+
+    /**
+     * The nodes of the hash table.
+     *
+     * @return the nodes
+     */
+    List<N> nodes() {
+        return nodes;
+    }
+
+    /**
+     * Return the node for the given key hash.
+     *
+     * @param keyHash the hash code of the key
+     * @return the node or null if there is no node
+     */
+    @SuppressWarnings("unchecked")
+    N get(int keyHash) {
+        if (table.length == 0) {
+            return null;
+        }
+        return (N) table[Math.floorMod(mix(keyHash), table.length)];
+    }
+
+    private static int tableSize(int nodeNum) {
+        long expected = (long) nodeNum * SLOTS_PER_NODE;
+        for (int size : TABLE_SIZES) {
+            if (size >= expected) {
+                return size;
+            }
+        }
+        return TABLE_SIZES[TABLE_SIZES.length - 1];
+    }
+
+    private static <N> Object[] populate(List<N> nodes, Function<N, String> nodeKey, int tableSize) {
+        int nodeNum = nodes.size();
+        int[] offsets = new int[nodeNum];
+        int[] skips = new int[nodeNum];
+        for (int i = 0; i < nodeNum; i++) {
+            byte[] key = nodeKey.apply(nodes.get(i)).getBytes(StandardCharsets.UTF_8);
+            byte[] hash = murmur3_128().hashBytes(key).asBytes();
+            long h1 = toLong(hash, 0);
+            long h2 = toLong(hash, 8);
+            offsets[i] = (int) Math.floorMod(h1, (long) tableSize);
+            skips[i] = (int) Math.floorMod(h2, (long) tableSize - 1) + 1;
+        }
+        Object[] table = new Object[tableSize];
+        int[] next = new int[nodeNum];
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < nodeNum; i++) {
+                // walk the permutation of the node until an empty slot is found
+                int slot = (int) ((offsets[i] + (long) next[i] * skips[i]) % tableSize);
+                while (table[slot] != null) {
+                    next[i]++;
+                    slot = (int) ((offsets[i] + (long) next[i] * skips[i]) % tableSize);
+                }
+                table[slot] = nodes.get(i);
+                next[i]++;
+                if (++filled == tableSize) {
+                    return table;
+                }
+            }
+        }
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset + 7; i >= offset; i--) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int mix(int hash) {
+        // the finalizer of murmur3 to spread the bits of the key hash
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static com.baidu.bifromq.util.TopicConst.MULTI_WILDCARD;
+import static com.baidu.bifromq.util.TopicConst.SINGLE_WILDCARD;
+import static com.baidu.bifromq.util.TopicConst.SYS_PREFIX;
+
+import com.baidu.bifromq.util.TopicUtil;
+import com.baidu.bifromq.util.index.Branch;
+import com.baidu.bifromq.util.index.TopicLevelTrie;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Concurrent Index for searching TopicFilters against Topic.
+ */
+public final class TopicFilterIndex<V> extends TopicLevelTrie<V> {
+    private static final BranchSelector TopicFilterMatcher = new BranchSelector() {
+        @Override
+        public <T> Map<Branch<T>, Action> selectBranch(Map<String, Branch<T>> branches,
+                                                       List<String> topicLevels,
+                                                       int currentLevel) {
+            Map<Branch<T>, Action> result = new HashMap<>();
+            // wildcards at first level never match SYS topic
+            boolean matchWildcard = currentLevel != 0 || !topicLevels.get(0).startsWith(SYS_PREFIX);
+            if (matchWildcard && branches.containsKey(MULTI_WILDCARD)) {
+                // # matches current level and all descendant levels, including parent level
+                result.put(branches.get(MULTI_WILDCARD), Action.MATCH_AND_STOP);
+            }
+            if (currentLevel < topicLevels.size()) {
+                // the last level is matched, continue to find the trailing '#'
+                Action action = currentLevel == topicLevels.size() - 1 ? Action.MATCH_AND_CONTINUE : Action.CONTINUE;
+                String topicLevelToMatch = topicLevels.get(currentLevel);
+                if (branches.containsKey(topicLevelToMatch)) {
+                    result.put(branches.get(topicLevelToMatch), action);
+                }
+                if (matchWildcard && branches.containsKey(SINGLE_WILDCARD)) {
+                    result.put(branches.get(SINGLE_WILDCARD), action);
+                }
+            }
+            return result;
+        }
+    };
+
+    public void add(String topicFilter, V value) {
+        add(TopicUtil.parse(topicFilter, false), value);
+    }
+
+    public void remove(String topicFilter, V value) {
+        remove(TopicUtil.parse(topicFilter, false), value);
+    }
+
+    public Set<V> match(String topic) {
+        return lookup(TopicUtil.parse(topic, false), TopicFilterMatcher);
+    }
+}
@@ -15,6 +15,7 @@ package com.baidu.bifromq.dist.worker.cache;
 
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.dist.entity.Matching;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -24,6 +25,15 @@ public interface ISubscriptionCache {
 
     void refresh(Map<String, Set<String>> topicFiltersByTenant);
 
+    /**
+     * Apply the route changes to the cached routes in place, the affected routes which could not be patched will be
+     * reloaded.
+     *
+     * @param removed the removed matchings
+     * @param added   the added matchings
+     */
+    void patch(List<Matching> removed, List<Matching> added);
+
     void reset(Boundary boundary);
 
     void close();
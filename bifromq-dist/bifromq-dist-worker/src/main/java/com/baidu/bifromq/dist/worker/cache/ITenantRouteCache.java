@@ -15,6 +15,7 @@ package com.baidu.bifromq.dist.worker.cache;
 
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.dist.entity.Matching;
+import java.util.Collection;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
@@ -24,6 +25,8 @@ import java.util.concurrent.CompletableFuture;
 public interface ITenantRouteCache {
     void refresh(Set<String> topicFilters);
 
+    void patch(Collection<Matching> removed, Collection<Matching> added);
+
     CompletableFuture<Set<Matching>> getMatch(String topic, Boundary currentTenantRange);
 
     void destroy();
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker.cache;
+
+import com.baidu.bifromq.dist.entity.Matching;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tenant route matcher which walks the in-memory subscription index instead of scanning the range.
+ */
+public class InMemTenantRouteMatcher implements ITenantRouteMatcher {
+    private final String tenantId;
+    private final SubscriptionIndex index;
+    private final Timer timer;
+
+    public InMemTenantRouteMatcher(String tenantId, SubscriptionIndex index, Timer timer) {
+        this.tenantId = tenantId;
+        this.index = index;
+        this.timer = timer;
+    }
+
+    @Override
+    public Map<String, Set<Matching>> matchAll(Set<String> topics) {
+        final Timer.Sample sample = Timer.start();
+        Map<String, Set<Matching>> matchedRoutes = index.matchAll(tenantId, topics);
+        sample.stop(timer);
+        return matchedRoutes;
+    }
+}
@@ -30,7 +30,12 @@ import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.collect.Sets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -75,6 +80,13 @@ public class SubscriptionCache implements ISubscriptionCache {
             Ticker.systemTicker());
     }
 
+    public SubscriptionCache(KVRangeId id, SubscriptionIndex subscriptionIndex, Executor matchExecutor) {
+        this(id, new TenantRouteCacheFactory(subscriptionIndex,
+                Duration.ofSeconds(DistTopicMatchExpirySeconds.INSTANCE.get()), matchExecutor,
+                "id", KVRangeIdUtil.toString(id)),
+            Ticker.systemTicker());
+    }
+
     public SubscriptionCache(KVRangeId id,
                              ITenantRouteCacheFactory tenantRouteCacheFactory,
                              Ticker ticker) {
@@ -129,6 +141,21 @@ public class SubscriptionCache implements ISubscriptionCache {
         });
     }
 
+    @Override
+    public void patch(List<Matching> removed, List<Matching> added) {
+        Map<String, List<Matching>> removedByTenant = new HashMap<>();
+        Map<String, List<Matching>> addedByTenant = new HashMap<>();
+        removed.forEach(m -> removedByTenant.computeIfAbsent(m.tenantId, k -> new ArrayList<>()).add(m));
+        added.forEach(m -> addedByTenant.computeIfAbsent(m.tenantId, k -> new ArrayList<>()).add(m));
+        Sets.union(removedByTenant.keySet(), addedByTenant.keySet()).forEach(tenantId -> {
+            ITenantRouteCache cache = tenantCache.getIfPresent(noRefreshExpiry(tenantId));
+            if (cache != null) {
+                cache.patch(removedByTenant.getOrDefault(tenantId, Collections.emptyList()),
+                    addedByTenant.getOrDefault(tenantId, Collections.emptyList()));
+            }
+        });
+    }
+
     @Override
     public void reset(Boundary boundary) {
         this.boundary = boundary;
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker.cache;
+
+import com.baidu.bifromq.dist.entity.Matching;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the matching records held by a dist-worker range, partitioned by tenant. The index is supposed
+ * to be updated by the single apply thread of the range, and could be looked up concurrently.
+ */
+public class SubscriptionIndex {
+    private final String[] tags;
+    private volatile Map<String, TenantRouteIndex> tenantIndexes = new ConcurrentHashMap<>();
+
+    public SubscriptionIndex(String... tags) {
+        this.tags = tags;
+    }
+
+    public void add(Matching matching) {
+        tenantIndexes.computeIfAbsent(matching.tenantId, k -> new TenantRouteIndex(k, tags)).add(matching);
+    }
+
+    public void remove(Matching matching) {
+        tenantIndexes.computeIfPresent(matching.tenantId, (k, v) -> {
+            v.remove(matching);
+            if (v.isEmpty()) {
+                v.destroy();
+                return null;
+            }
+            return v;
+        });
+    }
+
+    /**
+     * Apply the matching records removed and added by one mutation. A record may appear more than once in a batch,
+     * so the records are deduplicated first to keep the route count and the estimated memory usage accurate.
+     *
+     * @param removed the removed matching records
+     * @param added   the added matching records
+     */
+    public void patch(Collection<Matching> removed, Collection<Matching> added) {
+        new LinkedHashSet<>(removed).forEach(this::remove);
+        new LinkedHashSet<>(added).forEach(this::add);
+    }
+
+    /**
+     * Match the topics against the indexed topic filters of the tenant.
+     *
+     * @param tenantId the tenant
+     * @param topics   the topics to match
+     * @return the matched routes of each topic
+     */
+    public Map<String, Set<Matching>> matchAll(String tenantId, Set<String> topics) {
+        TenantRouteIndex tenantIndex = tenantIndexes.get(tenantId);
+        Map<String, Set<Matching>> matchedRoutes = new HashMap<>();
+        for (String topic : topics) {
+            matchedRoutes.put(topic, tenantIndex == null ? new HashSet<>() : tenantIndex.match(topic));
+        }
+        return matchedRoutes;
+    }
+
+    /**
+     * The estimated memory used by the index of given tenant.
+     *
+     * @param tenantId the tenant
+     * @return the estimated bytes
+     */
+    public long memUsage(String tenantId) {
+        TenantRouteIndex tenantIndex = tenantIndexes.get(tenantId);
+        return tenantIndex == null ? 0 : tenantIndex.memUsage();
+    }
+
+    /**
+     * Rebuild the index from the given matching records, the new index takes effect after fully built.
+     *
+     * @param matchings all the matching records in the range
+     */
+    public void reset(Collection<Matching> matchings) {
+        // stop gauging first, the old index keeps serving lookup until the new one is ready
+        tenantIndexes.values().forEach(TenantRouteIndex::destroy);
+        Map<String, TenantRouteIndex> newIndexes = new ConcurrentHashMap<>();
+        for (Matching matching : matchings) {
+            newIndexes.computeIfAbsent(matching.tenantId, k -> new TenantRouteIndex(k, tags)).add(matching);
+        }
+        tenantIndexes = newIndexes;
+    }
+
+    public void close() {
+        reset(Collections.emptyList());
+    }
+}
@@ -13,6 +13,8 @@
 
 package com.baidu.bifromq.dist.worker.cache;
 
+import static com.baidu.bifromq.util.TopicUtil.unescape;
+
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.dist.entity.Matching;
 import com.baidu.bifromq.dist.worker.TopicIndex;
@@ -25,9 +27,14 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import com.github.benmanes.caffeine.cache.Ticker;
 import com.github.benmanes.caffeine.cache.Weigher;
+import com.google.common.collect.Sets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -78,8 +85,9 @@ class TenantRouteCache implements ITenantRouteCache {
                 @Override
                 public @Nullable Set<Matching> load(RouteCacheKey key) {
                     ITenantMeter.get(tenantId).recordCount(TenantMetric.MqttRouteCacheMissCount);
-                    Map<String, Set<Matching>> results = matcher.matchAll(Collections.singleton(key.topic));
+                    // index before matching, so that the changes happened during loading could be tracked
                     index.add(key.topic, key);
+                    Map<String, Set<Matching>> results = matcher.matchAll(Collections.singleton(key.topic));
                     return results.get(key.topic);
                 }
 
@@ -87,13 +95,15 @@ class TenantRouteCache implements ITenantRouteCache {
                 public Map<RouteCacheKey, Set<Matching>> loadAll(Set<? extends RouteCacheKey> keys) {
                     ITenantMeter.get(tenantId).recordCount(TenantMetric.MqttRouteCacheMissCount, keys.size());
                     Map<String, RouteCacheKey> topicToKeyMap = new HashMap<>();
-                    keys.forEach(k -> topicToKeyMap.put(k.topic(), k));
+                    keys.forEach(k -> {
+                        topicToKeyMap.put(k.topic(), k);
+                        index.add(k.topic(), k);
+                    });
                     Map<String, Set<Matching>> resultMap = matcher.matchAll(topicToKeyMap.keySet());
                     Map<RouteCacheKey, Set<Matching>> result = new HashMap<>();
                     for (Map.Entry<String, Set<Matching>> entry : resultMap.entrySet()) {
                         RouteCacheKey key = topicToKeyMap.get(entry.getKey());
                         result.put(key, entry.getValue());
-                        index.add(key.topic, key);
                     }
                     return result;
                 }
@@ -116,6 +126,47 @@ class TenantRouteCache implements ITenantRouteCache {
         });
     }
 
+    @Override
+    public void patch(Collection<Matching> removed, Collection<Matching> added) {
+        Map<RouteCacheKey, List<Matching>> toRemove = new HashMap<>();
+        Map<RouteCacheKey, List<Matching>> toAdd = new HashMap<>();
+        for (Matching matching : removed) {
+            for (RouteCacheKey cacheKey : index.match(unescape(matching.escapedTopicFilter))) {
+                toRemove.computeIfAbsent(cacheKey, k -> new ArrayList<>()).add(matching);
+            }
+        }
+        for (Matching matching : added) {
+            for (RouteCacheKey cacheKey : index.match(unescape(matching.escapedTopicFilter))) {
+                toAdd.computeIfAbsent(cacheKey, k -> new ArrayList<>()).add(matching);
+            }
+        }
+        List<RouteCacheKey> toReload = new ArrayList<>();
+        for (RouteCacheKey cacheKey : Sets.union(toRemove.keySet(), toAdd.keySet())) {
+            List<Matching> removedRoutes = toRemove.getOrDefault(cacheKey, Collections.emptyList());
+            List<Matching> addedRoutes = toAdd.getOrDefault(cacheKey, Collections.emptyList());
+            routesCache.asMap().computeIfPresent(cacheKey, (k, routesFuture) -> {
+                if (routesFuture.isCompletedExceptionally()) {
+                    toReload.add(k);
+                    return routesFuture;
+                }
+                if (!routesFuture.isDone()) {
+                    // the routes being loaded may or may not see the changes, patching is idempotent anyway
+                    return routesFuture.thenApply(routes -> patch(routes, removedRoutes, addedRoutes));
+                }
+                return CompletableFuture.completedFuture(patch(routesFuture.join(), removedRoutes, addedRoutes));
+            });
+        }
+        toReload.forEach(cacheKey -> routesCache.synchronous().refresh(cacheKey));
+    }
+
+    private Set<Matching> patch(Set<Matching> routes, List<Matching> removed, List<Matching> added) {
+        // copy on write, the cached routes may be in use
+        Set<Matching> patched = new HashSet<>(routes);
+        removed.forEach(patched::remove);
+        patched.addAll(added);
+        return patched;
+    }
+
     @Override
     public CompletableFuture<Set<Matching>> getMatch(String topic, Boundary currentTenantRange) {
         return routesCache.get(new RouteCacheKey(topic, currentTenantRange));
@@ -23,6 +23,7 @@ import java.util.function.Supplier;
 class TenantRouteCacheFactory implements ITenantRouteCacheFactory {
     private final Executor matchExecutor;
     private final ThreadLocalKVReader threadLocalReader;
+    private final SubscriptionIndex subscriptionIndex;
     private final Timer internalMatchTimer;
     private final Duration expiry;
 
@@ -30,8 +31,24 @@ class TenantRouteCacheFactory implements ITenantRouteCacheFactory {
                                    Duration expiry,
                                    Executor matchExecutor,
                                    String... tags) {
+        this(new ThreadLocalKVReader(readerSupplier), null, expiry, matchExecutor, tags);
+    }
+
+    public TenantRouteCacheFactory(SubscriptionIndex subscriptionIndex,
+                                   Duration expiry,
+                                   Executor matchExecutor,
+                                   String... tags) {
+        this(null, subscriptionIndex, expiry, matchExecutor, tags);
+    }
+
+    private TenantRouteCacheFactory(ThreadLocalKVReader threadLocalReader,
+                                    SubscriptionIndex subscriptionIndex,
+                                    Duration expiry,
+                                    Executor matchExecutor,
+                                    String... tags) {
         this.matchExecutor = matchExecutor;
-        this.threadLocalReader = new ThreadLocalKVReader(readerSupplier);
+        this.threadLocalReader = threadLocalReader;
+        this.subscriptionIndex = subscriptionIndex;
         this.expiry = expiry;
         internalMatchTimer = Timer.builder("dist.match.internal")
             .tags(tags)
@@ -46,13 +63,17 @@ class TenantRouteCacheFactory implements ITenantRouteCacheFactory {
 
     @Override
     public ITenantRouteCache create(String tenantId) {
-        return new TenantRouteCache(tenantId,
-            new TenantRouteMatcher(tenantId, threadLocalReader, internalMatchTimer), expiry, matchExecutor);
+        ITenantRouteMatcher matcher = subscriptionIndex != null
+            ? new InMemTenantRouteMatcher(tenantId, subscriptionIndex, internalMatchTimer)
+            : new TenantRouteMatcher(tenantId, threadLocalReader, internalMatchTimer);
+        return new TenantRouteCache(tenantId, matcher, expiry, matchExecutor);
     }
 
     @Override
     public void close() {
-        threadLocalReader.close();
+        if (threadLocalReader != null) {
+            threadLocalReader.close();
+        }
         Metrics.globalRegistry.remove(internalMatchTimer);
     }
 }
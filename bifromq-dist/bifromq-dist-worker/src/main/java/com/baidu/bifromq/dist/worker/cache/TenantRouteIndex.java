@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker.cache;
+
+import static com.baidu.bifromq.metrics.TenantMetric.MqttRouteIndexMemGauge;
+import static com.baidu.bifromq.util.TopicUtil.unescape;
+
+import com.baidu.bifromq.dist.entity.GroupMatching;
+import com.baidu.bifromq.dist.entity.Matching;
+import com.baidu.bifromq.dist.entity.NormalMatching;
+import com.baidu.bifromq.dist.worker.TopicFilterIndex;
+import com.baidu.bifromq.metrics.ITenantMeter;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory index of all matching records of a tenant within the range.
+ */
+class TenantRouteIndex {
+    // shallow sizes on 64-bit JVM with compressed oops, objects are 8 bytes aligned and strings are latin1 compacted
+    // String object(24B) plus the header of its backing array(16B)
+    private static final int STRING_SIZE = 40;
+    // LiteralByteString object(24B) plus the header of its backing array(16B)
+    private static final int BYTE_STRING_SIZE = 40;
+    // header(12B) plus 8 fields of NormalMatching or GroupMatching
+    private static final int MATCHING_SIZE = 48;
+    // MatchInfo message object excluding its strings which are covered by the serialized size
+    private static final int MATCH_INFO_SIZE = 40;
+    // IntTree node(40B), ConsPStack(24B) and map entry(24B) holding the value in the PSet of the trie branch
+    private static final int TRIE_VALUE_SIZE = 88;
+    // HashMap node(32B) in GroupMatching.receiverIds plus the reference slots in the hash table and receiver list
+    private static final int RECEIVER_ENTRY_SIZE = 40;
+    private final String tenantId;
+    private final String[] tags;
+    private final TopicFilterIndex<Matching> index = new TopicFilterIndex<>();
+    private final LongAdder routes = new LongAdder();
+    private final LongAdder memUsage = new LongAdder();
+
+    TenantRouteIndex(String tenantId, String... tags) {
+        this.tenantId = tenantId;
+        this.tags = tags;
+        ITenantMeter.gauging(tenantId, MqttRouteIndexMemGauge, memUsage::sum, tags);
+    }
+
+    void add(Matching matching) {
+        index.add(unescape(matching.escapedTopicFilter), matching);
+        routes.increment();
+        memUsage.add(estimate(matching));
+    }
+
+    void remove(Matching matching) {
+        index.remove(unescape(matching.escapedTopicFilter), matching);
+        routes.decrement();
+        memUsage.add(-estimate(matching));
+    }
+
+    Set<Matching> match(String topic) {
+        return new HashSet<>(index.match(topic));
+    }
+
+    boolean isEmpty() {
+        return routes.sum() == 0;
+    }
+
+    long memUsage() {
+        return memUsage.sum();
+    }
+
+    void destroy() {
+        ITenantMeter.stopGauging(tenantId, MqttRouteIndexMemGauge, tags);
+    }
+
+    private static long estimate(Matching matching) {
+        long size = TRIE_VALUE_SIZE + BYTE_STRING_SIZE + matching.key.size() + matchingSize(matching);
+        if (matching instanceof NormalMatching normalMatching) {
+            size += sizeOf(normalMatching.originalTopicFilter()) + receiverSize(normalMatching);
+        } else if (matching instanceof GroupMatching groupMatching) {
+            // the key and the original topic filter are shared by all receivers in the group
+            size += sizeOf(groupMatching.group) + sizeOf(groupMatching.originalTopicFilter());
+            for (NormalMatching receiver : groupMatching.receiverList) {
+                size += RECEIVER_ENTRY_SIZE + matchingSize(receiver) + receiverSize(receiver);
+            }
+        }
+        return size;
+    }
+
+    private static long matchingSize(Matching matching) {
+        return MATCHING_SIZE + sizeOf(matching.tenantId) + sizeOf(matching.escapedTopicFilter);
+    }
+
+    private static long receiverSize(NormalMatching matching) {
+        return sizeOf(matching.scopedInboxId) + MATCH_INFO_SIZE + matching.matchInfo.getSerializedSize();
+    }
+
+    private static long sizeOf(String str) {
+        return STRING_SIZE + str.length();
+    }
+}
@@ -37,7 +37,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
-class TenantRouteMatcher implements ITenantRouteMatcher {
+public class TenantRouteMatcher implements ITenantRouteMatcher {
     private final String tenantId;
     private final Timer timer;
     private final Supplier<IKVReader> kvReaderSupplier;
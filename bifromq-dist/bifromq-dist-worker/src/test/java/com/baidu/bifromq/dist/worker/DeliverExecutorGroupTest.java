@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static com.baidu.bifromq.dist.entity.EntityUtil.parseMatchRecord;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toGroupMatchRecordKey;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toNormalMatchRecordKey;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toQInboxId;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.deliverer.DeliveryCall;
+import com.baidu.bifromq.deliverer.IMessageDeliverer;
+import com.baidu.bifromq.dist.client.IDistClient;
+import com.baidu.bifromq.dist.entity.Matching;
+import com.baidu.bifromq.dist.rpc.proto.GroupMatchRecord;
+import com.baidu.bifromq.plugin.eventcollector.IEventCollector;
+import com.baidu.bifromq.plugin.eventcollector.OutOfTenantResource;
+import com.baidu.bifromq.plugin.subbroker.DeliveryResult;
+import com.baidu.bifromq.sysprops.props.DistParallelFanOutThreshold;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.TopicMessagePack;
+import com.bifromq.plugin.resourcethrottler.IResourceThrottler;
+import com.bifromq.plugin.resourcethrottler.TenantResourceType;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DeliverExecutorGroupTest {
+    private static final String TENANT_ID = "tenant";
+    private static final int PARALLEL_FAN_OUT_THRESHOLD = 100;
+    private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private IEventCollector eventCollector;
+    private Set<TenantResourceType> exhausted;
+    private DeliverExecutorGroup executorGroup;
+
+    @BeforeMethod
+    public void setup() {
+        System.setProperty(DistParallelFanOutThreshold.INSTANCE.propKey(),
+            Integer.toString(PARALLEL_FAN_OUT_THRESHOLD));
+        DistParallelFanOutThreshold.INSTANCE.resolve();
+        received.clear();
+        scheduled.set(0);
+        eventCollector = mock(IEventCollector.class);
+        exhausted = ConcurrentHashMap.newKeySet();
+        IResourceThrottler resourceThrottler = (tenantId, type) -> !exhausted.contains(type);
+        IMessageDeliverer deliverer = new IMessageDeliverer() {
+            @Override
+            public CompletableFuture<DeliveryResult.Code> schedule(DeliveryCall request) {
+                // called in order per subscription
+                received.computeIfAbsent(request.matchInfo.getTopicFilter() + ":" + request.matchInfo.getReceiverId(),
+                        k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(request.messagePack.getMessage(0).getMessage(0).getPayload()
+                        .toStringUtf8());
+                scheduled.incrementAndGet();
+                return CompletableFuture.completedFuture(DeliveryResult.Code.OK);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        executorGroup = new DeliverExecutorGroup(deliverer, eventCollector, resourceThrottler,
+            mock(IDistClient.class), 4);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executorGroup.shutdown();
+        System.clearProperty(DistParallelFanOutThreshold.INSTANCE.propKey());
+        DistParallelFanOutThreshold.INSTANCE.resolve();
+    }
+
+    @Test
+    public void parallelFanOutKeepOrderPerSubscription() {
+        Set<Matching> routes = normalRoutes(0, PARALLEL_FAN_OUT_THRESHOLD * 3, 0);
+        // the members of the ordered group also have normal routes
+        Matching groupRoute = orderedGroupRoute(0, 10);
+        routes.add(groupRoute);
+        int rounds = 20;
+        int expected = 0;
+        for (int i = 0; i < rounds; i++) {
+            // the parallel, single route and serial fan-out of consecutive packs
+            executorGroup.submit(TENANT_ID, routes, msgPack("p" + i));
+            executorGroup.submit(TENANT_ID, Set.of(groupRoute), msgPack("s" + i));
+            executorGroup.submit(TENANT_ID, normalRoutes(0, 2, 0), msgPack("m" + i));
+            expected += routes.size() + 1 + 2;
+        }
+        int total = expected;
+        await().until(() -> scheduled.get() == total);
+        for (Map.Entry<String, List<String>> entry : received.entrySet()) {
+            List<String> payloads = entry.getValue();
+            for (int i = 1; i < payloads.size(); i++) {
+                assertTrue(round(payloads.get(i - 1)) <= round(payloads.get(i)),
+                    "Out of order delivery to " + entry.getKey() + ": " + payloads);
+            }
+        }
+    }
+
+    @Test
+    public void parallelFanOutUnderThrottled() {
+        exhausted.add(TenantResourceType.TotalTransientFanOutBytesPerSeconds);
+        Set<Matching> routes = normalRoutes(0, PARALLEL_FAN_OUT_THRESHOLD * 2, 0);
+        routes.addAll(normalRoutes(PARALLEL_FAN_OUT_THRESHOLD * 2, PARALLEL_FAN_OUT_THRESHOLD * 3, 1));
+        executorGroup.submit(TENANT_ID, routes, msgPack("p"));
+        // one transient route is still fanned out like serial fan-out
+        await().until(() -> scheduled.get() == PARALLEL_FAN_OUT_THRESHOLD + 1);
+        verify(eventCollector, times(1)).report(argThat(e -> e instanceof OutOfTenantResource));
+
+        exhausted.add(TenantResourceType.TotalPersistentFanOutBytesPerSeconds);
+        executorGroup.submit(TENANT_ID, routes, msgPack("p"));
+        await().until(() -> scheduled.get() == PARALLEL_FAN_OUT_THRESHOLD + 3);
+        verify(eventCollector, times(3)).report(argThat(e -> e instanceof OutOfTenantResource));
+    }
+
+    private int round(String payload) {
+        return Integer.parseInt(payload.substring(1)) * 3 + switch (payload.charAt(0)) {
+            case 'p' -> 0;
+            case 's' -> 1;
+            default -> 2;
+        };
+    }
+
+    private Set<Matching> normalRoutes(int from, int to, int subBrokerId) {
+        Set<Matching> routes = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            ByteString key = toNormalMatchRecordKey(TENANT_ID, "a/b",
+                toQInboxId(subBrokerId, "inbox" + i, "deliverer" + i % 3));
+            routes.add(parseMatchRecord(key, ByteString.EMPTY));
+        }
+        return routes;
+    }
+
+    private Matching orderedGroupRoute(int from, int to) {
+        GroupMatchRecord.Builder recordBuilder = GroupMatchRecord.newBuilder();
+        for (int i = from; i < to; i++) {
+            recordBuilder.addQReceiverId(toQInboxId(0, "inbox" + i, "deliverer" + i % 3));
+        }
+        return parseMatchRecord(toGroupMatchRecordKey(TENANT_ID, "$oshare/group/a/b"),
+            recordBuilder.build().toByteString());
+    }
+
+    private TopicMessagePack msgPack(String payload) {
+        return TopicMessagePack.newBuilder()
+            .setTopic("a/b")
+            .addMessage(TopicMessagePack.PublisherPack.newBuilder()
+                .setPublisher(ClientInfo.newBuilder().setTenantId(TENANT_ID).build())
+                .addMessage(Message.newBuilder().setPayload(ByteString.copyFromUtf8(payload)).build())
+                .build())
+            .build();
+    }
+}
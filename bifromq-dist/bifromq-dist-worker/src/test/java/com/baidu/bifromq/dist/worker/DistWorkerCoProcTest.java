@@ -15,6 +15,7 @@ package com.baidu.bifromq.dist.worker;
 
 import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.anySet;
 import static org.mockito.Mockito.eq;
@@ -46,8 +47,11 @@ import com.baidu.bifromq.dist.rpc.proto.DistServiceROCoProcInput;
 import com.baidu.bifromq.dist.rpc.proto.DistServiceRWCoProcInput;
 import com.baidu.bifromq.dist.rpc.proto.TenantOption;
 import com.baidu.bifromq.dist.worker.cache.ISubscriptionCache;
+import com.baidu.bifromq.dist.worker.cache.SubscriptionIndex;
 import com.baidu.bifromq.type.TopicMessagePack;
 import com.google.protobuf.ByteString;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -58,6 +62,7 @@ import org.testng.annotations.Test;
 public class DistWorkerCoProcTest {
 
     private ISubscriptionCache routeCache;
+    private SubscriptionIndex routeIndex;
     private ITenantsState tenantsState;
     private IDeliverExecutorGroup deliverExecutorGroup;
     private Supplier<IKVCloseableReader> readerProvider;
@@ -70,6 +75,7 @@ public class DistWorkerCoProcTest {
     @BeforeMethod
     public void setUp() {
         routeCache = mock(ISubscriptionCache.class);
+        routeIndex = mock(SubscriptionIndex.class);
         tenantsState = mock(ITenantsState.class);
         deliverExecutorGroup = mock(IDeliverExecutorGroup.class);
         readerProvider = mock(Supplier.class);
@@ -82,7 +88,7 @@ public class DistWorkerCoProcTest {
         when(reader.iterator()).thenReturn(iterator);
         when(iterator.isValid()).thenReturn(false);
         distWorkerCoProc =
-            new DistWorkerCoProc(rangeId, readerProvider, routeCache, tenantsState, deliverExecutorGroup);
+            new DistWorkerCoProc(rangeId, readerProvider, routeCache, routeIndex, tenantsState, deliverExecutorGroup);
     }
 
     @Test
@@ -109,8 +115,13 @@ public class DistWorkerCoProcTest {
         Supplier<RWCoProcOutput> resultSupplier = distWorkerCoProc.mutate(rwCoProcInput, reader, writer);
         RWCoProcOutput result = resultSupplier.get();
 
-        // Verify that matches are added to the cache
-        verify(routeCache, times(1)).refresh(any());
+        // Verify that matches are added to the index and the cache
+        verify(routeIndex, times(1)).patch(argThat(Collection::isEmpty), argThat(c -> c.size() == 2
+            && c.stream().anyMatch(m -> m.tenantId.equals("tenant1")
+            && m.originalTopicFilter().equals("topicFilter1"))
+            && c.stream().anyMatch(m -> m.tenantId.equals("tenant2")
+            && m.originalTopicFilter().equals("topicFilter2"))));
+        verify(routeCache, times(1)).patch(argThat(List::isEmpty), argThat(l -> l.size() == 2));
 
         // Verify that tenant state is updated for both tenants
         verify(tenantsState, times(1)).incNormalRoutes(eq("tenant1"), eq(1));
@@ -143,9 +154,12 @@ public class DistWorkerCoProcTest {
         Supplier<RWCoProcOutput> resultSupplier = distWorkerCoProc.mutate(rwCoProcInput, reader, writer);
         RWCoProcOutput result = resultSupplier.get();
 
-        // Verify that matches are removed from the cache
-        verify(routeCache, times(1)).refresh(argThat(m -> m.containsKey("tenant1")
-            && m.get("tenant1").contains("topicFilter1")));
+        // Verify that matches are removed from the index and the cache
+        verify(routeIndex, times(1)).patch(argThat(c -> c.size() == 1
+            && c.stream().allMatch(m -> m.tenantId.equals("tenant1")
+            && m.originalTopicFilter().equals("topicFilter1"))), argThat(Collection::isEmpty));
+        verify(routeCache, times(1)).patch(argThat(l -> l.size() == 1
+            && l.get(0).originalTopicFilter().equals("topicFilter1")), argThat(List::isEmpty));
 
         // Verify that tenant state is updated
         verify(tenantsState, times(1)).decNormalRoutes(eq("tenant1"), eq(1));
@@ -200,6 +214,7 @@ public class DistWorkerCoProcTest {
         // Verify that tenant state and route cache are reset
         verify(tenantsState, times(1)).reset();
         verify(routeCache, times(1)).reset(eq(boundary));
+        verify(routeIndex, times(2)).reset(anyList());
     }
 
     @Test
@@ -209,6 +224,7 @@ public class DistWorkerCoProcTest {
         // Verify that tenant state, route cache, and deliver executor group are closed
         verify(tenantsState, times(1)).close();
         verify(routeCache, times(1)).close();
+        verify(routeIndex, times(1)).close();
         verify(deliverExecutorGroup, times(1)).shutdown();
     }
 
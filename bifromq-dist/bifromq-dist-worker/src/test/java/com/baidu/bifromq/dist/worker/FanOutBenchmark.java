@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static com.baidu.bifromq.dist.entity.EntityUtil.parseMatchRecord;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toNormalMatchRecordKey;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toQInboxId;
+import static org.mockito.Mockito.mock;
+
+import com.baidu.bifromq.deliverer.DeliveryCall;
+import com.baidu.bifromq.deliverer.IMessageDeliverer;
+import com.baidu.bifromq.dist.client.IDistClient;
+import com.baidu.bifromq.dist.entity.Matching;
+import com.baidu.bifromq.plugin.eventcollector.IEventCollector;
+import com.baidu.bifromq.plugin.subbroker.DeliveryResult;
+import com.baidu.bifromq.sysprops.props.DistParallelFanOutThreshold;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.TopicMessagePack;
+import com.google.protobuf.ByteString;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measure the time of fanning out one message to all routes of a topic until every delivery call is scheduled,
+ * comparing the serial fan-out with the parallel one.
+ */
+@State(Scope.Benchmark)
+public class FanOutBenchmark {
+    private static final String TENANT_ID = "tenant";
+    private static final CompletableFuture<DeliveryResult.Code> OK = CompletableFuture.completedFuture(
+        DeliveryResult.Code.OK);
+
+    @Param({"10000", "100000", "1000000"})
+    private int routes;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private final LongAdder scheduled = new LongAdder();
+    private Set<Matching> matchings;
+    private TopicMessagePack msgPack;
+    private DeliverExecutorGroup executorGroup;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(FanOutBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        matchings = new HashSet<>();
+        for (int i = 0; i < routes; i++) {
+            ByteString key = toNormalMatchRecordKey(TENANT_ID, "broadcast", toQInboxId(0, "inbox" + i, "deliverer"));
+            matchings.add(parseMatchRecord(key, ByteString.EMPTY));
+        }
+        msgPack = TopicMessagePack.newBuilder()
+            .setTopic("broadcast")
+            .addMessage(TopicMessagePack.PublisherPack.newBuilder()
+                .setPublisher(ClientInfo.newBuilder().setTenantId(TENANT_ID).build())
+                .addMessage(Message.newBuilder().setPayload(ByteString.copyFromUtf8("hello")).build())
+                .build())
+            .build();
+        System.setProperty(DistParallelFanOutThreshold.INSTANCE.propKey(),
+            Integer.toString(parallel ? 1 : Integer.MAX_VALUE));
+        DistParallelFanOutThreshold.INSTANCE.resolve();
+        IMessageDeliverer deliverer = new IMessageDeliverer() {
+            @Override
+            public CompletableFuture<DeliveryResult.Code> schedule(DeliveryCall request) {
+                scheduled.increment();
+                return OK;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        executorGroup = new DeliverExecutorGroup(deliverer, mock(IEventCollector.class), (tenantId, type) -> true,
+            mock(IDistClient.class), Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorGroup.shutdown();
+        System.clearProperty(DistParallelFanOutThreshold.INSTANCE.propKey());
+        DistParallelFanOutThreshold.INSTANCE.resolve();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Fork(1)
+    public void fanOut() {
+        long expected = scheduled.sum() + routes;
+        executorGroup.submit(TENANT_ID, matchings, msgPack);
+        while (scheduled.sum() < expected) {
+            Thread.onSpinWait();
+        }
+    }
+}
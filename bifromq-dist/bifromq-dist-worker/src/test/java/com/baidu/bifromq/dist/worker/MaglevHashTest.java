@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.testng.annotations.Test;
+
+public class MaglevHashTest {
+    @Test
+    public void empty() {
+        MaglevHash<String> hash = new MaglevHash<>(Collections.emptyList(), Function.identity());
+        assertNull(hash.get(1));
+    }
+
+    @Test
+    public void stable() {
+        List<String> nodes = nodes(10);
+        MaglevHash<String> hash = new MaglevHash<>(nodes, Function.identity());
+        List<String> shuffled = new ArrayList<>(nodes);
+        Collections.shuffle(shuffled);
+        MaglevHash<String> hash1 = new MaglevHash<>(shuffled, Function.identity());
+        for (int key = 0; key < 10000; key++) {
+            assertTrue(nodes.contains(hash.get(key)));
+            assertEquals(hash.get(key), hash.get(key));
+            // independent of the order of nodes
+            assertEquals(hash1.get(key), hash.get(key));
+        }
+    }
+
+    @Test
+    public void evenlyDistributed() {
+        int nodeNum = 100;
+        int keyNum = 100000;
+        MaglevHash<String> hash = new MaglevHash<>(nodes(nodeNum), Function.identity());
+        Map<String, Integer> counts = new HashMap<>();
+        for (int key = 0; key < keyNum; key++) {
+            counts.merge(hash.get(key), 1, Integer::sum);
+        }
+        assertEquals(counts.size(), nodeNum);
+        int expected = keyNum / nodeNum;
+        counts.values().forEach(count -> assertTrue(count > expected / 2 && count < expected * 2));
+    }
+
+    @Test
+    public void minimalDisruption() {
+        int keyNum = 100000;
+        List<String> nodes = nodes(100);
+        MaglevHash<String> hash = new MaglevHash<>(nodes, Function.identity());
+        List<String> removed = new ArrayList<>(nodes);
+        String removedNode = removed.remove(50);
+        MaglevHash<String> hash1 = new MaglevHash<>(removed, Function.identity());
+        int moved = 0;
+        for (int key = 0; key < keyNum; key++) {
+            String before = hash.get(key);
+            String after = hash1.get(key);
+            if (before.equals(removedNode)) {
+                assertTrue(removed.contains(after));
+            } else if (!before.equals(after)) {
+                moved++;
+            }
+        }
+        // only a small fraction of keys on remaining nodes are moved
+        assertTrue(moved < keyNum / 10);
+    }
+
+    private List<String> nodes(int num) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < num; i++) {
+            nodes.add("Node" + i);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static com.google.common.hash.Hashing.murmur3_128;
+
+import com.baidu.bifromq.type.ClientInfo;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare assigning publishers to the members of an ordered shared subscription group via the pre-computed Maglev
+ * table with scoring every member as rendezvous hashing does on cache miss.
+ */
+@State(Scope.Benchmark)
+public class OrderedSharedAssignmentBenchmark {
+    @Param({"1000"})
+    private int members;
+
+    @Param({"100000"})
+    private int publishers;
+
+    private List<String> receiverIds;
+    private ClientInfo[] senders;
+    private MaglevHash<String> maglevHash;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(OrderedSharedAssignmentBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        receiverIds = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            receiverIds.add("inbox" + i);
+        }
+        senders = new ClientInfo[publishers];
+        for (int i = 0; i < publishers; i++) {
+            senders[i] = ClientInfo.newBuilder()
+                .setTenantId("tenant")
+                .setType("mqtt")
+                .putMetadata("clientId", "client" + i)
+                .build();
+        }
+        maglevHash = new MaglevHash<>(receiverIds, Function.identity());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Threads(4)
+    @Fork(1)
+    public void maglevLookup(Blackhole blackhole) {
+        ClientInfo sender = senders[ThreadLocalRandom.current().nextInt(publishers)];
+        blackhole.consume(maglevHash.get(sender.hashCode()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Threads(4)
+    @Fork(1)
+    public void rendezvousLookup(Blackhole blackhole) {
+        ClientInfo sender = senders[ThreadLocalRandom.current().nextInt(publishers)];
+        int senderHash = sender.hashCode();
+        long maxValue = Long.MIN_VALUE;
+        String max = null;
+        for (String receiverId : receiverIds) {
+            long hash = murmur3_128().newHasher()
+                .putInt(senderHash)
+                .putBytes(receiverId.getBytes(StandardCharsets.UTF_8))
+                .hash()
+                .asLong();
+            if (hash > maxValue) {
+                max = receiverId;
+                maxValue = hash;
+            }
+        }
+        blackhole.consume(max);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Fork(1)
+    public void maglevRebuild(Blackhole blackhole) {
+        blackhole.consume(new MaglevHash<>(receiverIds, Function.identity()));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker;
+
+import static org.testng.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TopicFilterIndexTest {
+    private TopicFilterIndex<String> topicFilterIndex;
+
+    @BeforeMethod
+    public void setUp() {
+        topicFilterIndex = new TopicFilterIndex<>();
+    }
+
+    @Test
+    public void testMatch() {
+        add("#", "+", "+/#", "+/+", "/+", "/#", "a", "a/", "a/+", "a/#", "a/b/c", "$a/#", "$a/+", "+/b/#").join();
+        assertMatch(topicFilterIndex.match("/"), "#", "+/#", "+/+", "/+", "/#");
+        assertMatch(topicFilterIndex.match("/a"), "#", "+/#", "+/+", "/+", "/#");
+        assertMatch(topicFilterIndex.match("a"), "#", "+", "+/#", "a", "a/#");
+        assertMatch(topicFilterIndex.match("a/"), "#", "+/#", "+/+", "a/", "a/+", "a/#");
+        assertMatch(topicFilterIndex.match("a/b"), "#", "+/#", "+/+", "a/+", "a/#", "+/b/#");
+        assertMatch(topicFilterIndex.match("a/b/c"), "#", "+/#", "a/#", "a/b/c", "+/b/#");
+        assertMatch(topicFilterIndex.match("b"), "#", "+", "+/#");
+
+        // wildcard at first level never matches SYS topic
+        assertMatch(topicFilterIndex.match("$a"), "$a/#");
+        assertMatch(topicFilterIndex.match("$a/"), "$a/#", "$a/+");
+        assertMatch(topicFilterIndex.match("$a/b"), "$a/#", "$a/+");
+        assertMatch(topicFilterIndex.match("$a/b/c"), "$a/#");
+    }
+
+    @Test
+    public void testRemove() {
+        add("#", "+", "a", "a/#").join();
+        topicFilterIndex.remove("#", "#");
+        assertMatch(topicFilterIndex.match("a"), "+", "a", "a/#");
+        topicFilterIndex.remove("a/#", "a/#");
+        assertMatch(topicFilterIndex.match("a"), "+", "a");
+        topicFilterIndex.remove("+", "+");
+        topicFilterIndex.remove("a", "a");
+        assertMatch(topicFilterIndex.match("a"));
+    }
+
+    @Test
+    public void testMultiValue() {
+        topicFilterIndex.add("a/+", "v1");
+        topicFilterIndex.add("a/+", "v1");
+        topicFilterIndex.add("a/+", "v2");
+        assertEquals(topicFilterIndex.match("a/b"), Set.of("v1", "v2"));
+
+        topicFilterIndex.remove("a/+", "v3");
+        assertEquals(topicFilterIndex.match("a/b"), Set.of("v1", "v2"));
+
+        topicFilterIndex.remove("a/+", "v2");
+        assertEquals(topicFilterIndex.match("a/b"), Set.of("v1"));
+
+        topicFilterIndex.remove("a/+", "v1");
+        assertEquals(topicFilterIndex.match("a/b"), Collections.emptySet());
+    }
+
+    private CompletableFuture<Void> add(String... topicFilters) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (String topicFilter : topicFilters) {
+            futures.add(CompletableFuture.runAsync(() -> topicFilterIndex.add(topicFilter, topicFilter)));
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    private void assertMatch(Set<String> matches, String... expected) {
+        assertEquals(matches, Set.of(expected));
+    }
+}
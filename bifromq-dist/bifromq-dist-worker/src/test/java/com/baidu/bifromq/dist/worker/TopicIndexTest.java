@@ -126,6 +126,16 @@ public class TopicIndexTest {
         assertEquals(topicIndex.get("a"), Collections.emptySet());
     }
 
+    @Test
+    public void testRemoveChildLevel() {
+        add("a", "a/b").join();
+        topicIndex.remove("a/b", "a/b");
+        assertMatch(topicIndex.match("#"), "a");
+        assertMatch(topicIndex.match("a/#"), "a");
+        topicIndex.add("a/b", "a/b");
+        assertMatch(topicIndex.match("a/#"), "a", "a/b");
+    }
+
     @Test
     public void testEdgeCases() {
         add("/", "/").join();
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker.benchmark;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static com.baidu.bifromq.dist.entity.EntityUtil.parseMatchRecord;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toNormalMatchRecordKey;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toQInboxId;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.store.api.IKVIterator;
+import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.baidu.bifromq.dist.worker.cache.ITenantRouteMatcher;
+import com.baidu.bifromq.dist.worker.cache.InMemTenantRouteMatcher;
+import com.baidu.bifromq.dist.worker.cache.SubscriptionIndex;
+import com.baidu.bifromq.dist.worker.cache.TenantRouteMatcher;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare the scan based matcher with the in-memory index based matcher.
+ */
+@State(Scope.Benchmark)
+public class TenantRouteMatcherBenchmark {
+    private static final String TENANT_ID = "tenant";
+    private static final int DEVICES = 10_000;
+
+    @Param({"1000000"})
+    private int subscriptions;
+    private ITenantRouteMatcher scanMatcher;
+    private ITenantRouteMatcher inMemMatcher;
+    private SubscriptionIndex subscriptionIndex;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(TenantRouteMatcherBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TreeMap<ByteString, ByteString> kvs = new TreeMap<>(ByteString.unsignedLexicographicalComparator());
+        subscriptionIndex = new SubscriptionIndex();
+        for (int i = 0; i < subscriptions; i++) {
+            String topicFilter = switch (i % 4) {
+                case 0 -> "dev/" + (i % DEVICES) + "/status";
+                case 1 -> "dev/" + (i % DEVICES) + "/+";
+                case 2 -> "dev/+/status/#";
+                default -> "dev/" + (i % DEVICES) + "/#";
+            };
+            ByteString key = toNormalMatchRecordKey(TENANT_ID, topicFilter, toQInboxId(1, "inbox" + i, "deliverer"));
+            kvs.put(key, ByteString.EMPTY);
+            subscriptionIndex.add(parseMatchRecord(key, ByteString.EMPTY));
+        }
+        Timer timer = Timer.builder("benchmark").register(new SimpleMeterRegistry());
+        scanMatcher = new TenantRouteMatcher(TENANT_ID, () -> new TreeMapKVReader(kvs), timer);
+        inMemMatcher = new InMemTenantRouteMatcher(TENANT_ID, subscriptionIndex, timer);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        subscriptionIndex.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 4)
+    @Threads(4)
+    @Fork(1)
+    public void scanMatch(Blackhole blackhole) {
+        blackhole.consume(scanMatcher.matchAll(Set.of(randomTopic())));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 4)
+    @Threads(4)
+    @Fork(1)
+    public void inMemMatch(Blackhole blackhole) {
+        blackhole.consume(inMemMatcher.matchAll(Set.of(randomTopic())));
+    }
+
+    private String randomTopic() {
+        return "dev/" + ThreadLocalRandom.current().nextInt(DEVICES) + "/status";
+    }
+
+    private static class TreeMapKVReader implements IKVReader {
+        private final TreeMap<ByteString, ByteString> kvs;
+
+        TreeMapKVReader(TreeMap<ByteString, ByteString> kvs) {
+            this.kvs = kvs;
+        }
+
+        @Override
+        public Boundary boundary() {
+            return FULL_BOUNDARY;
+        }
+
+        @Override
+        public long size(Boundary boundary) {
+            return 0;
+        }
+
+        @Override
+        public boolean exist(ByteString key) {
+            return kvs.containsKey(key);
+        }
+
+        @Override
+        public Optional<ByteString> get(ByteString key) {
+            return Optional.ofNullable(kvs.get(key));
+        }
+
+        @Override
+        public IKVIterator iterator() {
+            return new IKVIterator() {
+                private Map.Entry<ByteString, ByteString> current;
+
+                @Override
+                public ByteString key() {
+                    return current.getKey();
+                }
+
+                @Override
+                public ByteString value() {
+                    return current.getValue();
+                }
+
+                @Override
+                public boolean isValid() {
+                    return current != null;
+                }
+
+                @Override
+                public void next() {
+                    current = kvs.higherEntry(current.getKey());
+                }
+
+                @Override
+                public void prev() {
+                    current = kvs.lowerEntry(current.getKey());
+                }
+
+                @Override
+                public void seekToFirst() {
+                    current = kvs.firstEntry();
+                }
+
+                @Override
+                public void seekToLast() {
+                    current = kvs.lastEntry();
+                }
+
+                @Override
+                public void seek(ByteString key) {
+                    current = kvs.ceilingEntry(key);
+                }
+
+                @Override
+                public void seekForPrev(ByteString key) {
+                    current = kvs.floorEntry(key);
+                }
+            };
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+}
@@ -29,12 +29,14 @@ import static org.testng.Assert.assertTrue;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.basekv.proto.KVRangeId;
 import com.baidu.bifromq.basekv.store.api.IKVCloseableReader;
+import com.baidu.bifromq.dist.entity.EntityUtil;
 import com.baidu.bifromq.dist.entity.Matching;
 import com.github.benmanes.caffeine.cache.Ticker;
 import com.google.protobuf.ByteString;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -97,6 +99,23 @@ public class SubscriptionCacheTest {
         verify(tenantRouteCacheMock, never()).refresh(topicFilters);
     }
 
+    @Test
+    public void patch() {
+        String tenantId = "tenant1";
+        String topic = "home/sensor/temperature";
+        when(tenantRouteCacheMock.getMatch(eq(topic), any(Boundary.class))).thenReturn(
+            CompletableFuture.completedFuture(new HashSet<>()));
+        cache.get(tenantId, topic);
+
+        Matching added = EntityUtil.parseMatchRecord(EntityUtil.toNormalMatchRecordKey(tenantId, "home/#",
+            EntityUtil.toQInboxId(1, "inbox1", "deliverer")), ByteString.EMPTY);
+        Matching removed = EntityUtil.parseMatchRecord(EntityUtil.toNormalMatchRecordKey("tenant2", "home/#",
+            EntityUtil.toQInboxId(1, "inbox2", "deliverer")), ByteString.EMPTY);
+        cache.patch(List.of(removed), List.of(added));
+
+        verify(tenantRouteCacheMock, times(1)).patch(List.of(), List.of(added));
+    }
+
     @Test
     public void cacheExpiry() {
         String tenantId = "tenant1";
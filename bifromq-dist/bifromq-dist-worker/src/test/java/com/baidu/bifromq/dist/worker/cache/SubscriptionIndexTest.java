@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.dist.worker.cache;
+
+import static com.baidu.bifromq.dist.entity.EntityUtil.parseMatchRecord;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toGroupMatchRecordKey;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toNormalMatchRecordKey;
+import static com.baidu.bifromq.dist.entity.EntityUtil.toQInboxId;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.dist.entity.Matching;
+import com.baidu.bifromq.dist.rpc.proto.GroupMatchRecord;
+import com.baidu.bifromq.dist.worker.MeterTest;
+import com.baidu.bifromq.metrics.TenantMetric;
+import com.google.protobuf.ByteString;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SubscriptionIndexTest extends MeterTest {
+    private final String tenantId = "tenantA";
+    private SubscriptionIndex index;
+
+    @BeforeMethod
+    public void setup() {
+        super.setup();
+        index = new SubscriptionIndex("rangeId", "testRange");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        index.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void addAndMatch() {
+        Matching matching1 = normalMatching(tenantId, "a/+", "inbox1");
+        Matching matching2 = normalMatching(tenantId, "#", "inbox2");
+        Matching matching3 = normalMatching("tenantB", "a/b", "inbox3");
+        index.add(matching1);
+        index.add(matching2);
+        index.add(matching3);
+
+        Map<String, Set<Matching>> result = index.matchAll(tenantId, Set.of("a/b", "c"));
+        assertEquals(result.get("a/b"), Set.of(matching1, matching2));
+        assertEquals(result.get("c"), Set.of(matching2));
+        assertEquals(index.matchAll("tenantB", Set.of("a/b")).get("a/b"), Set.of(matching3));
+        assertTrue(index.matchAll("tenantC", Set.of("a/b")).get("a/b").isEmpty());
+        assertTrue(index.memUsage(tenantId) > 0);
+        assertGauge(tenantId, TenantMetric.MqttRouteIndexMemGauge);
+    }
+
+    @Test
+    public void removeAndMatch() {
+        Matching matching1 = normalMatching(tenantId, "a/+", "inbox1");
+        index.add(matching1);
+        index.remove(normalMatching(tenantId, "a/+", "inbox1"));
+        assertTrue(index.matchAll(tenantId, Set.of("a/b")).get("a/b").isEmpty());
+        assertEquals(index.memUsage(tenantId), 0);
+        assertNoGauge(tenantId, TenantMetric.MqttRouteIndexMemGauge);
+    }
+
+    @Test
+    public void patchWithDuplicates() {
+        Matching matching1 = normalMatching(tenantId, "a/+", "inbox1");
+        Matching matching2 = normalMatching(tenantId, "a/b", "inbox2");
+        index.add(matching2);
+        long memUsage = index.memUsage(tenantId);
+
+        index.patch(List.of(), List.of(matching1, normalMatching(tenantId, "a/+", "inbox1")));
+        assertEquals(index.memUsage(tenantId), memUsage * 2);
+
+        index.patch(List.of(matching1, normalMatching(tenantId, "a/+", "inbox1")), List.of());
+        assertEquals(index.memUsage(tenantId), memUsage);
+        assertEquals(index.matchAll(tenantId, Set.of("a/b")).get("a/b"), Set.of(matching2));
+    }
+
+    @Test
+    public void updateGroupMatching() {
+        Matching group1 = groupMatching(tenantId, "$share/group/a/b", "inbox1");
+        Matching group2 = groupMatching(tenantId, "$share/group/a/b", "inbox1", "inbox2");
+        index.add(group1);
+        index.remove(group1);
+        index.add(group2);
+        assertEquals(index.matchAll(tenantId, Set.of("a/b")).get("a/b"), Set.of(group2));
+    }
+
+    @Test
+    public void reset() {
+        Matching matching1 = normalMatching(tenantId, "a/+", "inbox1");
+        Matching matching2 = normalMatching(tenantId, "a/b", "inbox2");
+        index.add(matching1);
+        index.reset(List.of(matching2));
+        assertEquals(index.matchAll(tenantId, Set.of("a/b")).get("a/b"), Set.of(matching2));
+        assertGauge(tenantId, TenantMetric.MqttRouteIndexMemGauge);
+    }
+
+    private Matching normalMatching(String tenantId, String topicFilter, String inboxId) {
+        return parseMatchRecord(toNormalMatchRecordKey(tenantId, topicFilter, toQInboxId(1, inboxId, "deliverer")),
+            ByteString.EMPTY);
+    }
+
+    private Matching groupMatching(String tenantId, String topicFilter, String... inboxIds) {
+        GroupMatchRecord.Builder record = GroupMatchRecord.newBuilder();
+        for (String inboxId : inboxIds) {
+            record.addQReceiverId(toQInboxId(1, inboxId, "deliverer"));
+        }
+        return parseMatchRecord(toGroupMatchRecordKey(tenantId, topicFilter), record.build().toByteString());
+    }
+}
@@ -19,18 +19,27 @@ import static org.awaitility.Awaitility.await;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 
+import com.baidu.bifromq.dist.entity.EntityUtil;
 import com.baidu.bifromq.dist.entity.Matching;
 import com.baidu.bifromq.dist.worker.MeterTest;
 import com.baidu.bifromq.metrics.TenantMetric;
 import com.github.benmanes.caffeine.cache.Ticker;
 import com.google.common.collect.Sets;
+import com.google.protobuf.ByteString;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -117,6 +126,50 @@ public class TenantRouteCacheTest extends MeterTest {
         await().until(() -> cache.getMatch(topic, FULL_BOUNDARY).join().isEmpty());
     }
 
+    @Test
+    public void patchToAddAndRemoveMatch() {
+        String topic = "home/sensor/temperature";
+        Matching matching1 = normalMatching("home/#", "inbox1");
+        when(mockMatcher.matchAll(eq(Set.of(topic)))).thenReturn(Map.of(topic, Set.of(matching1)));
+
+        Set<Matching> cachedMatchings = cache.getMatch(topic, FULL_BOUNDARY).join();
+        assertEquals(cachedMatchings, Set.of(matching1));
+
+        Matching matching2 = normalMatching("home/+/temperature", "inbox2");
+        Matching matching3 = normalMatching("office/#", "inbox3");
+        cache.patch(List.of(matching1), List.of(matching2, matching3));
+
+        assertEquals(cache.getMatch(topic, FULL_BOUNDARY).join(), Set.of(matching2));
+        // the previously returned routes are not changed
+        assertEquals(cachedMatchings, Set.of(matching1));
+        // patched without reloading
+        verify(mockMatcher, times(1)).matchAll(anySet());
+    }
+
+    @Test
+    public void patchInflightLoading() {
+        String topic = "home/sensor/temperature";
+        Matching matching1 = normalMatching("home/#", "inbox1");
+        Matching matching2 = normalMatching("home/+/temperature", "inbox2");
+        CompletableFuture<Void> loadSignal = new CompletableFuture<>();
+        when(mockMatcher.matchAll(eq(Set.of(topic))))
+            .thenAnswer(invocation -> {
+                loadSignal.join();
+                return Map.of(topic, Set.of(matching1));
+            });
+        TenantRouteCache cache = new TenantRouteCache(tenantId, mockMatcher, expiryDuration,
+            Executors.newSingleThreadExecutor());
+        CompletableFuture<Set<Matching>> loadingFuture = cache.getMatch(topic, FULL_BOUNDARY);
+        await().until(() -> !cache.getMatch(topic, FULL_BOUNDARY).isDone());
+        cache.patch(Collections.emptyList(), List.of(matching2));
+        loadSignal.complete(null);
+        loadingFuture.join();
+
+        assertEquals(cache.getMatch(topic, FULL_BOUNDARY).join(), Set.of(matching1, matching2));
+        verify(mockMatcher, times(1)).matchAll(anySet());
+        cache.destroy();
+    }
+
     @Test
     void testDestroy() {
         TenantRouteCache cache = new TenantRouteCache(tenantId, mockMatcher, expiryDuration, directExecutor());
@@ -124,4 +177,9 @@ public class TenantRouteCacheTest extends MeterTest {
         cache.destroy();
         assertNoGauge(tenantId, TenantMetric.MqttRouteCacheSize);
     }
-}
\ No newline at end of file
+
+    private Matching normalMatching(String topicFilter, String inboxId) {
+        return EntityUtil.parseMatchRecord(EntityUtil.toNormalMatchRecordKey(tenantId, topicFilter,
+            EntityUtil.toQInboxId(1, inboxId, "deliverer")), ByteString.EMPTY);
+    }
+}
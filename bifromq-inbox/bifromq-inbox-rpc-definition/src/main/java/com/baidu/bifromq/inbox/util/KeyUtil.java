@@ -24,6 +24,10 @@ public class KeyUtil {
     private static final ByteString QOS0INBOX_SIGN = ByteString.copyFrom(new byte[] {0x00});
     private static final ByteString SEND_BUFFER_SIGN = ByteString.copyFrom(new byte[] {0x01});
     private static final ByteString UPPER_BOUND = ByteString.copyFrom(new byte[] {(byte) 0xFF});
+    // placed at the position of inboxIdLength, so the shared payloads are sorted after all inboxes in the bucket
+    private static final ByteString PAYLOAD_SIGN =
+        ByteString.copyFrom(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+    private static final ByteString PAYLOAD_REF_COUNT_SIGN = ByteString.copyFrom(new byte[] {0x00});
 
     private static final int MAX_BUCKETS = 0xFF; // 256
     private static final int BUCKET_BYTES =
@@ -191,6 +195,26 @@ public class KeyUtil {
         return sendBufferPrefix(inboxKeyPrefix).concat(toByteString(seq));
     }
 
+    public static ByteString payloadKey(ByteString inboxKeyPrefix, ByteString payloadId) {
+        // PayloadKey: <INBOX_BUCKET_PREFIX><PAYLOAD_SIGN><PAYLOAD_ID>
+        return parseInboxBucketPrefix(inboxKeyPrefix).concat(PAYLOAD_SIGN).concat(payloadId);
+    }
+
+    public static ByteString payloadRefCountKey(ByteString payloadKey) {
+        // PayloadRefCountKey: <PAYLOAD_KEY><PAYLOAD_REF_COUNT_SIGN>
+        return payloadKey.concat(PAYLOAD_REF_COUNT_SIGN);
+    }
+
+    public static boolean isPayloadKey(ByteString key) {
+        if (key.size() <= SCHEMA_VER.size() + Integer.BYTES) {
+            return false;
+        }
+        int inboxBucketPrefixLength = inboxBucketPrefixLength(key);
+        return key.size() > inboxBucketPrefixLength + PAYLOAD_SIGN.size()
+            && key.substring(inboxBucketPrefixLength, inboxBucketPrefixLength + PAYLOAD_SIGN.size())
+            .equals(PAYLOAD_SIGN);
+    }
+
     public static long parseSeq(ByteString inboxKeyPrefix, ByteString inboxMsgKey) {
         // QOS0 MessageKey: <INBOX_KEY_PREFIX><QOS0INBOX_SIGN><SEQ>
         // QOS1 MessageKey: <INBOX_KEY_PREFIX><QOS1INBOX_SIGN><SEQ>
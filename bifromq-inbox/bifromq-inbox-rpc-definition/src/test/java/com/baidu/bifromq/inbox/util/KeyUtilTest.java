@@ -76,5 +76,29 @@ public class KeyUtilTest {
         assertEquals(KeyUtil.parseInboxPrefix(bufferMsgKey), inboxPrefix);
         assertEquals(KeyUtil.parseIncarnation(bufferMsgKey), incarnation);
         assertEquals(KeyUtil.parseInboxKeyPrefix(bufferMsgKey), inboxKeyPrefix);
+        assertFalse(KeyUtil.isPayloadKey(bufferMsgKey));
+    }
+
+    @Test
+    public void payloadKey() {
+        String tenantId = "tenantA";
+        String inboxId = "inboxA";
+        ByteString inboxBucketPrefix = KeyUtil.inboxBucketPrefix(tenantId, inboxId);
+        ByteString inboxKeyPrefix = KeyUtil.inboxKeyPrefix(tenantId, inboxId, System.nanoTime());
+        ByteString payloadKey = KeyUtil.payloadKey(inboxKeyPrefix, ByteString.copyFromUtf8("payloadId"));
+        ByteString refCountKey = KeyUtil.payloadRefCountKey(payloadKey);
+
+        assertTrue(KeyUtil.isPayloadKey(payloadKey));
+        assertTrue(KeyUtil.isPayloadKey(refCountKey));
+        assertFalse(KeyUtil.isPayloadKey(inboxKeyPrefix));
+        assertFalse(KeyUtil.isPayloadKey(KeyUtil.tenantPrefix(tenantId)));
+        assertFalse(KeyUtil.isMetadataKey(payloadKey));
+        assertFalse(KeyUtil.isMetadataKey(refCountKey));
+        assertTrue(isInboxKey(payloadKey));
+        assertEquals(KeyUtil.parseTenantId(payloadKey), tenantId);
+        assertEquals(KeyUtil.parseInboxBucketPrefix(payloadKey), inboxBucketPrefix);
+        // shared payloads are kept after all inboxes in the same bucket
+        assertTrue(ByteString.unsignedLexicographicalComparator()
+            .compare(KeyUtil.inboxKeyUpperBound(inboxKeyPrefix), payloadKey) < 0);
     }
 }
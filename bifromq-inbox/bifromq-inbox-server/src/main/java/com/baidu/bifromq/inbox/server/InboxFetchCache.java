@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.server;
+
+import com.baidu.bifromq.inbox.records.ScopedInbox;
+import com.baidu.bifromq.inbox.server.scheduler.IInboxFetchScheduler;
+import com.baidu.bifromq.inbox.storage.proto.BatchFetchRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchInsertReply;
+import com.baidu.bifromq.inbox.storage.proto.Fetched;
+import com.baidu.bifromq.inbox.storage.proto.InboxMessage;
+import com.baidu.bifromq.inbox.storage.proto.InboxSubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.SubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.TopicFilterOption;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.QoS;
+import com.baidu.bifromq.type.TopicMessage;
+import com.baidu.bifromq.type.TopicMessagePack;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded cache of the latest messages inserted into the inboxes via this server, so that the fetch triggered by the
+ * insertion could be served without reading the messages just written back from inbox store.
+ *
+ * <p>The messages are cached with the seqs assigned by inbox store, and the cached messages of each queue are always
+ * contiguous and end at the next seq of the queue known by last insertion. A fetch is served from cache only when both
+ * queues could be answered completely and there is at least one cached message to return, otherwise it falls back to
+ * inbox store. An empty result is never served from cache, since the messages inserted via other servers and the
+ * state of the inbox in inbox store are unknown to the cache.
+ */
+final class InboxFetchCache {
+    private static final int MAX_CACHED_PER_QUEUE = 1000;
+    private final boolean enabled;
+    private final Cache<ScopedInbox, InboxTail> tails;
+
+    InboxFetchCache(long maxBytes, Duration expireAfterAccess) {
+        enabled = maxBytes > 0;
+        tails = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((ScopedInbox k, InboxTail v) -> v.weight())
+            .expireAfterAccess(expireAfterAccess)
+            .build();
+    }
+
+    void onInserted(InboxSubMessagePack subMsgPack, BatchInsertReply.Result result) {
+        if (!enabled) {
+            return;
+        }
+        ScopedInbox scopedInbox =
+            new ScopedInbox(subMsgPack.getTenantId(), subMsgPack.getInboxId(), subMsgPack.getIncarnation());
+        if (result.getCode() != BatchInsertReply.Code.OK || !result.hasQos0Seqs() || !result.hasSendBufferSeqs()) {
+            // inbox store is not able to report the seqs
+            invalidate(scopedInbox);
+            return;
+        }
+        Map<String, TopicFilterOption> options = new HashMap<>();
+        for (BatchInsertReply.InsertionResult insertionResult : result.getInsertionResultList()) {
+            if (!insertionResult.getRejected() && insertionResult.hasOption()) {
+                options.put(insertionResult.getTopicFilter(), insertionResult.getOption());
+            }
+        }
+        // split the messages into queues in the same order as inbox store does
+        List<InboxMessage.Builder> qos0Msgs = new ArrayList<>();
+        List<InboxMessage.Builder> bufferMsgs = new ArrayList<>();
+        for (SubMessagePack messagePack : subMsgPack.getMessagePackList()) {
+            TopicFilterOption tfOption = options.get(messagePack.getTopicFilter());
+            if (tfOption == null) {
+                continue;
+            }
+            for (TopicMessagePack topicMsgPack : messagePack.getMessagesList()) {
+                for (TopicMessagePack.PublisherPack publisherPack : topicMsgPack.getMessageList()) {
+                    for (Message message : publisherPack.getMessageList()) {
+                        InboxMessage.Builder msgBuilder = InboxMessage.newBuilder()
+                            .setTopicFilter(messagePack.getTopicFilter())
+                            .setOption(tfOption)
+                            .setMsg(TopicMessage.newBuilder()
+                                .setTopic(topicMsgPack.getTopic())
+                                .setPublisher(publisherPack.getPublisher())
+                                .setMessage(message)
+                                .build());
+                        if (Math.min(message.getPubQoS().getNumber(), tfOption.getQos().getNumber())
+                            == QoS.AT_MOST_ONCE_VALUE) {
+                            qos0Msgs.add(msgBuilder);
+                        } else {
+                            bufferMsgs.add(msgBuilder);
+                        }
+                    }
+                }
+            }
+        }
+        tails.asMap().compute(scopedInbox, (k, tail) -> {
+            if (tail == null) {
+                tail = new InboxTail();
+            }
+            synchronized (tail) {
+                tail.qos0Queue.append(result.getQos0Seqs(), qos0Msgs);
+                tail.bufferQueue.append(result.getSendBufferSeqs(), bufferMsgs);
+            }
+            // return the tail to let cache re-weigh it
+            return tail;
+        });
+    }
+
+    Optional<Fetched> fetch(IInboxFetchScheduler.InboxFetch inboxFetch) {
+        BatchFetchRequest.Params params = inboxFetch.params;
+        if (!enabled || !params.hasQos0StartAfter() || !params.hasSendBufferStartAfter()) {
+            return Optional.empty();
+        }
+        InboxTail tail =
+            tails.getIfPresent(new ScopedInbox(inboxFetch.tenantId, inboxFetch.inboxId, inboxFetch.incarnation));
+        if (tail == null) {
+            return Optional.empty();
+        }
+        synchronized (tail) {
+            if (!tail.qos0Queue.canServe(params.getQos0StartAfter())
+                || !tail.bufferQueue.canServe(params.getSendBufferStartAfter())) {
+                return Optional.empty();
+            }
+            if (!tail.qos0Queue.hasMessageAfter(params.getQos0StartAfter())
+                && !tail.bufferQueue.hasMessageAfter(params.getSendBufferStartAfter())) {
+                return Optional.empty();
+            }
+            Fetched.Builder fetchedBuilder = Fetched.newBuilder().setResult(Fetched.Result.OK);
+            tail.qos0Queue.fetch(params.getQos0StartAfter(), Integer.MAX_VALUE, fetchedBuilder,
+                Fetched.Builder::addQos0Msg);
+            tail.bufferQueue.fetch(params.getSendBufferStartAfter(), params.getMaxFetch(), fetchedBuilder,
+                Fetched.Builder::addSendBufferMsg);
+            return Optional.of(fetchedBuilder.build());
+        }
+    }
+
+    void invalidate(ScopedInbox scopedInbox) {
+        tails.invalidate(scopedInbox);
+    }
+
+    private static class InboxTail {
+        final CachedQueue qos0Queue = new CachedQueue();
+        final CachedQueue bufferQueue = new CachedQueue();
+
+        synchronized int weight() {
+            return qos0Queue.bytes + bufferQueue.bytes;
+        }
+    }
+
+    private static class CachedQueue {
+        // the contiguous messages in the end of the queue, the seq of the last one is nextSeq - 1
+        private final ArrayDeque<InboxMessage> messages = new ArrayDeque<>();
+        // -1 means the state of the queue is unknown
+        private long nextSeq = -1;
+        private int bytes;
+
+        void append(BatchInsertReply.QueueSeqs seqs, List<InboxMessage.Builder> newMessages) {
+            if (nextSeq >= 0 && seqs.getNextSeq() < nextSeq) {
+                // the reply of an earlier insertion arrives late
+                return;
+            }
+            if (seqs.getFirstSeq() != nextSeq) {
+                // some messages are inserted without going through this cache
+                clear();
+            }
+            for (int i = 0; i < newMessages.size(); i++) {
+                long seq = seqs.getFirstSeq() + i;
+                if (seq >= seqs.getStartSeq() && seq < seqs.getNextSeq()) {
+                    add(newMessages.get(i).setSeq(seq).build());
+                }
+            }
+            nextSeq = seqs.getNextSeq();
+            // the oldest messages may be dropped by inbox store
+            while (!messages.isEmpty()
+                && (messages.peekFirst().getSeq() < seqs.getStartSeq() || messages.size() > MAX_CACHED_PER_QUEUE)) {
+                poll();
+            }
+        }
+
+        boolean canServe(long startAfter) {
+            if (nextSeq < 0) {
+                return false;
+            }
+            if (startAfter < 0) {
+                // nothing has been fetched by the reader, the queue must be empty since ever
+                return nextSeq == 0;
+            }
+            long fetchFrom = startAfter + 1;
+            return firstSeq() <= fetchFrom && fetchFrom <= nextSeq;
+        }
+
+        boolean hasMessageAfter(long startAfter) {
+            return startAfter + 1 < nextSeq;
+        }
+
+        void fetch(long startAfter,
+                   int fetchCount,
+                   Fetched.Builder fetchedBuilder,
+                   BiConsumer<Fetched.Builder, InboxMessage> messageConsumer) {
+            // the messages before the start have been fetched by the reader
+            while (!messages.isEmpty() && messages.peekFirst().getSeq() <= startAfter) {
+                poll();
+            }
+            for (InboxMessage message : messages) {
+                if (fetchCount-- <= 0) {
+                    break;
+                }
+                messageConsumer.accept(fetchedBuilder, message);
+            }
+        }
+
+        private long firstSeq() {
+            return nextSeq - messages.size();
+        }
+
+        private void add(InboxMessage message) {
+            messages.addLast(message);
+            bytes += message.getSerializedSize();
+        }
+
+        private void poll() {
+            bytes -= messages.pollFirst().getSerializedSize();
+        }
+
+        private void clear() {
+            messages.clear();
+            bytes = 0;
+        }
+    }
+}
@@ -80,6 +80,7 @@ import com.baidu.bifromq.plugin.eventcollector.mqttbroker.retainhandling.RetainM
 import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
 import com.baidu.bifromq.retain.client.IRetainClient;
 import com.baidu.bifromq.retain.rpc.proto.RetainReply;
+import com.baidu.bifromq.sysprops.props.InboxFetchCacheMaxBytes;
 import com.baidu.bifromq.type.ClientInfo;
 import com.bifromq.plugin.resourcethrottler.IResourceThrottler;
 import io.grpc.stub.StreamObserver;
@@ -93,6 +94,8 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 class InboxService extends InboxServiceGrpc.InboxServiceImplBase {
+    private static final Duration FETCH_CACHE_EXPIRY = Duration.ofSeconds(60);
+
     private enum State {
         INIT,
         STARTING,
@@ -122,6 +125,8 @@ class InboxService extends InboxServiceGrpc.InboxServiceImplBase {
     private final IInboxUnsubScheduler unsubScheduler;
     private final IInboxStoreGCProcessor inboxGCProc;
     private final DelayTaskRunner<ScopedInbox, ExpireSessionTask> delayTaskRunner;
+    private final InboxFetchCache fetchCache =
+        new InboxFetchCache(InboxFetchCacheMaxBytes.INSTANCE.get(), FETCH_CACHE_EXPIRY);
 
     @Builder
     InboxService(IEventCollector eventCollector,
@@ -235,6 +240,8 @@ class InboxService extends InboxServiceGrpc.InboxServiceImplBase {
                         request.getClient().getTenantId(),
                         request.getInboxId(),
                         request.getIncarnation());
+                    // the cached messages may have been fetched and committed by the previous session
+                    fetchCache.invalidate(scopedInbox);
                     LWT lwt = request.hasLwt() ? request.getLwt() : null;
                     if (lwt != null) {
                         delayTaskRunner.reg(scopedInbox,
@@ -283,6 +290,7 @@ class InboxService extends InboxServiceGrpc.InboxServiceImplBase {
                     request.getClient().getTenantId(),
                     request.getInboxId(),
                     request.getIncarnation());
+                fetchCache.invalidate(scopedInbox);
                 delayTaskRunner.unreg(scopedInbox);
                 LWT lwt = reply.hasLwt() ? reply.getLwt() : null;
                 if (lwt != null) {
@@ -531,12 +539,14 @@ class InboxService extends InboxServiceGrpc.InboxServiceImplBase {
     @Override
     public StreamObserver<SendRequest> receive(StreamObserver<SendReply> responseObserver) {
         return new InboxWriterPipeline(new FetcherSignaler(registry),
-            new InboxWriter(insertScheduler), responseObserver);
+            new InboxWriter(insertScheduler, fetchCache), responseObserver);
     }
 
     @Override
     public StreamObserver<InboxFetchHint> fetch(StreamObserver<InboxFetched> responseObserver) {
-        return new InboxFetchPipeline(responseObserver, fetchScheduler::schedule, registry);
+        return new InboxFetchPipeline(responseObserver, inboxFetch -> fetchCache.fetch(inboxFetch)
+            .map(CompletableFuture::completedFuture)
+            .orElseGet(() -> fetchScheduler.schedule(inboxFetch)), registry);
     }
 
     @Override
@@ -738,6 +748,7 @@ class InboxService extends InboxServiceGrpc.InboxServiceImplBase {
                         .build())
                     .thenCompose(result -> {
                         if (result.getCode() == BatchDeleteReply.Code.OK) {
+                            fetchCache.invalidate(scopedInbox);
                             List<CompletableFuture<UnmatchResult>> unmatchFutures =
                                 result.getTopicFiltersList().stream()
                                     .map(topicFilter -> unmatch(System.nanoTime(), scopedInbox.tenantId(),
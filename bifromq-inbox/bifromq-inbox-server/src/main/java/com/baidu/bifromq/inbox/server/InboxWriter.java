@@ -38,9 +38,11 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class InboxWriter implements InboxWriterPipeline.ISendRequestHandler {
     private final IInboxInsertScheduler insertScheduler;
+    private final InboxFetchCache fetchCache;
 
-    public InboxWriter(IInboxInsertScheduler insertScheduler) {
+    InboxWriter(IInboxInsertScheduler insertScheduler, InboxFetchCache fetchCache) {
         this.insertScheduler = insertScheduler;
+        this.fetchCache = fetchCache;
     }
 
     @Override
@@ -59,7 +61,8 @@ public class InboxWriter implements InboxWriterPipeline.ISendRequestHandler {
         }
         List<CompletableFuture<BatchInsertReply.Result>> replyFutures = msgsByInbox.entrySet()
             .stream()
-            .map(entry -> insertScheduler.schedule(InboxSubMessagePack.newBuilder()
+            .map(entry -> {
+                InboxSubMessagePack subMsgPack = InboxSubMessagePack.newBuilder()
                     .setTenantId(entry.getKey().tenantId())
                     .setInboxId(entry.getKey().inboxId())
                     .setIncarnation(entry.getKey().incarnation())
@@ -68,14 +71,20 @@ public class InboxWriter implements InboxWriterPipeline.ISendRequestHandler {
                             .setTopicFilter(e.getKey())
                             .addAllMessages(e.getValue())
                             .build()).toList())
-                    .build())
-                .exceptionally(
-                    e -> {
-                        log.debug("Failed to insert", e);
-                        return BatchInsertReply.Result.newBuilder()
-                            .setCode(BatchInsertReply.Code.ERROR)
-                            .build();
-                    }))
+                    .build();
+                return insertScheduler.schedule(subMsgPack)
+                    .exceptionally(
+                        e -> {
+                            log.debug("Failed to insert", e);
+                            return BatchInsertReply.Result.newBuilder()
+                                .setCode(BatchInsertReply.Code.ERROR)
+                                .build();
+                        })
+                    .whenComplete((result, e) -> {
+                        // populate the cache before signaling the fetchers
+                        fetchCache.onInserted(subMsgPack, result);
+                    });
+            })
             .toList();
         return CompletableFuture.allOf(replyFutures.toArray(new CompletableFuture[0]))
             .thenApply(v -> replyFutures.stream().map(CompletableFuture::join).collect(Collectors.toList()))
@@ -30,8 +30,9 @@ import java.util.Queue;
 public class BatchFetchCall extends BatchQueryCall<IInboxFetchScheduler.InboxFetch, Fetched> {
     protected BatchFetchCall(KVRangeId rangeId,
                              IBaseKVStoreClient storeClient,
+                             boolean linearizable,
                              Duration pipelineExpiryTime) {
-        super(rangeId, storeClient, false, pipelineExpiryTime);
+        super(rangeId, storeClient, linearizable, pipelineExpiryTime);
     }
 
     @Override
@@ -40,7 +40,7 @@ public class InboxFetchScheduler extends InboxReadScheduler<IInboxFetchScheduler
                                                                            long burstLatencyNanos,
                                                                            QueryCallBatcherKey inboxReadBatcherKey) {
         return new InboxFetchBatcher(inboxReadBatcherKey, name, tolerableLatencyNanos, burstLatencyNanos,
-            storeClient);
+            storeClient, followerRead);
     }
 
     @Override
@@ -58,17 +58,21 @@ public class InboxFetchScheduler extends InboxReadScheduler<IInboxFetchScheduler
     }
 
     private static class InboxFetchBatcher extends QueryCallBatcher<InboxFetch, Fetched> {
+        private final boolean linearizable;
+
         InboxFetchBatcher(QueryCallBatcherKey batcherKey,
                           String name,
                           long tolerableLatencyNanos,
                           long burstLatencyNanos,
-                          IBaseKVStoreClient storeClient) {
+                          IBaseKVStoreClient storeClient,
+                          boolean linearizable) {
             super(name, tolerableLatencyNanos, burstLatencyNanos, batcherKey, storeClient);
+            this.linearizable = linearizable;
         }
 
         @Override
         protected IBatchCall<InboxFetch, Fetched, QueryCallBatcherKey> newBatch() {
-            return new BatchFetchCall(batcherKey.id, storeClient, Duration.ofMinutes(5));
+            return new BatchFetchCall(batcherKey.id, storeClient, linearizable, Duration.ofMinutes(5));
         }
     }
 }
@@ -14,25 +14,76 @@
 package com.baidu.bifromq.inbox.server.scheduler;
 
 import com.baidu.bifromq.basekv.client.IBaseKVStoreClient;
+import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.client.ReplicaSelectPolicy;
 import com.baidu.bifromq.basekv.client.scheduler.QueryCallScheduler;
 import com.baidu.bifromq.sysprops.props.DataPlaneBurstLatencyMillis;
 import com.baidu.bifromq.sysprops.props.DataPlaneTolerableLatencyMillis;
+import com.baidu.bifromq.sysprops.props.InboxFollowerRead;
 import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import java.time.Duration;
 import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * The base scheduler for inbox read queries.
+ *
+ * <p>By default, queries are served by the range leader. When follower read is enabled, queries are spread over all
+ * replicas of the range by their load, and every query is linearized via read index, so a query issued after a
+ * mutation has been acknowledged always observes it, no matter which replica serves it.
+ */
 public abstract class InboxReadScheduler<Req, Resp> extends QueryCallScheduler<Req, Resp> {
     protected final int queuesPerRange;
+    protected final boolean followerRead;
+    private final Counter leaderReadCounter;
+    private final Counter followerReadCounter;
 
     public InboxReadScheduler(int queuesPerRange, IBaseKVStoreClient inboxStoreClient, String name) {
+        this(queuesPerRange, inboxStoreClient, name, InboxFollowerRead.INSTANCE.get());
+    }
+
+    public InboxReadScheduler(int queuesPerRange,
+                              IBaseKVStoreClient inboxStoreClient,
+                              String name,
+                              boolean followerRead) {
         super(name, inboxStoreClient, Duration.ofMillis(DataPlaneTolerableLatencyMillis.INSTANCE.get()),
             Duration.ofSeconds(DataPlaneBurstLatencyMillis.INSTANCE.get()));
         Preconditions.checkArgument(queuesPerRange > 0, "Queues per range must be positive");
         this.queuesPerRange = queuesPerRange;
+        this.followerRead = followerRead;
+        leaderReadCounter = Counter.builder("inbox.server.read.count")
+            .tags("name", name, "replica", "leader")
+            .register(Metrics.globalRegistry);
+        followerReadCounter = Counter.builder("inbox.server.read.count")
+            .tags("name", name, "replica", "follower")
+            .register(Metrics.globalRegistry);
+    }
+
+    @Override
+    protected String selectStore(KVRangeSetting setting, Req request) {
+        if (!followerRead) {
+            leaderReadCounter.increment();
+            return setting.leader;
+        }
+        String storeId = setting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices);
+        if (storeId.equals(setting.leader)) {
+            leaderReadCounter.increment();
+        } else {
+            followerReadCounter.increment();
+        }
+        return storeId;
     }
 
     @Override
     protected int selectQueue(Req request) {
         return ThreadLocalRandom.current().nextInt(0, queuesPerRange);
     }
+
+    @Override
+    public void close() {
+        super.close();
+        Metrics.globalRegistry.remove(leaderReadCounter);
+        Metrics.globalRegistry.remove(followerReadCounter);
+    }
 }
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.server;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.inbox.records.ScopedInbox;
+import com.baidu.bifromq.inbox.server.scheduler.IInboxFetchScheduler;
+import com.baidu.bifromq.inbox.storage.proto.BatchFetchRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchInsertReply;
+import com.baidu.bifromq.inbox.storage.proto.Fetched;
+import com.baidu.bifromq.inbox.storage.proto.InboxSubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.SubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.TopicFilterOption;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.QoS;
+import com.baidu.bifromq.type.TopicMessagePack;
+import java.time.Duration;
+import java.util.Optional;
+import org.testng.annotations.Test;
+
+public class InboxFetchCacheTest {
+    private final String tenantId = "tenantA";
+    private final String inboxId = "inbox1";
+    private final long incarnation = 1;
+    private final String topicFilter = "a/b";
+
+    @Test
+    public void fetchInserted() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE, QoS.AT_LEAST_ONCE, QoS.AT_MOST_ONCE),
+            result(QoS.EXACTLY_ONCE, seqs(0, 0, 2), seqs(0, 0, 1)));
+
+        Fetched fetched = cache.fetch(fetch(10, 0, 0)).get();
+        assertEquals(fetched.getResult(), Fetched.Result.OK);
+        assertEquals(fetched.getQos0MsgCount(), 1);
+        assertEquals(fetched.getQos0Msg(0).getSeq(), 1);
+        assertEquals(fetched.getQos0Msg(0).getTopicFilter(), topicFilter);
+        assertEquals(fetched.getQos0Msg(0).getMsg().getTopic(), "a/b");
+        assertEquals(fetched.getQos0Msg(0).getMsg().getMessage().getMessageId(), 2);
+        assertEquals(fetched.getSendBufferMsgCount(), 0);
+    }
+
+    @Test
+    public void fetchFromStart() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_LEAST_ONCE, QoS.AT_LEAST_ONCE),
+            result(QoS.AT_LEAST_ONCE, seqs(0, 0, 0), seqs(0, 0, 2)));
+        // nothing fetched before while there are messages in the queue
+        assertTrue(cache.fetch(fetch(10, -1, -1)).isEmpty());
+    }
+
+    @Test
+    public void fetchLimit() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_LEAST_ONCE, seqs(0, 0, 1), seqs(0, 0, 0)));
+        cache.onInserted(pack(QoS.AT_LEAST_ONCE, QoS.AT_LEAST_ONCE, QoS.AT_LEAST_ONCE),
+            result(QoS.AT_LEAST_ONCE, seqs(1, 0, 1), seqs(0, 0, 3)));
+
+        Fetched fetched = cache.fetch(fetch(2, 0, 0)).get();
+        assertEquals(fetched.getQos0MsgCount(), 0);
+        assertEquals(fetched.getSendBufferMsgCount(), 2);
+        assertEquals(fetched.getSendBufferMsg(0).getSeq(), 1);
+        assertEquals(fetched.getSendBufferMsg(1).getSeq(), 2);
+    }
+
+    @Test
+    public void fallbackOnGap() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_MOST_ONCE, seqs(0, 0, 1), seqs(0, 0, 0)));
+        // seq 1 is inserted without going through the cache
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_MOST_ONCE, seqs(2, 0, 3), seqs(0, 0, 0)));
+
+        assertTrue(cache.fetch(fetch(10, 0, -1)).isEmpty());
+        Fetched fetched = cache.fetch(fetch(10, 1, -1)).get();
+        assertEquals(fetched.getQos0MsgCount(), 1);
+        assertEquals(fetched.getQos0Msg(0).getSeq(), 2);
+    }
+
+    @Test
+    public void fallbackOnUnknownSeq() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        assertTrue(cache.fetch(fetch(10, 0, 0)).isEmpty());
+
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_MOST_ONCE, seqs(5, 5, 6), seqs(0, 0, 0)));
+        // fetched messages are beyond the cached ones
+        assertTrue(cache.fetch(fetch(10, 7, -1)).isEmpty());
+        // messages before seq 5 are not cached
+        assertTrue(cache.fetch(fetch(10, 3, -1)).isEmpty());
+        assertTrue(cache.fetch(fetch(10, 4, -1)).isPresent());
+    }
+
+    @Test
+    public void dropOldest() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE, QoS.AT_MOST_ONCE),
+            result(QoS.AT_MOST_ONCE, seqs(0, 0, 2), seqs(0, 0, 0)));
+        // limit is 2, seq 0 and 1 are dropped
+        cache.onInserted(pack(QoS.AT_MOST_ONCE, QoS.AT_MOST_ONCE, QoS.AT_MOST_ONCE),
+            result(QoS.AT_MOST_ONCE, seqs(2, 3, 5), seqs(0, 0, 0)));
+
+        assertTrue(cache.fetch(fetch(10, 0, -1)).isEmpty());
+        Fetched fetched = cache.fetch(fetch(10, 2, -1)).get();
+        assertEquals(fetched.getQos0MsgCount(), 2);
+        assertEquals(fetched.getQos0Msg(0).getSeq(), 3);
+        assertEquals(fetched.getQos0Msg(0).getMsg().getMessage().getMessageId(), 1);
+        assertEquals(fetched.getQos0Msg(1).getSeq(), 4);
+    }
+
+    @Test
+    public void dropNewest() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        // limit is 1, the second message is dropped
+        cache.onInserted(pack(QoS.AT_LEAST_ONCE, QoS.AT_LEAST_ONCE),
+            result(QoS.AT_LEAST_ONCE, seqs(0, 0, 0), seqs(0, 0, 1)));
+
+        // nothing to return from cache
+        assertTrue(cache.fetch(fetch(10, -1, 0)).isEmpty());
+        assertTrue(cache.fetch(fetch(10, -1, 1)).isEmpty());
+    }
+
+    @Test
+    public void fallbackWhenInsertedViaOtherServer() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE, QoS.AT_MOST_ONCE),
+            result(QoS.AT_MOST_ONCE, seqs(0, 0, 2), seqs(0, 0, 0)));
+        Fetched fetched = cache.fetch(fetch(10, 0, -1)).get();
+        assertEquals(fetched.getQos0MsgCount(), 1);
+        assertEquals(fetched.getQos0Msg(0).getSeq(), 1);
+
+        // seq 2 may be inserted via another server, which is unknown to the cache
+        assertTrue(cache.fetch(fetch(10, 1, -1)).isEmpty());
+    }
+
+    @Test
+    public void fallbackWhenInboxGCed() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_LEAST_ONCE), result(QoS.AT_LEAST_ONCE, seqs(0, 0, 0), seqs(0, 0, 1)));
+
+        // the inbox may have been expired and removed by inbox store, let inbox store answer
+        assertTrue(cache.fetch(fetch(10, -1, 0)).isEmpty());
+    }
+
+    @Test
+    public void rejectedTopicFilter() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), BatchInsertReply.Result.newBuilder()
+            .setCode(BatchInsertReply.Code.OK)
+            .addInsertionResult(BatchInsertReply.InsertionResult.newBuilder()
+                .setTopicFilter(topicFilter)
+                .setRejected(true)
+                .build())
+            .setQos0Seqs(seqs(0, 0, 0))
+            .setSendBufferSeqs(seqs(0, 0, 0))
+            .build());
+        // no message is cached
+        assertTrue(cache.fetch(fetch(10, -1, -1)).isEmpty());
+    }
+
+    @Test
+    public void invalidate() {
+        InboxFetchCache cache = new InboxFetchCache(1024 * 1024, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_MOST_ONCE, seqs(0, 0, 1), seqs(0, 0, 0)));
+        cache.invalidate(new ScopedInbox(tenantId, inboxId, incarnation));
+        assertTrue(cache.fetch(fetch(10, -1, -1)).isEmpty());
+
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_MOST_ONCE, seqs(1, 0, 2), seqs(0, 0, 0)));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), BatchInsertReply.Result.newBuilder()
+            .setCode(BatchInsertReply.Code.ERROR)
+            .build());
+        assertTrue(cache.fetch(fetch(10, 0, -1)).isEmpty());
+    }
+
+    @Test
+    public void disabled() {
+        InboxFetchCache cache = new InboxFetchCache(0, Duration.ofMinutes(1));
+        cache.onInserted(pack(QoS.AT_MOST_ONCE), result(QoS.AT_MOST_ONCE, seqs(0, 0, 1), seqs(0, 0, 0)));
+        assertEquals(cache.fetch(fetch(10, -1, -1)), Optional.empty());
+    }
+
+    private InboxSubMessagePack pack(QoS... pubQoS) {
+        TopicMessagePack.PublisherPack.Builder publisherPackBuilder = TopicMessagePack.PublisherPack.newBuilder()
+            .setPublisher(ClientInfo.newBuilder().setTenantId(tenantId).build());
+        for (int i = 0; i < pubQoS.length; i++) {
+            publisherPackBuilder.addMessage(Message.newBuilder()
+                .setMessageId(i)
+                .setPubQoS(pubQoS[i])
+                .build());
+        }
+        return InboxSubMessagePack.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .addMessagePack(SubMessagePack.newBuilder()
+                .setTopicFilter(topicFilter)
+                .addMessages(TopicMessagePack.newBuilder()
+                    .setTopic("a/b")
+                    .addMessage(publisherPackBuilder)
+                    .build())
+                .build())
+            .build();
+    }
+
+    private BatchInsertReply.Result result(QoS subQoS,
+                                           BatchInsertReply.QueueSeqs qos0Seqs,
+                                           BatchInsertReply.QueueSeqs sendBufferSeqs) {
+        return BatchInsertReply.Result.newBuilder()
+            .setCode(BatchInsertReply.Code.OK)
+            .addInsertionResult(BatchInsertReply.InsertionResult.newBuilder()
+                .setTopicFilter(topicFilter)
+                .setRejected(false)
+                .setOption(TopicFilterOption.newBuilder().setQos(subQoS).build())
+                .build())
+            .setQos0Seqs(qos0Seqs)
+            .setSendBufferSeqs(sendBufferSeqs)
+            .build();
+    }
+
+    private BatchInsertReply.QueueSeqs seqs(long firstSeq, long startSeq, long nextSeq) {
+        return BatchInsertReply.QueueSeqs.newBuilder()
+            .setFirstSeq(firstSeq)
+            .setStartSeq(startSeq)
+            .setNextSeq(nextSeq)
+            .build();
+    }
+
+    private IInboxFetchScheduler.InboxFetch fetch(int maxFetch, long qos0StartAfter, long sendBufferStartAfter) {
+        return new IInboxFetchScheduler.InboxFetch(tenantId, inboxId, incarnation,
+            BatchFetchRequest.Params.newBuilder()
+                .setTenantId(tenantId)
+                .setInboxId(inboxId)
+                .setIncarnation(incarnation)
+                .setMaxFetch(maxFetch)
+                .setQos0StartAfter(qos0StartAfter)
+                .setSendBufferStartAfter(sendBufferStartAfter)
+                .build());
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.server.scheduler;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.client.IBaseKVStoreClient;
+import com.baidu.bifromq.basekv.client.IQueryPipeline;
+import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.client.scheduler.QueryCallBatcherKey;
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.proto.KVRangeDescriptor;
+import com.baidu.bifromq.basekv.proto.KVRangeId;
+import com.baidu.bifromq.basekv.raft.proto.ClusterConfig;
+import com.baidu.bifromq.basekv.raft.proto.RaftNodeSyncState;
+import com.baidu.bifromq.basekv.store.proto.KVRangeROReply;
+import com.baidu.bifromq.basekv.store.proto.ReplyCode;
+import com.baidu.bifromq.basekv.utils.BoundaryUtil;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.baidu.bifromq.basescheduler.Batcher;
+import com.baidu.bifromq.inbox.rpc.proto.GetRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchFetchRequest;
+import com.baidu.bifromq.sysprops.props.InboxFollowerRead;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import lombok.SneakyThrows;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class InboxReadSchedulerTest {
+    private static final String LEADER = "V1";
+    private static final Set<String> FOLLOWERS = Set.of("V2", "V3");
+    private final KVRangeId rangeId = KVRangeIdUtil.generate();
+    @Mock
+    private IBaseKVStoreClient storeClient;
+    @Mock
+    private IQueryPipeline queryPipeline;
+    private SimpleMeterRegistry meterRegistry;
+    private KVRangeSetting setting;
+    private AutoCloseable closeable;
+
+    @BeforeMethod
+    public void setup() {
+        closeable = MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        Metrics.addRegistry(meterRegistry);
+        KVRangeDescriptor descriptor = KVRangeDescriptor.newBuilder()
+            .setId(rangeId)
+            .setVer(0)
+            .setBoundary(FULL_BOUNDARY)
+            .setConfig(ClusterConfig.newBuilder()
+                .addVoters(LEADER)
+                .addAllVoters(FOLLOWERS)
+                .build())
+            .putSyncState(LEADER, RaftNodeSyncState.Replicating)
+            .putSyncState("V2", RaftNodeSyncState.Replicating)
+            .putSyncState("V3", RaftNodeSyncState.Replicating)
+            .build();
+        setting = new KVRangeSetting("test_cluster", LEADER, descriptor);
+        TreeMap<Boundary, KVRangeSetting> router = new TreeMap<>(BoundaryUtil::compare);
+        router.put(FULL_BOUNDARY, setting);
+        when(storeClient.latestEffectiveRouter()).thenReturn(router);
+        when(storeClient.createQueryPipeline(anyString())).thenReturn(queryPipeline);
+        when(storeClient.createLinearizedQueryPipeline(anyString())).thenReturn(queryPipeline);
+        when(queryPipeline.query(any())).thenReturn(CompletableFuture.completedFuture(KVRangeROReply.newBuilder()
+            .setCode(ReplyCode.InternalError)
+            .build()));
+    }
+
+    @SneakyThrows
+    @AfterMethod
+    public void tearDown() {
+        System.clearProperty(InboxFollowerRead.INSTANCE.propKey());
+        InboxFollowerRead.INSTANCE.resolve();
+        meterRegistry.clear();
+        Metrics.removeRegistry(meterRegistry);
+        closeable.close();
+    }
+
+    @Test
+    public void selectLeaderWhenFollowerReadDisabled() {
+        TestReadScheduler scheduler = new TestReadScheduler(storeClient, false);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(scheduler.selectStore(setting, "req"), LEADER);
+        }
+        assertEquals(readCount("leader"), 100.0);
+        assertEquals(readCount("follower"), 0.0);
+        scheduler.close();
+    }
+
+    @Test
+    public void selectReplicaWhenFollowerReadEnabled() {
+        TestReadScheduler scheduler = new TestReadScheduler(storeClient, true);
+        Set<String> selected = new HashSet<>();
+        int leaderSelected = 0;
+        for (int i = 0; i < 300; i++) {
+            String storeId = scheduler.selectStore(setting, "req");
+            assertTrue(setting.allReplicas.contains(storeId));
+            if (storeId.equals(LEADER)) {
+                leaderSelected++;
+            }
+            selected.add(storeId);
+        }
+        assertTrue(selected.stream().anyMatch(FOLLOWERS::contains));
+        assertEquals(readCount("leader"), (double) leaderSelected);
+        assertEquals(readCount("follower"), (double) (300 - leaderSelected));
+        scheduler.close();
+    }
+
+    @Test
+    public void fetchViaLinearizedPipelineWhenFollowerReadEnabled() {
+        enableFollowerRead();
+        InboxFetchScheduler scheduler = new InboxFetchScheduler(storeClient);
+        scheduler.schedule(new IInboxFetchScheduler.InboxFetch("tenant", "inbox", 0,
+            BatchFetchRequest.Params.newBuilder().setMaxFetch(10).build())).handle((v, e) -> null).join();
+        verify(storeClient, timeout(5000)).createLinearizedQueryPipeline(anyString());
+        verify(storeClient, never()).createQueryPipeline(anyString());
+        scheduler.close();
+    }
+
+    @Test
+    public void fetchViaQueryPipelineWhenFollowerReadDisabled() {
+        InboxFetchScheduler scheduler = new InboxFetchScheduler(storeClient);
+        scheduler.schedule(new IInboxFetchScheduler.InboxFetch("tenant", "inbox", 0,
+            BatchFetchRequest.Params.newBuilder().setMaxFetch(10).build())).handle((v, e) -> null).join();
+        verify(storeClient, timeout(5000)).createQueryPipeline(LEADER);
+        verify(storeClient, never()).createLinearizedQueryPipeline(anyString());
+        scheduler.close();
+    }
+
+    @Test
+    public void getViaLinearizedPipelineWhenFollowerReadEnabled() {
+        enableFollowerRead();
+        InboxGetScheduler scheduler = new InboxGetScheduler(storeClient);
+        scheduler.schedule(GetRequest.newBuilder()
+            .setTenantId("tenant")
+            .setInboxId("inbox")
+            .build()).handle((v, e) -> null).join();
+        verify(storeClient, timeout(5000)).createLinearizedQueryPipeline(anyString());
+        verify(storeClient, never()).createQueryPipeline(anyString());
+        scheduler.close();
+    }
+
+    private void enableFollowerRead() {
+        System.setProperty(InboxFollowerRead.INSTANCE.propKey(), "true");
+        InboxFollowerRead.INSTANCE.resolve();
+    }
+
+    private double readCount(String replica) {
+        Counter counter = meterRegistry.find("inbox.server.read.count")
+            .tags("name", "test_read", "replica", replica)
+            .counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static class TestReadScheduler extends InboxReadScheduler<String, String> {
+        TestReadScheduler(IBaseKVStoreClient storeClient, boolean followerRead) {
+            super(1, storeClient, "test_read", followerRead);
+        }
+
+        @Override
+        protected Batcher<String, String, QueryCallBatcherKey> newBatcher(String name,
+                                                                          long tolerableLatencyNanos,
+                                                                          long burstLatencyNanos,
+                                                                          QueryCallBatcherKey batcherKey) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected ByteString rangeKey(String request) {
+            return ByteString.copyFromUtf8(request);
+        }
+    }
+}
@@ -122,6 +122,7 @@ class InboxStore implements IInboxStore {
             .tickerThreads(builder.tickerThreads)
             .bgTaskExecutor(builder.bgTaskExecutor)
             .attributes(builder.attributes)
+            .defaultGroupTags(builder.defaultGroupTags)
             .finish()
             .build();
         start();
@@ -24,7 +24,9 @@ import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
 import com.google.protobuf.Struct;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -55,6 +57,7 @@ public class InboxStoreBuilder {
     Duration loadEstimateWindow = Duration.ofSeconds(5);
     Duration gcInterval = Duration.ofMinutes(5);
     Map<String, String> attributes = new HashMap<>();
+    Set<String> defaultGroupTags = new HashSet<>();
 
     public IInboxStore build() {
         return new InboxStore(this);
@@ -13,19 +13,23 @@
 
 package com.baidu.bifromq.inbox.store;
 
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.upperBound;
 import static com.baidu.bifromq.inbox.util.KeyUtil.bufferMsgKey;
 import static com.baidu.bifromq.inbox.util.KeyUtil.hasInboxKeyPrefix;
 import static com.baidu.bifromq.inbox.util.KeyUtil.inboxKeyPrefix;
 import static com.baidu.bifromq.inbox.util.KeyUtil.inboxKeyUpperBound;
 import static com.baidu.bifromq.inbox.util.KeyUtil.isBufferMessageKey;
 import static com.baidu.bifromq.inbox.util.KeyUtil.isMetadataKey;
+import static com.baidu.bifromq.inbox.util.KeyUtil.isPayloadKey;
 import static com.baidu.bifromq.inbox.util.KeyUtil.isQoS0MessageKey;
+import static com.baidu.bifromq.inbox.util.KeyUtil.parseInboxBucketPrefix;
 import static com.baidu.bifromq.inbox.util.KeyUtil.parseInboxKeyPrefix;
 import static com.baidu.bifromq.inbox.util.KeyUtil.parseSeq;
 import static com.baidu.bifromq.inbox.util.KeyUtil.parseTenantId;
 import static com.baidu.bifromq.inbox.util.KeyUtil.qos0InboxMsgKey;
 import static com.baidu.bifromq.inbox.util.KeyUtil.qos0InboxPrefix;
 import static com.baidu.bifromq.inbox.util.KeyUtil.sendBufferPrefix;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadMissingCount;
 import static com.baidu.bifromq.plugin.eventcollector.ThreadLocalEventPool.getLocal;
 
 import com.baidu.bifromq.basehlc.HLC;
@@ -40,6 +44,7 @@ import com.baidu.bifromq.basekv.store.proto.ROCoProcInput;
 import com.baidu.bifromq.basekv.store.proto.ROCoProcOutput;
 import com.baidu.bifromq.basekv.store.proto.RWCoProcInput;
 import com.baidu.bifromq.basekv.store.proto.RWCoProcOutput;
+import com.baidu.bifromq.basekv.store.util.PendingKeys;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
 import com.baidu.bifromq.inbox.storage.proto.BatchAttachReply;
 import com.baidu.bifromq.inbox.storage.proto.BatchAttachRequest;
@@ -78,10 +83,12 @@ import com.baidu.bifromq.inbox.storage.proto.InboxVersion;
 import com.baidu.bifromq.inbox.storage.proto.SubMessagePack;
 import com.baidu.bifromq.inbox.storage.proto.TopicFilterOption;
 import com.baidu.bifromq.inbox.util.KeyUtil;
+import com.baidu.bifromq.metrics.ITenantMeter;
 import com.baidu.bifromq.plugin.eventcollector.IEventCollector;
 import com.baidu.bifromq.plugin.eventcollector.inboxservice.Overflowed;
 import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
 import com.baidu.bifromq.plugin.settingprovider.Setting;
+import com.baidu.bifromq.sysprops.props.InboxStoreSharedPayloadMinBytes;
 import com.baidu.bifromq.type.ClientInfo;
 import com.baidu.bifromq.type.Message;
 import com.baidu.bifromq.type.QoS;
@@ -116,7 +123,10 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
     private final ISettingProvider settingProvider;
     private final IEventCollector eventCollector;
     private final TenantsState tenantStates;
+    // the metadata keys written by the mutations whose in-memory updates are not applied yet
+    private final PendingKeys pendingMetadata = new PendingKeys(KeyUtil::isMetadataKey);
     private final Supplier<IKVCloseableReader> rangeReaderProvider;
+    private final int sharedPayloadMinBytes;
 
     InboxStoreCoProc(String clusterId,
                      String storeId,
@@ -129,6 +139,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         this.settingProvider = settingProvider;
         this.eventCollector = eventCollector;
         this.rangeReaderProvider = rangeReaderProvider;
+        this.sharedPayloadMinBytes = InboxStoreSharedPayloadMinBytes.INSTANCE.get();
         this.tenantStates = new TenantsState(eventCollector, rangeReaderProvider.get(),
             "clusterId", clusterId, "storeId", storeId, "rangeId", KVRangeIdUtil.toString(id));
         log.debug("Loading tenant states: rangeId={}", KVRangeIdUtil.toString(id));
@@ -160,63 +171,66 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         InboxServiceRWCoProcInput coProcInput = input.getInboxService();
         InboxServiceRWCoProcOutput.Builder outputBuilder =
             InboxServiceRWCoProcOutput.newBuilder().setReqId(coProcInput.getReqId());
+        PendingKeys.TrackingWriter trackingWriter = pendingMetadata.track(writer);
         AtomicReference<Runnable> afterMutate = new AtomicReference<>();
         switch (coProcInput.getTypeCase()) {
             case BATCHCREATE -> {
                 BatchCreateReply.Builder replyBuilder = BatchCreateReply.newBuilder();
-                afterMutate.set(batchCreate(coProcInput.getBatchCreate(), replyBuilder, reader, writer));
+                afterMutate.set(batchCreate(coProcInput.getBatchCreate(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchCreate(replyBuilder);
             }
             case BATCHATTACH -> {
                 BatchAttachReply.Builder replyBuilder = BatchAttachReply.newBuilder();
-                afterMutate.set(batchAttach(coProcInput.getBatchAttach(), replyBuilder, reader, writer));
+                afterMutate.set(batchAttach(coProcInput.getBatchAttach(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchAttach(replyBuilder);
             }
             case BATCHDETACH -> {
                 BatchDetachReply.Builder replyBuilder = BatchDetachReply.newBuilder();
-                afterMutate.set(batchDetach(coProcInput.getBatchDetach(), replyBuilder, reader, writer));
+                afterMutate.set(batchDetach(coProcInput.getBatchDetach(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchDetach(replyBuilder);
             }
             case BATCHTOUCH -> {
                 BatchTouchReply.Builder replyBuilder = BatchTouchReply.newBuilder();
-                afterMutate.set(batchTouch(coProcInput.getBatchTouch(), replyBuilder, reader, writer));
+                afterMutate.set(batchTouch(coProcInput.getBatchTouch(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchTouch(replyBuilder);
             }
             case BATCHDELETE -> {
                 BatchDeleteReply.Builder replyBuilder = BatchDeleteReply.newBuilder();
-                afterMutate.set(batchDelete(coProcInput.getBatchDelete(), replyBuilder, reader, writer));
+                afterMutate.set(batchDelete(coProcInput.getBatchDelete(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchDelete(replyBuilder.build());
             }
             case BATCHSUB -> {
                 BatchSubReply.Builder replyBuilder = BatchSubReply.newBuilder();
-                afterMutate.set(batchSub(coProcInput.getBatchSub(), replyBuilder, reader, writer));
+                afterMutate.set(batchSub(coProcInput.getBatchSub(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchSub(replyBuilder);
             }
             case BATCHUNSUB -> {
                 BatchUnsubReply.Builder replyBuilder = BatchUnsubReply.newBuilder();
-                afterMutate.set(batchUnsub(coProcInput.getBatchUnsub(), replyBuilder, reader, writer));
+                afterMutate.set(batchUnsub(coProcInput.getBatchUnsub(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchUnsub(replyBuilder);
             }
             case BATCHINSERT -> {
                 BatchInsertReply.Builder replyBuilder = BatchInsertReply.newBuilder();
-                afterMutate.set(batchInsert(coProcInput.getBatchInsert(), replyBuilder, reader, writer));
+                afterMutate.set(batchInsert(coProcInput.getBatchInsert(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchInsert(replyBuilder);
             }
             case BATCHCOMMIT -> {
                 BatchCommitReply.Builder replyBuilder = BatchCommitReply.newBuilder();
-                afterMutate.set(batchCommit(coProcInput.getBatchCommit(), replyBuilder, reader, writer));
+                afterMutate.set(batchCommit(coProcInput.getBatchCommit(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchCommit(replyBuilder);
             }
         }
         RWCoProcOutput output = RWCoProcOutput.newBuilder().setInboxService(outputBuilder.build()).build();
         return () -> {
             afterMutate.get().run();
+            trackingWriter.settle();
             return output;
         };
     }
 
     @Override
     public void reset(Boundary boundary) {
+        pendingMetadata.clear();
         tenantStates.reset();
         log.debug("Reloading tenant states: rangeId={}", KVRangeIdUtil.toString(id));
         load();
@@ -276,33 +290,43 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
             long startFetchFromSeq = !params.hasQos0StartAfter()
                 ? metadata.getQos0StartSeq()
                 : Math.max(params.getQos0StartAfter() + 1, metadata.getQos0StartSeq());
-            fetchFromInbox(metadataKey, Integer.MAX_VALUE, metadata.getQos0StartSeq(), startFetchFromSeq,
+            if (!fetchFromInbox(metadataKey, Integer.MAX_VALUE, metadata.getQos0StartSeq(), startFetchFromSeq,
                 metadata.getQos0NextSeq(),
                 KeyUtil::qos0InboxMsgKey, Fetched.Builder::addQos0Msg, reader,
-                replyBuilder);
+                replyBuilder)) {
+                return replyBuilder.clear().setResult(Fetched.Result.ERROR).build();
+            }
             // deal with qos12 queue
             startFetchFromSeq = !params.hasSendBufferStartAfter()
                 ? metadata.getSendBufferStartSeq()
                 : Math.max(params.getSendBufferStartAfter() + 1, metadata.getSendBufferStartSeq());
-            fetchFromInbox(metadataKey, fetchCount, metadata.getSendBufferStartSeq(), startFetchFromSeq,
+            if (!fetchFromInbox(metadataKey, fetchCount, metadata.getSendBufferStartSeq(), startFetchFromSeq,
                 metadata.getSendBufferNextSeq(),
                 KeyUtil::bufferMsgKey, Fetched.Builder::addSendBufferMsg, reader,
-                replyBuilder);
+                replyBuilder)) {
+                return replyBuilder.clear().setResult(Fetched.Result.ERROR).build();
+            }
             return replyBuilder.setResult(Fetched.Result.OK).build();
         } catch (InvalidProtocolBufferException e) {
             return replyBuilder.setResult(Fetched.Result.ERROR).build();
         }
     }
 
-    private void fetchFromInbox(ByteString inboxKeyPrefix,
-                                int fetchCount,
-                                long startSeq,
-                                long startFetchFromSeq,
-                                long nextSeq,
-                                BiFunction<ByteString, Long, ByteString> keyGenerator,
-                                BiConsumer<Fetched.Builder, InboxMessage> messageConsumer,
-                                IKVReader reader,
-                                Fetched.Builder replyBuilder) throws InvalidProtocolBufferException {
+    /**
+     * Fetch messages from the inbox queue.
+     *
+     * @return false if the shared payload referenced by some message is missing, the fetch should fail instead of
+     *     skipping the message silently
+     */
+    private boolean fetchFromInbox(ByteString inboxKeyPrefix,
+                                   int fetchCount,
+                                   long startSeq,
+                                   long startFetchFromSeq,
+                                   long nextSeq,
+                                   BiFunction<ByteString, Long, ByteString> keyGenerator,
+                                   BiConsumer<Fetched.Builder, InboxMessage> messageConsumer,
+                                   IKVReader reader,
+                                   Fetched.Builder replyBuilder) throws InvalidProtocolBufferException {
         if (startFetchFromSeq < nextSeq) {
             while (startSeq < nextSeq && fetchCount > 0) {
                 ByteString startKey = keyGenerator.apply(inboxKeyPrefix, startSeq);
@@ -318,6 +342,21 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                 if (lastSeq >= startFetchFromSeq) {
                     for (InboxMessage inboxMsg : messageList) {
                         if (inboxMsg.getSeq() >= startFetchFromSeq) {
+                            if (!inboxMsg.getPayloadRef().isEmpty()) {
+                                Optional<TopicMessage> sharedMsg =
+                                    SharedPayloads.load(inboxKeyPrefix, inboxMsg.getPayloadRef(), reader);
+                                if (sharedMsg.isEmpty()) {
+                                    log.error("Shared payload missing: inboxKeyPrefix={}, seq={}",
+                                        inboxKeyPrefix, inboxMsg.getSeq());
+                                    ITenantMeter.get(parseTenantId(inboxKeyPrefix))
+                                        .recordCount(MqttPersistentPayloadMissingCount);
+                                    return false;
+                                }
+                                inboxMsg = inboxMsg.toBuilder()
+                                    .setMsg(sharedMsg.get())
+                                    .clearPayloadRef()
+                                    .build();
+                            }
                             messageConsumer.accept(replyBuilder, inboxMsg);
                             fetchCount--;
                             if (fetchCount == 0) {
@@ -329,6 +368,24 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                 startSeq = lastSeq + 1;
             }
         }
+        return true;
+    }
+
+    /**
+     * Get the inbox metadata for mutation. The metadata written by the preceding mutations in the same batch is read
+     * via the reader, since the in-memory tenant states are updated only after the batch is persisted.
+     */
+    @SneakyThrows
+    private Optional<InboxMetadata> getMetadata(String tenantId, String inboxId, long incarnation, IKVReader reader) {
+        ByteString metadataKey = inboxKeyPrefix(tenantId, inboxId, incarnation);
+        if (pendingMetadata.isPending(metadataKey)) {
+            Optional<ByteString> metadataBytes = reader.get(metadataKey);
+            if (metadataBytes.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(InboxMetadata.parseFrom(metadataBytes.get()));
+        }
+        return tenantStates.get(tenantId, inboxId, incarnation);
     }
 
     private Runnable batchCreate(BatchCreateRequest request,
@@ -338,7 +395,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         for (BatchCreateRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> existing =
-                tenantStates.get(params.getClient().getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getClient().getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (existing.isPresent()) {
                 replyBuilder.addSucceed(false);
                 continue;
@@ -374,7 +431,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         for (BatchAttachRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getClient().getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getClient().getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addResult(
                     BatchAttachReply.Result.newBuilder().setCode(BatchAttachReply.Code.NO_INBOX).build());
@@ -417,7 +474,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         for (BatchDetachRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addResult(
                     BatchDetachReply.Result.newBuilder().setCode(BatchDetachReply.Code.NO_INBOX).build());
@@ -459,7 +516,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         for (BatchTouchRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addCode(BatchTouchReply.Code.NO_INBOX);
                 continue;
@@ -486,12 +543,13 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                                  IKVReader reader,
                                  IKVWriter writer) {
         Map<String, Set<InboxMetadata>> toBeRemoved = new HashMap<>();
+        SharedPayloads sharedPayloads = new SharedPayloads(sharedPayloadMinBytes);
         reader.refresh();
         IKVIterator itr = reader.iterator();
         for (BatchDeleteRequest.Params params : request.getParamsList()) {
             ByteString metadataKey = inboxKeyPrefix(params.getTenantId(), params.getInboxId(), params.getIncarnation());
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addResult(BatchDeleteReply.Result
                     .newBuilder()
@@ -507,7 +565,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                 continue;
             }
             InboxMetadata metadata = metadataOpt.get();
-            clearInbox(metadataKey, metadata, itr, writer);
+            clearInbox(metadataKey, metadata, itr, reader, writer, sharedPayloads);
             toBeRemoved.computeIfAbsent(params.getTenantId(), k -> new HashSet<>()).add(metadata);
             replyBuilder.addResult(BatchDeleteReply.Result
                 .newBuilder()
@@ -515,8 +573,12 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                 .addAllTopicFilters(metadata.getTopicFiltersMap().keySet())
                 .build());
         }
-        return () -> toBeRemoved.forEach((tenantId, removeSet) -> removeSet.forEach(inboxMetadata -> tenantStates
-            .remove(tenantId, inboxMetadata.getInboxId(), inboxMetadata.getIncarnation())));
+        Runnable reportDedup = sharedPayloads.flush(reader, writer);
+        return () -> {
+            toBeRemoved.forEach((tenantId, removeSet) -> removeSet.forEach(inboxMetadata -> tenantStates
+                .remove(tenantId, inboxMetadata.getInboxId(), inboxMetadata.getIncarnation())));
+            reportDedup.run();
+        };
     }
 
     private Runnable batchSub(BatchSubRequest request,
@@ -526,7 +588,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         for (BatchSubRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addCode(BatchSubReply.Code.NO_INBOX);
                 continue;
@@ -567,7 +629,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         for (BatchUnsubRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addCode(BatchUnsubReply.Code.NO_INBOX);
                 continue;
@@ -595,11 +657,18 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
             (tenantId, putSet) -> putSet.forEach(inboxMetadata -> tenantStates.upsert(tenantId, inboxMetadata)));
     }
 
-    private void clearInbox(ByteString inboxKeyPrefix, InboxMetadata metadata, IKVIterator itr, IKVWriter writer) {
+    private void clearInbox(ByteString inboxKeyPrefix,
+                            InboxMetadata metadata,
+                            IKVIterator itr,
+                            IKVReader reader,
+                            IKVWriter writer,
+                            SharedPayloads sharedPayloads) throws InvalidProtocolBufferException {
         if (metadata.getQos0NextSeq() > 0) {
             // find lowest seq of qos0 message
             itr.seek(qos0InboxPrefix(inboxKeyPrefix));
             if (itr.isValid() && isQoS0MessageKey(itr.key(), inboxKeyPrefix)) {
+                releaseSharedPayloads(inboxKeyPrefix, parseSeq(inboxKeyPrefix, itr.key()), metadata.getQos0NextSeq(),
+                    KeyUtil::qos0InboxMsgKey, reader, sharedPayloads);
                 for (long s = parseSeq(inboxKeyPrefix, itr.key()); s < metadata.getQos0NextSeq(); s++) {
                     writer.delete(qos0InboxMsgKey(inboxKeyPrefix, s));
                 }
@@ -608,6 +677,8 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         if (metadata.getSendBufferNextSeq() > 0) {
             itr.seek(sendBufferPrefix(inboxKeyPrefix));
             if (itr.isValid() && isBufferMessageKey(itr.key(), inboxKeyPrefix)) {
+                releaseSharedPayloads(inboxKeyPrefix, parseSeq(inboxKeyPrefix, itr.key()),
+                    metadata.getSendBufferNextSeq(), KeyUtil::bufferMsgKey, reader, sharedPayloads);
                 for (long s = parseSeq(inboxKeyPrefix, itr.key()); s < metadata.getSendBufferNextSeq(); s++) {
                     writer.delete(bufferMsgKey(inboxKeyPrefix, s));
                 }
@@ -616,6 +687,29 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         writer.delete(inboxKeyPrefix);
     }
 
+    private void releaseSharedPayloads(ByteString inboxKeyPrefix,
+                                       long startSeq,
+                                       long endSeq,
+                                       BiFunction<ByteString, Long, ByteString> keyGenerator,
+                                       IKVReader reader,
+                                       SharedPayloads sharedPayloads) throws InvalidProtocolBufferException {
+        // release the shared payloads referenced by the messages in [startSeq, endSeq)
+        while (startSeq < endSeq) {
+            Optional<ByteString> msgListData = reader.get(keyGenerator.apply(inboxKeyPrefix, startSeq));
+            if (msgListData.isEmpty()) {
+                break;
+            }
+            List<InboxMessage> msgList = InboxMessageList.parseFrom(msgListData.get()).getMessageList();
+            for (InboxMessage inboxMsg : msgList) {
+                if (inboxMsg.getSeq() >= endSeq) {
+                    break;
+                }
+                sharedPayloads.release(inboxKeyPrefix, inboxMsg);
+            }
+            startSeq = msgList.get(msgList.size() - 1).getSeq() + 1;
+        }
+    }
+
     @SneakyThrows
     private GCReply gcScan(GCRequest request, IKVReader reader) {
         GCReply.Builder replyBuilder = GCReply.newBuilder().setCode(GCReply.Code.OK);
@@ -673,10 +767,11 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
         Map<ClientInfo, Map<QoS, Integer>> dropCountMap = new HashMap<>();
         Map<ClientInfo, Boolean> dropOldestMap = new HashMap<>();
+        SharedPayloads sharedPayloads = new SharedPayloads(sharedPayloadMinBytes);
 
         for (InboxSubMessagePack params : request.getInboxSubMsgPackList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addResult(BatchInsertReply.Result.newBuilder()
                     .setCode(BatchInsertReply.Code.NO_INBOX)
@@ -689,13 +784,13 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                     .setCode(BatchInsertReply.Code.OK);
                 List<SubMessage> qos0MsgList = new ArrayList<>();
                 List<SubMessage> bufferMsgList = new ArrayList<>();
-                Map<String, Boolean> reject = new HashMap<>();
+                Map<String, Optional<TopicFilterOption>> reject = new HashMap<>();
                 for (SubMessagePack messagePack : params.getMessagePackList()) {
                     TopicFilterOption tfOption = metadata.getTopicFiltersMap().get(messagePack.getTopicFilter());
                     if (tfOption == null) {
-                        reject.put(messagePack.getTopicFilter(), true);
+                        reject.put(messagePack.getTopicFilter(), Optional.empty());
                     } else {
-                        reject.put(messagePack.getTopicFilter(), false);
+                        reject.put(messagePack.getTopicFilter(), Optional.of(tfOption));
                         for (TopicMessagePack topicMsgPack : messagePack.getMessagesList()) {
                             String topic = topicMsgPack.getTopic();
                             for (TopicMessagePack.PublisherPack publisherPack : topicMsgPack.getMessageList()) {
@@ -720,18 +815,35 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                     }
                 }
                 resBuilder.addAllInsertionResult(reject.entrySet().stream()
-                    .map(e -> BatchInsertReply.InsertionResult.newBuilder()
-                        .setTopicFilter(e.getKey())
-                        .setRejected(e.getValue())
-                        .build()).toList());
+                    .map(e -> {
+                        BatchInsertReply.InsertionResult.Builder insertionResultBuilder =
+                            BatchInsertReply.InsertionResult.newBuilder()
+                                .setTopicFilter(e.getKey())
+                                .setRejected(e.getValue().isEmpty());
+                        e.getValue().ifPresent(insertionResultBuilder::setOption);
+                        return insertionResultBuilder.build();
+                    }).toList());
+                long qos0FirstSeq = metadata.getQos0NextSeq();
+                long sendBufferFirstSeq = metadata.getSendBufferNextSeq();
                 InboxMetadata.Builder metadataBuilder = metadata.toBuilder();
                 dropOldestMap.put(metadata.getClient(), metadata.getDropOldest());
                 ByteString metadataKey =
                     inboxKeyPrefix(params.getTenantId(), params.getInboxId(), params.getIncarnation());
                 Map<QoS, Integer> dropCounts = insertInbox(metadataKey, qos0MsgList, bufferMsgList,
-                    metadataBuilder, reader, writer);
+                    metadataBuilder, reader, writer, sharedPayloads);
                 metadata = metadataBuilder.build();
-                replyBuilder.addResult(resBuilder.build());
+                replyBuilder.addResult(resBuilder
+                    .setQos0Seqs(BatchInsertReply.QueueSeqs.newBuilder()
+                        .setFirstSeq(qos0FirstSeq)
+                        .setStartSeq(metadata.getQos0StartSeq())
+                        .setNextSeq(metadata.getQos0NextSeq())
+                        .build())
+                    .setSendBufferSeqs(BatchInsertReply.QueueSeqs.newBuilder()
+                        .setFirstSeq(sendBufferFirstSeq)
+                        .setStartSeq(metadata.getSendBufferStartSeq())
+                        .setNextSeq(metadata.getSendBufferNextSeq())
+                        .build())
+                    .build());
                 writer.put(metadataKey, metadata.toByteString());
                 toBeCached.computeIfAbsent(params.getTenantId(), k -> new HashSet<>()).add(metadata);
                 Map<QoS, Integer> aggregated =
@@ -750,10 +862,12 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                     .build());
             }
         }
+        Runnable reportDedup = sharedPayloads.flush(reader, writer);
         return () -> {
             toBeCached.forEach(
                 (tenantId, putSet) -> putSet.forEach(
                     inboxMetadata -> tenantStates.upsert(tenantId, inboxMetadata)));
+            reportDedup.run();
             dropCountMap.forEach((client, dropCounts) -> dropCounts.forEach((qos, count) -> {
                 if (count > 0) {
                     eventCollector.report(getLocal(Overflowed.class)
@@ -771,14 +885,16 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                                           List<SubMessage> bufferedMsgList,
                                           InboxMetadata.Builder metaBuilder,
                                           IKVReader reader,
-                                          IKVWriter writer) throws InvalidProtocolBufferException {
+                                          IKVWriter writer,
+                                          SharedPayloads sharedPayloads) throws InvalidProtocolBufferException {
         Map<QoS, Integer> dropCounts = new HashMap<>();
         if (!qos0MsgList.isEmpty()) {
             long startSeq = metaBuilder.getQos0StartSeq();
             long nextSeq = metaBuilder.getQos0NextSeq();
             int dropCount = insertToInbox(inboxKeyPrefix, startSeq, nextSeq, metaBuilder.getLimit(),
                 metaBuilder.getDropOldest(), KeyUtil::qos0InboxMsgKey,
-                metaBuilder::setQos0StartSeq, metaBuilder::setQos0NextSeq, qos0MsgList, reader, writer);
+                metaBuilder::setQos0StartSeq, metaBuilder::setQos0NextSeq, qos0MsgList, reader, writer,
+                sharedPayloads);
             if (dropCount > 0) {
                 dropCounts.put(QoS.AT_MOST_ONCE, dropCount);
             }
@@ -789,7 +905,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
             int dropCount = insertToInbox(inboxKeyPrefix, startSeq, nextSeq, metaBuilder.getLimit(),
                 false, KeyUtil::bufferMsgKey,
                 metaBuilder::setSendBufferStartSeq, metaBuilder::setSendBufferNextSeq, bufferedMsgList, reader,
-                writer);
+                writer, sharedPayloads);
             if (dropCount > 0) {
                 dropCounts.put(QoS.AT_LEAST_ONCE, dropCount);
             }
@@ -807,7 +923,8 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                               Function<Long, InboxMetadata.Builder> nextSeqSetter,
                               List<SubMessage> messages,
                               IKVReader reader,
-                              IKVWriter writer) throws InvalidProtocolBufferException {
+                              IKVWriter writer,
+                              SharedPayloads sharedPayloads) throws InvalidProtocolBufferException {
         int newMsgCount = messages.size();
         int currCount = (int) (nextSeq - startSeq);
         int dropCount = currCount + newMsgCount - limit;
@@ -815,6 +932,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
             if (dropCount > 0) {
                 if (dropCount >= currCount) {
                     // drop all
+                    releaseSharedPayloads(inboxKeyPrefix, startSeq, nextSeq, keyGenerator, reader, sharedPayloads);
                     writer.clear(Boundary.newBuilder()
                         .setStartKey(keyGenerator.apply(inboxKeyPrefix, startSeq))
                         .setEndKey(keyGenerator.apply(inboxKeyPrefix, nextSeq))
@@ -824,8 +942,11 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                         messages = messages.subList(dropCount - currCount, newMsgCount);
                     }
                     writer.insert(keyGenerator.apply(inboxKeyPrefix, startSeq + dropCount),
-                        buildInboxMessageList(startSeq + dropCount, messages).toByteString());
+                        buildInboxMessageList(inboxKeyPrefix, startSeq + dropCount, messages, sharedPayloads)
+                            .toByteString());
                 } else {
+                    releaseSharedPayloads(inboxKeyPrefix, startSeq, startSeq + dropCount, keyGenerator, reader,
+                        sharedPayloads);
                     reader.refresh();
                     IKVIterator itr = reader.iterator();
                     // drop partially
@@ -838,11 +959,13 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                     if (!subMsgList.isEmpty()) {
                         msgListBuilder
                             .addAllMessage(subMsgList)
-                            .addAllMessage(buildInboxMessageList(subMsgList.get(subMsgList.size() - 1).getSeq() + 1,
-                                messages).getMessageList());
+                            .addAllMessage(buildInboxMessageList(inboxKeyPrefix,
+                                subMsgList.get(subMsgList.size() - 1).getSeq() + 1, messages, sharedPayloads)
+                                .getMessageList());
                     } else {
                         msgListBuilder.addAllMessage(
-                            buildInboxMessageList(startSeq + dropCount, messages).getMessageList());
+                            buildInboxMessageList(inboxKeyPrefix, startSeq + dropCount, messages, sharedPayloads)
+                                .getMessageList());
                     }
                     writer.clear(Boundary.newBuilder()
                         .setStartKey(keyGenerator.apply(inboxKeyPrefix, startSeq))
@@ -861,7 +984,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                 startSeq += dropCount;
             } else {
                 writer.insert(keyGenerator.apply(inboxKeyPrefix, nextSeq),
-                    buildInboxMessageList(nextSeq, messages).toByteString());
+                    buildInboxMessageList(inboxKeyPrefix, nextSeq, messages, sharedPayloads).toByteString());
             }
             nextSeq += newMsgCount;
             startSeqSetter.apply(startSeq);
@@ -870,7 +993,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
             if (dropCount < newMsgCount) {
                 List<SubMessage> subMessages = dropCount > 0 ? messages.subList(0, newMsgCount - dropCount) : messages;
                 writer.insert(keyGenerator.apply(inboxKeyPrefix, nextSeq),
-                    buildInboxMessageList(nextSeq, subMessages).toByteString());
+                    buildInboxMessageList(inboxKeyPrefix, nextSeq, subMessages, sharedPayloads).toByteString());
                 nextSeq += subMessages.size();
             }
             // else drop all new messages;
@@ -880,19 +1003,27 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
         return Math.max(dropCount, 0);
     }
 
-    private InboxMessageList buildInboxMessageList(long beginSeq, List<SubMessage> subMessages) {
+    private InboxMessageList buildInboxMessageList(ByteString inboxKeyPrefix,
+                                                   long beginSeq,
+                                                   List<SubMessage> subMessages,
+                                                   SharedPayloads sharedPayloads) {
         InboxMessageList.Builder listBuilder = InboxMessageList.newBuilder();
         for (SubMessage subMessage : subMessages) {
-            listBuilder.addMessage(InboxMessage.newBuilder()
+            InboxMessage.Builder msgBuilder = InboxMessage.newBuilder()
                 .setSeq(beginSeq)
                 .setTopicFilter(subMessage.topicFilter)
-                .setOption(subMessage.option)
-                .setMsg(TopicMessage.newBuilder()
-                    .setTopic(subMessage.topic)
-                    .setPublisher(subMessage.publisher)
-                    .setMessage(subMessage.message)
-                    .build())
-                .build());
+                .setOption(subMessage.option);
+            TopicMessage topicMsg = TopicMessage.newBuilder()
+                .setTopic(subMessage.topic)
+                .setPublisher(subMessage.publisher)
+                .setMessage(subMessage.message)
+                .build();
+            if (sharedPayloads.shouldShare(subMessage.message)) {
+                msgBuilder.setPayloadRef(sharedPayloads.acquire(inboxKeyPrefix, topicMsg));
+            } else {
+                msgBuilder.setMsg(topicMsg);
+            }
+            listBuilder.addMessage(msgBuilder.build());
             beginSeq++;
         }
         return listBuilder.build();
@@ -903,9 +1034,10 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                                  IKVReader reader,
                                  IKVWriter writer) {
         Map<String, Set<InboxMetadata>> toBeCached = new HashMap<>();
+        SharedPayloads sharedPayloads = new SharedPayloads(sharedPayloadMinBytes);
         for (BatchCommitRequest.Params params : request.getParamsList()) {
             Optional<InboxMetadata> metadataOpt =
-                tenantStates.get(params.getTenantId(), params.getInboxId(), params.getIncarnation());
+                getMetadata(params.getTenantId(), params.getInboxId(), params.getIncarnation(), reader);
             if (metadataOpt.isEmpty()) {
                 replyBuilder.addCode(BatchCommitReply.Code.NO_INBOX);
                 continue;
@@ -919,7 +1051,7 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                     inboxKeyPrefix(params.getTenantId(), params.getInboxId(), params.getIncarnation());
                 InboxMetadata metadata = metadataOpt.get();
                 InboxMetadata.Builder metaBuilder = metadata.toBuilder();
-                commitInbox(metadataKey, params, metaBuilder, reader, writer);
+                commitInbox(metadataKey, params, metaBuilder, reader, writer, sharedPayloads);
                 metadata = metaBuilder
                     .setLastActiveTime(params.getNow())
                     .build();
@@ -933,28 +1065,33 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
 
             }
         }
-        return () -> toBeCached.forEach(
-            (tenantId, putSet) -> putSet.forEach(inboxMetadata -> tenantStates.upsert(tenantId, inboxMetadata)));
+        Runnable reportDedup = sharedPayloads.flush(reader, writer);
+        return () -> {
+            toBeCached.forEach(
+                (tenantId, putSet) -> putSet.forEach(inboxMetadata -> tenantStates.upsert(tenantId, inboxMetadata)));
+            reportDedup.run();
+        };
     }
 
     private void commitInbox(ByteString scopedInboxId,
                              BatchCommitRequest.Params params,
                              InboxMetadata.Builder metaBuilder,
                              IKVReader reader,
-                             IKVWriter writer) throws InvalidProtocolBufferException {
+                             IKVWriter writer,
+                             SharedPayloads sharedPayloads) throws InvalidProtocolBufferException {
         if (params.hasQos0UpToSeq()) {
             long startSeq = metaBuilder.getQos0StartSeq();
             long nextSeq = metaBuilder.getQos0NextSeq();
             long commitSeq = params.getQos0UpToSeq();
             commitToInbox(scopedInboxId, startSeq, nextSeq, commitSeq, KeyUtil::qos0InboxMsgKey,
-                metaBuilder::setQos0StartSeq, reader, writer);
+                metaBuilder::setQos0StartSeq, reader, writer, sharedPayloads);
         }
         if (params.hasSendBufferUpToSeq()) {
             long startSeq = metaBuilder.getSendBufferStartSeq();
             long nextSeq = metaBuilder.getSendBufferNextSeq();
             long commitSeq = params.getSendBufferUpToSeq();
             commitToInbox(scopedInboxId, startSeq, nextSeq, commitSeq, KeyUtil::bufferMsgKey,
-                metaBuilder::setSendBufferStartSeq, reader, writer);
+                metaBuilder::setSendBufferStartSeq, reader, writer, sharedPayloads);
         }
     }
 
@@ -965,7 +1102,8 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                                BiFunction<ByteString, Long, ByteString> keyGenerator,
                                Function<Long, InboxMetadata.Builder> metadataSetter,
                                IKVReader reader,
-                               IKVWriter writer) throws InvalidProtocolBufferException {
+                               IKVWriter writer,
+                               SharedPayloads sharedPayloads) throws InvalidProtocolBufferException {
         if (startSeq <= commitSeq && commitSeq < nextSeq) {
             while (startSeq <= commitSeq) {
                 ByteString msgKey = keyGenerator.apply(scopedInboxId, startSeq);
@@ -976,9 +1114,12 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                 List<InboxMessage> msgList = InboxMessageList.parseFrom(msgListData.get()).getMessageList();
                 long lastSeq = msgList.get(msgList.size() - 1).getSeq();
                 if (lastSeq <= commitSeq) {
+                    msgList.forEach(inboxMsg -> sharedPayloads.release(scopedInboxId, inboxMsg));
                     writer.delete(msgKey);
                     startSeq = lastSeq + 1;
                 } else {
+                    msgList.subList(0, (int) (commitSeq - startSeq + 1))
+                        .forEach(inboxMsg -> sharedPayloads.release(scopedInboxId, inboxMsg));
                     writer.delete(msgKey);
                     msgList = msgList.subList((int) (commitSeq - startSeq + 1), msgList.size());
                     writer.insert(keyGenerator.apply(scopedInboxId, commitSeq + 1),
@@ -1006,6 +1147,9 @@ final class InboxStoreCoProc implements IKVRangeCoProc {
                         itr.next();
                         probe++;
                     }
+                } else if (isPayloadKey(itr.key())) {
+                    // skip the shared payloads in the bucket
+                    itr.seek(upperBound(parseInboxBucketPrefix(itr.key())));
                 } else {
                     if (probe < 20) {
                         itr.next();
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.store;
+
+import static com.baidu.bifromq.inbox.util.KeyUtil.parseTenantId;
+import static com.baidu.bifromq.inbox.util.KeyUtil.payloadKey;
+import static com.baidu.bifromq.inbox.util.KeyUtil.payloadRefCountKey;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadDedupBytes;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadRefCount;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadStoredCount;
+
+import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.baidu.bifromq.inbox.storage.proto.InboxMessage;
+import com.baidu.bifromq.metrics.ITenantMeter;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.TopicMessage;
+import com.google.common.hash.Hashing;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The shared payload area of the inbox keyspace. The message fanned out to multiple inboxes in the same bucket is
+ * stored only once and addressed by the SHA-256 digest of its content, the inbox entries keep the reference to it.
+ * The digest is collision resistant, so different messages never end up sharing one payload. The payload is reference
+ * counted, and removed when the last reference is released.
+ *
+ * <p>The instance accumulates the reference changes made during one mutation, and flushes them in one go, so that
+ * the reference count of each payload is written at most once per mutation.
+ */
+@Slf4j
+class SharedPayloads {
+    private record Payload(ByteString id, ByteString data) {
+    }
+
+    private final int minBytes;
+    private final Map<TopicMessage, Payload> payloads = new HashMap<>();
+    // payloadKey -> the payload to be stored if it's absent
+    private final Map<ByteString, Payload> acquired = new HashMap<>();
+    // payloadKey -> number of references acquired
+    private final Map<ByteString, Integer> acquiredRefs = new HashMap<>();
+    // payloadKey -> ref count delta
+    private final Map<ByteString, Long> refDeltas = new HashMap<>();
+
+    SharedPayloads(int minBytes) {
+        this.minBytes = minBytes;
+    }
+
+    /**
+     * Load the shared payload referenced by the inbox message.
+     *
+     * @param inboxKeyPrefix the key prefix of the inbox holding the message
+     * @param payloadRef     the payload reference
+     * @param reader         the range reader
+     * @return the shared payload if exists
+     */
+    static Optional<TopicMessage> load(ByteString inboxKeyPrefix, ByteString payloadRef, IKVReader reader)
+        throws InvalidProtocolBufferException {
+        Optional<ByteString> payloadData = reader.get(payloadKey(inboxKeyPrefix, payloadRef));
+        if (payloadData.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(TopicMessage.parseFrom(payloadData.get()));
+    }
+
+    boolean shouldShare(Message message) {
+        return minBytes > 0 && message.getPayload().size() >= minBytes;
+    }
+
+    /**
+     * Acquire a reference to the shared payload for the inbox, the payload will be stored when flushing if absent.
+     *
+     * @param inboxKeyPrefix the key prefix of the inbox
+     * @param message        the message to be shared
+     * @return the payload reference
+     */
+    ByteString acquire(ByteString inboxKeyPrefix, TopicMessage message) {
+        Payload payload = payloads.computeIfAbsent(message, m -> {
+            ByteString data = m.toByteString();
+            ByteString id = UnsafeByteOperations.unsafeWrap(Hashing.sha256()
+                .hashBytes(data.asReadOnlyByteBuffer())
+                .asBytes());
+            return new Payload(id, data);
+        });
+        ByteString payloadKey = payloadKey(inboxKeyPrefix, payload.id);
+        acquired.putIfAbsent(payloadKey, payload);
+        acquiredRefs.merge(payloadKey, 1, Integer::sum);
+        refDeltas.merge(payloadKey, 1L, Long::sum);
+        return payload.id;
+    }
+
+    /**
+     * Release the shared payload referenced by the inbox message if any.
+     *
+     * @param inboxKeyPrefix the key prefix of the inbox holding the message
+     * @param inboxMessage   the message to be removed from the inbox
+     */
+    void release(ByteString inboxKeyPrefix, InboxMessage inboxMessage) {
+        if (inboxMessage.getPayloadRef().isEmpty()) {
+            return;
+        }
+        refDeltas.merge(payloadKey(inboxKeyPrefix, inboxMessage.getPayloadRef()), -1L, Long::sum);
+    }
+
+    /**
+     * Write the accumulated reference changes.
+     *
+     * @param reader the range reader
+     * @param writer the range writer
+     * @return the task for reporting the dedup metrics after mutation applied
+     */
+    Runnable flush(IKVReader reader, IKVWriter writer) {
+        if (refDeltas.isEmpty()) {
+            return () -> {
+            };
+        }
+        Map<String, long[]> dedupStats = new HashMap<>();
+        refDeltas.forEach((payloadKey, delta) -> {
+            ByteString refCountKey = payloadRefCountKey(payloadKey);
+            long refCount = reader.get(refCountKey).map(v -> v.asReadOnlyByteBuffer().getLong()).orElse(0L);
+            Payload payload = acquired.get(payloadKey);
+            if (payload != null) {
+                // refs, stored, dedup bytes
+                long[] stats = dedupStats.computeIfAbsent(parseTenantId(payloadKey), k -> new long[3]);
+                int refs = acquiredRefs.get(payloadKey);
+                int stored = refCount == 0 ? 1 : 0;
+                stats[0] += refs;
+                stats[1] += stored;
+                stats[2] += (long) (refs - stored) * payload.data.size();
+            }
+            long newRefCount = refCount + delta;
+            if (refCount == 0) {
+                if (newRefCount > 0 && payload != null) {
+                    writer.insert(payloadKey, payload.data);
+                    writer.put(refCountKey, toByteString(newRefCount));
+                } else if (newRefCount < 0) {
+                    log.warn("Release non-exist shared payload: key={}", payloadKey);
+                }
+            } else if (newRefCount > 0) {
+                writer.put(refCountKey, toByteString(newRefCount));
+            } else {
+                writer.delete(payloadKey);
+                writer.delete(refCountKey);
+            }
+        });
+        return () -> dedupStats.forEach((tenantId, stats) -> {
+            ITenantMeter tenantMeter = ITenantMeter.get(tenantId);
+            tenantMeter.recordCount(MqttPersistentPayloadRefCount, stats[0]);
+            tenantMeter.recordCount(MqttPersistentPayloadStoredCount, stats[1]);
+            tenantMeter.recordSummary(MqttPersistentPayloadDedupBytes, stats[2]);
+        });
+    }
+
+    private static ByteString toByteString(long refCount) {
+        return UnsafeByteOperations.unsafeWrap(ByteBuffer.allocate(Long.BYTES).putLong(refCount).array());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.store;
+
+import static com.baidu.bifromq.basekv.client.KVRangeRouterUtil.findByBoundary;
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static com.baidu.bifromq.type.QoS.AT_LEAST_ONCE;
+import static org.awaitility.Awaitility.await;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.store.proto.ChangeReplicaConfigRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchCreateRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchFetchRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchInsertReply;
+import com.baidu.bifromq.inbox.storage.proto.BatchSubRequest;
+import com.baidu.bifromq.inbox.storage.proto.Fetched;
+import com.baidu.bifromq.inbox.storage.proto.InboxSubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.SubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.TopicFilterOption;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.TopicMessagePack;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import org.testng.annotations.Test;
+
+public class FollowerReadTest extends InboxStoreTest {
+    @Test(groups = "integration")
+    public void fetchFromFollowerAfterInsert() {
+        Set<String> replicaStores = Set.of(addReplicaStore(), addReplicaStore());
+        await().atMost(Duration.ofSeconds(60)).ignoreExceptions().until(() -> {
+            KVRangeSetting setting = rangeSetting();
+            if (!setting.voters.containsAll(replicaStores)) {
+                storeClient.changeReplicaConfig(setting.leader, ChangeReplicaConfigRequest.newBuilder()
+                    .setReqId(System.nanoTime())
+                    .setVer(setting.ver)
+                    .setKvRangeId(setting.id)
+                    .addNewVoters(setting.leader)
+                    .addAllNewVoters(replicaStores)
+                    .build()).join();
+                return false;
+            }
+            return setting.followers.size() == 2;
+        });
+
+        long now = 0;
+        String tenantId = "tenantId-" + System.nanoTime();
+        String inboxId = "inboxId-" + System.nanoTime();
+        long incarnation = System.nanoTime();
+        String topicFilter = "/a/b/c";
+        requestCreate(BatchCreateRequest.Params.newBuilder()
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setKeepAliveSeconds(5)
+            .setExpirySeconds(5)
+            .setLimit(100)
+            .setClient(ClientInfo.newBuilder().setTenantId(tenantId).build())
+            .setNow(now)
+            .build());
+        requestSub(BatchSubRequest.Params.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setVersion(0)
+            .setTopicFilter(topicFilter)
+            .setOption(TopicFilterOption.newBuilder().setQos(AT_LEAST_ONCE).build())
+            .setNow(now)
+            .build());
+
+        for (int i = 0; i < 10; i++) {
+            BatchInsertReply.Result insertResult = requestInsert(InboxSubMessagePack.newBuilder()
+                .setTenantId(tenantId)
+                .setInboxId(inboxId)
+                .setIncarnation(incarnation)
+                .addMessagePack(SubMessagePack.newBuilder()
+                    .setTopicFilter(topicFilter)
+                    .addMessages(TopicMessagePack.newBuilder()
+                        .setTopic(topicFilter)
+                        .addMessage(message(AT_LEAST_ONCE, "msg" + i))
+                        .build())
+                    .build())
+                .build()).get(0);
+            assertEquals(insertResult.getCode(), BatchInsertReply.Code.OK);
+            long lastSeq = insertResult.getSendBufferSeqs().getNextSeq() - 1;
+
+            List<String> followers = rangeSetting().followers;
+            assertFalse(followers.isEmpty());
+            for (String follower : followers) {
+                // linearized fetch served by follower must observe the acknowledged insertion
+                Fetched fetched = requestFetch(follower, BatchFetchRequest.Params.newBuilder()
+                    .setTenantId(tenantId)
+                    .setInboxId(inboxId)
+                    .setIncarnation(incarnation)
+                    .setMaxFetch(100)
+                    .build()).get(0);
+                assertEquals(fetched.getResult(), Fetched.Result.OK);
+                assertEquals(fetched.getSendBufferMsgCount(), i + 1);
+                assertEquals(fetched.getSendBufferMsg(i).getSeq(), lastSeq);
+            }
+        }
+    }
+
+    private KVRangeSetting rangeSetting() {
+        return findByBoundary(FULL_BOUNDARY, storeClient.latestEffectiveRouter()).get(0);
+    }
+}
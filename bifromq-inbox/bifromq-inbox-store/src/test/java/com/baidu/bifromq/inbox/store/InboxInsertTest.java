@@ -126,6 +126,12 @@ public class InboxInsertTest extends InboxStoreTest {
         assertEquals(insertResult.getCode(), BatchInsertReply.Code.OK);
         assertEquals(insertResult.getInsertionResult(0).getTopicFilter(), topicFilter);
         assertFalse(insertResult.getInsertionResult(0).getRejected());
+        assertEquals(insertResult.getInsertionResult(0).getOption().getQos(), qos);
+        BatchInsertReply.QueueSeqs queueSeqs =
+            qos == QoS.AT_MOST_ONCE ? insertResult.getQos0Seqs() : insertResult.getSendBufferSeqs();
+        assertEquals(queueSeqs.getFirstSeq(), 0);
+        assertEquals(queueSeqs.getStartSeq(), 0);
+        assertEquals(queueSeqs.getNextSeq(), 2);
 
         Fetched fetched = requestFetch(
             BatchFetchRequest.Params.newBuilder()
@@ -138,6 +144,7 @@ public class InboxInsertTest extends InboxStoreTest {
 
         assertEquals(msgCountGetter(qos).apply(fetched), 2);
         assertEquals(msgGetter(qos).apply(fetched, 0).getMsg().getMessage(), msg1.getMessage(0));
+        assertEquals(msgGetter(qos).apply(fetched, 0).getSeq(), queueSeqs.getFirstSeq());
         assertEquals(msgGetter(qos).apply(fetched, 1).getMsg().getMessage(), msg2.getMessage(0));
 
         Fetched fetched1 = requestFetch(
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.store;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+import static com.baidu.bifromq.inbox.util.KeyUtil.bufferMsgKey;
+import static com.baidu.bifromq.inbox.util.KeyUtil.inboxKeyPrefix;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadMissingCount;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.basekv.store.api.IKVCloseableReader;
+import com.baidu.bifromq.basekv.store.api.IKVIterator;
+import com.baidu.bifromq.basekv.store.api.IKVReader;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.baidu.bifromq.basekv.store.proto.ROCoProcInput;
+import com.baidu.bifromq.basekv.store.proto.RWCoProcInput;
+import com.baidu.bifromq.basekv.store.proto.RWCoProcOutput;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.baidu.bifromq.inbox.storage.proto.BatchCreateRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchFetchRequest;
+import com.baidu.bifromq.inbox.storage.proto.Fetched;
+import com.baidu.bifromq.inbox.storage.proto.InboxMessage;
+import com.baidu.bifromq.inbox.storage.proto.InboxMessageList;
+import com.baidu.bifromq.inbox.storage.proto.InboxMetadata;
+import com.baidu.bifromq.inbox.util.MessageUtil;
+import com.baidu.bifromq.plugin.eventcollector.IEventCollector;
+import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
+import com.baidu.bifromq.type.ClientInfo;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import lombok.SneakyThrows;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class InboxStoreCoProcTest extends MeterTest {
+    private final String tenantId = "tenantId";
+    private final String inboxId = "inboxId";
+    private final long incarnation = 1;
+    @Mock
+    private ISettingProvider settingProvider;
+    @Mock
+    private IEventCollector eventCollector;
+    @Mock
+    private IKVCloseableReader rangeReader;
+    @Mock
+    private IKVIterator rangeIterator;
+    @Mock
+    private IKVReader reader;
+    @Mock
+    private IKVWriter writer;
+    private AutoCloseable closeable;
+
+    @BeforeMethod
+    public void setup() {
+        super.setup();
+        closeable = MockitoAnnotations.openMocks(this);
+        ByteString inboxKeyPrefix = inboxKeyPrefix(tenantId, inboxId, incarnation);
+        InboxMetadata metadata = InboxMetadata.newBuilder()
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setLimit(10)
+            .setClient(ClientInfo.newBuilder().setTenantId(tenantId).build())
+            .setSendBufferStartSeq(0)
+            .setSendBufferNextSeq(2)
+            .build();
+        // the range holds one inbox
+        when(rangeReader.boundary()).thenReturn(FULL_BOUNDARY);
+        when(rangeReader.iterator()).thenReturn(rangeIterator);
+        when(rangeIterator.isValid()).thenReturn(true, false);
+        when(rangeIterator.key()).thenReturn(inboxKeyPrefix);
+        when(rangeIterator.value()).thenReturn(metadata.toByteString());
+
+        // the first message references a missing shared payload
+        when(reader.get(any())).thenReturn(Optional.empty());
+        when(reader.get(bufferMsgKey(inboxKeyPrefix, 0))).thenReturn(Optional.of(InboxMessageList.newBuilder()
+            .addMessage(InboxMessage.newBuilder()
+                .setSeq(0)
+                .setPayloadRef(ByteString.copyFromUtf8("missing"))
+                .build())
+            .build()
+            .toByteString()));
+        when(reader.get(bufferMsgKey(inboxKeyPrefix, 1))).thenReturn(Optional.of(InboxMessageList.newBuilder()
+            .addMessage(InboxMessage.newBuilder()
+                .setSeq(1)
+                .build())
+            .build()
+            .toByteString()));
+    }
+
+    @SneakyThrows
+    @AfterMethod
+    public void tearDown() {
+        closeable.close();
+        super.tearDown();
+    }
+
+    @Test
+    public void fetchFailWhenSharedPayloadMissing() {
+        InboxStoreCoProc coProc = new InboxStoreCoProc("clusterId", "storeId", KVRangeIdUtil.generate(),
+            settingProvider, eventCollector, () -> rangeReader);
+        ROCoProcInput input = ROCoProcInput.newBuilder()
+            .setInboxService(MessageUtil.buildFetchRequest(1, BatchFetchRequest.newBuilder()
+                .addParams(BatchFetchRequest.Params.newBuilder()
+                    .setTenantId(tenantId)
+                    .setInboxId(inboxId)
+                    .setIncarnation(incarnation)
+                    .setMaxFetch(10)
+                    .build())
+                .build()))
+            .build();
+        Fetched fetched = coProc.query(input, reader).join()
+            .getInboxService()
+            .getBatchFetch()
+            .getResult(0);
+        // the message must not be skipped silently
+        assertEquals(fetched.getResult(), Fetched.Result.ERROR);
+        assertEquals(fetched.getSendBufferMsgCount(), 0);
+
+        Optional<Meter> counter = getGauge(tenantId, MqttPersistentPayloadMissingCount);
+        assertTrue(counter.isPresent());
+        assertEquals(((Counter) counter.get()).count(), 1.0);
+        coProc.close();
+    }
+
+    @Test
+    public void batchedMutationSeesPendingMetadata() {
+        InboxStoreCoProc coProc = new InboxStoreCoProc("clusterId", "storeId", KVRangeIdUtil.generate(),
+            settingProvider, eventCollector, () -> rangeReader);
+        // the reader sees the writes of the preceding mutations in the batch
+        Map<ByteString, ByteString> written = new HashMap<>();
+        doAnswer(invocation -> written.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(writer).put(any(), any());
+        when(reader.get(any())).thenAnswer(invocation -> Optional.ofNullable(written.get(invocation.getArgument(0))));
+        RWCoProcInput input = RWCoProcInput.newBuilder()
+            .setInboxService(MessageUtil.buildCreateRequest(1, BatchCreateRequest.newBuilder()
+                .addParams(BatchCreateRequest.Params.newBuilder()
+                    .setInboxId("newInbox")
+                    .setIncarnation(incarnation)
+                    .setClient(ClientInfo.newBuilder().setTenantId(tenantId).build())
+                    .build())
+                .build()))
+            .build();
+        // the outputs are taken after the whole batch is persisted
+        Supplier<RWCoProcOutput> output1 = coProc.mutate(input, reader, writer);
+        Supplier<RWCoProcOutput> output2 = coProc.mutate(input, reader, writer);
+        assertTrue(output1.get().getInboxService().getBatchCreate().getSucceed(0));
+        assertFalse(output2.get().getInboxService().getBatchCreate().getSucceed(0));
+        coProc.close();
+    }
+}
@@ -102,6 +102,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -148,6 +149,8 @@ abstract class InboxStoreTest {
     private KVRangeStoreOptions options;
     protected IBaseKVStoreClient storeClient;
     protected IInboxStore testStore;
+    private final List<IInboxStore> replicaStores = new ArrayList<>();
+    private final List<IRPCServer> replicaRPCServers = new ArrayList<>();
 
     private AutoCloseable closeable;
 
@@ -172,14 +175,7 @@ abstract class InboxStoreTest {
         trafficService = IRPCServiceTrafficService.newInstance(crdtService);
         metaService = IBaseKVMetaService.newInstance(crdtService);
 
-        String uuid = UUID.randomUUID().toString();
-        options = new KVRangeStoreOptions();
-        ((RocksDBCPableKVEngineConfigurator) options.getDataEngineConfigurator())
-            .dbCheckpointRootDir(Paths.get(dbRootDir.toString(), DB_CHECKPOINT_DIR_NAME, uuid)
-                .toString())
-            .dbRootDir(Paths.get(dbRootDir.toString(), DB_NAME, uuid).toString());
-        ((RocksDBWALableKVEngineConfigurator) options.getWalEngineConfigurator())
-            .dbRootDir(Paths.get(dbRootDir.toString(), DB_WAL_NAME, uuid).toString());
+        options = newStoreOptions();
         queryExecutor = new ThreadPoolExecutor(2, 2, 0L,
             TimeUnit.MILLISECONDS, new LinkedTransferQueue<>(),
             EnvProvider.INSTANCE.newThreadFactory("query-executor"));
@@ -200,9 +196,26 @@ abstract class InboxStoreTest {
         log.info("Setup finished, and start testing");
     }
 
+    private KVRangeStoreOptions newStoreOptions() {
+        String uuid = UUID.randomUUID().toString();
+        KVRangeStoreOptions options = new KVRangeStoreOptions();
+        ((RocksDBCPableKVEngineConfigurator) options.getDataEngineConfigurator())
+            .dbCheckpointRootDir(Paths.get(dbRootDir.toString(), DB_CHECKPOINT_DIR_NAME, uuid)
+                .toString())
+            .dbRootDir(Paths.get(dbRootDir.toString(), DB_NAME, uuid).toString());
+        ((RocksDBWALableKVEngineConfigurator) options.getWalEngineConfigurator())
+            .dbRootDir(Paths.get(dbRootDir.toString(), DB_WAL_NAME, uuid).toString());
+        return options;
+    }
+
     private void buildStoreServer() {
         RPCServerBuilder rpcServerBuilder = IRPCServer.newBuilder().host("127.0.0.1").trafficService(trafficService);
-        testStore = IInboxStore.builder()
+        testStore = buildStore(rpcServerBuilder, options);
+        rpcServer = rpcServerBuilder.build();
+    }
+
+    private IInboxStore buildStore(RPCServerBuilder rpcServerBuilder, KVRangeStoreOptions options) {
+        return IInboxStore.builder()
             .rpcServerBuilder(rpcServerBuilder)
             .agentHost(agentHost)
             .metaService(metaService)
@@ -216,7 +229,22 @@ abstract class InboxStoreTest {
             .bgTaskExecutor(bgTaskExecutor)
             .gcInterval(Duration.ofSeconds(1))
             .build();
-        rpcServer = rpcServerBuilder.build();
+    }
+
+    /**
+     * Start another inbox store joining the cluster, the ranges will not be replicated to it until the replica config
+     * is changed explicitly.
+     *
+     * @return the id of the started store
+     */
+    protected String addReplicaStore() {
+        RPCServerBuilder rpcServerBuilder = IRPCServer.newBuilder().host("127.0.0.1").trafficService(trafficService);
+        IInboxStore replicaStore = buildStore(rpcServerBuilder, newStoreOptions());
+        IRPCServer replicaRPCServer = rpcServerBuilder.build();
+        replicaRPCServer.start();
+        replicaStores.add(replicaStore);
+        replicaRPCServers.add(replicaRPCServer);
+        return replicaStore.id();
     }
 
     protected void restartStoreServer() {
@@ -233,6 +261,8 @@ abstract class InboxStoreTest {
         storeClient.close();
         testStore.close();
         rpcServer.shutdown();
+        replicaStores.forEach(IInboxStore::close);
+        replicaRPCServers.forEach(IRPCServer::shutdown);
         trafficService.close();
         metaService.close();
         crdtService.close();
@@ -280,6 +310,21 @@ abstract class InboxStoreTest {
     }
 
 
+    private InboxServiceROCoProcOutput linearizedQuery(String storeId,
+                                                       ByteString routeKey,
+                                                       InboxServiceROCoProcInput input) {
+        KVRangeSetting s = findByKey(routeKey, storeClient.latestEffectiveRouter()).get();
+        KVRangeROReply reply = storeClient.linearizedQuery(storeId, KVRangeRORequest.newBuilder()
+            .setReqId(input.getReqId())
+            .setVer(s.ver)
+            .setKvRangeId(s.id)
+            .setRoCoProc(ROCoProcInput.newBuilder().setInboxService(input).build())
+            .build()).join();
+        assertEquals(reply.getReqId(), input.getReqId());
+        assertEquals(reply.getCode(), ReplyCode.Ok);
+        return reply.getRoCoProcResult().getInboxService();
+    }
+
     private InboxServiceRWCoProcOutput mutate(ByteString routeKey, InboxServiceRWCoProcInput input) {
         KVRangeSetting s = findByKey(routeKey, storeClient.latestEffectiveRouter()).get();
         KVRangeRWReply reply = storeClient.execute(s.leader, KVRangeRWRequest.newBuilder()
@@ -333,6 +378,19 @@ abstract class InboxStoreTest {
         return output.getBatchFetch().getResultList();
     }
 
+    protected List<Fetched> requestFetch(String storeId, BatchFetchRequest.Params... params) {
+        assert params.length > 0;
+        long reqId = ThreadLocalRandom.current().nextInt();
+        ByteString routeKey = inboxPrefix(params[0].getTenantId(), params[0].getInboxId());
+        InboxServiceROCoProcInput input = MessageUtil.buildFetchRequest(reqId, BatchFetchRequest.newBuilder()
+            .addAllParams(List.of(params))
+            .build());
+        InboxServiceROCoProcOutput output = linearizedQuery(storeId, routeKey, input);
+        assertTrue(output.hasBatchFetch());
+        assertEquals(output.getReqId(), reqId);
+        return output.getBatchFetch().getResultList();
+    }
+
     protected List<BatchAttachReply.Result> requestAttach(BatchAttachRequest.Params... params) {
         assert params.length > 0;
         long reqId = ThreadLocalRandom.current().nextInt();
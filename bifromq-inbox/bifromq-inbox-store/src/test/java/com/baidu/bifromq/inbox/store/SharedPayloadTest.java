@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.store;
+
+import static com.baidu.bifromq.inbox.util.KeyUtil.inboxBucketPrefix;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadRefCount;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPersistentPayloadStoredCount;
+import static com.baidu.bifromq.type.QoS.AT_LEAST_ONCE;
+import static com.baidu.bifromq.type.QoS.AT_MOST_ONCE;
+import static org.awaitility.Awaitility.await;
+import static org.testng.Assert.assertEquals;
+
+import com.baidu.bifromq.inbox.storage.proto.BatchCommitReply;
+import com.baidu.bifromq.inbox.storage.proto.BatchCommitRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchCreateRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchDeleteReply;
+import com.baidu.bifromq.inbox.storage.proto.BatchDeleteRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchFetchRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchSubRequest;
+import com.baidu.bifromq.inbox.storage.proto.Fetched;
+import com.baidu.bifromq.inbox.storage.proto.InboxSubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.SubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.TopicFilterOption;
+import com.baidu.bifromq.metrics.TenantMetric;
+import com.baidu.bifromq.sysprops.props.InboxStoreSharedPayloadMinBytes;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.TopicMessagePack;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
+import java.util.Objects;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class SharedPayloadTest extends InboxInsertTest {
+    private final String topicFilter = "/a/b/c";
+
+    @BeforeClass(groups = "integration")
+    @Override
+    public void setup() throws IOException {
+        System.setProperty(InboxStoreSharedPayloadMinBytes.INSTANCE.propKey(), "1");
+        InboxStoreSharedPayloadMinBytes.INSTANCE.resolve();
+        super.setup();
+    }
+
+    @AfterClass(groups = "integration")
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(InboxStoreSharedPayloadMinBytes.INSTANCE.propKey());
+        InboxStoreSharedPayloadMinBytes.INSTANCE.resolve();
+    }
+
+    @Test(groups = "integration")
+    public void fetchWithoutStartAfter() {
+        fetchWithoutStartAfter(AT_LEAST_ONCE);
+    }
+
+    @Test(groups = "integration")
+    public void fetchWithStartAfter() {
+        fetchWithStartAfter(AT_LEAST_ONCE);
+    }
+
+    @Test(groups = "integration")
+    public void commit() {
+        commit(AT_LEAST_ONCE);
+    }
+
+    @Test(groups = "integration")
+    public void commitAll() {
+        commitAll(AT_MOST_ONCE);
+    }
+
+    @Test(groups = "integration")
+    public void insertDropOldest() {
+        insertDropOldest(AT_MOST_ONCE);
+    }
+
+    @Test(groups = "integration")
+    public void fanOutAndRelease() {
+        String tenantId = "tenantId-" + System.nanoTime();
+        String inboxId1 = "inboxId-" + System.nanoTime();
+        String inboxId2 = inboxIdInSameBucket(tenantId, inboxId1);
+        long incarnation = System.nanoTime();
+        createAndSub(tenantId, inboxId1, incarnation);
+        createAndSub(tenantId, inboxId2, incarnation);
+
+        TopicMessagePack.PublisherPack msg = message(AT_LEAST_ONCE, "hello");
+        requestInsert(subMessagePack(tenantId, inboxId1, incarnation, msg),
+            subMessagePack(tenantId, inboxId2, incarnation, msg));
+        awaitCount(tenantId, MqttPersistentPayloadRefCount, 2);
+        awaitCount(tenantId, MqttPersistentPayloadStoredCount, 1);
+
+        for (String inboxId : new String[] {inboxId1, inboxId2}) {
+            Fetched fetched = fetch(tenantId, inboxId, incarnation);
+            assertEquals(fetched.getSendBufferMsgCount(), 1);
+            assertEquals(fetched.getSendBufferMsg(0).getMsg().getTopic(), topicFilter);
+            assertEquals(fetched.getSendBufferMsg(0).getMsg().getMessage(), msg.getMessage(0));
+            assertEquals(fetched.getSendBufferMsg(0).getPayloadRef().size(), 0);
+        }
+
+        // shared payload is kept until all references released
+        assertEquals(commit(tenantId, inboxId1, incarnation), BatchCommitReply.Code.OK);
+        Fetched fetched = fetch(tenantId, inboxId2, incarnation);
+        assertEquals(fetched.getSendBufferMsg(0).getMsg().getMessage(), msg.getMessage(0));
+        assertEquals(requestDelete(BatchDeleteRequest.Params.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId2)
+            .setIncarnation(incarnation)
+            .setVersion(0)
+            .build()).get(0).getCode(), BatchDeleteReply.Code.OK);
+
+        // the payload is stored again after released
+        requestInsert(subMessagePack(tenantId, inboxId1, incarnation, msg));
+        awaitCount(tenantId, MqttPersistentPayloadRefCount, 3);
+        awaitCount(tenantId, MqttPersistentPayloadStoredCount, 2);
+        fetched = fetch(tenantId, inboxId1, incarnation);
+        assertEquals(fetched.getSendBufferMsgCount(), 1);
+        assertEquals(fetched.getSendBufferMsg(0).getMsg().getMessage(), msg.getMessage(0));
+    }
+
+    private String inboxIdInSameBucket(String tenantId, String inboxId) {
+        int i = 0;
+        String candidate;
+        do {
+            candidate = inboxId + "-" + i++;
+        } while (!inboxBucketPrefix(tenantId, candidate).equals(inboxBucketPrefix(tenantId, inboxId)));
+        return candidate;
+    }
+
+    private void createAndSub(String tenantId, String inboxId, long incarnation) {
+        requestCreate(BatchCreateRequest.Params.newBuilder()
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setKeepAliveSeconds(2)
+            .setExpirySeconds(2)
+            .setLimit(10)
+            .setClient(ClientInfo.newBuilder().setTenantId(tenantId).build())
+            .setNow(0)
+            .build());
+        requestSub(BatchSubRequest.Params.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setVersion(0)
+            .setTopicFilter(topicFilter)
+            .setOption(TopicFilterOption.newBuilder().setQos(AT_LEAST_ONCE).build())
+            .setNow(0)
+            .build());
+    }
+
+    private InboxSubMessagePack subMessagePack(String tenantId, String inboxId, long incarnation,
+                                               TopicMessagePack.PublisherPack msg) {
+        return InboxSubMessagePack.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .addMessagePack(SubMessagePack.newBuilder()
+                .setTopicFilter(topicFilter)
+                .addMessages(TopicMessagePack.newBuilder()
+                    .setTopic(topicFilter)
+                    .addMessage(msg)
+                    .build())
+                .build())
+            .build();
+    }
+
+    private Fetched fetch(String tenantId, String inboxId, long incarnation) {
+        return requestFetch(BatchFetchRequest.Params.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setMaxFetch(10)
+            .build())
+            .get(0);
+    }
+
+    private BatchCommitReply.Code commit(String tenantId, String inboxId, long incarnation) {
+        return requestCommit(BatchCommitRequest.Params.newBuilder()
+            .setTenantId(tenantId)
+            .setInboxId(inboxId)
+            .setIncarnation(incarnation)
+            .setVersion(0)
+            .setSendBufferUpToSeq(0)
+            .setNow(0)
+            .build()).get(0);
+    }
+
+    private void awaitCount(String tenantId, TenantMetric metric, double expected) {
+        await().until(() -> {
+            for (Meter meter : Metrics.globalRegistry.getMeters()) {
+                if (meter.getId().getName().equals(metric.metricName)
+                    && Objects.equals(meter.getId().getTag("tenantId"), tenantId)) {
+                    return meter.measure().iterator().next().getValue() == expected;
+                }
+            }
+            return false;
+        });
+    }
+}
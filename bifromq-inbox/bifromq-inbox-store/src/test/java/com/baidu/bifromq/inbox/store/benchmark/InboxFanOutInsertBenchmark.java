@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.inbox.store.benchmark;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.FULL_BOUNDARY;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.basekv.store.api.IKVCloseableReader;
+import com.baidu.bifromq.basekv.store.api.IKVIterator;
+import com.baidu.bifromq.basekv.store.api.IKVRangeCoProc;
+import com.baidu.bifromq.basekv.store.api.IKVWriter;
+import com.baidu.bifromq.basekv.store.proto.RWCoProcInput;
+import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.baidu.bifromq.inbox.storage.proto.BatchCommitRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchCreateRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchInsertRequest;
+import com.baidu.bifromq.inbox.storage.proto.BatchSubRequest;
+import com.baidu.bifromq.inbox.storage.proto.InboxServiceRWCoProcInput;
+import com.baidu.bifromq.inbox.storage.proto.InboxSubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.SubMessagePack;
+import com.baidu.bifromq.inbox.storage.proto.TopicFilterOption;
+import com.baidu.bifromq.inbox.store.InboxStoreCoProcFactory;
+import com.baidu.bifromq.inbox.util.MessageUtil;
+import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
+import com.baidu.bifromq.plugin.settingprovider.Setting;
+import com.baidu.bifromq.sysprops.props.InboxStoreSharedPayloadMinBytes;
+import com.baidu.bifromq.type.ClientInfo;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.QoS;
+import com.baidu.bifromq.type.TopicMessagePack;
+import com.google.protobuf.ByteString;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Insert a large message fanned out to many persistent sessions, with and without the shared payload area.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+public class InboxFanOutInsertBenchmark {
+    private static final String TENANT_ID = "tenant";
+    private static final String TOPIC = "fanout/topic";
+
+    @Param({"0", "1024"})
+    private int sharedPayloadMinBytes;
+    @Param({"5000"})
+    private int fanOut;
+    @Param({"10240"})
+    private int payloadSize;
+    private final TreeMap<ByteString, ByteString> kvs = new TreeMap<>(ByteString.unsignedLexicographicalComparator());
+    private final TreeMapKVWriter writer = new TreeMapKVWriter();
+    private final TreeMapKVReader reader = new TreeMapKVReader();
+    private IKVRangeCoProc coProc;
+    private ByteString payload;
+    private long seq;
+    private long ops;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(InboxFanOutInsertBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty(InboxStoreSharedPayloadMinBytes.INSTANCE.propKey(), String.valueOf(sharedPayloadMinBytes));
+        InboxStoreSharedPayloadMinBytes.INSTANCE.resolve();
+        ISettingProvider settingProvider = new ISettingProvider() {
+            @Override
+            public <R> R provide(Setting setting, String tenantId) {
+                return setting.current(tenantId);
+            }
+        };
+        coProc = new InboxStoreCoProcFactory(settingProvider, event -> {
+        }, Duration.ofMinutes(5)).createCoProc("cluster", "store", KVRangeIdUtil.generate(), () -> reader);
+        payload = ByteString.copyFrom(new byte[payloadSize]);
+        BatchCreateRequest.Builder createRequest = BatchCreateRequest.newBuilder();
+        BatchSubRequest.Builder subRequest = BatchSubRequest.newBuilder();
+        for (int i = 0; i < fanOut; i++) {
+            createRequest.addParams(BatchCreateRequest.Params.newBuilder()
+                .setInboxId(inboxId(i))
+                .setKeepAliveSeconds(60)
+                .setExpirySeconds(60)
+                .setLimit(1000)
+                .setClient(ClientInfo.newBuilder().setTenantId(TENANT_ID).build())
+                .setNow(System.currentTimeMillis())
+                .build());
+            subRequest.addParams(BatchSubRequest.Params.newBuilder()
+                .setTenantId(TENANT_ID)
+                .setInboxId(inboxId(i))
+                .setTopicFilter(TOPIC)
+                .setOption(TopicFilterOption.newBuilder().setQos(QoS.AT_LEAST_ONCE).build())
+                .setNow(System.currentTimeMillis())
+                .build());
+        }
+        mutate(MessageUtil.buildCreateRequest(0, createRequest.build()));
+        mutate(MessageUtil.buildSubRequest(0, subRequest.build()));
+        writer.writtenBytes = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        log.info("Written bytes per insert: sharedPayloadMinBytes={}, bytes={}", sharedPayloadMinBytes,
+            ops == 0 ? 0 : writer.writtenBytes / ops);
+        coProc.close();
+        System.clearProperty(InboxStoreSharedPayloadMinBytes.INSTANCE.propKey());
+        InboxStoreSharedPayloadMinBytes.INSTANCE.resolve();
+    }
+
+    @TearDown(Level.Invocation)
+    public void commit() {
+        BatchCommitRequest.Builder commitRequest = BatchCommitRequest.newBuilder();
+        for (int i = 0; i < fanOut; i++) {
+            commitRequest.addParams(BatchCommitRequest.Params.newBuilder()
+                .setTenantId(TENANT_ID)
+                .setInboxId(inboxId(i))
+                .setSendBufferUpToSeq(seq)
+                .setNow(System.currentTimeMillis())
+                .build());
+        }
+        long writtenBytes = writer.writtenBytes;
+        mutate(MessageUtil.buildCommitRequest(0, commitRequest.build()));
+        writer.writtenBytes = writtenBytes;
+        seq++;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 4)
+    @Threads(1)
+    @Fork(1)
+    public void fanOutInsert() {
+        TopicMessagePack.PublisherPack publisherPack = TopicMessagePack.PublisherPack.newBuilder()
+            .setPublisher(ClientInfo.newBuilder().setTenantId(TENANT_ID).build())
+            .addMessage(Message.newBuilder()
+                .setMessageId(seq)
+                .setPubQoS(QoS.AT_LEAST_ONCE)
+                .setPayload(payload)
+                .setTimestamp(System.currentTimeMillis())
+                .build())
+            .build();
+        BatchInsertRequest.Builder insertRequest = BatchInsertRequest.newBuilder();
+        for (int i = 0; i < fanOut; i++) {
+            insertRequest.addInboxSubMsgPack(InboxSubMessagePack.newBuilder()
+                .setTenantId(TENANT_ID)
+                .setInboxId(inboxId(i))
+                .addMessagePack(SubMessagePack.newBuilder()
+                    .setTopicFilter(TOPIC)
+                    .addMessages(TopicMessagePack.newBuilder()
+                        .setTopic(TOPIC)
+                        .addMessage(publisherPack)
+                        .build())
+                    .build())
+                .build());
+        }
+        mutate(MessageUtil.buildInsertRequest(0, insertRequest.build()));
+        ops++;
+    }
+
+    private void mutate(InboxServiceRWCoProcInput input) {
+        coProc.mutate(RWCoProcInput.newBuilder().setInboxService(input).build(), reader, writer).get();
+    }
+
+    private String inboxId(int i) {
+        return "inbox-" + i;
+    }
+
+    private class TreeMapKVWriter implements IKVWriter {
+        private long writtenBytes;
+
+        @Override
+        public void delete(ByteString key) {
+            kvs.remove(key);
+        }
+
+        @Override
+        public void clear(Boundary boundary) {
+            kvs.subMap(boundary.getStartKey(), boundary.getEndKey()).clear();
+        }
+
+        @Override
+        public void insert(ByteString key, ByteString value) {
+            put(key, value);
+        }
+
+        @Override
+        public void put(ByteString key, ByteString value) {
+            writtenBytes += key.size() + value.size();
+            kvs.put(key, value);
+        }
+    }
+
+    private class TreeMapKVReader implements IKVCloseableReader {
+        @Override
+        public Boundary boundary() {
+            return FULL_BOUNDARY;
+        }
+
+        @Override
+        public long size(Boundary boundary) {
+            return 0;
+        }
+
+        @Override
+        public boolean exist(ByteString key) {
+            return kvs.containsKey(key);
+        }
+
+        @Override
+        public Optional<ByteString> get(ByteString key) {
+            return Optional.ofNullable(kvs.get(key));
+        }
+
+        @Override
+        public IKVIterator iterator() {
+            return new IKVIterator() {
+                private Map.Entry<ByteString, ByteString> current;
+
+                @Override
+                public ByteString key() {
+                    return current.getKey();
+                }
+
+                @Override
+                public ByteString value() {
+                    return current.getValue();
+                }
+
+                @Override
+                public boolean isValid() {
+                    return current != null;
+                }
+
+                @Override
+                public void next() {
+                    current = kvs.higherEntry(current.getKey());
+                }
+
+                @Override
+                public void prev() {
+                    current = kvs.lowerEntry(current.getKey());
+                }
+
+                @Override
+                public void seekToFirst() {
+                    current = kvs.firstEntry();
+                }
+
+                @Override
+                public void seekToLast() {
+                    current = kvs.lastEntry();
+                }
+
+                @Override
+                public void seek(ByteString key) {
+                    current = kvs.ceilingEntry(key);
+                }
+
+                @Override
+                public void seekForPrev(ByteString key) {
+                    current = kvs.floorEntry(key);
+                }
+            };
+        }
+
+        @Override
+        public void refresh() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
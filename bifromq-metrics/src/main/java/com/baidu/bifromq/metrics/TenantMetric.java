@@ -50,6 +50,13 @@ public enum TenantMetric {
     MqttQoS2ExternalLatency("mqtt.ex.qos2.latency", Meter.Type.TIMER),
     MqttTransientFanOutBytes("mqtt.tfanout.bytes", Meter.Type.DISTRIBUTION_SUMMARY),
     MqttPersistentFanOutBytes("mqtt.pfanout.bytes", Meter.Type.DISTRIBUTION_SUMMARY),
+    MqttPersistentPayloadRefCount("mqtt.ppayload.ref.count", Meter.Type.COUNTER),
+    MqttPersistentPayloadStoredCount("mqtt.ppayload.stored.count", Meter.Type.COUNTER),
+    MqttPersistentPayloadDedupBytes("mqtt.ppayload.dedup.bytes", Meter.Type.DISTRIBUTION_SUMMARY),
+    MqttPersistentPayloadMissingCount("mqtt.ppayload.missing.count", Meter.Type.COUNTER),
+    MqttPubPermCacheHitCount("mqtt.pub.perm.cache.hit.count", Meter.Type.COUNTER),
+    MqttPubPermCacheMissCount("mqtt.pub.perm.cache.miss.count", Meter.Type.COUNTER),
+    MqttPubPermCheckSavedLatency("mqtt.pub.perm.check.saved.latency", Meter.Type.TIMER),
 
     // subscription related metrics
     MqttRouteSpaceGauge("mqtt.route.space.gauge", Meter.Type.GAUGE),
@@ -67,6 +74,7 @@ public enum TenantMetric {
 
     MqttRouteCacheSize("mqtt.route.cache.size.gauge", Meter.Type.GAUGE),
     MqttRouteCacheMissCount("mqtt.route.cache.miss.count", Meter.Type.COUNTER),
+    MqttRouteIndexMemGauge("mqtt.route.index.mem.gauge", Meter.Type.GAUGE),
     // retain related
     MqttIngressRetainBytes("mqtt.ingress.retain.bytes", Meter.Type.DISTRIBUTION_SUMMARY),
     MqttRetainedBytes("mqtt.retained.bytes", Meter.Type.DISTRIBUTION_SUMMARY),
@@ -17,6 +17,7 @@ import com.baidu.bifromq.mqtt.session.MQTTSessionContext;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttDecoder;
+import io.netty.handler.codec.mqtt.MqttEncoder;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.traffic.ChannelTrafficShapingHandler;
 import io.netty.util.AttributeKey;
@@ -61,6 +62,14 @@ public class ChannelAttrs {
         }
     }
 
+    public static void setupPublishEncoder(boolean isMQTT5, ChannelHandlerContext ctx) {
+        if (ctx.pipeline().get(MqttEncoder.class.getName()) != null
+            && ctx.pipeline().get(MQTTPublishEncoder.NAME) == null) {
+            ctx.pipeline().addAfter(MqttEncoder.class.getName(), MQTTPublishEncoder.NAME,
+                isMQTT5 ? MQTTPublishEncoder.MQTT5 : MQTTPublishEncoder.MQTT3);
+        }
+    }
+
     public static void socketAddress(ChannelHandlerContext ctx, InetSocketAddress socketAddress) {
         ctx.channel().attr(PEER_ADDR).set(socketAddress);
     }
@@ -88,14 +88,34 @@ public abstract class MQTTMessageHandler extends ChannelDuplexHandler {
         return future;
     }
 
+    /**
+     * Write the message without flushing, the caller must call {@link #flushIfNeeded()} after writing a batch of
+     * messages.
+     *
+     * @param msg the message to write
+     * @return the future of the write
+     */
+    protected ChannelFuture write(Object msg) {
+        ChannelFuture future = ctx.write(msg);
+        flushPendingCount++;
+        return future;
+    }
+
     protected void flush(boolean immediately) {
-        if (++flushPendingCount == explicitFlushAfterFlushes || immediately) {
+        if (++flushPendingCount >= explicitFlushAfterFlushes || immediately) {
             flushNow(ctx);
         } else {
             scheduleFlush(ctx);
         }
     }
 
+    /**
+     * Flush the pending writes if any.
+     */
+    protected void flushIfNeeded() {
+        flushIfNeeded(ctx);
+    }
+
     private void flushIfNeeded(ChannelHandlerContext ctx) {
         if (flushPendingCount > 0) {
             flushNow(ctx);
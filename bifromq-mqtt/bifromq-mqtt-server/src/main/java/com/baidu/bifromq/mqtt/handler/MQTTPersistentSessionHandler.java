@@ -470,7 +470,11 @@ public abstract class MQTTPersistentSessionHandler extends MQTTSessionHandler im
                 case OK -> {
                     // deal with qos0
                     if (fetched.getQos0MsgCount() > 0) {
-                        fetched.getQos0MsgList().forEach(this::pubQoS0Message);
+                        CompletableFuture.allOf(fetched.getQos0MsgList().stream()
+                                .map(this::pubQoS0Message)
+                                .toArray(CompletableFuture[]::new))
+                            // one flush for all the messages of the batch
+                            .whenComplete((v, e) -> flushIfNeeded());
                         // commit immediately
                         qos0ConfirmUpToSeq = fetched.getQos0Msg(fetched.getQos0MsgCount() - 1).getSeq();
                         confirmQoS0();
@@ -488,10 +492,10 @@ public abstract class MQTTPersistentSessionHandler extends MQTTSessionHandler im
         });
     }
 
-    private void pubQoS0Message(InboxMessage inboxMsg) {
+    private CompletableFuture<Void> pubQoS0Message(InboxMessage inboxMsg) {
         String topicFilter = inboxMsg.getTopicFilter();
         TopicFilterOption option = inboxMsg.getOption();
-        addFgTask(authProvider.checkPermission(clientInfo(), buildSubAction(topicFilter, option.getQos())))
+        return addFgTask(authProvider.checkPermission(clientInfo(), buildSubAction(topicFilter, option.getQos())))
             .thenAccept(checkResult -> {
                 TopicMessage topicMsg = inboxMsg.getMsg();
                 String topic = topicMsg.getTopic();
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.mqtt.handler;
+
+import static io.netty.buffer.ByteBufUtil.utf8Bytes;
+import static io.netty.buffer.ByteBufUtil.writeUtf8;
+
+import com.baidu.bifromq.mqtt.utils.IMQTTMessageSizer;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import java.util.List;
+
+/**
+ * The encoder of PUBLISH packet, MUST be configured after MqttEncoder. Different from MqttEncoder which copies the
+ * payload into the encoded packet, only the fixed header and variable header are encoded into a new buffer, and the
+ * payload is referenced by the composite buffer of the packet, so the payload shared by many subscribers is never
+ * copied. The payload is released after the packet has been written.
+ */
+@ChannelHandler.Sharable
+public final class MQTTPublishEncoder extends MessageToMessageEncoder<MqttPublishMessage> {
+    public static final String NAME = "MQTTPublishEncoder";
+    public static final MQTTPublishEncoder MQTT3 = new MQTTPublishEncoder(false);
+    public static final MQTTPublishEncoder MQTT5 = new MQTTPublishEncoder(true);
+    private final boolean isMQTT5;
+
+    private MQTTPublishEncoder(boolean isMQTT5) {
+        this.isMQTT5 = isMQTT5;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, MqttPublishMessage msg, List<Object> out) {
+        MqttFixedHeader fixedHeader = msg.fixedHeader();
+        MqttPublishVariableHeader variableHeader = msg.variableHeader();
+        int propsBytes = 0;
+        if (isMQTT5) {
+            propsBytes = sizeProperties(variableHeader.properties());
+            if (propsBytes < 0) {
+                // leave it to MqttEncoder
+                out.add(msg.retain());
+                return;
+            }
+        }
+        ByteBuf payload = msg.payload();
+        int topicBytes = utf8Bytes(variableHeader.topicName());
+        int packetIdBytes = fixedHeader.qosLevel().value() > 0 ? 2 : 0;
+        int variableHeaderBytes = 2 + topicBytes + packetIdBytes;
+        if (isMQTT5) {
+            variableHeaderBytes += IMQTTMessageSizer.varIntBytes(propsBytes) + propsBytes;
+        }
+        int remainingLength = variableHeaderBytes + payload.readableBytes();
+        ByteBuf header = ctx.alloc().buffer(1 + IMQTTMessageSizer.varIntBytes(remainingLength) + variableHeaderBytes);
+        header.writeByte(fixedHeaderByte1(fixedHeader));
+        writeVarInt(header, remainingLength);
+        header.writeShort(topicBytes);
+        writeUtf8(header, variableHeader.topicName());
+        if (packetIdBytes > 0) {
+            header.writeShort(variableHeader.packetId());
+        }
+        if (isMQTT5) {
+            writeVarInt(header, propsBytes);
+            writeProperties(header, variableHeader.properties());
+        }
+        if (payload.isReadable()) {
+            out.add(ctx.alloc().compositeBuffer(2).addComponents(true, header, payload.retainedDuplicate()));
+        } else {
+            out.add(header);
+        }
+    }
+
+    private static int fixedHeaderByte1(MqttFixedHeader header) {
+        int ret = header.messageType().value() << 4;
+        if (header.isDup()) {
+            ret |= 0x08;
+        }
+        ret |= header.qosLevel().value() << 1;
+        if (header.isRetain()) {
+            ret |= 0x01;
+        }
+        return ret;
+    }
+
+    // return -1 if there is any property not allowed in PUBLISH packet
+    private static int sizeProperties(MqttProperties props) {
+        int bytes = 0;
+        for (MqttProperties.MqttProperty<?> prop : props.listAll()) {
+            // 1 byte for encoding propertyId
+            switch (MqttProperties.MqttPropertyType.valueOf(prop.propertyId())) {
+                case PAYLOAD_FORMAT_INDICATOR -> bytes += 2;
+                case TOPIC_ALIAS -> bytes += 3;
+                case PUBLICATION_EXPIRY_INTERVAL -> bytes += 5;
+                case SUBSCRIPTION_IDENTIFIER ->
+                    bytes += 1 + IMQTTMessageSizer.varIntBytes(((MqttProperties.IntegerProperty) prop).value());
+                case CONTENT_TYPE, RESPONSE_TOPIC -> bytes +=
+                    1 + IMQTTMessageSizer.sizeUTF8EncodedString(((MqttProperties.StringProperty) prop).value());
+                case CORRELATION_DATA ->
+                    bytes += 1 + IMQTTMessageSizer.sizeBinary(((MqttProperties.BinaryProperty) prop).value());
+                case USER_PROPERTY -> {
+                    for (MqttProperties.StringPair pair : ((MqttProperties.UserProperties) prop).value()) {
+                        bytes += 1 + IMQTTMessageSizer.sizeUTF8EncodedString(pair.key)
+                            + IMQTTMessageSizer.sizeUTF8EncodedString(pair.value);
+                    }
+                }
+                default -> {
+                    return -1;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static void writeProperties(ByteBuf buf, MqttProperties props) {
+        for (MqttProperties.MqttProperty<?> prop : props.listAll()) {
+            switch (MqttProperties.MqttPropertyType.valueOf(prop.propertyId())) {
+                case PAYLOAD_FORMAT_INDICATOR -> {
+                    buf.writeByte(prop.propertyId());
+                    buf.writeByte(((MqttProperties.IntegerProperty) prop).value());
+                }
+                case TOPIC_ALIAS -> {
+                    buf.writeByte(prop.propertyId());
+                    buf.writeShort(((MqttProperties.IntegerProperty) prop).value());
+                }
+                case PUBLICATION_EXPIRY_INTERVAL -> {
+                    buf.writeByte(prop.propertyId());
+                    buf.writeInt(((MqttProperties.IntegerProperty) prop).value());
+                }
+                case SUBSCRIPTION_IDENTIFIER -> {
+                    buf.writeByte(prop.propertyId());
+                    writeVarInt(buf, ((MqttProperties.IntegerProperty) prop).value());
+                }
+                case CONTENT_TYPE, RESPONSE_TOPIC -> {
+                    buf.writeByte(prop.propertyId());
+                    writeUTF8EncodedString(buf, ((MqttProperties.StringProperty) prop).value());
+                }
+                case CORRELATION_DATA -> {
+                    byte[] data = ((MqttProperties.BinaryProperty) prop).value();
+                    buf.writeByte(prop.propertyId());
+                    buf.writeShort(data.length);
+                    buf.writeBytes(data);
+                }
+                case USER_PROPERTY -> {
+                    for (MqttProperties.StringPair pair : ((MqttProperties.UserProperties) prop).value()) {
+                        buf.writeByte(prop.propertyId());
+                        writeUTF8EncodedString(buf, pair.key);
+                        writeUTF8EncodedString(buf, pair.value);
+                    }
+                }
+                default -> {
+                    // never happen, checked by sizeProperties
+                }
+            }
+        }
+    }
+
+    private static void writeUTF8EncodedString(ByteBuf buf, String s) {
+        buf.writeShort(utf8Bytes(s));
+        writeUtf8(buf, s);
+    }
+
+    private static void writeVarInt(ByteBuf buf, int num) {
+        do {
+            int digit = num % 128;
+            num /= 128;
+            if (num > 0) {
+                digit |= 0x80;
+            }
+            buf.writeByte(digit);
+        } while (num > 0);
+    }
+}
@@ -18,6 +18,9 @@ import static com.baidu.bifromq.inbox.storage.proto.RetainHandling.SEND_AT_SUBSC
 import static com.baidu.bifromq.metrics.TenantMetric.MqttConnectCount;
 import static com.baidu.bifromq.metrics.TenantMetric.MqttDisconnectCount;
 import static com.baidu.bifromq.metrics.TenantMetric.MqttIngressBytes;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPubPermCacheHitCount;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPubPermCacheMissCount;
+import static com.baidu.bifromq.metrics.TenantMetric.MqttPubPermCheckSavedLatency;
 import static com.baidu.bifromq.metrics.TenantMetric.MqttQoS0DistBytes;
 import static com.baidu.bifromq.metrics.TenantMetric.MqttQoS0IngressBytes;
 import static com.baidu.bifromq.metrics.TenantMetric.MqttQoS1DeliverBytes;
@@ -39,6 +42,7 @@ import static com.baidu.bifromq.mqtt.utils.AuthUtil.buildUnsubAction;
 import static com.baidu.bifromq.plugin.eventcollector.ThreadLocalEventPool.getLocal;
 import static com.baidu.bifromq.type.MQTTClientInfoConstants.MQTT_PROTOCOL_VER_5_VALUE;
 import static com.baidu.bifromq.type.MQTTClientInfoConstants.MQTT_PROTOCOL_VER_KEY;
+import static com.baidu.bifromq.type.MQTTClientInfoConstants.MQTT_USER_ID_KEY;
 import static com.baidu.bifromq.type.QoS.AT_LEAST_ONCE;
 import static com.baidu.bifromq.type.QoS.AT_MOST_ONCE;
 import static com.baidu.bifromq.type.QoS.EXACTLY_ONCE;
@@ -65,9 +69,9 @@ import com.baidu.bifromq.mqtt.handler.record.ProtocolResponse;
 import com.baidu.bifromq.mqtt.inbox.rpc.proto.SubReply;
 import com.baidu.bifromq.mqtt.inbox.rpc.proto.UnsubReply;
 import com.baidu.bifromq.mqtt.session.IMQTTSession;
+import com.baidu.bifromq.mqtt.session.MQTTSessionAuthProvider;
 import com.baidu.bifromq.mqtt.session.MQTTSessionContext;
 import com.baidu.bifromq.mqtt.utils.IMQTTMessageSizer;
-import com.baidu.bifromq.plugin.authprovider.IAuthProvider;
 import com.baidu.bifromq.plugin.authprovider.type.CheckResult;
 import com.baidu.bifromq.plugin.clientbalancer.Redirection;
 import com.baidu.bifromq.plugin.eventcollector.Event;
@@ -229,10 +233,12 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
 
     protected final ChannelHandlerContext ctx;
     protected final MQTTSessionContext sessionCtx;
-    protected final IAuthProvider authProvider;
+    protected final MQTTSessionAuthProvider authProvider;
     protected final IEventCollector eventCollector;
     protected final IResourceThrottler resourceThrottler;
     private final IMQTTMessageSizer sizer;
+    @Nullable
+    private final PubPermissionCache pubPermCache;
     private LWT willMessage;
     private boolean isGoAway;
     private ScheduledFuture<?> idleTimeoutTask;
@@ -270,6 +276,10 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
         // strong reference to avoid gc
         memUsage = sessionCtx.getSessionMemGauge(clientInfo.getTenantId());
         authProvider = sessionCtx.authProvider(ctx);
+        pubPermCache = settings.pubPermCacheSize > 0 ? new PubPermissionCache(settings.pubPermCacheSize,
+            Duration.ofSeconds(settings.pubPermCacheTTLSeconds),
+            sessionCtx.getPermissionRevision(clientInfo.getTenantId(),
+                clientInfo.getMetadataOrDefault(MQTT_USER_ID_KEY, ""))) : null;
         eventCollector = sessionCtx.eventCollector;
         resourceThrottler = sessionCtx.resourceThrottler;
     }
@@ -356,6 +366,8 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
         ChannelAttrs.trafficShaper(ctx).setWriteLimit(settings.outboundBandwidth);
         ChannelAttrs.trafficShaper(ctx).setMaxWriteSize(settings.outboundBandwidth);
         ChannelAttrs.setMaxPayload(settings.maxPacketSize, ctx);
+        ChannelAttrs.setupPublishEncoder(
+            clientInfo.getMetadataOrDefault(MQTT_PROTOCOL_VER_KEY, "").equals(MQTT_PROTOCOL_VER_5_VALUE), ctx);
         sessionCtx.localSessionRegistry.add(channelId(), this);
         sessionRegistration = ChannelAttrs.mqttSessionContext(ctx).sessionDictClient
             .reg(clientInfo, (killer, redirection) -> {
@@ -935,7 +947,8 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
             return;
         }
         memUsage.addAndGet(msgSize);
-        writeAndFlush(pubMsg).addListener(f -> {
+        // flushed at the end of the delivery batch
+        write(pubMsg).addListener(f -> {
             memUsage.addAndGet(-msgSize);
             if (f.isSuccess()) {
                 if (settings.debugMode) {
@@ -1045,7 +1058,8 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
             return;
         }
         memUsage.addAndGet(msgSize);
-        writeAndFlush(pubMsg).addListener(f -> {
+        // flushed at the end of the delivery batch
+        write(pubMsg).addListener(f -> {
             memUsage.addAndGet(-msgSize);
             if (f.isSuccess()) {
                 if (settings.debugMode) {
@@ -1130,6 +1144,7 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
                 confirm(confirmingMessage, false);
             }
         }
+        flushIfNeeded();
     }
 
     private boolean isExceedReceivingMaximum() {
@@ -1146,8 +1161,30 @@ public abstract class MQTTSessionHandler extends MQTTMessageHandler implements I
 
     private CompletableFuture<CheckResult> checkPubPermission(String topic, Message distMessage,
                                                               UserProperties userProps) {
-        return authProvider.checkPermission(clientInfo(),
-            buildPubAction(topic, distMessage.getPubQoS(), distMessage.getIsRetain(), userProps));
+        // the check result may depend on user properties, so it's not cacheable
+        if (pubPermCache == null || userProps.getUserPropertiesCount() > 0) {
+            return authProvider.checkPermission(clientInfo(),
+                buildPubAction(topic, distMessage.getPubQoS(), distMessage.getIsRetain(), userProps));
+        }
+        QoS pubQoS = distMessage.getPubQoS();
+        boolean isRetain = distMessage.getIsRetain();
+        long now = sessionCtx.nanoTime();
+        PubPermissionCache.Entry cached = pubPermCache.get(topic, pubQoS, isRetain, now);
+        if (cached != null) {
+            tenantMeter.recordCount(MqttPubPermCacheHitCount);
+            tenantMeter.timer(MqttPubPermCheckSavedLatency).record(cached.checkLatencyNanos(), TimeUnit.NANOSECONDS);
+            // go through the auth provider to keep the order with the checks in flight
+            return authProvider.checkPermission(cached.result());
+        }
+        tenantMeter.recordCount(MqttPubPermCacheMissCount);
+        long revision = pubPermCache.revision();
+        return authProvider.checkPermission(clientInfo(), buildPubAction(topic, pubQoS, isRetain, userProps))
+            .thenApply(checkResult -> {
+                assert ctx.executor().inEventLoop();
+                long checkedAt = sessionCtx.nanoTime();
+                pubPermCache.put(topic, pubQoS, isRetain, checkResult, revision, checkedAt, checkedAt - now);
+                return checkResult;
+            });
     }
 
     private CompletableFuture<Void> handleQoS0Pub(long reqId,
@@ -54,6 +54,7 @@ import com.baidu.bifromq.type.TopicMessagePack;
 import io.micrometer.core.instrument.Timer;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.util.concurrent.EventExecutor;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -242,15 +243,29 @@ public abstract class MQTTTransientSessionHandler extends MQTTSessionHandler imp
             }, ctx.executor());
     }
 
+    @Override
+    public EventExecutor eventLoop() {
+        return ctx.executor();
+    }
+
     @Override
     public boolean publish(MatchInfo matchInfo, List<TopicMessagePack> topicMsgPacks) {
+        Runnable publishTask = preparePublish(matchInfo, topicMsgPacks);
+        if (publishTask == null) {
+            return false;
+        }
+        ctx.executor().execute(publishTask);
+        return true;
+    }
+
+    @Override
+    public Runnable preparePublish(MatchInfo matchInfo, List<TopicMessagePack> topicMsgPacks) {
         String topicFilter = matchInfo.getTopicFilter();
         TopicFilterOption option = topicFilters.get(topicFilter);
         if (option == null || !ctx.channel().isActive()) {
-            return false;
+            return null;
         }
-        ctx.executor().execute(() -> publish(topicFilter, option, topicMsgPacks));
-        return true;
+        return () -> publish(topicFilter, option, topicMsgPacks);
     }
 
     private void publish(String topicFilter,
@@ -274,6 +289,8 @@ public abstract class MQTTTransientSessionHandler extends MQTTSessionHandler imp
                 });
                 memUsage.addAndGet(totalMsgBytesSize.get());
                 send();
+                // one flush for all the messages of the batch
+                flushIfNeeded();
             });
     }
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.mqtt.handler;
+
+import com.baidu.bifromq.plugin.authprovider.type.CheckResult;
+import com.baidu.bifromq.type.QoS;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the check results of publish action in one session, both granted and denied results are cached
+ * until expired or the permission revision changed. Not thread-safe, it's supposed to be accessed in the event loop of
+ * the session.
+ */
+final class PubPermissionCache {
+    record Entry(CheckResult result, long expireAtNanos, long checkLatencyNanos) {
+    }
+
+    private record Key(String topic, QoS qos, boolean isRetain) {
+    }
+
+    private final long ttlNanos;
+    private final AtomicLong revision;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long cachedRevision;
+
+    PubPermissionCache(int maxSize, Duration ttl, AtomicLong revision) {
+        assert maxSize > 0;
+        this.ttlNanos = ttl.toNanos();
+        this.revision = revision;
+        this.cachedRevision = revision.get();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    Entry get(String topic, QoS qos, boolean isRetain, long nowNanos) {
+        invalidateIfRevoked();
+        Key key = new Key(topic, qos, isRetain);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAtNanos - nowNanos <= 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    void put(String topic, QoS qos, boolean isRetain, CheckResult result, long revision, long nowNanos,
+             long checkLatencyNanos) {
+        invalidateIfRevoked();
+        if (revision != cachedRevision) {
+            // the result was checked before revocation
+            return;
+        }
+        switch (result.getTypeCase()) {
+            case GRANTED, DENIED -> entries.put(new Key(topic, qos, isRetain),
+                new Entry(result, nowNanos + ttlNanos, checkLatencyNanos));
+            default -> {
+                // error is not cached
+            }
+        }
+    }
+
+    long revision() {
+        return revision.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void invalidateIfRevoked() {
+        long current = revision.get();
+        if (current != cachedRevision) {
+            entries.clear();
+            cachedRevision = current;
+        }
+    }
+}
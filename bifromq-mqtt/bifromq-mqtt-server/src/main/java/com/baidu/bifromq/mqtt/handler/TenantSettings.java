@@ -31,6 +31,8 @@ import static com.baidu.bifromq.plugin.settingprovider.Setting.MaximumQoS;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.MsgPubPerSec;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.OutBoundBandWidth;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.PayloadFormatValidationEnabled;
+import static com.baidu.bifromq.plugin.settingprovider.Setting.PubPermCacheSize;
+import static com.baidu.bifromq.plugin.settingprovider.Setting.PubPermCacheTTLSeconds;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.QoS0DropOldest;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.ReceivingMaximum;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.ResendTimeoutSeconds;
@@ -72,6 +74,8 @@ public class TenantSettings {
     public final int inboxQueueLength;
     public final boolean inboxDropOldest;
     public final int retainMatchLimit;
+    public final int pubPermCacheSize;
+    public final int pubPermCacheTTLSeconds;
 
     public TenantSettings(String tenantId, ISettingProvider provider) {
         mqtt3Enabled = provider.provide(MQTT3Enabled, tenantId);
@@ -101,5 +105,7 @@ public class TenantSettings {
         inboxQueueLength = provider.provide(SessionInboxSize, tenantId);
         inboxDropOldest = provider.provide(QoS0DropOldest, tenantId);
         retainMatchLimit = provider.provide(RetainMessageMatchLimit, tenantId);
+        pubPermCacheSize = provider.provide(PubPermCacheSize, tenantId);
+        pubPermCacheTTLSeconds = provider.provide(PubPermCacheTTLSeconds, tenantId);
     }
 }
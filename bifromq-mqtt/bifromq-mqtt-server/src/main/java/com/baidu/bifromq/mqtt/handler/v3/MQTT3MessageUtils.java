@@ -17,6 +17,8 @@ import com.baidu.bifromq.basehlc.HLC;
 import com.baidu.bifromq.type.Message;
 import com.baidu.bifromq.type.QoS;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import io.netty.handler.codec.mqtt.MqttQoS;
 
@@ -26,7 +28,8 @@ public final class MQTT3MessageUtils {
         return toMessage(pubMsg.variableHeader().packetId(),
             pubMsg.fixedHeader().qosLevel(),
             pubMsg.fixedHeader().isRetain(),
-            ByteString.copyFrom(pubMsg.payload().nioBuffer()));
+            // copy exactly once, the payload may outlive the inbound buffer
+            UnsafeByteOperations.unsafeWrap(ByteBufUtil.getBytes(pubMsg.payload())));
     }
 
     static Message toMessage(long packetId,
@@ -29,6 +29,7 @@ import com.baidu.bifromq.type.StringPair;
 import com.baidu.bifromq.type.UserProperties;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.UnsafeByteOperations;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.handler.codec.mqtt.MqttConnectMessage;
 import io.netty.handler.codec.mqtt.MqttProperties;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
@@ -288,7 +289,8 @@ public class MQTT5MessageUtils {
             pubMsg.fixedHeader().qosLevel(),
             pubMsg.fixedHeader().isRetain(),
             pubMsg.variableHeader().properties(),
-            ByteString.copyFrom(pubMsg.payload().nioBuffer()));
+            // copy exactly once, the payload may outlive the inbound buffer
+            UnsafeByteOperations.unsafeWrap(ByteBufUtil.getBytes(pubMsg.payload())));
     }
 
     static Message toMessage(long packetId,
@@ -36,7 +36,11 @@ import com.baidu.bifromq.util.SizeUtil;
 import com.baidu.bifromq.util.TopicUtil;
 import com.bifromq.plugin.resourcethrottler.IResourceThrottler;
 import com.google.common.collect.Sets;
+import io.netty.util.concurrent.EventExecutor;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -95,6 +99,8 @@ public class LocalDistService implements ILocalDistService {
     @Override
     public CompletableFuture<DeliveryReply> dist(DeliveryRequest request) {
         DeliveryReply.Builder replyBuilder = DeliveryReply.newBuilder();
+        // publish tasks grouped by the event loop of the target sessions
+        Map<EventExecutor, List<Runnable>> loopTasks = new HashMap<>();
         for (Map.Entry<String, DeliveryPackage> entry : request.getPackageMap().entrySet()) {
             String tenantId = entry.getKey();
             DeliveryResults.Builder resultsBuilder = DeliveryResults.newBuilder();
@@ -106,6 +112,7 @@ public class LocalDistService implements ILocalDistService {
             long totalFanOutBytes = 0L;
             for (DeliveryPack writePack : entry.getValue().getPackList()) {
                 TopicMessagePack topicMsgPack = writePack.getMessagePack();
+                List<TopicMessagePack> topicMsgPacks = singletonList(topicMsgPack);
                 long msgPackSize = SizeUtil.estSizeOf(topicMsgPack);
                 int fanoutScale = 1;
                 boolean hasFanOutDone = false;
@@ -114,10 +121,8 @@ public class LocalDistService implements ILocalDistService {
                         if (ILocalDistService.isGlobal(matchInfo.getReceiverId())) {
                             IMQTTSession session =
                                 sessionRegistry.get(ILocalDistService.parseReceiverId(matchInfo.getReceiverId()));
-                            if (session instanceof IMQTTTransientSession) {
-                                boolean success =
-                                    ((IMQTTTransientSession) session).publish(matchInfo, singletonList(topicMsgPack));
-                                if (success) {
+                            if (session instanceof IMQTTTransientSession transientSession) {
+                                if (publish(transientSession, matchInfo, topicMsgPacks, loopTasks)) {
                                     ok.add(matchInfo);
                                 } else {
                                     noSub.add(matchInfo);
@@ -155,11 +160,9 @@ public class LocalDistService implements ILocalDistService {
                                     for (String sessionId : localRoutes.routeList()) {
                                         // at least one session should publish the message
                                         IMQTTSession session = sessionRegistry.get(sessionId);
-                                        if (session instanceof IMQTTTransientSession) {
-                                            if (((IMQTTTransientSession) session)
-                                                .publish(matchInfo, singletonList(topicMsgPack))) {
-                                                published = true;
-                                            }
+                                        if (session instanceof IMQTTTransientSession transientSession
+                                            && publish(transientSession, matchInfo, topicMsgPacks, loopTasks)) {
+                                            published = true;
                                         }
                                     }
                                 } else {
@@ -167,13 +170,11 @@ public class LocalDistService implements ILocalDistService {
                                     for (String sessionId : localRoutes.routeList()) {
                                         // at least one session should publish the message
                                         IMQTTSession session = sessionRegistry.get(sessionId);
-                                        if (session instanceof IMQTTTransientSession) {
-                                            if (((IMQTTTransientSession) session)
-                                                .publish(matchInfo, singletonList(topicMsgPack))) {
-                                                published = true;
-                                                hasFanOutDone = true;
-                                                break;
-                                            }
+                                        if (session instanceof IMQTTTransientSession transientSession
+                                            && publish(transientSession, matchInfo, topicMsgPacks, loopTasks)) {
+                                            published = true;
+                                            hasFanOutDone = true;
+                                            break;
                                         }
                                     }
                                 }
@@ -205,6 +206,30 @@ public class LocalDistService implements ILocalDistService {
                 .build()));
             replyBuilder.putResult(tenantId, resultsBuilder.build());
         }
+        // one task per event loop, so each loop gets woken up once per delivery request
+        loopTasks.forEach((eventLoop, tasks) -> eventLoop.execute(() -> runAll(tasks)));
         return CompletableFuture.completedFuture(replyBuilder.build());
     }
+
+    private boolean publish(IMQTTTransientSession session,
+                            MatchInfo matchInfo,
+                            List<TopicMessagePack> topicMsgPacks,
+                            Map<EventExecutor, List<Runnable>> loopTasks) {
+        Runnable publishTask = session.preparePublish(matchInfo, topicMsgPacks);
+        if (publishTask == null) {
+            return false;
+        }
+        loopTasks.computeIfAbsent(session.eventLoop(), k -> new ArrayList<>()).add(publishTask);
+        return true;
+    }
+
+    private void runAll(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Unexpected error during local publish", e);
+            }
+        }
+    }
 }
@@ -15,11 +15,32 @@ package com.baidu.bifromq.mqtt.session;
 
 import com.baidu.bifromq.type.MatchInfo;
 import com.baidu.bifromq.type.TopicMessagePack;
+import io.netty.util.concurrent.EventExecutor;
 import java.util.List;
+import javax.annotation.Nullable;
 
 public interface IMQTTTransientSession extends IMQTTSession {
     String NAME = "MQTTTransientSession";
 
+    /**
+     * The event loop the session is bound to.
+     *
+     * @return the event loop
+     */
+    EventExecutor eventLoop();
+
     boolean publish(MatchInfo matchInfo, List<TopicMessagePack> messagePack);
 
+    /**
+     * Prepare publishing messages to the session without scheduling it. The returned task must be run in
+     * {@link #eventLoop()}, so that the caller could run the tasks of all sessions bound to the same event loop in
+     * one pass.
+     *
+     * @param matchInfo   the matched subscription
+     * @param messagePack the messages to publish
+     * @return the task to run in the event loop, or null if the subscription is absent or the session is inactive
+     */
+    @Nullable
+    Runnable preparePublish(MatchInfo matchInfo, List<TopicMessagePack> messagePack);
+
 }
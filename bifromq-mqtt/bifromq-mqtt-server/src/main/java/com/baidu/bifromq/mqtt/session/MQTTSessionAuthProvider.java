@@ -65,8 +65,23 @@ public class MQTTSessionAuthProvider implements IAuthProvider {
     @Override
     public CompletableFuture<CheckResult> checkPermission(ClientInfo client, MQTTAction action) {
         assert ctx.executor().inEventLoop();
-        CompletableFuture<CheckResult> task = delegate.checkPermission(client, action);
-        if (task.isDone()) {
+        return enqueue(delegate.checkPermission(client, action));
+    }
+
+    /**
+     * Use the check result known in advance, e.g. from cache, as the result of a check. The returned future completes
+     * after the previously issued checks to keep the fifo semantic.
+     *
+     * @param checkResult the known check result
+     * @return the future of check result
+     */
+    public CompletableFuture<CheckResult> checkPermission(CheckResult checkResult) {
+        assert ctx.executor().inEventLoop();
+        return enqueue(CompletableFuture.completedFuture(checkResult));
+    }
+
+    private CompletableFuture<CheckResult> enqueue(CompletableFuture<CheckResult> task) {
+        if (task.isDone() && checkPermissionTaskQueue.isEmpty()) {
             return task;
         } else {
             // queue it for fifo semantic
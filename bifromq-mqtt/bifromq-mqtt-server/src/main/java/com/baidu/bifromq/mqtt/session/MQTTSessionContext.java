@@ -28,6 +28,8 @@ import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
 import com.baidu.bifromq.retain.client.IRetainClient;
 import com.baidu.bifromq.sessiondict.client.ISessionDictClient;
 import com.bifromq.plugin.resourcethrottler.IResourceThrottler;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.base.Ticker;
 import io.netty.channel.ChannelHandlerContext;
 import java.util.concurrent.CompletableFuture;
@@ -37,6 +39,9 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public final class MQTTSessionContext {
+    private record TenantUser(String tenantId, String userId) {
+    }
+
     private final IAuthProvider authProvider;
     public final ILocalSessionRegistry localSessionRegistry;
     public final ILocalDistService localDistService;
@@ -54,6 +59,10 @@ public final class MQTTSessionContext {
     private final FutureTracker futureTracker = new FutureTracker();
     private final TenantGauge tenantTransientSubNumGauge;
     private final TenantGauge tenantMemGauge;
+    // the revision will be bumped when the permissions of the user have been revoked
+    private final LoadingCache<TenantUser, AtomicLong> permRevisions = Caffeine.newBuilder()
+        .weakValues()
+        .build(k -> new AtomicLong());
 
     @Builder
     MQTTSessionContext(String serverId,
@@ -86,17 +95,38 @@ public final class MQTTSessionContext {
         this.ticker = ticker == null ? Ticker.systemTicker() : ticker;
         this.tenantTransientSubNumGauge = new TenantGauge(MqttTransientSubCountGauge);
         this.tenantMemGauge = new TenantGauge(MqttSessionWorkingMemoryGauge);
+        if (authProvider != null) {
+            authProvider.addPermissionRevocationListener(this::onPermissionRevoked);
+        }
     }
 
     public long nanoTime() {
         return ticker.read();
     }
 
-    public IAuthProvider authProvider(ChannelHandlerContext ctx) {
+    public MQTTSessionAuthProvider authProvider(ChannelHandlerContext ctx) {
         // a wrapper to ensure async fifo semantic for check call
         return new MQTTSessionAuthProvider(authProvider, ctx);
     }
 
+    /**
+     * Get the permission revision of the user, the returned object must be strongly referenced by the caller.
+     *
+     * @param tenantId the id of the tenant
+     * @param userId   the id of the user
+     * @return the permission revision
+     */
+    public AtomicLong getPermissionRevision(String tenantId, String userId) {
+        return permRevisions.get(new TenantUser(tenantId, userId));
+    }
+
+    private void onPermissionRevoked(String tenantId, String userId) {
+        AtomicLong revision = permRevisions.getIfPresent(new TenantUser(tenantId, userId));
+        if (revision != null) {
+            revision.incrementAndGet();
+        }
+    }
+
     public AtomicLong getTransientSubNumGauge(String tenantId) {
         return tenantTransientSubNumGauge.get(tenantId);
     }
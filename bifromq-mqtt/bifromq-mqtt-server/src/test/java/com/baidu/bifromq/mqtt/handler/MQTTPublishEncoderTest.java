@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.mqtt.handler;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageBuilders;
+import io.netty.handler.codec.mqtt.MqttProperties;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.util.AttributeKey;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+import org.testng.annotations.Test;
+
+public class MQTTPublishEncoderTest {
+    // the attribute key used by netty mqtt codec
+    private static final AttributeKey<MqttVersion> MQTT_VERSION_KEY = AttributeKey.valueOf("NETTY_CODEC_MQTT_VERSION");
+
+    @Test
+    public void encodeMQTT3() {
+        for (MqttQoS qos : new MqttQoS[] {MqttQoS.AT_MOST_ONCE, MqttQoS.AT_LEAST_ONCE, MqttQoS.EXACTLY_ONCE}) {
+            assertSameEncoding(MqttVersion.MQTT_3_1_1, () -> MqttMessageBuilders.publish()
+                .topicName("a/b/c")
+                .qos(qos)
+                .retained(true)
+                .messageId(qos == MqttQoS.AT_MOST_ONCE ? 0 : 1)
+                .payload(Unpooled.wrappedBuffer("hello".getBytes(StandardCharsets.UTF_8)))
+                .build());
+        }
+    }
+
+    @Test
+    public void encodeMQTT5() {
+        MqttProperties props = new MqttProperties();
+        props.add(new MqttProperties.IntegerProperty(
+            MqttProperties.MqttPropertyType.PAYLOAD_FORMAT_INDICATOR.value(), 1));
+        props.add(new MqttProperties.IntegerProperty(
+            MqttProperties.MqttPropertyType.PUBLICATION_EXPIRY_INTERVAL.value(), 100));
+        props.add(new MqttProperties.IntegerProperty(MqttProperties.MqttPropertyType.TOPIC_ALIAS.value(), 3));
+        props.add(new MqttProperties.IntegerProperty(
+            MqttProperties.MqttPropertyType.SUBSCRIPTION_IDENTIFIER.value(), 300));
+        props.add(new MqttProperties.StringProperty(
+            MqttProperties.MqttPropertyType.CONTENT_TYPE.value(), "text/plain"));
+        props.add(new MqttProperties.StringProperty(
+            MqttProperties.MqttPropertyType.RESPONSE_TOPIC.value(), "response"));
+        props.add(new MqttProperties.BinaryProperty(
+            MqttProperties.MqttPropertyType.CORRELATION_DATA.value(), new byte[] {1, 2, 3}));
+        props.add(new MqttProperties.UserProperty("key1", "value1"));
+        props.add(new MqttProperties.UserProperty("key2", "value2"));
+        assertSameEncoding(MqttVersion.MQTT_5, () -> MqttMessageBuilders.publish()
+            .topicName("a/b/c")
+            .qos(MqttQoS.AT_LEAST_ONCE)
+            .messageId(1)
+            .properties(props)
+            .payload(Unpooled.wrappedBuffer("hello".getBytes(StandardCharsets.UTF_8)))
+            .build());
+    }
+
+    @Test
+    public void encodeEmptyPayload() {
+        assertSameEncoding(MqttVersion.MQTT_5, () -> MqttMessageBuilders.publish()
+            .topicName("a/b/c")
+            .qos(MqttQoS.AT_MOST_ONCE)
+            .payload(Unpooled.EMPTY_BUFFER)
+            .build());
+    }
+
+    @Test
+    public void payloadNotCopied() {
+        EmbeddedChannel channel = channel(MqttVersion.MQTT_3_1_1, true);
+        ByteBuf payload = Unpooled.directBuffer().writeBytes("hello".getBytes(StandardCharsets.UTF_8));
+        MqttPublishMessage message = MqttMessageBuilders.publish()
+            .topicName("a/b/c")
+            .qos(MqttQoS.AT_MOST_ONCE)
+            .payload(payload)
+            .build();
+        channel.writeOutbound(message);
+        ByteBuf encoded = channel.readOutbound();
+        assertTrue(encoded instanceof CompositeByteBuf);
+        // the payload is referenced by encoded packet
+        assertEquals(payload.refCnt(), 1);
+        encoded.release();
+        assertEquals(payload.refCnt(), 0);
+    }
+
+    @Test
+    public void passThroughOtherMessages() {
+        EmbeddedChannel channel = channel(MqttVersion.MQTT_3_1_1, true);
+        channel.writeOutbound(MqttMessage.PINGRESP);
+        ByteBuf encoded = channel.readOutbound();
+        assertEquals(ByteBufUtil.getBytes(encoded), new byte[] {(byte) 0xD0, 0});
+        encoded.release();
+    }
+
+    private void assertSameEncoding(MqttVersion version, Supplier<MqttPublishMessage> message) {
+        EmbeddedChannel expectedChannel = channel(version, false);
+        expectedChannel.writeOutbound(message.get());
+        ByteBuf expected = expectedChannel.readOutbound();
+
+        EmbeddedChannel channel = channel(version, true);
+        channel.writeOutbound(message.get());
+        ByteBuf encoded = channel.readOutbound();
+        assertEquals(ByteBufUtil.getBytes(encoded), ByteBufUtil.getBytes(expected));
+        expected.release();
+        encoded.release();
+    }
+
+    private EmbeddedChannel channel(MqttVersion version, boolean withPublishEncoder) {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.attr(MQTT_VERSION_KEY).set(version);
+        channel.pipeline().addLast(MqttEncoder.class.getName(), MqttEncoder.INSTANCE);
+        if (withPublishEncoder) {
+            channel.pipeline().addLast(MQTTPublishEncoder.NAME,
+                version == MqttVersion.MQTT_5 ? MQTTPublishEncoder.MQTT5 : MQTTPublishEncoder.MQTT3);
+        }
+        return channel;
+    }
+}
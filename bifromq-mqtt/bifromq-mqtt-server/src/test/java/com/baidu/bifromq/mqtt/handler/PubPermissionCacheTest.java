@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.mqtt.handler;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.plugin.authprovider.type.CheckResult;
+import com.baidu.bifromq.plugin.authprovider.type.Denied;
+import com.baidu.bifromq.plugin.authprovider.type.Error;
+import com.baidu.bifromq.plugin.authprovider.type.Granted;
+import com.baidu.bifromq.type.QoS;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+
+public class PubPermissionCacheTest {
+    private final CheckResult granted = CheckResult.newBuilder().setGranted(Granted.getDefaultInstance()).build();
+    private final CheckResult denied = CheckResult.newBuilder().setDenied(Denied.getDefaultInstance()).build();
+    private final CheckResult error = CheckResult.newBuilder().setError(Error.getDefaultInstance()).build();
+
+    @Test
+    public void cacheGrantedAndDenied() {
+        PubPermissionCache cache = new PubPermissionCache(10, Duration.ofSeconds(1), new AtomicLong());
+        cache.put("a", QoS.AT_MOST_ONCE, false, granted, cache.revision(), 0, 100);
+        cache.put("b", QoS.AT_MOST_ONCE, false, denied, cache.revision(), 0, 100);
+        cache.put("c", QoS.AT_MOST_ONCE, false, error, cache.revision(), 0, 100);
+
+        PubPermissionCache.Entry entry = cache.get("a", QoS.AT_MOST_ONCE, false, 1);
+        assertNotNull(entry);
+        assertTrue(entry.result().hasGranted());
+        assertEquals(entry.checkLatencyNanos(), 100);
+        assertTrue(cache.get("b", QoS.AT_MOST_ONCE, false, 1).result().hasDenied());
+        assertNull(cache.get("c", QoS.AT_MOST_ONCE, false, 1));
+        assertNull(cache.get("a", QoS.AT_LEAST_ONCE, false, 1));
+        assertNull(cache.get("a", QoS.AT_MOST_ONCE, true, 1));
+    }
+
+    @Test
+    public void expire() {
+        PubPermissionCache cache = new PubPermissionCache(10, Duration.ofSeconds(1), new AtomicLong());
+        cache.put("a", QoS.AT_MOST_ONCE, false, granted, cache.revision(), 0, 100);
+        assertNotNull(cache.get("a", QoS.AT_MOST_ONCE, false, Duration.ofMillis(999).toNanos()));
+        assertNull(cache.get("a", QoS.AT_MOST_ONCE, false, Duration.ofSeconds(1).toNanos()));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        PubPermissionCache cache = new PubPermissionCache(2, Duration.ofSeconds(1), new AtomicLong());
+        cache.put("a", QoS.AT_MOST_ONCE, false, granted, cache.revision(), 0, 100);
+        cache.put("b", QoS.AT_MOST_ONCE, false, granted, cache.revision(), 0, 100);
+        assertNotNull(cache.get("a", QoS.AT_MOST_ONCE, false, 1));
+        cache.put("c", QoS.AT_MOST_ONCE, false, granted, cache.revision(), 0, 100);
+        assertEquals(cache.size(), 2);
+        assertNotNull(cache.get("a", QoS.AT_MOST_ONCE, false, 1));
+        assertNull(cache.get("b", QoS.AT_MOST_ONCE, false, 1));
+    }
+
+    @Test
+    public void revoke() {
+        AtomicLong revision = new AtomicLong();
+        PubPermissionCache cache = new PubPermissionCache(10, Duration.ofSeconds(1), revision);
+        cache.put("a", QoS.AT_MOST_ONCE, false, granted, cache.revision(), 0, 100);
+        long checkingRevision = cache.revision();
+        revision.incrementAndGet();
+        assertNull(cache.get("a", QoS.AT_MOST_ONCE, false, 1));
+
+        // result checked before revocation is dropped
+        cache.put("a", QoS.AT_MOST_ONCE, false, granted, checkingRevision, 0, 100);
+        assertNull(cache.get("a", QoS.AT_MOST_ONCE, false, 1));
+
+        cache.put("a", QoS.AT_MOST_ONCE, false, denied, cache.revision(), 0, 100);
+        assertTrue(cache.get("a", QoS.AT_MOST_ONCE, false, 1).result().hasDenied());
+    }
+}
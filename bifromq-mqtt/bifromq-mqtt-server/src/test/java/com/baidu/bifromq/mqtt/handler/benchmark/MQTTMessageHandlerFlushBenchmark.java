@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.mqtt.handler.benchmark;
+
+import com.baidu.bifromq.mqtt.handler.MQTTMessageHandler;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Deliver bursts of messages to one subscriber over loopback tcp with different flush strategies. The flushes and the
+ * cpu time of the delivering event loop per delivered message are logged after each iteration, every flush with
+ * pending data costs at least one write syscall.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+public class MQTTMessageHandlerFlushBenchmark {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    public enum FlushMode {
+        // flush every message
+        PerMessage,
+        // flush every message via flush consolidation
+        Consolidated,
+        // write all messages and flush once at the end of batch
+        PerBatch
+    }
+
+    @Param({"PerMessage", "Consolidated", "PerBatch"})
+    private FlushMode flushMode;
+    @Param({"500"})
+    private int batchSize;
+    @Param({"128"})
+    private int messageSize;
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private DeliveryHandler deliveryHandler;
+    private ByteBuf message;
+    private long expectedBytes;
+    private long deliveryThreadId;
+    private long iterationStartCPUNanos;
+    private long iterationStartFlushes;
+    private long iterationStartBytes;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(MQTTMessageHandlerFlushBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+
+    @SneakyThrows
+    @Setup(Level.Trial)
+    public void setup() {
+        message = Unpooled.unreleasableBuffer(Unpooled.directBuffer(messageSize).writeZero(messageSize));
+        bossGroup = new NioEventLoopGroup(1);
+        serverGroup = new NioEventLoopGroup(1);
+        clientGroup = new NioEventLoopGroup(1);
+        CompletableFuture<DeliveryHandler> handlerFuture = new CompletableFuture<>();
+        serverChannel = new ServerBootstrap()
+            .group(bossGroup, serverGroup)
+            .channel(NioServerSocketChannel.class)
+            .childHandler(new ChannelInitializer<>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    DeliveryHandler handler = new DeliveryHandler();
+                    ch.pipeline().addLast(new ChannelOutboundHandlerAdapter() {
+                        @Override
+                        public void flush(ChannelHandlerContext ctx) {
+                            flushes.incrementAndGet();
+                            ctx.flush();
+                        }
+                    });
+                    ch.pipeline().addLast(handler);
+                    handlerFuture.complete(handler);
+                }
+            })
+            .bind(new InetSocketAddress("127.0.0.1", 0))
+            .sync()
+            .channel();
+        clientChannel = new Bootstrap()
+            .group(clientGroup)
+            .channel(NioSocketChannel.class)
+            .handler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    ByteBuf buf = (ByteBuf) msg;
+                    receivedBytes.addAndGet(buf.readableBytes());
+                    buf.release();
+                }
+            })
+            .connect(serverChannel.localAddress())
+            .sync()
+            .channel();
+        deliveryHandler = handlerFuture.join();
+        deliveryThreadId = serverGroup.submit(() -> Thread.currentThread().getId()).get();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientChannel.close().syncUninterruptibly();
+        serverChannel.close().syncUninterruptibly();
+        clientGroup.shutdownGracefully().syncUninterruptibly();
+        serverGroup.shutdownGracefully().syncUninterruptibly();
+        bossGroup.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStartCPUNanos = THREAD_MX_BEAN.getThreadCpuTime(deliveryThreadId);
+        iterationStartFlushes = flushes.get();
+        iterationStartBytes = receivedBytes.get();
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() {
+        long delivered = (receivedBytes.get() - iterationStartBytes) / messageSize;
+        if (delivered > 0) {
+            log.info("Per delivered message: flushMode={}, flushes={}, cpuNanos={}", flushMode,
+                (double) (flushes.get() - iterationStartFlushes) / delivered,
+                (THREAD_MX_BEAN.getThreadCpuTime(deliveryThreadId) - iterationStartCPUNanos) / delivered);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 4)
+    @Threads(1)
+    @Fork(1)
+    public void deliver() {
+        expectedBytes += (long) batchSize * messageSize;
+        deliveryHandler.deliverAsync(batchSize);
+        while (receivedBytes.get() < expectedBytes) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private class DeliveryHandler extends MQTTMessageHandler {
+        void deliverAsync(int count) {
+            ctx.executor().execute(() -> deliver(count));
+        }
+
+        private void deliver(int count) {
+            for (int i = 0; i < count; i++) {
+                switch (flushMode) {
+                    case PerMessage -> ctx.writeAndFlush(message.duplicate());
+                    case Consolidated -> writeAndFlush(message.duplicate());
+                    case PerBatch -> write(message.duplicate());
+                }
+            }
+            if (flushMode == FlushMode.PerBatch) {
+                flushIfNeeded();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.mqtt.handler.benchmark;
+
+import com.baidu.bifromq.mqtt.handler.MQTTPublishEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import io.netty.util.AttributeKey;
+import java.nio.ByteBuffer;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Encode one message for many transient subscribers, the allocation rate per fan-out is reported by gc profiler as
+ * gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+public class MQTTPublishEncoderBenchmark {
+    private static final AttributeKey<MqttVersion> MQTT_VERSION_KEY = AttributeKey.valueOf("NETTY_CODEC_MQTT_VERSION");
+    @Param({"false", "true"})
+    private boolean zeroCopy;
+    @Param({"1000"})
+    private int fanOut;
+    @Param({"1024"})
+    private int payloadSize;
+    private ByteBuffer payload;
+    private EmbeddedChannel[] channels;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(MQTTPublishEncoderBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the payload of dist message shared by all subscribers
+        payload = ByteBuffer.allocate(payloadSize).asReadOnlyBuffer();
+        channels = new EmbeddedChannel[fanOut];
+        for (int i = 0; i < fanOut; i++) {
+            EmbeddedChannel channel = new EmbeddedChannel();
+            channel.attr(MQTT_VERSION_KEY).set(MqttVersion.MQTT_3_1_1);
+            channel.pipeline().addLast(MqttEncoder.class.getName(), MqttEncoder.INSTANCE);
+            if (zeroCopy) {
+                channel.pipeline().addLast(MQTTPublishEncoder.NAME, MQTTPublishEncoder.MQTT3);
+            }
+            channels[i] = channel;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (EmbeddedChannel channel : channels) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 4)
+    @Threads(1)
+    @Fork(1)
+    public void fanOut() {
+        for (EmbeddedChannel channel : channels) {
+            channel.writeOutbound(new MqttPublishMessage(
+                new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_MOST_ONCE, false, 0),
+                new MqttPublishVariableHeader("sensor/temperature", 0),
+                Unpooled.wrappedBuffer(payload.duplicate())));
+            ByteBuf encoded = channel.readOutbound();
+            encoded.release();
+        }
+    }
+}
@@ -95,6 +95,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.mqtt.MqttDecoder;
@@ -113,6 +114,7 @@ import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.testng.Assert;
@@ -677,6 +679,31 @@ public class MQTT3TransientSessionHandlerTest extends BaseSessionHandlerTest {
         verifyEvent(MQTT_SESSION_START, QOS0_PUSHED, QOS0_PUSHED, QOS0_PUSHED, QOS0_PUSHED, QOS0_PUSHED);
     }
 
+    @Test
+    public void qos0PubFlushOncePerBatch() {
+        mockCheckPermission(true);
+        mockDistMatch(true);
+        transientSessionHandler.subscribe(System.nanoTime(), topicFilter, QoS.AT_MOST_ONCE);
+        channel.runPendingTasks();
+        AtomicInteger flushCount = new AtomicInteger();
+        channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) throws Exception {
+                flushCount.incrementAndGet();
+                super.flush(ctx);
+            }
+        });
+
+        int messageCount = 500;
+        transientSessionHandler.publish(matchInfo(topicFilter), s2cMessageList(topic, messageCount, QoS.AT_MOST_ONCE));
+        channel.runPendingTasks();
+        for (int i = 0; i < messageCount; i++) {
+            MqttPublishMessage message = channel.readOutbound();
+            assertEquals(message.variableHeader().topicName(), topic);
+        }
+        assertEquals(flushCount.get(), 1);
+    }
+
     @Test
     public void qos0PubExceedBufferCapacity() {
         mockCheckPermission(true);
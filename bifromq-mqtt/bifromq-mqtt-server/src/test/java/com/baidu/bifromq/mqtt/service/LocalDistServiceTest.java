@@ -43,6 +43,8 @@ import com.baidu.bifromq.type.ClientInfo;
 import com.baidu.bifromq.type.MatchInfo;
 import com.baidu.bifromq.type.TopicMessagePack;
 import com.bifromq.plugin.resourcethrottler.IResourceThrottler;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ImmediateEventExecutor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -50,7 +52,9 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -161,7 +165,8 @@ public class LocalDistServiceTest extends MockableTest {
             ClientInfo clientInfo = ClientInfo.newBuilder().setTenantId(tenantId).build();
             when(session.clientInfo()).thenReturn(clientInfo);
             when(session.channelId()).thenReturn("channelId" + i);
-            when(session.publish(any(), anyList())).thenReturn(true);
+            when(session.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+            when(session.preparePublish(any(), anyList())).thenReturn(() -> {});
             when(localSessionRegistry.get("channelId" + i)).thenReturn(session);
             sessions.add(session);
             localDistService.match(reqId, topicFilter, session);
@@ -193,7 +198,7 @@ public class LocalDistServiceTest extends MockableTest {
             .allMatch(result -> result.getCode() == DeliveryResult.Code.OK));
 
         // Verify that the publish method was called correctly
-        verify(sessions.get(0), times(1)).publish(any(), anyList());
+        verify(sessions.get(0), times(1)).preparePublish(any(), anyList());
     }
 
     @Test
@@ -217,7 +222,8 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession = mock(IMQTTTransientSession.class);
         when(mockTransientSession.channelId()).thenReturn(channelId);
-        when(mockTransientSession.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(anyString())).thenReturn(mockTransientSession);
 
         ILocalTopicRouter.ILocalRoutes localRoutes = mock(ILocalTopicRouter.ILocalRoutes.class);
@@ -233,7 +239,7 @@ public class LocalDistServiceTest extends MockableTest {
         DeliveryReply reply = future.join();
 
         verify(localSessionRegistry).get(anyString());
-        verify(mockTransientSession).publish(any(), any());
+        verify(mockTransientSession).preparePublish(any(), any());
 
         assertNotNull(reply);
         DeliveryResults results = reply.getResultMap().get(tenantId);
@@ -263,7 +269,8 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession = mock(IMQTTTransientSession.class);
         when(mockTransientSession.channelId()).thenReturn(channelId);
-        when(mockTransientSession.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(anyString())).thenReturn(mockTransientSession);
 
         ILocalTopicRouter.ILocalRoutes localRoutes = mock(ILocalTopicRouter.ILocalRoutes.class);
@@ -304,7 +311,8 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession = mock(IMQTTTransientSession.class);
         when(mockTransientSession.channelId()).thenReturn(channelId);
-        when(mockTransientSession.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(anyString())).thenReturn(mockTransientSession);
 
         when(localTopicRouter.getTopicRoutes(anyString(), any())).thenReturn(Optional.empty());
@@ -341,7 +349,8 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession = mock(IMQTTTransientSession.class);
         when(mockTransientSession.channelId()).thenReturn(channelId);
-        when(mockTransientSession.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(anyString())).thenReturn(mockTransientSession);
 
         when(localTopicRouter.getTopicRoutes(anyString(), any())).thenReturn(Optional.of(new CompletableFuture<>()));
@@ -378,7 +387,8 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession = mock(IMQTTTransientSession.class);
         when(mockTransientSession.channelId()).thenReturn(channelId);
-        when(mockTransientSession.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(anyString())).thenReturn(mockTransientSession);
 
         when(localTopicRouter.getTopicRoutes(anyString(), any())).thenReturn(
@@ -419,12 +429,14 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession1 = mock(IMQTTTransientSession.class);
         when(mockTransientSession1.channelId()).thenReturn(channelId1);
-        when(mockTransientSession1.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession1.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession1.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(channelId1)).thenReturn(mockTransientSession1);
 
         IMQTTTransientSession mockTransientSession2 = mock(IMQTTTransientSession.class);
         when(mockTransientSession2.channelId()).thenReturn(channelId2);
-        when(mockTransientSession2.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession2.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession2.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(channelId2)).thenReturn(mockTransientSession2);
 
         ILocalTopicRouter.ILocalRoutes localRoutes = mock(ILocalTopicRouter.ILocalRoutes.class);
@@ -443,8 +455,8 @@ public class LocalDistServiceTest extends MockableTest {
         DeliveryReply reply = future.join();
 
         verify(localSessionRegistry).get(channelId1);
-        verify(mockTransientSession1).publish(eq(matchInfo), eq(List.of(topicMessagePack)));
-        verify(mockTransientSession2, never()).publish(any(), any());
+        verify(mockTransientSession1).preparePublish(eq(matchInfo), eq(List.of(topicMessagePack)));
+        verify(mockTransientSession2, never()).preparePublish(any(), any());
 
         DeliveryResults results = reply.getResultMap().get(tenantId);
         DeliveryResult result = results.getResult(0);
@@ -479,12 +491,14 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession1 = mock(IMQTTTransientSession.class);
         when(mockTransientSession1.channelId()).thenReturn(channelId1);
-        when(mockTransientSession1.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession1.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession1.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(channelId1)).thenReturn(mockTransientSession1);
 
         IMQTTTransientSession mockTransientSession2 = mock(IMQTTTransientSession.class);
         when(mockTransientSession2.channelId()).thenReturn(channelId2);
-        when(mockTransientSession2.publish(any(), any())).thenReturn(true);
+        when(mockTransientSession2.eventLoop()).thenReturn(ImmediateEventExecutor.INSTANCE);
+        when(mockTransientSession2.preparePublish(any(), any())).thenReturn(() -> {});
         when(localSessionRegistry.get(channelId2)).thenReturn(mockTransientSession2);
 
         ILocalTopicRouter.ILocalRoutes localRoutes = mock(ILocalTopicRouter.ILocalRoutes.class);
@@ -503,14 +517,65 @@ public class LocalDistServiceTest extends MockableTest {
         DeliveryReply reply = future.join();
 
         verify(localSessionRegistry, times(2)).get(channelId1);
-        verify(mockTransientSession1, times(2)).publish(any(), any());
-        verify(mockTransientSession2, never()).publish(any(), any());
+        verify(mockTransientSession1, times(2)).preparePublish(any(), any());
+        verify(mockTransientSession2, never()).preparePublish(any(), any());
 
         DeliveryResults results = reply.getResultMap().get(tenantId);
         DeliveryResult result = results.getResult(0);
         assertEquals(DeliveryResult.Code.OK, result.getCode());
     }
 
+    @Test
+    public void groupPublishByEventLoop() {
+        String tenantId = "tenant1";
+        String topic = "testTopic";
+        String topicFilter = "testTopic/#";
+        MatchInfo matchInfo = MatchInfo.newBuilder()
+            .setTopicFilter(topicFilter)
+            .setReceiverId("receiverId")
+            .build();
+        TopicMessagePack topicMessagePack = TopicMessagePack.newBuilder().setTopic(topic).build();
+        DeliveryPackage deliveryPack = DeliveryPackage.newBuilder()
+            .addPack(DeliveryPack.newBuilder()
+                .setMessagePack(topicMessagePack)
+                .addMatchInfo(matchInfo)
+                .build())
+            .build();
+        DeliveryRequest request = DeliveryRequest.newBuilder().putPackage(tenantId, deliveryPack).build();
+
+        EventExecutor eventLoop1 = mock(EventExecutor.class);
+        EventExecutor eventLoop2 = mock(EventExecutor.class);
+        AtomicInteger publishCount = new AtomicInteger();
+        Set<String> channelIds = new LinkedHashSet<>();
+        for (int i = 0; i < 4; i++) {
+            String channelId = "channel" + i;
+            IMQTTTransientSession session = mock(IMQTTTransientSession.class);
+            when(session.channelId()).thenReturn(channelId);
+            when(session.eventLoop()).thenReturn(i % 2 == 0 ? eventLoop1 : eventLoop2);
+            when(session.preparePublish(any(), any())).thenReturn(publishCount::incrementAndGet);
+            when(localSessionRegistry.get(channelId)).thenReturn(session);
+            channelIds.add(channelId);
+        }
+        ILocalTopicRouter.ILocalRoutes localRoutes = mock(ILocalTopicRouter.ILocalRoutes.class);
+        when(localRoutes.localReceiverId()).thenReturn("receiverId");
+        when(localRoutes.routeList()).thenReturn(channelIds);
+        when(localTopicRouter.getTopicRoutes(anyString(), any())).thenReturn(Optional.of(
+            CompletableFuture.completedFuture(localRoutes)));
+
+        DeliveryReply reply = localDistService.dist(request).join();
+        assertEquals(reply.getResultMap().get(tenantId).getResult(0).getCode(), DeliveryResult.Code.OK);
+
+        ArgumentCaptor<Runnable> loop1Task = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Runnable> loop2Task = ArgumentCaptor.forClass(Runnable.class);
+        verify(eventLoop1, times(1)).execute(loop1Task.capture());
+        verify(eventLoop2, times(1)).execute(loop2Task.capture());
+        assertEquals(publishCount.get(), 0);
+        loop1Task.getValue().run();
+        assertEquals(publishCount.get(), 2);
+        loop2Task.getValue().run();
+        assertEquals(publishCount.get(), 4);
+    }
+
     @Test
     public void publishFailedAsNoSub() {
         String tenantId = "tenant1";
@@ -532,7 +597,7 @@ public class LocalDistServiceTest extends MockableTest {
 
         IMQTTTransientSession mockTransientSession = mock(IMQTTTransientSession.class);
         when(mockTransientSession.channelId()).thenReturn(channelId);
-        when(mockTransientSession.publish(any(), any())).thenReturn(false);
+        when(mockTransientSession.preparePublish(any(), any())).thenReturn(null);
         when(localSessionRegistry.get(anyString())).thenReturn(mockTransientSession);
 
         ILocalTopicRouter.ILocalRoutes localRoutes = mock(ILocalTopicRouter.ILocalRoutes.class);
@@ -548,7 +613,7 @@ public class LocalDistServiceTest extends MockableTest {
         DeliveryReply reply = future.join();
 
         verify(localSessionRegistry).get(anyString());
-        verify(mockTransientSession).publish(any(), any());
+        verify(mockTransientSession).preparePublish(any(), any());
 
         DeliveryResults results = reply.getResultMap().get(tenantId);
         DeliveryResult result = results.getResult(0);
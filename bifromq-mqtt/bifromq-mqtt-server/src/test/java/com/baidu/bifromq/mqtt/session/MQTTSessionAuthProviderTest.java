@@ -16,6 +16,8 @@ package com.baidu.bifromq.mqtt.session;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import com.baidu.bifromq.mqtt.MockableTest;
 import com.baidu.bifromq.plugin.authprovider.IAuthProvider;
@@ -29,6 +31,7 @@ import io.netty.channel.DefaultEventLoop;
 import io.netty.util.concurrent.EventExecutor;
 import java.lang.reflect.Method;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -109,4 +112,38 @@ public class MQTTSessionAuthProviderTest extends MockableTest {
             assertEquals(expected.get(i), i);
         }
     }
+
+    @Test
+    public void knownResultAfterSlowCheck() {
+        MQTTSessionAuthProvider authProvider = new MQTTSessionAuthProvider(delegate, context);
+        CompletableFuture<CheckResult> slowCheck = new CompletableFuture<>();
+        when(delegate.checkPermission(any(), any())).thenReturn(slowCheck);
+        CheckResult granted = CheckResult.newBuilder().setGranted(Granted.getDefaultInstance()).build();
+        LinkedList<Integer> completed = new LinkedList<>();
+        List<CompletableFuture<CheckResult>> checkFutures = new LinkedList<>();
+
+        CompletableFuture.runAsync(() -> {
+            checkFutures.add(authProvider.checkPermission(ClientInfo.newBuilder().build(), MQTTAction.newBuilder()
+                    .setPub(PubAction.newBuilder().setTopic("0").build())
+                    .build())
+                .whenComplete((result, throwable) -> completed.add(0)));
+            // e.g. a cached result of the same session
+            checkFutures.add(authProvider.checkPermission(granted)
+                .whenComplete((result, throwable) -> completed.add(1)));
+        }, contextExecutor).join();
+        assertFalse(checkFutures.get(1).isDone());
+
+        slowCheck.complete(granted);
+        CompletableFuture.allOf(checkFutures.toArray(CompletableFuture[]::new)).join();
+        assertEquals(completed, List.of(0, 1));
+    }
+
+    @Test
+    public void knownResultWithoutPendingCheck() {
+        MQTTSessionAuthProvider authProvider = new MQTTSessionAuthProvider(delegate, context);
+        CheckResult granted = CheckResult.newBuilder().setGranted(Granted.getDefaultInstance()).build();
+        CompletableFuture<CheckResult> checkFuture =
+            CompletableFuture.supplyAsync(() -> authProvider.checkPermission(granted), contextExecutor).join();
+        assertTrue(checkFuture.isDone());
+    }
 }
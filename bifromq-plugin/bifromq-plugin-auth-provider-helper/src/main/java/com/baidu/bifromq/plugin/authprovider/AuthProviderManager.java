@@ -34,7 +34,9 @@ import com.baidu.bifromq.plugin.settingprovider.ISettingProvider;
 import com.baidu.bifromq.type.ClientInfo;
 import io.micrometer.core.instrument.Timer;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -49,6 +51,7 @@ public class AuthProviderManager implements IAuthProvider, AutoCloseable {
     private final IAuthProvider delegate;
     private final ISettingProvider settingProvider;
     private final IEventCollector eventCollector;
+    private final Set<IPermissionRevocationListener> revocationListeners = new CopyOnWriteArraySet<>();
     private MetricManager metricMgr;
 
     public AuthProviderManager(String authProviderFQN,
@@ -79,6 +82,21 @@ public class AuthProviderManager implements IAuthProvider, AutoCloseable {
 
     private void init() {
         metricMgr = new MetricManager(delegate.getClass().getName());
+        try {
+            delegate.addPermissionRevocationListener(this::onRevoked);
+        } catch (Throwable e) {
+            pluginLog.error("AuthProvider addPermissionRevocationListener throws exception", e);
+        }
+    }
+
+    private void onRevoked(String tenantId, String userId) {
+        for (IPermissionRevocationListener listener : revocationListeners) {
+            try {
+                listener.onRevoked(tenantId, userId);
+            } catch (Throwable e) {
+                log.error("Failed to notify permission revocation: tenantId={}, userId={}", tenantId, userId, e);
+            }
+        }
     }
 
     @Override
@@ -248,6 +266,11 @@ public class AuthProviderManager implements IAuthProvider, AutoCloseable {
         }
     }
 
+    @Override
+    public void addPermissionRevocationListener(IPermissionRevocationListener listener) {
+        revocationListeners.add(listener);
+    }
+
     @Override
     public void close() {
         if (stopped.compareAndSet(false, true)) {
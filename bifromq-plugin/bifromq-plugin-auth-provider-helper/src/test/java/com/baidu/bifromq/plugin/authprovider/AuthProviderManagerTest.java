@@ -18,6 +18,9 @@ import static com.baidu.bifromq.plugin.authprovider.MetricConstants.CALL_TIMER;
 import static com.baidu.bifromq.plugin.authprovider.MetricConstants.TAG_METHOD;
 import static com.baidu.bifromq.plugin.settingprovider.Setting.ByPassPermCheckError;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
@@ -398,4 +401,23 @@ public class AuthProviderManagerTest {
         assertEquals(meterRegistry.find(CALL_FAIL_COUNTER).tag(TAG_METHOD, "AuthProvider/check").counter().count(),
             0);
     }
+
+    @Test
+    public void pushPermissionRevocation() {
+        manager =
+            new AuthProviderManager(mockProvider.getClass().getName(), pluginManager, settingProvider, eventCollector);
+        ArgumentCaptor<IPermissionRevocationListener> listenerCaptor =
+            ArgumentCaptor.forClass(IPermissionRevocationListener.class);
+        verify(mockProvider).addPermissionRevocationListener(listenerCaptor.capture());
+
+        IPermissionRevocationListener listener1 = mock(IPermissionRevocationListener.class);
+        IPermissionRevocationListener listener2 = mock(IPermissionRevocationListener.class);
+        doThrow(new RuntimeException("Intend Error")).when(listener1).onRevoked(anyString(), anyString());
+        manager.addPermissionRevocationListener(listener1);
+        manager.addPermissionRevocationListener(listener2);
+
+        listenerCaptor.getValue().onRevoked("tenantA", "userA");
+        verify(listener1).onRevoked("tenantA", "userA");
+        verify(listener2).onRevoked("tenantA", "userA");
+    }
 }
@@ -143,6 +143,16 @@ public interface IAuthProvider extends ExtensionPoint {
             });
     }
 
+    /**
+     * Implement this method to push permission revocations to BifroMQ. If enabled, the check result of publish action
+     * may be cached by the session for a period of time, call the listener when the permissions of a user have been
+     * changed, so that the cached results will not be used anymore.
+     *
+     * @param listener the listener for permission revocations
+     */
+    default void addPermissionRevocationListener(IPermissionRevocationListener listener) {
+    }
+
     /**
      * This method will be called during broker shutdown.
      */
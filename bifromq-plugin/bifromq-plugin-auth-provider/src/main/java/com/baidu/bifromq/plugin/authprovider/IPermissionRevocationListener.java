@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.plugin.authprovider;
+
+/**
+ * The listener provided by BifroMQ for auth provider to push permission revocations.
+ */
+public interface IPermissionRevocationListener {
+    /**
+     * Notify BifroMQ that the permissions of given user have been changed, the cached check results of the user will be
+     * dropped.
+     *
+     * @param tenantId the id of the tenant
+     * @param userId   the id of the user
+     */
+    void onRevoked(String tenantId, String userId);
+}
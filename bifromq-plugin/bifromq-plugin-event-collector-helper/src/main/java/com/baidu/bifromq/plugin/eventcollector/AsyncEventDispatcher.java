@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.plugin.eventcollector;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatch events to collectors asynchronously. The reported event is copied into a slot of the ring buffer selected
+ * by the reporting thread, every slot holds one pre-allocated event object per event type which is reused once
+ * allocated, so there is no allocation in steady state. The ring buffers are drained in batch by dedicated consumer
+ * threads.
+ */
+@Slf4j
+final class AsyncEventDispatcher implements AutoCloseable {
+    interface IBatchReporter {
+        void report(List<Event<?>> events);
+    }
+
+    private static final EventPool ZERO_OUT_HOLDERS = new EventPool();
+    private static final long MIN_IDLE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+    private final RingBuffer[] stripes;
+    private final int stripeMask;
+    private final AsyncReportOptions.OverflowPolicy overflowPolicy;
+    private final int maxBatchSize;
+    private final IBatchReporter reporter;
+    private final Thread[] consumers;
+    private final Counter dropCounter;
+    private final Gauge backlogGauge;
+    private final Timer lagTimer;
+    private volatile boolean stopped = false;
+
+    AsyncEventDispatcher(AsyncReportOptions options, IBatchReporter reporter) {
+        assert options.getConsumerThreads() > 0 && options.getMaxBatchSize() > 0;
+        int stripeNum = roundUpToPowerOfTwo(options.getStripes());
+        int bufferSize = roundUpToPowerOfTwo(options.getBufferSize());
+        this.stripes = new RingBuffer[stripeNum];
+        for (int i = 0; i < stripeNum; i++) {
+            stripes[i] = new RingBuffer(bufferSize);
+        }
+        this.stripeMask = stripeNum - 1;
+        this.overflowPolicy = options.getOverflowPolicy();
+        this.maxBatchSize = options.getMaxBatchSize();
+        this.reporter = reporter;
+        dropCounter = Counter.builder("event.collector.async.drop.count")
+            .register(Metrics.globalRegistry);
+        backlogGauge = Gauge.builder("event.collector.async.backlog", this::backlog)
+            .register(Metrics.globalRegistry);
+        lagTimer = Timer.builder("event.collector.async.lag")
+            .register(Metrics.globalRegistry);
+        ThreadFactory threadFactory = new ThreadFactoryBuilder()
+            .setNameFormat("event-collector-%d")
+            .setDaemon(true)
+            .build();
+        int consumerNum = Math.min(options.getConsumerThreads(), stripeNum);
+        consumers = new Thread[consumerNum];
+        for (int i = 0; i < consumerNum; i++) {
+            List<RingBuffer> owned = new ArrayList<>();
+            for (int j = i; j < stripeNum; j += consumerNum) {
+                owned.add(stripes[j]);
+            }
+            consumers[i] = threadFactory.newThread(() -> consume(owned.toArray(RingBuffer[]::new)));
+            consumers[i].start();
+        }
+    }
+
+    void dispatch(Event<?> event) {
+        RingBuffer ringBuffer = stripes[(int) Thread.currentThread().getId() & stripeMask];
+        if (ringBuffer.offer(event)) {
+            return;
+        }
+        if (overflowPolicy == AsyncReportOptions.OverflowPolicy.BLOCK) {
+            while (!stopped) {
+                LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+                if (ringBuffer.offer(event)) {
+                    return;
+                }
+            }
+        }
+        dropCounter.increment();
+    }
+
+    long backlog() {
+        long backlog = 0;
+        for (RingBuffer ringBuffer : stripes) {
+            backlog += ringBuffer.backlog();
+        }
+        return backlog;
+    }
+
+    @SneakyThrows
+    @Override
+    public void close() {
+        stopped = true;
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        Metrics.globalRegistry.remove(dropCounter);
+        Metrics.globalRegistry.remove(backlogGauge);
+        Metrics.globalRegistry.remove(lagTimer);
+    }
+
+    private void consume(RingBuffer[] owned) {
+        List<Event<?>> batch = new ArrayList<>(maxBatchSize);
+        long idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+        while (true) {
+            // read the flag before draining, so that all events dispatched before stop are reported
+            boolean stopping = stopped;
+            boolean drained = false;
+            for (RingBuffer ringBuffer : owned) {
+                int count = ringBuffer.drain(batch, maxBatchSize);
+                if (count == 0) {
+                    continue;
+                }
+                drained = true;
+                lagTimer.record(System.nanoTime() - ringBuffer.headEnqueueNanos(), TimeUnit.NANOSECONDS);
+                try {
+                    reporter.report(batch);
+                } catch (Throwable e) {
+                    log.error("Failed to report events", e);
+                } finally {
+                    batch.clear();
+                    ringBuffer.release(count);
+                }
+            }
+            if (drained) {
+                idleWaitNanos = MIN_IDLE_WAIT_NANOS;
+            } else if (stopping) {
+                return;
+            } else {
+                LockSupport.parkNanos(idleWaitNanos);
+                idleWaitNanos = Math.min(idleWaitNanos * 2, MAX_IDLE_WAIT_NANOS);
+            }
+        }
+    }
+
+    private static int roundUpToPowerOfTwo(int num) {
+        return num <= 1 ? 1 : Integer.highestOneBit(num - 1) << 1;
+    }
+
+    /**
+     * Bounded multi-producer single-consumer ring buffer, every slot is guarded by a sequence: the slot at position p
+     * is free for writing when its sequence equals p, and is readable when its sequence equals p + 1.
+     */
+    private static final class RingBuffer {
+        private final int mask;
+        private final Event<?>[][] holders;
+        private final Event<?>[] published;
+        private final long[] enqueueNanos;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        // only accessed by the consumer thread
+        private long head;
+        private volatile long consumed;
+
+        RingBuffer(int size) {
+            mask = size - 1;
+            // the holders of a slot are allocated on first use
+            holders = new Event<?>[size][];
+            published = new Event<?>[size];
+            enqueueNanos = new long[size];
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        boolean offer(Event<?> event) {
+            long pos;
+            while (true) {
+                pos = tail.get();
+                long diff = sequences.get((int) (pos & mask)) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        break;
+                    }
+                } else if (diff < 0) {
+                    // full
+                    return false;
+                }
+                // the slot is claimed by other producer, retry
+            }
+            int idx = (int) (pos & mask);
+            if (holders[idx] == null) {
+                holders[idx] = new Event<?>[EventType.values().length];
+            }
+            int typeIdx = event.type().ordinal();
+            Event holder = holders[idx][typeIdx];
+            if (holder == null) {
+                holder = (Event) event.clone();
+                holders[idx][typeIdx] = holder;
+            } else {
+                holder.clone(event);
+            }
+            published[idx] = holder;
+            enqueueNanos[idx] = System.nanoTime();
+            sequences.set(idx, pos + 1);
+            return true;
+        }
+
+        int drain(List<Event<?>> batch, int maxCount) {
+            int count = 0;
+            while (count < maxCount) {
+                long pos = head + count;
+                int idx = (int) (pos & mask);
+                if (sequences.get(idx) != pos + 1) {
+                    break;
+                }
+                batch.add(published[idx]);
+                count++;
+            }
+            return count;
+        }
+
+        long headEnqueueNanos() {
+            return enqueueNanos[(int) (head & mask)];
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void release(int count) {
+            for (int i = 0; i < count; i++) {
+                long pos = head + i;
+                int idx = (int) (pos & mask);
+                Event holder = published[idx];
+                // clear out the references held by the event
+                holder.clone(ZERO_OUT_HOLDERS.get(holder.type()));
+                published[idx] = null;
+                sequences.set(idx, pos + mask + 1);
+            }
+            head += count;
+            consumed = head;
+        }
+
+        long backlog() {
+            return tail.get() - consumed;
+        }
+    }
+}
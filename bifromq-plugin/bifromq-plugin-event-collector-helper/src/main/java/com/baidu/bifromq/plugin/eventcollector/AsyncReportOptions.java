@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.plugin.eventcollector;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/**
+ * The options of reporting events asynchronously, the events are copied into ring buffers striped by reporting thread
+ * and drained by dedicated threads in batch.
+ */
+@Accessors(chain = true)
+@Getter
+@Setter
+public class AsyncReportOptions {
+    public enum OverflowPolicy {
+        DROP, // drop the event and count it
+        BLOCK // block the reporting thread until there is free slot
+    }
+
+    private int stripes = Math.max(1, Runtime.getRuntime().availableProcessors() / 2); // rounded up to power of 2
+    private int bufferSize = 4096; // the slots per stripe, rounded up to power of 2
+    private int consumerThreads = 1;
+    private int maxBatchSize = 256;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+}
@@ -20,6 +20,7 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.extern.slf4j.Slf4j;
@@ -35,9 +36,19 @@ public class EventCollectorManager implements IEventCollector, AutoCloseable {
     private final Map<String, IEventCollector> eventCollectors = new HashMap<>();
     private final Map<String, Timer> eventCollectorTimers = new HashMap<>();
     private final Counter callInvokeCounter;
+    private final AsyncEventDispatcher asyncDispatcher;
 
     public EventCollectorManager(PluginManager pluginMgr) {
+        this(pluginMgr, null);
+    }
 
+    /**
+     * Create an event collector manager.
+     *
+     * @param pluginMgr    the plugin manager
+     * @param asyncOptions the options for reporting events asynchronously, null for reporting in caller thread
+     */
+    public EventCollectorManager(PluginManager pluginMgr, AsyncReportOptions asyncOptions) {
         for (IEventCollector eventCollector : pluginMgr.getExtensions(IEventCollector.class)) {
             pluginLog.info("Event collector loaded: {}", eventCollector.getClass().getName());
             eventCollectors.put(eventCollector.getClass().getName(), eventCollector);
@@ -48,24 +59,48 @@ public class EventCollectorManager implements IEventCollector, AutoCloseable {
         }
         callInvokeCounter = Counter.builder("event.collector.report.invoke.count")
             .register(Metrics.globalRegistry);
+        if (asyncOptions != null) {
+            pluginLog.info("Event collectors report asynchronously: stripes={}, bufferSize={}, overflowPolicy={}",
+                asyncOptions.getStripes(), asyncOptions.getBufferSize(), asyncOptions.getOverflowPolicy());
+            asyncDispatcher = new AsyncEventDispatcher(asyncOptions, this::dispatchBatch);
+        } else {
+            asyncDispatcher = null;
+        }
     }
 
     @Override
     public void report(Event<?> event) {
         callInvokeCounter.increment();
         event.hlc(HLC.INST.get());
+        if (asyncDispatcher != null) {
+            asyncDispatcher.dispatch(event);
+        } else {
+            for (Map.Entry<String, IEventCollector> entry : eventCollectors.entrySet()) {
+                Timer.Sample sample = Timer.start();
+                try {
+                    entry.getValue().report(event);
+                } catch (Throwable e) {
+                    pluginLog.error("Failed to report event to collector: {}", entry.getKey());
+                } finally {
+                    sample.stop(eventCollectorTimers.get(entry.getKey()));
+                }
+            }
+        }
+        // clear out the event
+        event.clone(ZERO_OUT_HOLDERS.get(event.type()));
+    }
+
+    private void dispatchBatch(List<Event<?>> events) {
         for (Map.Entry<String, IEventCollector> entry : eventCollectors.entrySet()) {
             Timer.Sample sample = Timer.start();
             try {
-                entry.getValue().report(event);
+                entry.getValue().reportBatch(events);
             } catch (Throwable e) {
-                pluginLog.error("Failed to report event to collector: {}", entry.getKey());
+                pluginLog.error("Failed to report events to collector: {}", entry.getKey());
             } finally {
                 sample.stop(eventCollectorTimers.get(entry.getKey()));
             }
         }
-        // clear out the event
-        event.clone(ZERO_OUT_HOLDERS.get(event.type()));
     }
 
 
@@ -73,6 +108,10 @@ public class EventCollectorManager implements IEventCollector, AutoCloseable {
     public void close() {
         if (stopped.compareAndSet(false, true)) {
             log.debug("Closing event collector manager");
+            if (asyncDispatcher != null) {
+                // report the pending events before closing collectors
+                asyncDispatcher.close();
+            }
             eventCollectors.values().forEach(eventCollector -> {
                 try {
                     eventCollector.close();
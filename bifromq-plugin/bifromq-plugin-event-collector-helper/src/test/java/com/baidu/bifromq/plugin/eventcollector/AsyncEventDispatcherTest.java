@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.plugin.eventcollector;
+
+import static org.awaitility.Awaitility.await;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import com.baidu.bifromq.plugin.eventcollector.mqttbroker.PingReq;
+import com.baidu.bifromq.type.ClientInfo;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import lombok.SneakyThrows;
+import org.testng.annotations.Test;
+
+public class AsyncEventDispatcherTest {
+    @Test
+    public void reportInOrder() {
+        List<String> reported = new CopyOnWriteArrayList<>();
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(new AsyncReportOptions()
+            .setStripes(1)
+            .setBufferSize(16)
+            .setMaxBatchSize(4), events -> {
+            batchSizes.add(events.size());
+            events.forEach(e -> reported.add(((PingReq) e).clientInfo().getTenantId()));
+        });
+        PingReq event = new PingReq();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(event.clientInfo(ClientInfo.newBuilder().setTenantId("tenant" + i).build()));
+        }
+        await().until(() -> reported.size() == 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(reported.get(i), "tenant" + i);
+        }
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+        dispatcher.close();
+    }
+
+    @Test
+    public void eventCopied() {
+        List<Event<?>> reported = new CopyOnWriteArrayList<>();
+        CountDownLatch reportLatch = new CountDownLatch(1);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(new AsyncReportOptions(), events -> {
+            reported.addAll(events);
+            reportLatch.countDown();
+            waitFor(releaseLatch);
+        });
+        PingReq event = new PingReq().clientInfo(ClientInfo.newBuilder().setTenantId("tenant").build());
+        dispatcher.dispatch(event);
+        waitFor(reportLatch);
+        assertNotSame(reported.get(0), event);
+        assertEquals(((PingReq) reported.get(0)).clientInfo().getTenantId(), "tenant");
+        releaseLatch.countDown();
+        dispatcher.close();
+        // cleared after reported
+        assertNull(((PingReq) reported.get(0)).clientInfo());
+    }
+
+    @Test
+    public void dropWhenOverflow() {
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        List<Event<?>> reported = new CopyOnWriteArrayList<>();
+        AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(new AsyncReportOptions()
+            .setStripes(1)
+            .setBufferSize(4)
+            .setOverflowPolicy(AsyncReportOptions.OverflowPolicy.DROP), events -> {
+            reported.addAll(events);
+            waitFor(releaseLatch);
+        });
+        PingReq event = new PingReq().clientInfo(ClientInfo.getDefaultInstance());
+        dispatcher.dispatch(event);
+        // wait until the consumer is blocked by the first batch
+        await().until(() -> reported.size() == 1);
+        // the slot of first event is not released until reported
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(event);
+        }
+        assertEquals(dispatcher.backlog(), 4);
+        releaseLatch.countDown();
+        dispatcher.close();
+        assertEquals(reported.size(), 4);
+    }
+
+    @Test
+    public void blockWhenOverflow() {
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        List<Event<?>> reported = new CopyOnWriteArrayList<>();
+        AsyncEventDispatcher dispatcher = new AsyncEventDispatcher(new AsyncReportOptions()
+            .setStripes(1)
+            .setBufferSize(4)
+            .setOverflowPolicy(AsyncReportOptions.OverflowPolicy.BLOCK), events -> {
+            reported.addAll(events);
+            waitFor(releaseLatch);
+        });
+        PingReq event = new PingReq().clientInfo(ClientInfo.getDefaultInstance());
+        dispatcher.dispatch(event);
+        await().until(() -> reported.size() == 1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                dispatcher.dispatch(event);
+            }
+        });
+        producer.start();
+        await().until(() -> dispatcher.backlog() == 4 && producer.getState() == Thread.State.TIMED_WAITING);
+        releaseLatch.countDown();
+        await().until(() -> reported.size() == 11);
+        dispatcher.close();
+    }
+
+    @SneakyThrows
+    private void waitFor(CountDownLatch latch) {
+        latch.await();
+    }
+}
@@ -48,4 +48,14 @@ public class EventCollectorManagerTest {
         manager.report(ThreadLocalEventPool.getLocal(PingReq.class).clientInfo(ClientInfo.getDefaultInstance()));
         await().until(() -> collector.events.size() == 1);
     }
+
+    @Test
+    public void ReportEventAsync() {
+        EventCollectorManager manager = new EventCollectorManager(pluginManager, new AsyncReportOptions());
+        EventCollectorTestStub collector = (EventCollectorTestStub) manager.get(EventCollectorTestStub.class.getName());
+        assertEquals(collector.events.size(), 0);
+        manager.report(ThreadLocalEventPool.getLocal(PingReq.class).clientInfo(ClientInfo.getDefaultInstance()));
+        await().until(() -> collector.events.size() == 1);
+        manager.close();
+    }
 }
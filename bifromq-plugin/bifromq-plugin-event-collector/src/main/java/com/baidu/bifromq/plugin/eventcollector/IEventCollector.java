@@ -13,6 +13,7 @@
 
 package com.baidu.bifromq.plugin.eventcollector;
 
+import java.util.List;
 import org.pf4j.ExtensionPoint;
 
 public interface IEventCollector extends ExtensionPoint {
@@ -26,6 +27,21 @@ public interface IEventCollector extends ExtensionPoint {
      */
     void report(Event<?> event);
 
+    /**
+     * Implement this method to receive events in batch, it's called instead of {@link #report(Event)} when the broker
+     * is configured to report events asynchronously. The default implementation reports the events one by one.
+     * <p>
+     * Note: The event objects in the list will be reused after the method returns, so the ownership is not transferred
+     * to the method implementation. Make a clone if needed.
+     *
+     * @param events the events reported in the order of occurrence per reporting thread
+     */
+    default void reportBatch(List<Event<?>> events) {
+        for (Event<?> event : events) {
+            report(event);
+        }
+    }
+
     /**
      * This method will be called during broker shutdown
      */
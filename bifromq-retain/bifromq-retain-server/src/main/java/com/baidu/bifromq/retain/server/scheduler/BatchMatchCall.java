@@ -28,6 +28,7 @@ import static com.baidu.bifromq.util.TopicUtil.parse;
 import com.baidu.bifromq.basehlc.HLC;
 import com.baidu.bifromq.basekv.client.IBaseKVStoreClient;
 import com.baidu.bifromq.basekv.client.KVRangeSetting;
+import com.baidu.bifromq.basekv.client.ReplicaSelectPolicy;
 import com.baidu.bifromq.basekv.proto.Boundary;
 import com.baidu.bifromq.basekv.store.proto.KVRangeRORequest;
 import com.baidu.bifromq.basekv.store.proto.ROCoProcInput;
@@ -156,7 +157,8 @@ public class BatchMatchCall implements IBatchCall<MatchCall, MatchCallResult, Ma
     }
 
     private CompletableFuture<BatchMatchReply> queryCoProc(BatchMatchRequest request, KVRangeSetting rangeSetting) {
-        return retainStoreClient.query(rangeSetting.randomReplica(), KVRangeRORequest.newBuilder()
+        String replica = rangeSetting.selectReplica(ReplicaSelectPolicy.PowerOfTwoChoices);
+        return retainStoreClient.query(replica, KVRangeRORequest.newBuilder()
                 .setReqId(request.getReqId())
                 .setKvRangeId(rangeSetting.id)
                 .setVer(rangeSetting.ver)
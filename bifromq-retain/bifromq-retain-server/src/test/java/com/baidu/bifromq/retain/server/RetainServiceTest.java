@@ -169,8 +169,8 @@ public class RetainServiceTest {
         assertEquals(req1.matchInfo.getReceiverId(), matchRequest.getMatchInfo().getReceiverId());
         assertEquals(req1.matchInfo.getTopicFilter(), matchRequest.getMatchInfo().getTopicFilter());
 
-        assertEquals(req1.msgPackWrapper.messagePack.getTopic(), retainMsg1.getTopic());
-        assertEquals(req1.msgPackWrapper.messagePack.getMessage(0).getPublisher(), retainMsg1.getPublisher());
+        assertEquals(req1.messagePack.getTopic(), retainMsg1.getTopic());
+        assertEquals(req1.messagePack.getMessage(0).getPublisher(), retainMsg1.getPublisher());
 
         assertEquals(req1.delivererKey.delivererKey(), matchRequest.getDelivererKey());
         assertEquals(req1.delivererKey.subBrokerId(), matchRequest.getBrokerId());
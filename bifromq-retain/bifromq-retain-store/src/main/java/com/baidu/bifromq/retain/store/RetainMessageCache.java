@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.retain.store;
+
+import static com.baidu.bifromq.basekv.utils.BoundaryUtil.inRange;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.type.TopicMessage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Size-bounded cache of the parsed retained messages keyed by retain key, so that the match of hot topics could be
+ * served without reading from storage. The cache is shared by all ranges of the store, so the memory is bounded per
+ * store no matter how many ranges are hosted.
+ *
+ * <p>The cache is kept coherent by the mutations of the ranges: retained or replaced messages are put into the cache,
+ * cleared or expired ones are evicted. Each mutation advances the logical clock and stamps the stripe of the key. A
+ * message loaded from storage is cached only if the key's stripe has not been touched since the read began, so a stale
+ * read never re-inserts an overwritten or evicted message, even after the newer one has been evicted by size.
+ */
+final class RetainMessageCache {
+    private static final int STRIPES = 1024;
+    private final boolean enabled;
+    private final Cache<ByteString, TopicMessage> cache;
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLongArray touchedAt = new AtomicLongArray(STRIPES);
+    private volatile long clearedAt;
+    private final Gauge hitRatioGauge;
+    private final Gauge bytesGauge;
+
+    RetainMessageCache(long maxBytes, String... tags) {
+        enabled = maxBytes > 0;
+        cache = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((ByteString k, TopicMessage v) -> k.size() + v.getSerializedSize())
+            .recordStats()
+            .build();
+        hitRatioGauge = Gauge.builder("retain.cache.hit.ratio", () -> cache.stats().hitRate())
+            .tags(Tags.of(tags))
+            .register(Metrics.globalRegistry);
+        bytesGauge = Gauge.builder("retain.cache.bytes",
+                () -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+            .tags(Tags.of(tags))
+            .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * The current stamp, which must be taken before the reader is refreshed for loading the missed messages.
+     *
+     * @return the stamp
+     */
+    long stamp() {
+        return clock.get();
+    }
+
+    TopicMessage get(ByteString retainKey) {
+        if (!enabled) {
+            return null;
+        }
+        return cache.getIfPresent(retainKey);
+    }
+
+    void loaded(ByteString retainKey, TopicMessage message, long readStamp) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().compute(retainKey, (k, v) -> {
+            if (v != null || clearedAt > readStamp || touchedAt.get(stripe(k)) > readStamp) {
+                return v;
+            }
+            return message;
+        });
+    }
+
+    void put(ByteString retainKey, TopicMessage message) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().compute(retainKey, (k, v) -> {
+            touch(k);
+            return message;
+        });
+    }
+
+    void evict(ByteString retainKey) {
+        if (!enabled) {
+            return;
+        }
+        cache.asMap().compute(retainKey, (k, v) -> {
+            touch(k);
+            return null;
+        });
+    }
+
+    /**
+     * Drop the cached messages of the range.
+     *
+     * @param boundary the boundary of the range
+     */
+    void clear(Boundary boundary) {
+        clearedAt = clock.incrementAndGet();
+        cache.asMap().keySet().removeIf(k -> inRange(k, boundary));
+    }
+
+    void close() {
+        cache.invalidateAll();
+        Metrics.globalRegistry.remove(hitRatioGauge);
+        Metrics.globalRegistry.remove(bytesGauge);
+    }
+
+    private void touch(ByteString retainKey) {
+        touchedAt.set(stripe(retainKey), clock.incrementAndGet());
+    }
+
+    private int stripe(ByteString retainKey) {
+        return retainKey.hashCode() & (STRIPES - 1);
+    }
+}
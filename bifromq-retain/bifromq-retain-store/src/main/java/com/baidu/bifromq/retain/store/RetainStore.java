@@ -66,7 +66,7 @@ class RetainStore implements IRetainStore {
         this.clusterId = builder.clusterId;
         this.storeClient = builder.retainStoreClient;
         this.gcInterval = builder.gcInterval;
-        coProcFactory = new RetainStoreCoProcFactory(builder.loadEstimateWindow);
+        coProcFactory = new RetainStoreCoProcFactory(builder.clusterId, builder.loadEstimateWindow);
         Map<String, IRetainStoreBalancerFactory> loadedFactories =
             BaseHookLoader.load(IRetainStoreBalancerFactory.class);
         for (String factoryName : builder.balancerFactoryConfig.keySet()) {
@@ -120,6 +120,7 @@ class RetainStore implements IRetainStore {
             .tickerThreads(builder.tickerThreads)
             .bgTaskExecutor(builder.bgTaskExecutor)
             .attributes(builder.attributes)
+            .defaultGroupTags(builder.defaultGroupTags)
             .finish()
             .build();
         start();
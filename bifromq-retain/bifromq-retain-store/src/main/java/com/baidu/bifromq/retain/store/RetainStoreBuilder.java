@@ -21,7 +21,9 @@ import com.baidu.bifromq.baserpc.server.RPCServerBuilder;
 import com.google.protobuf.Struct;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
@@ -49,6 +51,7 @@ public class RetainStoreBuilder {
     Duration loadEstimateWindow = Duration.ofSeconds(5);
     Duration gcInterval = Duration.ofMinutes(60);
     Map<String, String> attributes = new HashMap<>();
+    Set<String> defaultGroupTags = new HashSet<>();
 
     public IRetainStore build() {
         return new RetainStore(this);
@@ -31,6 +31,7 @@ import com.baidu.bifromq.basekv.store.proto.ROCoProcInput;
 import com.baidu.bifromq.basekv.store.proto.ROCoProcOutput;
 import com.baidu.bifromq.basekv.store.proto.RWCoProcInput;
 import com.baidu.bifromq.basekv.store.proto.RWCoProcOutput;
+import com.baidu.bifromq.basekv.store.util.PendingKeys;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
 import com.baidu.bifromq.retain.rpc.proto.BatchMatchReply;
 import com.baidu.bifromq.retain.rpc.proto.BatchMatchRequest;
@@ -55,12 +56,11 @@ import com.baidu.bifromq.type.TopicMessage;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
@@ -73,15 +73,21 @@ class RetainStoreCoProc implements IKVRangeCoProc {
     private final Supplier<IKVCloseableReader> rangeReaderProvider;
     private final TenantsState tenantsState;
     private final String[] tags;
+    private final RetainMessageCache messageCache;
+    // the retain keys written by the mutations whose in-memory updates are not applied yet
+    private final PendingKeys pendingRetainKeys = new PendingKeys(key -> !isTenantNS(key));
     private RetainTopicIndex index;
+    private volatile Boundary boundary;
 
     RetainStoreCoProc(String clusterId,
                       String storeId,
                       KVRangeId id,
-                      Supplier<IKVCloseableReader> rangeReaderProvider) {
+                      Supplier<IKVCloseableReader> rangeReaderProvider,
+                      RetainMessageCache messageCache) {
         this.tags = new String[] {"clusterId", clusterId, "storeId", storeId, "rangeId", KVRangeIdUtil.toString(id)};
         this.rangeReaderProvider = rangeReaderProvider;
         this.tenantsState = new TenantsState(rangeReaderProvider.get(), tags);
+        this.messageCache = messageCache;
         load();
     }
 
@@ -106,28 +112,31 @@ class RetainStoreCoProc implements IKVRangeCoProc {
     public Supplier<RWCoProcOutput> mutate(RWCoProcInput input, IKVReader reader, IKVWriter writer) {
         RetainServiceRWCoProcInput coProcInput = input.getRetainService();
         RetainServiceRWCoProcOutput.Builder outputBuilder = RetainServiceRWCoProcOutput.newBuilder();
+        PendingKeys.TrackingWriter trackingWriter = pendingRetainKeys.track(writer);
         AtomicReference<Runnable> afterMutate = new AtomicReference<>();
         switch (coProcInput.getTypeCase()) {
             case BATCHRETAIN -> {
                 BatchRetainReply.Builder replyBuilder = BatchRetainReply.newBuilder();
-                afterMutate.set(batchRetain(coProcInput.getBatchRetain(), replyBuilder, reader, writer));
+                afterMutate.set(batchRetain(coProcInput.getBatchRetain(), replyBuilder, reader, trackingWriter));
                 outputBuilder.setBatchRetain(replyBuilder);
             }
             case GC -> {
                 GCReply.Builder replyBuilder = GCReply.newBuilder();
-                afterMutate.set(gc(coProcInput.getGc(), replyBuilder, writer));
+                afterMutate.set(gc(coProcInput.getGc(), replyBuilder, trackingWriter));
                 outputBuilder.setGc(replyBuilder);
             }
         }
         RWCoProcOutput output = RWCoProcOutput.newBuilder().setRetainService(outputBuilder.build()).build();
         return () -> {
             afterMutate.get().run();
+            trackingWriter.settle();
             return output;
         };
     }
 
     @Override
     public void reset(Boundary boundary) {
+        pendingRetainKeys.clear();
         load();
     }
 
@@ -135,6 +144,9 @@ class RetainStoreCoProc implements IKVRangeCoProc {
     public void close() {
         index = null;
         tenantsState.destroy();
+        if (boundary != null) {
+            messageCache.clear(boundary);
+        }
     }
 
     private CompletableFuture<BatchMatchReply> batchMatch(BatchMatchRequest request, IKVReader reader) {
@@ -166,31 +178,75 @@ class RetainStoreCoProc implements IKVRangeCoProc {
         if (limit == 0) {
             return emptyList();
         }
-        Set<RetainedMsgInfo> matchedMsgInfos = index.match(tenantId, topicFilter);
-        List<TopicMessage> messages = new LinkedList<>();
+        // the index walk stops once enough unexpired topics are matched
+        Set<RetainedMsgInfo> matchedMsgInfos = index.match(tenantId, topicFilter, now, limit);
+        if (matchedMsgInfos.isEmpty()) {
+            return emptyList();
+        }
+        List<TopicMessage> messages = new ArrayList<>(matchedMsgInfos.size());
+        List<ByteString> missedKeys = new ArrayList<>();
         for (RetainedMsgInfo msgInfo : matchedMsgInfos) {
-            if (messages.size() >= limit) {
-                break;
+            ByteString retainKey = retainKey(msgInfo.tenantId, msgInfo.topic);
+            TopicMessage message = messageCache.get(retainKey);
+            if (message == null) {
+                missedKeys.add(retainKey);
+            } else if (expireAt(message.getMessage()) > now) {
+                messages.add(message);
             }
-            Optional<ByteString> val = reader.get(retainKey(msgInfo.tenantId, msgInfo.topic));
-            if (val.isPresent()) {
-                TopicMessage message = TopicMessage.parseFrom(val.get());
-                if (expireAt(message.getMessage()) > now) {
-                    messages.add(message);
-                }
+        }
+        if (missedKeys.isEmpty()) {
+            return messages;
+        }
+        // load the values in key order in one sweep, so that adjacent keys are read sequentially
+        missedKeys.sort(ByteString.unsignedLexicographicalComparator());
+        // take the stamp before refreshing, so the mutations applied after the read view are detected
+        long stamp = messageCache.stamp();
+        reader.refresh();
+        IKVIterator itr = reader.iterator();
+        itr.seek(missedKeys.get(0));
+        for (ByteString retainKey : missedKeys) {
+            if (!seekTo(itr, retainKey)) {
+                continue;
+            }
+            TopicMessage message = TopicMessage.parseFrom(itr.value());
+            messageCache.loaded(retainKey, message, stamp);
+            if (expireAt(message.getMessage()) > now) {
+                messages.add(message);
             }
         }
         return messages;
     }
 
+    private boolean seekTo(IKVIterator itr, ByteString key) {
+        // the iterator is positioned at or after the previous key which is less than the given key
+        if (!itr.isValid()) {
+            return false;
+        }
+        int cmp = ByteString.unsignedLexicographicalComparator().compare(itr.key(), key);
+        if (cmp >= 0) {
+            return cmp == 0;
+        }
+        // try stepping forward first, the matched keys are often adjacent
+        itr.next();
+        if (!itr.isValid()) {
+            return false;
+        }
+        cmp = ByteString.unsignedLexicographicalComparator().compare(itr.key(), key);
+        if (cmp >= 0) {
+            return cmp == 0;
+        }
+        itr.seek(key);
+        return itr.isValid() && itr.key().equals(key);
+    }
+
 
     private Runnable batchRetain(BatchRetainRequest request,
                                  BatchRetainReply.Builder replyBuilder,
                                  IKVReader reader,
                                  IKVWriter writer) {
         replyBuilder.setReqId(request.getReqId());
-        Map<String, Map<String, Message>> addTopics = new HashMap<>();
-        Map<String, Map<String, Message>> updateTopics = new HashMap<>();
+        Map<String, Map<String, TopicMessage>> addTopics = new HashMap<>();
+        Map<String, Map<String, TopicMessage>> updateTopics = new HashMap<>();
         Map<String, Set<String>> removeTopics = new HashMap<>();
         for (String tenantId : request.getParamsMap().keySet()) {
             Map<String, RetainResult.Code> results = new HashMap<>();
@@ -205,26 +261,29 @@ class RetainStoreCoProc implements IKVRangeCoProc {
                         .setPublisher(retainMessage.getPublisher())
                         .build();
                     ByteString retainKey = retainKey(tenantId, topicMessage.getTopic());
-                    Set<RetainedMsgInfo> retainedMsgInfos = index.match(tenantId, topic);
+                    // the index is updated after persisted, so check the retain key written by the preceding
+                    // mutations in the same batch via reader
+                    boolean exists = pendingRetainKeys.isPending(retainKey)
+                        ? reader.exist(retainKey) : !index.match(tenantId, topic).isEmpty();
                     if (topicMessage.getMessage().getPayload().isEmpty()) {
                         // delete existing retained
-                        if (!retainedMsgInfos.isEmpty()) {
+                        if (exists) {
                             writer.delete(retainKey);
                             removeTopics.computeIfAbsent(tenantId, k -> new HashSet<>()).add(topic);
                         }
                         results.put(topic, RetainResult.Code.CLEARED);
                         continue;
                     }
-                    if (retainedMsgInfos.isEmpty()) {
+                    if (!exists) {
                         // retain new message
                         writer.put(retainKey, topicMessage.toByteString());
                         addTopics.computeIfAbsent(tenantId, k -> new HashMap<>())
-                            .put(topic, topicMessage.getMessage());
+                            .put(topic, topicMessage);
                     } else {
                         // replace existing
                         writer.put(retainKey, topicMessage.toByteString());
                         updateTopics.computeIfAbsent(tenantId, k -> new HashMap<>())
-                            .put(topic, topicMessage.getMessage());
+                            .put(topic, topicMessage);
                     }
                     results.put(topic, RetainResult.Code.RETAINED);
                 } catch (Throwable e) {
@@ -238,16 +297,26 @@ class RetainStoreCoProc implements IKVRangeCoProc {
         }
         return () -> {
             addTopics.forEach((tenantId, topics) -> {
-                topics.forEach(
-                    (topic, msg) -> index.add(tenantId, topic, msg.getTimestamp(), msg.getExpiryInterval()));
+                topics.forEach((topic, topicMsg) -> {
+                    index.add(tenantId, topic, topicMsg.getMessage().getTimestamp(),
+                        topicMsg.getMessage().getExpiryInterval());
+                    messageCache.put(retainKey(tenantId, topic), topicMsg);
+                });
                 tenantsState.increaseTopicCount(tenantId, topics.size());
             });
             updateTopics.forEach((tenantId, topics) -> {
-                topics.forEach((topic, msg) -> index.remove(tenantId, topic));
-                topics.forEach((topic, msg) -> index.add(tenantId, topic, msg.getTimestamp(), msg.getExpiryInterval()));
+                topics.forEach((topic, topicMsg) -> index.remove(tenantId, topic));
+                topics.forEach((topic, topicMsg) -> {
+                    index.add(tenantId, topic, topicMsg.getMessage().getTimestamp(),
+                        topicMsg.getMessage().getExpiryInterval());
+                    messageCache.put(retainKey(tenantId, topic), topicMsg);
+                });
             });
             removeTopics.forEach((tenantId, topics) -> {
-                topics.forEach(topic -> index.remove(tenantId, topic));
+                topics.forEach(topic -> {
+                    index.remove(tenantId, topic);
+                    messageCache.evict(retainKey(tenantId, topic));
+                });
                 tenantsState.increaseTopicCount(tenantId, -topics.size());
             });
         };
@@ -263,12 +332,20 @@ class RetainStoreCoProc implements IKVRangeCoProc {
             long expireTime = expireAt(msgInfo.timestamp,
                 (request.hasExpirySeconds() ? request.getExpirySeconds() : msgInfo.expirySeconds));
             if (expireTime <= now) {
-                writer.delete(retainKey(msgInfo.tenantId, msgInfo.topic));
+                ByteString retainKey = retainKey(msgInfo.tenantId, msgInfo.topic);
+                if (pendingRetainKeys.isPending(retainKey)) {
+                    // changed by the preceding mutations in the same batch, leave it to the next round
+                    continue;
+                }
+                writer.delete(retainKey);
                 removedTopics.computeIfAbsent(msgInfo.tenantId, k -> new HashSet<>()).add(msgInfo.topic);
             }
         }
         return () -> {
-            removedTopics.forEach((tenantId, topics) -> topics.forEach(topic -> index.remove(tenantId, topic)));
+            removedTopics.forEach((tenantId, topics) -> topics.forEach(topic -> {
+                index.remove(tenantId, topic);
+                messageCache.evict(retainKey(tenantId, topic));
+            }));
             removedTopics.forEach((tenantId, topics) -> tenantsState.increaseTopicCount(tenantId, -topics.size()));
         };
     }
@@ -278,6 +355,8 @@ class RetainStoreCoProc implements IKVRangeCoProc {
         tenantsState.destroy();
 
         try (IKVCloseableReader reader = rangeReaderProvider.get()) {
+            boundary = reader.boundary();
+            messageCache.clear(boundary);
             IKVIterator itr = reader.iterator();
             for (itr.seekToFirst(); itr.isValid(); itr.next()) {
                 if (!isTenantNS(itr.key())) {
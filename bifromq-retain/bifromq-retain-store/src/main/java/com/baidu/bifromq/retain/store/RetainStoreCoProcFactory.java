@@ -20,6 +20,7 @@ import com.baidu.bifromq.basekv.store.api.IKVRangeCoProcFactory;
 import com.baidu.bifromq.basekv.store.api.IKVRangeSplitHinter;
 import com.baidu.bifromq.basekv.store.range.hinter.MutationKVLoadBasedSplitHinter;
 import com.baidu.bifromq.basekv.utils.KVRangeIdUtil;
+import com.baidu.bifromq.sysprops.props.RetainStoreMessageCacheMaxBytes;
 import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
@@ -28,9 +29,13 @@ import java.util.function.Supplier;
 
 public class RetainStoreCoProcFactory implements IKVRangeCoProcFactory {
     private final Duration loadEstWindow;
+    private final RetainMessageCache messageCache;
 
-    public RetainStoreCoProcFactory(Duration loadEstimateWindow) {
+    public RetainStoreCoProcFactory(String clusterId, Duration loadEstimateWindow) {
         this.loadEstWindow = loadEstimateWindow;
+        // shared by all ranges of the store, so the memory is bounded no matter how many ranges are hosted
+        this.messageCache = new RetainMessageCache(RetainStoreMessageCacheMaxBytes.INSTANCE.get(),
+            "clusterId", clusterId);
     }
 
     @Override
@@ -46,9 +51,10 @@ public class RetainStoreCoProcFactory implements IKVRangeCoProcFactory {
                                        String storeId,
                                        KVRangeId id,
                                        Supplier<IKVCloseableReader> rangeReaderProvider) {
-        return new RetainStoreCoProc(clusterId, storeId, id, rangeReaderProvider);
+        return new RetainStoreCoProc(clusterId, storeId, id, rangeReaderProvider, messageCache);
     }
 
     public void close() {
+        messageCache.close();
     }
 }
@@ -25,5 +25,16 @@ public interface IRetainTopicIndex {
 
     Set<RetainedMsgInfo> match(String tenantId, String topicFilter);
 
+    /**
+     * Match at most limit retained topics which are not expired at the given time.
+     *
+     * @param tenantId    the tenant id
+     * @param topicFilter the topic filter
+     * @param now         the current time in milliseconds
+     * @param limit       the max number of matched topics
+     * @return the matched topics
+     */
+    Set<RetainedMsgInfo> match(String tenantId, String topicFilter, long now, int limit);
+
     Set<RetainedMsgInfo> findAll();
 }
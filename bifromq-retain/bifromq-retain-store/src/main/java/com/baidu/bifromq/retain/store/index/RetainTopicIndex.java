@@ -20,6 +20,7 @@ import static com.baidu.bifromq.util.TopicConst.SYS_PREFIX;
 import com.baidu.bifromq.util.TopicUtil;
 import com.baidu.bifromq.util.index.Branch;
 import com.baidu.bifromq.util.index.TopicLevelTrie;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -131,6 +132,13 @@ public class RetainTopicIndex extends TopicLevelTrie<RetainedMsgInfo> implements
         return lookup(TopicUtil.parse(tenantId, topicFilter, false), RetainMatcher);
     }
 
+    @Override
+    public Set<RetainedMsgInfo> match(String tenantId, String topicFilter, long now, int limit) {
+        return lookup(TopicUtil.parse(tenantId, topicFilter, false), RetainMatcher,
+            msgInfo -> Duration.ofMillis(msgInfo.timestamp).plusSeconds(msgInfo.expirySeconds).toMillis() > now,
+            limit);
+    }
+
     @Override
     public Set<RetainedMsgInfo> findAll() {
         return lookup(Collections.emptyList(), RetainMatcher);
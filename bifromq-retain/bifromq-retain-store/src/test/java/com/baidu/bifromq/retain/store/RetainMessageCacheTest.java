@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2023. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.retain.store;
+
+import static com.baidu.bifromq.retain.utils.KeyUtil.retainKey;
+import static com.baidu.bifromq.retain.utils.KeyUtil.tenantNS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import com.baidu.bifromq.basekv.proto.Boundary;
+import com.baidu.bifromq.type.Message;
+import com.baidu.bifromq.type.TopicMessage;
+import com.google.protobuf.ByteString;
+import org.testng.annotations.Test;
+
+public class RetainMessageCacheTest {
+    @Test
+    public void putAndEvict() {
+        RetainMessageCache cache = new RetainMessageCache(1024 * 1024, "rangeId", "putAndEvict");
+        ByteString key = retainKey("tenantA", "a/b");
+        TopicMessage message = message("a/b", "v1");
+        cache.put(key, message);
+        assertEquals(cache.get(key), message);
+        cache.evict(key);
+        assertNull(cache.get(key));
+        cache.close();
+    }
+
+    @Test
+    public void loadedNotOverwriteNewer() {
+        RetainMessageCache cache = new RetainMessageCache(1024 * 1024, "rangeId", "loadedNotOverwriteNewer");
+        ByteString key = retainKey("tenantA", "a/b");
+        TopicMessage newer = message("a/b", "v2");
+        long stamp = cache.stamp();
+        cache.put(key, newer);
+        cache.loaded(key, message("a/b", "v1"), stamp);
+        assertEquals(cache.get(key), newer);
+
+        ByteString otherKey = retainKey("tenantA", "a/c");
+        TopicMessage loaded = message("a/c", "v1");
+        cache.loaded(otherKey, loaded, cache.stamp());
+        assertEquals(cache.get(otherKey), loaded);
+        cache.close();
+    }
+
+    @Test
+    public void staleLoadedNotCached() {
+        RetainMessageCache cache = new RetainMessageCache(1024 * 1024, "rangeId", "staleLoadedNotCached");
+        ByteString key = retainKey("tenantA", "a/b");
+        // the read began before the message is replaced and then evicted
+        long stamp = cache.stamp();
+        cache.put(key, message("a/b", "v2"));
+        cache.evict(key);
+        cache.loaded(key, message("a/b", "v1"), stamp);
+        assertNull(cache.get(key));
+
+        // the read began before the message is cleared
+        stamp = cache.stamp();
+        cache.evict(key);
+        cache.loaded(key, message("a/b", "v1"), stamp);
+        assertNull(cache.get(key));
+
+        TopicMessage loaded = message("a/b", "v3");
+        cache.loaded(key, loaded, cache.stamp());
+        assertEquals(cache.get(key), loaded);
+        cache.close();
+    }
+
+    @Test
+    public void clear() {
+        RetainMessageCache cache = new RetainMessageCache(1024 * 1024, "rangeId", "clear");
+        ByteString key = retainKey("tenantA", "a/b");
+        ByteString otherKey = retainKey("tenantB", "a/b");
+        cache.put(key, message("a/b", "v1"));
+        TopicMessage other = message("a/b", "v1");
+        cache.put(otherKey, other);
+        long stamp = cache.stamp();
+        cache.clear(Boundary.newBuilder()
+            .setStartKey(tenantNS("tenantA"))
+            .setEndKey(tenantNS("tenantB"))
+            .build());
+        assertNull(cache.get(key));
+        // the keys out of the boundary are kept
+        assertEquals(cache.get(otherKey), other);
+        // the loads began before clearing are not cached
+        cache.loaded(key, message("a/b", "v1"), stamp);
+        assertNull(cache.get(key));
+        cache.close();
+    }
+
+    @Test
+    public void disabled() {
+        RetainMessageCache cache = new RetainMessageCache(0, "rangeId", "disabled");
+        ByteString key = retainKey("tenantA", "a/b");
+        cache.put(key, message("a/b", "v1"));
+        cache.loaded(key, message("a/b", "v1"), cache.stamp());
+        assertNull(cache.get(key));
+        cache.close();
+    }
+
+    private TopicMessage message(String topic, String payload) {
+        return TopicMessage.newBuilder()
+            .setTopic(topic)
+            .setMessage(Message.newBuilder()
+                .setPayload(ByteString.copyFromUtf8(payload))
+                .setTimestamp(System.currentTimeMillis())
+                .build())
+            .build();
+    }
+}
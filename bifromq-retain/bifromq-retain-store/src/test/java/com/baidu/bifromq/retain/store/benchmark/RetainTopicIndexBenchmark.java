@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.retain.store.benchmark;
+
+import static com.baidu.bifromq.retain.utils.KeyUtil.retainKey;
+
+import com.baidu.bifromq.retain.store.index.RetainTopicIndex;
+import com.baidu.bifromq.retain.store.index.RetainedMsgInfo;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.SneakyThrows;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compare matching wildcard subscriptions against 1M retained topics with and without limit pushdown. The topics are
+ * laid out as "site/{0..99}/device/{0..9999}".
+ */
+@State(Scope.Benchmark)
+public class RetainTopicIndexBenchmark {
+    private static final String TENANT_ID = "tenantA";
+    private static final int SITES = 100;
+    private static final int DEVICES_PER_SITE = 10000;
+    private RetainTopicIndex index;
+
+    @Param({"#", "site/+/device/+", "site/1/#"})
+    private String topicFilter;
+
+    @Param({"10", "100"})
+    private int limit;
+
+    @SneakyThrows
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder()
+            .include(RetainTopicIndexBenchmark.class.getSimpleName())
+            .build();
+        new Runner(opt).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        index = new RetainTopicIndex();
+        long now = System.currentTimeMillis();
+        for (int site = 0; site < SITES; site++) {
+            for (int device = 0; device < DEVICES_PER_SITE; device++) {
+                index.add(TENANT_ID, "site/" + site + "/device/" + device, now, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Threads(1)
+    @Fork(value = 1, jvmArgs = {"-Xmx8g"})
+    public void matchAllThenLimit(Blackhole blackhole) {
+        // the way of matching before limit pushdown
+        Set<RetainedMsgInfo> matched = index.match(TENANT_ID, topicFilter);
+        int count = 0;
+        for (RetainedMsgInfo msgInfo : matched) {
+            if (count++ >= limit) {
+                break;
+            }
+            blackhole.consume(retainKey(msgInfo.tenantId, msgInfo.topic));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 4)
+    @Threads(1)
+    @Fork(value = 1, jvmArgs = {"-Xmx8g"})
+    public void matchWithLimit(Blackhole blackhole) {
+        Set<RetainedMsgInfo> matched = index.match(TENANT_ID, topicFilter, System.currentTimeMillis(), limit);
+        List<ByteString> retainKeys = new ArrayList<>(matched.size());
+        for (RetainedMsgInfo msgInfo : matched) {
+            retainKeys.add(retainKey(msgInfo.tenantId, msgInfo.topic));
+        }
+        retainKeys.sort(ByteString.unsignedLexicographicalComparator());
+        blackhole.consume(retainKeys);
+    }
+}
@@ -14,6 +14,7 @@
 package com.baidu.bifromq.retain.store.index;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -103,6 +104,38 @@ public class RetainTopicIndexTest {
     }
 
 
+    @Test
+    public void testMatchWithLimit() {
+        String tenantId = "tenantA";
+        add(tenantId, "/", "/a", "/b", "a", "a/", "a/b", "a/b/c", "$a", "$a/", "$a/b").join();
+        assertMatch(tenantId, index.match(tenantId, "#", 0, 0));
+        assertMatch(tenantId, index.match(tenantId, "a/b", 0, 1), "a/b");
+        assertMatch(tenantId, index.match(tenantId, "#", 0, 100), "/", "/a", "/b", "a", "a/", "a/b", "a/b/c");
+
+        Set<String> all = Set.of("/", "/a", "/b", "a", "a/", "a/b", "a/b/c");
+        Set<RetainedMsgInfo> limited = index.match(tenantId, "#", 0, 3);
+        assertEquals(limited.size(), 3);
+        assertTrue(limited.stream().allMatch(msgInfo -> all.contains(msgInfo.topic)));
+
+        limited = index.match(tenantId, "+/+", 0, 2);
+        assertEquals(limited.size(), 2);
+        assertTrue(limited.stream().allMatch(msgInfo -> Set.of("/", "/a", "/b", "a/", "a/b").contains(msgInfo.topic)));
+    }
+
+    @Test
+    public void testMatchSkipExpired() {
+        String tenantId = "tenantA";
+        index.add(tenantId, "a", 1000, 1);
+        index.add(tenantId, "a/b", 1000, 10);
+        index.add(tenantId, "a/b/c", 2000, 1);
+        assertMatch(tenantId, index.match(tenantId, "#", 1999, 10), "a", "a/b", "a/b/c");
+        assertMatch(tenantId, index.match(tenantId, "#", 2000, 10), "a/b", "a/b/c");
+        assertMatch(tenantId, index.match(tenantId, "#", 3000, 10), "a/b");
+        assertMatch(tenantId, index.match(tenantId, "#", 11000, 10));
+        // expired topics are not counted in limit
+        assertMatch(tenantId, index.match(tenantId, "a/#", 3000, 1), "a/b");
+    }
+
     @Test
     public void testEdgeCases() {
         String tenantId = "tenantA";
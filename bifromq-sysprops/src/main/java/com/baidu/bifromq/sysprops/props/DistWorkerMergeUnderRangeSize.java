@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.sysprops.props;
+
+import com.baidu.bifromq.sysprops.BifroMQSysProp;
+import com.baidu.bifromq.sysprops.parser.LongParser;
+
+/**
+ * The maximum total data size in bytes of two adjacent ranges allowed for dist worker range merge.
+ */
+public final class DistWorkerMergeUnderRangeSize extends BifroMQSysProp<Long, LongParser> {
+    public static final DistWorkerMergeUnderRangeSize INSTANCE = new DistWorkerMergeUnderRangeSize();
+
+    private DistWorkerMergeUnderRangeSize() {
+        super("dist_worker_merge_max_range_size", 128 * 1024 * 1024L, LongParser.POSITIVE);
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.sysprops.props;
+
+import com.baidu.bifromq.sysprops.BifroMQSysProp;
+import com.baidu.bifromq.sysprops.parser.LongParser;
+
+/**
+ * The max bytes of the messages cached by inbox server for serving the fetch of the messages just inserted without
+ * reading back from inbox store. 0 means disabled.
+ */
+public final class InboxFetchCacheMaxBytes extends BifroMQSysProp<Long, LongParser> {
+    public static final InboxFetchCacheMaxBytes INSTANCE = new InboxFetchCacheMaxBytes();
+
+    private InboxFetchCacheMaxBytes() {
+        super("inbox_fetch_cache_max_bytes", 64L * 1024 * 1024, LongParser.NON_NEGATIVE);
+    }
+}
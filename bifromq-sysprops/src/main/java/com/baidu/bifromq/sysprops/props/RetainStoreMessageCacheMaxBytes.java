@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.sysprops.props;
+
+import com.baidu.bifromq.sysprops.BifroMQSysProp;
+import com.baidu.bifromq.sysprops.parser.LongParser;
+
+/**
+ * The max bytes of the retained messages cached in memory by each retain store, shared by all its ranges, for serving
+ * the match of hot topics without reading from storage. 0 means disabled.
+ */
+public final class RetainStoreMessageCacheMaxBytes extends BifroMQSysProp<Long, LongParser> {
+    public static final RetainStoreMessageCacheMaxBytes INSTANCE = new RetainStoreMessageCacheMaxBytes();
+
+    private RetainStoreMessageCacheMaxBytes() {
+        super("retain_store_message_cache_max_bytes", 16L * 1024 * 1024, LongParser.NON_NEGATIVE);
+    }
+}
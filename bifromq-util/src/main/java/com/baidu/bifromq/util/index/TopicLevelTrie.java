@@ -16,10 +16,12 @@ package com.baidu.bifromq.util.index;
 import static java.util.Collections.emptySet;
 
 import com.google.common.collect.Sets;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
 import org.pcollections.HashTreePMap;
 import org.pcollections.PMap;
 
@@ -231,6 +233,94 @@ public abstract class TopicLevelTrie<V> {
     }
 
 
+    /**
+     * Lookup at most limit values accepted by the filter for the given topic levels using the given branch selector.
+     * The trie walk stops as soon as enough values are collected, so the cost is bounded by the limit instead of the
+     * total number of matched values.
+     *
+     * @param topicLevels    The topic levels.
+     * @param branchSelector The branch selector.
+     * @param filter         The filter of the values to collect.
+     * @param limit          The max number of values to collect.
+     * @return The values.
+     */
+    protected final Set<V> lookup(List<String> topicLevels,
+                                  BranchSelector branchSelector,
+                                  Predicate<V> filter,
+                                  int limit) {
+        if (limit <= 0) {
+            return emptySet();
+        }
+        Set<V> values = new LinkedHashSet<>();
+        while (true) {
+            INode<V> r = root();
+            if (lookup(r, null, topicLevels, 0, branchSelector, filter, limit, values)) {
+                return values;
+            }
+            // values collected from an obsolete snapshot may be removed already
+            values.clear();
+        }
+    }
+
+    private boolean lookup(INode<V> i,
+                           INode<V> parent,
+                           List<String> topicLevels,
+                           int currentLevel,
+                           BranchSelector branchSelector,
+                           Predicate<V> filter,
+                           int limit,
+                           Set<V> values) {
+        // LPoint
+        MainNode<V> main = i.main();
+        if (main.cNode != null) {
+            CNode<V> cn = main.cNode;
+            Map<Branch<V>, BranchSelector.Action> branches =
+                branchSelector.selectBranch(cn.branches, topicLevels, currentLevel);
+            for (Map.Entry<Branch<V>, BranchSelector.Action> entry : branches.entrySet()) {
+                if (values.size() >= limit) {
+                    return true;
+                }
+                Branch<V> branch = entry.getKey();
+                BranchSelector.Action action = entry.getValue();
+                switch (action) {
+                    case MATCH_AND_CONTINUE, CONTINUE -> {
+                        if (action == BranchSelector.Action.MATCH_AND_CONTINUE) {
+                            collect(branch.values(), filter, limit, values);
+                        }
+                        if (branch.iNode != null && values.size() < limit) {
+                            if (!lookup(branch.iNode, i, topicLevels, currentLevel + 1, branchSelector, filter, limit,
+                                values)) {
+                                return false;
+                            }
+                        }
+                    }
+                    case MATCH_AND_STOP, STOP -> {
+                        if (action == BranchSelector.Action.MATCH_AND_STOP) {
+                            collect(branch.values(), filter, limit, values);
+                        }
+                    }
+                    default -> throw new IllegalStateException("Unknown action: " + action);
+                }
+            }
+            return true;
+        } else if (main.tNode != null) {
+            clean(parent);
+            return false;
+        }
+        throw new IllegalStateException("TopicLevelTrie is in an invalid state");
+    }
+
+    private void collect(Set<V> branchValues, Predicate<V> filter, int limit, Set<V> values) {
+        for (V value : branchValues) {
+            if (values.size() >= limit) {
+                return;
+            }
+            if (filter.test(value)) {
+                values.add(value);
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private INode<V> root() {
         return ROOT_UPDATER.get(this);
@@ -282,8 +372,13 @@ public abstract class TopicLevelTrie<V> {
     private MainNode<V> toCompressed(CNode<V> cn) {
         PMap<String, Branch<V>> branches = HashTreePMap.empty();
         for (Map.Entry<String, Branch<V>> entry : cn.branches.entrySet()) {
-            if (!couldTrim(entry.getValue())) {
-                branches = branches.plus(entry.getKey(), entry.getValue());
+            Branch<V> br = entry.getValue();
+            if (!couldTrim(br)) {
+                if (br.iNode != null && br.iNode.main().tNode != null) {
+                    // the branch still holds values, only detach the tombed sub-trie
+                    br = br.updated((INode<V>) null);
+                }
+                branches = branches.plus(entry.getKey(), br);
             }
         }
         return new MainNode<>(new CNode<>(branches));
@@ -15,6 +15,7 @@ package com.baidu.bifromq.starter.config;
 
 import com.baidu.bifromq.baseenv.EnvProvider;
 import com.baidu.bifromq.starter.config.model.ClusterConfig;
+import com.baidu.bifromq.starter.config.model.EventCollectorConfig;
 import com.baidu.bifromq.starter.config.model.RPCConfig;
 import com.baidu.bifromq.starter.config.model.api.APIServerConfig;
 import com.baidu.bifromq.starter.config.model.dict.SessionDictServiceConfig;
@@ -42,6 +43,9 @@ public class StandaloneConfig {
     @JsonSetter(nulls = Nulls.SKIP)
     private RPCConfig rpcConfig = new RPCConfig();
 
+    @JsonSetter(nulls = Nulls.SKIP)
+    private EventCollectorConfig eventCollectorConfig = new EventCollectorConfig();
+
     @JsonSetter(nulls = Nulls.SKIP)
     private MQTTServiceConfig mqttServiceConfig = new MQTTServiceConfig();
 
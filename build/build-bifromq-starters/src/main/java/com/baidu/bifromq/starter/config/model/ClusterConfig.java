@@ -24,4 +24,6 @@ public class ClusterConfig {
     private int port;
     private String seedEndpoints;
     private String clusterDomainName;
+    // the directory for persisting crdt replica snapshots, null means snapshot disabled
+    private String crdtSnapshotDir;
 }
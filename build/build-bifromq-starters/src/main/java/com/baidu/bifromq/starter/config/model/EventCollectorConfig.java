@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2024. The BifroMQ Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.baidu.bifromq.starter.config.model;
+
+import com.baidu.bifromq.plugin.eventcollector.AsyncReportOptions;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class EventCollectorConfig {
+    // report events in dedicated threads instead of the reporting threads
+    private boolean async = false;
+    private int stripes = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private int bufferSize = 4096;
+    private int consumerThreads = 1;
+    private int maxBatchSize = 256;
+    private AsyncReportOptions.OverflowPolicy overflowPolicy = AsyncReportOptions.OverflowPolicy.DROP;
+}
@@ -13,6 +13,7 @@
 
 package com.baidu.bifromq.starter.config.model;
 
+import com.baidu.bifromq.baseenv.EnvProvider;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
@@ -28,4 +29,11 @@ public class RocksDBEngineConfig extends StorageEngineConfig {
     private double compactTombstoneRatio = 0.3; // 30%
     private boolean asyncWALFlush = true; // only work for wal engine
     private boolean fsyncWAL = false; // only work for wal engine
+    private long blockCacheSize = 256 * 1024 * 1024; // shared by all kv spaces of the engine
+    private boolean hyperClockCache = false;
+    private long writeBufferSize = 128 * 1024 * 1024; // memtable budget of the engine, 0 for no limit
+    private long compactionRateLimit = 512 * 1024 * 1024; // bytes per second
+    // the background threads of rocksdb are shared by all engines in the process, the largest setting takes effect
+    private int compactionThreads = Math.max(2, EnvProvider.INSTANCE.availableProcessors() / 4);
+    private int flushThreads = Math.max(1, EnvProvider.INSTANCE.availableProcessors() / 8);
 }
@@ -20,7 +20,9 @@ import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.annotation.Nulls;
 import com.google.protobuf.Struct;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -43,6 +45,8 @@ public class DistWorkerConfig {
     private BalancerOptions balanceConfig = new BalancerOptions();
     @JsonSetter(nulls = Nulls.SKIP)
     private Map<String, String> attributes = new HashMap<>();
+    @JsonSetter(nulls = Nulls.SKIP)
+    private Set<String> defaultGroups = new HashSet<>();
 
     public DistWorkerConfig() {
         // DO not enable DistWorker split by default
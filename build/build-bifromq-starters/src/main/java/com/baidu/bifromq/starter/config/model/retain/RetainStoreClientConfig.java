@@ -13,6 +13,8 @@
 
 package com.baidu.bifromq.starter.config.model.retain;
 
+import java.util.HashSet;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -21,4 +23,6 @@ import lombok.Setter;
 public class RetainStoreClientConfig {
     private int workerThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 8);
     private int queryPipelinePerStore = 1000;
+    // the stores in any of the groups are preferred for non-linearized query
+    private Set<String> localityGroups = new HashSet<>();
 }
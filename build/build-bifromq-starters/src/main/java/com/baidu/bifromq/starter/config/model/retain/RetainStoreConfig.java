@@ -20,7 +20,9 @@ import com.fasterxml.jackson.annotation.JsonSetter;
 import com.fasterxml.jackson.annotation.Nulls;
 import com.google.protobuf.Struct;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -45,6 +47,8 @@ public class RetainStoreConfig {
     private BalancerOptions balanceConfig = new BalancerOptions();
     @JsonSetter(nulls = Nulls.SKIP)
     private Map<String, String> attributes = new HashMap<>();
+    @JsonSetter(nulls = Nulls.SKIP)
+    private Set<String> defaultGroups = new HashSet<>();
 
     public RetainStoreConfig() {
         balanceConfig.getBalancers().put("com.baidu.bifromq.retain.store.balance.ReplicaCntBalancerFactory",
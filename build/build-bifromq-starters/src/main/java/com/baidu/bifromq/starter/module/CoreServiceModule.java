@@ -13,10 +13,14 @@
 
 package com.baidu.bifromq.starter.module;
 
+import static com.baidu.bifromq.starter.module.EngineConfUtil.DATA_DIR_PROP;
+import static com.baidu.bifromq.starter.module.EngineConfUtil.USER_DIR_PROP;
+
 import com.baidu.bifromq.basecluster.AgentHostOptions;
 import com.baidu.bifromq.basecluster.IAgentHost;
 import com.baidu.bifromq.basecrdt.service.CRDTServiceOptions;
 import com.baidu.bifromq.basecrdt.service.ICRDTService;
+import com.baidu.bifromq.basecrdt.store.CRDTStoreOptions;
 import com.baidu.bifromq.basekv.client.IBaseKVStoreClient;
 import com.baidu.bifromq.basekv.metaservice.IBaseKVMetaService;
 import com.baidu.bifromq.baserpc.trafficgovernor.IRPCServiceTrafficService;
@@ -38,6 +42,8 @@ import com.google.inject.Provider;
 import com.google.inject.name.Names;
 import io.netty.channel.EventLoopGroup;
 import io.netty.handler.ssl.SslContext;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -66,6 +72,7 @@ public class CoreServiceModule extends AbstractModule {
                 .env(config.getClusterConfig().getEnv())
                 .addr(config.getClusterConfig().getHost())
                 .port(config.getClusterConfig().getPort())
+                .crdtStoreOptions(crdtStoreOptions(config, "agenthost"))
                 .build();
             return IAgentHost.newInstance(agentHostOptions);
         }
@@ -86,8 +93,26 @@ public class CoreServiceModule extends AbstractModule {
 
         @Override
         public ICRDTService share() {
-            return ICRDTService.newInstance(agentHost, CRDTServiceOptions.builder().build());
+            return ICRDTService.newInstance(agentHost, CRDTServiceOptions.builder()
+                .storeOptions(crdtStoreOptions(config, "crdtservice"))
+                .build());
+        }
+    }
+
+    private static CRDTStoreOptions crdtStoreOptions(StandaloneConfig config, String name) {
+        String snapshotDir = config.getClusterConfig().getCrdtSnapshotDir();
+        if (snapshotDir == null || snapshotDir.isBlank()) {
+            return new CRDTStoreOptions();
+        }
+        Path snapshotRootDir = Paths.get(snapshotDir);
+        if (!snapshotRootDir.isAbsolute()) {
+            String userDir = System.getProperty(USER_DIR_PROP);
+            String dataDir = System.getProperty(DATA_DIR_PROP, userDir);
+            snapshotRootDir = Paths.get(dataDir, snapshotDir);
         }
+        return CRDTStoreOptions.builder()
+            .snapshotDir(snapshotRootDir.resolve(name).toString())
+            .build();
     }
 
     private static class BaseKVMetaServiceProvider extends SharedResourceProvider<IBaseKVMetaService> {
@@ -184,6 +209,7 @@ public class CoreServiceModule extends AbstractModule {
                 .eventLoopGroup(eventLoopGroup)
                 .sslContext(rpcClientSSLContext)
                 .queryPipelinesPerStore(workerConfig.getQueryPipelinePerStore())
+                .localityGroupTags(workerConfig.getLocalityGroups())
                 .build();
         }
     }
@@ -248,6 +274,7 @@ public class CoreServiceModule extends AbstractModule {
                 .eventLoopGroup(eventLoopGroup)
                 .sslContext(rpcClientSSLContext)
                 .queryPipelinesPerStore(storeConfig.getQueryPipelinePerStore())
+                .localityGroupTags(config.getInboxServiceConfig().getStoreClient().getLocalityGroups())
                 .build();
         }
     }
@@ -312,6 +339,7 @@ public class CoreServiceModule extends AbstractModule {
                 .workerThreads(clientConfig.getWorkerThreads())
                 .sslContext(rpcClientSSLContext)
                 .queryPipelinesPerStore(clientConfig.getQueryPipelinePerStore())
+                .localityGroupTags(clientConfig.getLocalityGroups())
                 .build();
         }
     }
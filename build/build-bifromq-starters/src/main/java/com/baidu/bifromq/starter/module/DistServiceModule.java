@@ -116,6 +116,7 @@ public class DistServiceModule extends AbstractModule {
                 .subBrokerManager(injector.getInstance(ISubBrokerManager.class))
                 .loadEstimateWindow(Duration.ofSeconds(DistWorkerLoadEstimationWindowSeconds.INSTANCE.get()))
                 .attributes(workerConfig.getAttributes())
+                .defaultGroupTags(workerConfig.getDefaultGroups())
                 .build());
         }
     }
@@ -54,6 +54,12 @@ public class EngineConfUtil {
                 .compactMinTombstoneKeys(rocksDBConfig.getCompactMinTombstoneKeys())
                 .compactMinTombstoneRanges(rocksDBConfig.getCompactMinTombstoneRanges())
                 .compactTombstoneKeysRatio(rocksDBConfig.getCompactTombstoneRatio())
+                .blockCacheSize(rocksDBConfig.getBlockCacheSize())
+                .hyperClockCache(rocksDBConfig.isHyperClockCache())
+                .writeBufferManagerSize(rocksDBConfig.getWriteBufferSize())
+                .compactionRateLimit(rocksDBConfig.getCompactionRateLimit())
+                .compactionThreads(rocksDBConfig.getCompactionThreads())
+                .flushThreads(rocksDBConfig.getFlushThreads())
                 .build();
         }
     }
@@ -78,6 +84,12 @@ public class EngineConfUtil {
                 .compactMinTombstoneKeys(rocksDBConfig.getCompactMinTombstoneKeys())
                 .compactMinTombstoneRanges(rocksDBConfig.getCompactMinTombstoneRanges())
                 .compactTombstoneKeysRatio(rocksDBConfig.getCompactTombstoneRatio())
+                .blockCacheSize(rocksDBConfig.getBlockCacheSize())
+                .hyperClockCache(rocksDBConfig.isHyperClockCache())
+                .writeBufferManagerSize(rocksDBConfig.getWriteBufferSize())
+                .compactionRateLimit(rocksDBConfig.getCompactionRateLimit())
+                .compactionThreads(rocksDBConfig.getCompactionThreads())
+                .flushThreads(rocksDBConfig.getFlushThreads())
                 .asyncWALFlush(rocksDBConfig.isAsyncWALFlush())
                 .fsyncWAL(rocksDBConfig.isFsyncWAL())
                 .build();
@@ -123,6 +123,7 @@ public class InboxServiceModule extends AbstractModule {
                     .setDataEngineConfigurator(buildDataEngineConf(storeConfig.getDataEngineConfig(), "inbox_data"))
                     .setWalEngineConfigurator(buildWALEngineConf(storeConfig.getWalEngineConfig(), "inbox_wal")))
                 .attributes(storeConfig.getAttributes())
+                .defaultGroupTags(storeConfig.getDefaultGroups())
                 .build());
         }
     }
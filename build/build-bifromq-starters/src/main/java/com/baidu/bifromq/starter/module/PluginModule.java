@@ -17,6 +17,7 @@ import com.baidu.bifromq.inbox.client.IInboxClient;
 import com.baidu.bifromq.mqtt.inbox.IMqttBrokerClient;
 import com.baidu.bifromq.plugin.authprovider.AuthProviderManager;
 import com.baidu.bifromq.plugin.clientbalancer.ClientBalancerManager;
+import com.baidu.bifromq.plugin.eventcollector.AsyncReportOptions;
 import com.baidu.bifromq.plugin.eventcollector.EventCollectorManager;
 import com.baidu.bifromq.plugin.manager.BifroMQPluginManager;
 import com.baidu.bifromq.plugin.resourcethrottler.ResourceThrottlerManager;
@@ -24,6 +25,7 @@ import com.baidu.bifromq.plugin.settingprovider.SettingProviderManager;
 import com.baidu.bifromq.plugin.subbroker.ISubBrokerManager;
 import com.baidu.bifromq.plugin.subbroker.SubBrokerManager;
 import com.baidu.bifromq.starter.config.StandaloneConfig;
+import com.baidu.bifromq.starter.config.model.EventCollectorConfig;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import javax.inject.Singleton;
@@ -79,18 +81,30 @@ public class PluginModule extends AbstractModule {
     }
 
     private static class EventCollectorManagerProvider extends SharedResourceProvider<EventCollectorManager> {
+        private final StandaloneConfig config;
         private final PluginManager pluginManager;
 
         @Inject
-        private EventCollectorManagerProvider(PluginManager pluginManager,
+        private EventCollectorManagerProvider(StandaloneConfig config,
+                                              PluginManager pluginManager,
                                               SharedResourcesHolder sharedResourcesHolder) {
             super(sharedResourcesHolder);
+            this.config = config;
             this.pluginManager = pluginManager;
         }
 
         @Override
         public EventCollectorManager share() {
-            return new EventCollectorManager(pluginManager);
+            EventCollectorConfig eventCollectorConfig = config.getEventCollectorConfig();
+            if (!eventCollectorConfig.isAsync()) {
+                return new EventCollectorManager(pluginManager);
+            }
+            return new EventCollectorManager(pluginManager, new AsyncReportOptions()
+                .setStripes(eventCollectorConfig.getStripes())
+                .setBufferSize(eventCollectorConfig.getBufferSize())
+                .setConsumerThreads(eventCollectorConfig.getConsumerThreads())
+                .setMaxBatchSize(eventCollectorConfig.getMaxBatchSize())
+                .setOverflowPolicy(eventCollectorConfig.getOverflowPolicy()));
         }
     }
 
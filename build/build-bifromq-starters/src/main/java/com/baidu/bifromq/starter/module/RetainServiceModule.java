@@ -106,6 +106,7 @@ public class RetainServiceModule extends AbstractModule {
                     .setDataEngineConfigurator(buildDataEngineConf(storeConfig.getDataEngineConfig(), "retain_data"))
                     .setWalEngineConfigurator(buildWALEngineConf(storeConfig.getWalEngineConfig(), "retain_wal")))
                 .attributes(storeConfig.getAttributes())
+                .defaultGroupTags(storeConfig.getDefaultGroups())
                 .build());
         }
     }